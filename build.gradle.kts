@@ -47,20 +47,22 @@ tasks.register<Copy>("initConfig") {
     }
 }
 
-val fopVersion = "2.11"
-val pdfboxVersion = "3.0.7"
+val fopVersion: String = project.findProperty("fopVersion") as String
+val pdfboxVersion: String = project.findProperty("pdfboxVersion") as String
 
 dependencies {
     intellijPlatform {
         intellijIdea(ideaVersionFromProps)
         plugin("XPathView:243.22562.13")
     }
+    implementation(project(":xslfo-engine"))
     implementation("org.apache.xmlgraphics:fop:$fopVersion")
     implementation("org.apache.pdfbox:pdfbox:$pdfboxVersion")
     implementation("xerces:xercesImpl:2.12.2")
     implementation("org.kordamp.ikonli:ikonli-swing:12.4.0")
     implementation("org.kordamp.ikonli:ikonli-fontawesome5-pack:12.4.0")
 
+    testImplementation(testFixtures(project(":xslfo-engine")))
     testImplementation("junit:junit:4.13.2")
     testImplementation("org.mockito:mockito-core:5.23.0")
 }
@@ -83,8 +85,74 @@ tasks.register("generateFopVersionResource") {
     }
 }
 
+// Maps the targetNamespace of every schema listed in index.txt to its resource, so
+// BundledSchemasProvider registers them at startup without opening any XSD.
+tasks.register("generateSchemaNamespaceIndex") {
+    val resourcesDir = layout.projectDirectory.dir("src/main/resources")
+    val listing = resourcesDir.file("META-INF/xslfo/schemas/index.txt")
+    val outFileProvider = layout.buildDirectory.file("generated/resources/main/META-INF/xslfo/schemas/namespaces.txt")
+    inputs.file(listing)
+    inputs.files(fileTree(resourcesDir) { include("META-INF/xslfo/schemas/**/*.xsd") })
+    outputs.file(outFileProvider)
+    doLast {
+        val lines = mutableListOf("# Generated by generateSchemaNamespaceIndex: <targetNamespace><TAB><resource>")
+        listing.asFile.readLines().map { it.trim() }.filter { it.isNotEmpty() && !it.startsWith("#") }.forEach { resource ->
+            val schema = resourcesDir.file(resource).asFile
+            if (!schema.isFile) {
+                throw GradleException("Schema listed in index.txt does not exist: $resource")
+            }
+            val factory = javax.xml.stream.XMLInputFactory.newInstance()
+            factory.setProperty(javax.xml.stream.XMLInputFactory.SUPPORT_DTD, false)
+            val namespace = schema.inputStream().use { input ->
+                val reader = factory.createXMLStreamReader(input)
+                try {
+                    while (reader.hasNext() && !reader.isStartElement) {
+                        reader.next()
+                    }
+                    if (reader.isStartElement) reader.getAttributeValue(null, "targetNamespace") else null
+                } finally {
+                    reader.close()
+                }
+            }
+            if (!namespace.isNullOrBlank()) {
+                lines.add("${namespace.trim()}\t$resource")
+            }
+        }
+        val outFile = outFileProvider.get().asFile
+        outFile.parentFile.mkdirs()
+        outFile.writeText(lines.joinToString("\n", postfix = "\n"))
+    }
+}
+
 tasks.named("processResources") {
     dependsOn(tasks.named("generateFopVersionResource"))
+    dependsOn(tasks.named("generateSchemaNamespaceIndex"))
+}
+
+val performanceTests = "**/*PerformanceTest.class"
+
+tasks.test {
+    exclude(performanceTests)
+}
+
+intellijPlatformTesting {
+    testIde {
+        register("perfTest") {
+            task {
+                description = "Renders a fixed corpus and fails when time or allocation budgets are exceeded; benchmarks schema registration."
+                group = "verification"
+                include(performanceTests)
+                maxParallelForks = 1
+                outputs.upToDateWhen { false }
+                systemProperty("xslfo.perf.baseline",
+                    file("src/test/resources/perf/render-baseline.properties").absolutePath)
+                systemProperty("xslfo.perf.tolerance", project.findProperty("perfTolerance") ?: "0.25")
+                systemProperty("xslfo.perf.updateBaseline",
+                    project.findProperty("perfUpdateBaseline") ?: "false")
+                testLogging.showStandardStreams = true
+            }
+        }
+    }
 }
 
 version = "${version}"
@@ -0,0 +1,3 @@
+rootProject.name = "intellij-xslfo-support"
+
+include("xslfo-engine")
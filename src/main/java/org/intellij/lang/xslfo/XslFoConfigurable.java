@@ -63,7 +63,13 @@ public class XslFoConfigurable
         ||
         !Objects.equal(mySettings.getUserConfigLocation(), mySettingsPanel.getUserConfigLocation())
         || mySettings.isUseBundledFop() != mySettingsPanel.isUseBundledFopSelected()
-        || mySettings.getDefaultOutputFormat() != mySettingsPanel.getDefaultOutputFormat();
+        || mySettings.getDefaultOutputFormat() != mySettingsPanel.getDefaultOutputFormat()
+        || mySettings.getPreviewBackend() != mySettingsPanel.getPreviewBackend()
+        || !Objects.equal(mySettings.getIsolatedWorkerMaxHeap(),
+            mySettingsPanel.getIsolatedWorkerMaxHeap())
+        || !Objects.equal(mySettings.getIsolatedWorkerJvmOptions(),
+            mySettingsPanel.getIsolatedWorkerJvmOptions())
+        || mySettings.getXsltResultCacheSizeMb() != mySettingsPanel.getXsltResultCacheSizeMb();
   }
 
   @Override
@@ -73,6 +79,10 @@ public class XslFoConfigurable
       mySettings.setUserConfigLocation(mySettingsPanel.getUserConfigLocation());
       mySettings.setUseBundledFop(mySettingsPanel.isUseBundledFopSelected());
       mySettings.setDefaultOutputFormat(mySettingsPanel.getDefaultOutputFormat());
+      mySettings.setPreviewBackend(mySettingsPanel.getPreviewBackend());
+      mySettings.setIsolatedWorkerMaxHeap(mySettingsPanel.getIsolatedWorkerMaxHeap());
+      mySettings.setIsolatedWorkerJvmOptions(mySettingsPanel.getIsolatedWorkerJvmOptions());
+      mySettings.setXsltResultCacheSizeMb(mySettingsPanel.getXsltResultCacheSizeMb());
     }
   }
 
@@ -83,6 +93,10 @@ public class XslFoConfigurable
       mySettingsPanel.setUserConfigLocation(mySettings.getUserConfigLocation());
       mySettingsPanel.setUseBundledFopSelected(mySettings.isUseBundledFop());
       mySettingsPanel.setDefaultOutputFormat(mySettings.getDefaultOutputFormat());
+      mySettingsPanel.setPreviewBackend(mySettings.getPreviewBackend());
+      mySettingsPanel.setIsolatedWorkerMaxHeap(mySettings.getIsolatedWorkerMaxHeap());
+      mySettingsPanel.setIsolatedWorkerJvmOptions(mySettings.getIsolatedWorkerJvmOptions());
+      mySettingsPanel.setXsltResultCacheSizeMb(mySettings.getXsltResultCacheSizeMb());
     }
   }
 
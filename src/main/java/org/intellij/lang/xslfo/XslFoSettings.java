@@ -10,7 +10,8 @@ import org.jetbrains.annotations.Nullable;
 
 /**
  * Persistent state component that stores plugin settings including FOP installation directory,
- * user configuration file location, default output format, and bundled FOP usage preference.
+ * user configuration file location, default output format, bundled FOP usage preference,
+ * preview rendering backend and the JVM settings of the isolated bundled FOP worker.
  */
 @State(
     name = "XslFoSettings",
@@ -24,7 +25,14 @@ public class XslFoSettings implements PersistentStateComponent<XslFoSettings> {
   // Default output format for runs that use plugin settings
   private org.intellij.lang.xslfo.run.OutputFormat myDefaultOutputFormat =
       org.intellij.lang.xslfo.run.OutputFormat.PDF;
-
+  // How the editor preview rasterizes pages
+  private org.intellij.lang.xslfo.run.PreviewBackend myPreviewBackend =
+      org.intellij.lang.xslfo.run.PreviewBackend.PDF;
+  // -Xmx value and extra JVM options for the isolated bundled FOP worker
+  private String myIsolatedWorkerMaxHeap = "2g";
+  private String myIsolatedWorkerJvmOptions = "";
+  // Disk budget for cached XSLT results of bundled runs, 0 disables the cache
+  private int myXsltResultCacheSizeMb = 256;
 
   public String getFopInstallationDir() {
     return myFopInstallationDir;
@@ -60,6 +68,40 @@ public class XslFoSettings implements PersistentStateComponent<XslFoSettings> {
         format == null ? org.intellij.lang.xslfo.run.OutputFormat.PDF : format;
   }
 
+  public org.intellij.lang.xslfo.run.PreviewBackend getPreviewBackend() {
+    return myPreviewBackend == null ? org.intellij.lang.xslfo.run.PreviewBackend.PDF :
+        myPreviewBackend;
+  }
+
+  public void setPreviewBackend(org.intellij.lang.xslfo.run.PreviewBackend backend) {
+    this.myPreviewBackend =
+        backend == null ? org.intellij.lang.xslfo.run.PreviewBackend.PDF : backend;
+  }
+
+  public String getIsolatedWorkerMaxHeap() {
+    return myIsolatedWorkerMaxHeap == null ? "" : myIsolatedWorkerMaxHeap;
+  }
+
+  public void setIsolatedWorkerMaxHeap(String maxHeap) {
+    this.myIsolatedWorkerMaxHeap = maxHeap == null ? "" : maxHeap.trim();
+  }
+
+  public String getIsolatedWorkerJvmOptions() {
+    return myIsolatedWorkerJvmOptions == null ? "" : myIsolatedWorkerJvmOptions;
+  }
+
+  public void setIsolatedWorkerJvmOptions(String jvmOptions) {
+    this.myIsolatedWorkerJvmOptions = jvmOptions == null ? "" : jvmOptions.trim();
+  }
+
+  public int getXsltResultCacheSizeMb() {
+    return Math.max(0, myXsltResultCacheSizeMb);
+  }
+
+  public void setXsltResultCacheSizeMb(int sizeMb) {
+    this.myXsltResultCacheSizeMb = Math.max(0, sizeMb);
+  }
+
   @Nullable
   @Override
   public XslFoSettings getState() {
@@ -6,6 +6,7 @@ import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
 import com.intellij.openapi.ui.TextFieldWithBrowseButton;
 import com.intellij.util.ui.FormBuilder;
 import org.intellij.lang.xslfo.run.OutputFormat;
+import org.intellij.lang.xslfo.run.PreviewBackend;
 
 import javax.swing.ButtonGroup;
 import javax.swing.JComboBox;
@@ -14,6 +15,9 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JRadioButton;
 import javax.swing.JSeparator;
+import javax.swing.JSpinner;
+import javax.swing.JTextField;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import java.awt.FlowLayout;
@@ -25,6 +29,10 @@ import java.awt.event.ComponentListener;
  */
 public class XslFoSettingsPanel {
   private JComboBox<OutputFormat> myDefaultOutputFormat;
+  private JComboBox<PreviewBackend> myPreviewBackend;
+  private JTextField myIsolatedWorkerMaxHeap;
+  private JTextField myIsolatedWorkerJvmOptions;
+  private JSpinner myXsltResultCacheSizeMb;
   private JPanel myPanel;
   private TextFieldWithBrowseButton myFopInstallationDir;
   private TextFieldWithBrowseButton myUserConfigLocation;
@@ -42,6 +50,10 @@ public class XslFoSettingsPanel {
     for (OutputFormat f : OutputFormat.values()) {
       myDefaultOutputFormat.addItem(f);
     }
+    myPreviewBackend.removeAllItems();
+    for (PreviewBackend backend : PreviewBackend.values()) {
+      myPreviewBackend.addItem(backend);
+    }
 
     myFopInstallationDir.addActionListener(
         e -> com.intellij.openapi.fileChooser.FileChooser.chooseFile(
@@ -85,6 +97,19 @@ public class XslFoSettingsPanel {
     myFopInstallationDir = new TextFieldWithBrowseButton();
     myUserConfigLocation = new TextFieldWithBrowseButton();
     myDefaultOutputFormat = new JComboBox<>();
+    myPreviewBackend = new JComboBox<>();
+    myPreviewBackend.setToolTipText(
+        "JAVA2D paints pages directly from FOP without writing a PDF (bundled FOP only)");
+    myIsolatedWorkerMaxHeap = new JTextField();
+    myIsolatedWorkerMaxHeap.setToolTipText(
+        "Maximum heap of the isolated bundled FOP worker JVM, e.g. 2g (empty: JVM default)");
+    myIsolatedWorkerJvmOptions = new JTextField();
+    myIsolatedWorkerJvmOptions.setToolTipText(
+        "Additional options for the isolated worker JVM, e.g. -XX:+UseParallelGC");
+    myXsltResultCacheSizeMb = new JSpinner(new SpinnerNumberModel(256, 0, 65536, 64));
+    myXsltResultCacheSizeMb.setToolTipText(
+        "Disk space for cached XSLT results, so re-runs with an unchanged stylesheet and input "
+            + "only repeat FOP layout (bundled FOP only, 0 disables the cache)");
     mySeparator = new JSeparator();
     myWarningLabel = new JLabel();
 
@@ -98,9 +123,18 @@ public class XslFoSettingsPanel {
         .addLabeledComponent("FOP installation directory (optional):", myFopInstallationDir)
         .addLabeledComponent("User configuration file (optional):", myUserConfigLocation)
         .addLabeledComponent("Default output format:", myDefaultOutputFormat)
+        .addLabeledComponent("Preview rendering:", myPreviewBackend)
+        .addLabeledComponent("XSLT result cache (MB):", myXsltResultCacheSizeMb)
         .getPanel();
     configPanel.setBorder(javax.swing.BorderFactory.createTitledBorder("FOP Configuration"));
 
+    JPanel workerPanel = FormBuilder.createFormBuilder()
+        .addLabeledComponent("Max heap (-Xmx):", myIsolatedWorkerMaxHeap)
+        .addLabeledComponent("JVM options:", myIsolatedWorkerJvmOptions)
+        .getPanel();
+    workerPanel.setBorder(
+        javax.swing.BorderFactory.createTitledBorder("Isolated Bundled FOP Worker"));
+
     myValidationPanel = FormBuilder.createFormBuilder()
         .addComponent(mySeparator)
         .addComponent(myWarningLabel)
@@ -108,6 +142,7 @@ public class XslFoSettingsPanel {
 
     myPanel = FormBuilder.createFormBuilder()
         .addComponent(configPanel)
+        .addComponent(workerPanel)
         .addComponentFillVertically(new JPanel(), 0)
         .addComponent(myValidationPanel)
         .getPanel();
@@ -166,6 +201,39 @@ public class XslFoSettingsPanel {
     myDefaultOutputFormat.setSelectedItem(fmt == null ? OutputFormat.PDF : fmt);
   }
 
+  public PreviewBackend getPreviewBackend() {
+    Object sel = myPreviewBackend.getSelectedItem();
+    return sel instanceof PreviewBackend ? (PreviewBackend) sel : PreviewBackend.PDF;
+  }
+
+  public void setPreviewBackend(PreviewBackend backend) {
+    myPreviewBackend.setSelectedItem(backend == null ? PreviewBackend.PDF : backend);
+  }
+
+  public String getIsolatedWorkerMaxHeap() {
+    return myIsolatedWorkerMaxHeap.getText().trim();
+  }
+
+  public void setIsolatedWorkerMaxHeap(String maxHeap) {
+    myIsolatedWorkerMaxHeap.setText(maxHeap);
+  }
+
+  public String getIsolatedWorkerJvmOptions() {
+    return myIsolatedWorkerJvmOptions.getText().trim();
+  }
+
+  public void setIsolatedWorkerJvmOptions(String jvmOptions) {
+    myIsolatedWorkerJvmOptions.setText(jvmOptions);
+  }
+
+  public int getXsltResultCacheSizeMb() {
+    return (Integer) myXsltResultCacheSizeMb.getValue();
+  }
+
+  public void setXsltResultCacheSizeMb(int sizeMb) {
+    myXsltResultCacheSizeMb.setValue(sizeMb);
+  }
+
   public void setUseBundledFopSelected(boolean useBundled) {
     myUseBundledFopRadio.setSelected(useBundled);
     myUseBinaryFopRadio.setSelected(!useBundled);
@@ -6,6 +6,9 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileManager;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Utility class for locating the FOP executable in the filesystem.
@@ -62,6 +65,31 @@ public class XslFoUtils {
     return null;
   }
 
+  /**
+   * Returns the jars of a FOP binary distribution, i.e. everything under {@code build/} and
+   * {@code lib/} next to the launcher script - the same classpath the {@code fop} script assembles.
+   * Returns an empty list if no installation is found there.
+   */
+  public static List<File> findFopJars(String pathToFopInstallationDir) {
+    VirtualFile executable = findFopExecutable(pathToFopInstallationDir);
+    if (executable == null || executable.getParent() == null) {
+      return List.of();
+    }
+    File home = new File(executable.getParent().getPath());
+    if ("bin".equals(home.getName()) && home.getParentFile() != null) {
+      home = home.getParentFile();
+    }
+    List<File> jars = new ArrayList<>();
+    for (String dir : new String[]{"build", "lib"}) {
+      File[] children = new File(home, dir).listFiles((parent, name) -> name.endsWith(".jar"));
+      if (children != null) {
+        Arrays.sort(children);
+        jars.addAll(Arrays.asList(children));
+      }
+    }
+    return jars;
+  }
+
   public static VirtualFile findFopUserConfig(String userConfigLocation) {
     if (userConfigLocation == null || userConfigLocation.isEmpty()) {
       return null;
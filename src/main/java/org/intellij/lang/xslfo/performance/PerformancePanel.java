@@ -0,0 +1,268 @@
+package org.intellij.lang.xslfo.performance;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.ui.JBColor;
+import com.intellij.ui.OnePixelSplitter;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.ui.JBUI;
+import org.intellij.lang.xslfo.run.RenderMetrics;
+
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.table.AbstractTableModel;
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Content of the XSL-FO Performance tool window: one sparkline of total render time per
+ * configuration with its change against the previous week, the history of every render newest
+ * first, and CSV/JSON export.
+ */
+final class PerformancePanel extends JPanel implements Disposable {
+
+  private static final int SPARKLINE_POINTS = 50;
+  private static final double NOTABLE_CHANGE = 0.1;
+  private static final DateTimeFormatter TIME_FORMAT =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss", Locale.ROOT)
+          .withZone(ZoneId.systemDefault());
+
+  private final Project project;
+  private final RenderHistory history;
+  private final RecordTableModel tableModel = new RecordTableModel();
+  private final JPanel trendsPanel = new JPanel(new GridBagLayout());
+  private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+  PerformancePanel(Project project, RenderHistory history) {
+    super(new BorderLayout());
+    this.project = project;
+    this.history = history;
+
+    JButton exportCsvButton = new JButton("Export CSV...", AllIcons.ToolbarDecorator.Export);
+    exportCsvButton.addActionListener(e -> export("csv", RenderHistoryExport::toCsv));
+    JButton exportJsonButton = new JButton("Export JSON...", AllIcons.ToolbarDecorator.Export);
+    exportJsonButton.addActionListener(e -> export("json", RenderHistoryExport::toJson));
+    JButton clearButton = new JButton("Clear", AllIcons.Actions.GC);
+    clearButton.addActionListener(e -> history.clear());
+    JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT, JBUI.scale(4), JBUI.scale(2)));
+    toolbar.add(exportCsvButton);
+    toolbar.add(exportJsonButton);
+    toolbar.add(clearButton);
+
+    JBTable table = new JBTable(tableModel);
+    table.getEmptyText().setText("No renders recorded yet");
+    trendsPanel.setBorder(JBUI.Borders.empty(4));
+    OnePixelSplitter splitter = new OnePixelSplitter(true, 0.3f);
+    splitter.setFirstComponent(new JBScrollPane(trendsPanel));
+    splitter.setSecondComponent(new JBScrollPane(table));
+
+    add(toolbar, BorderLayout.NORTH);
+    add(splitter, BorderLayout.CENTER);
+    history.addListener(this::scheduleRefresh, this);
+    refresh();
+  }
+
+  private void scheduleRefresh() {
+    if (refreshScheduled.compareAndSet(false, true)) {
+      ApplicationManager.getApplication().invokeLater(() -> {
+        refreshScheduled.set(false);
+        refresh();
+      }, project.getDisposed());
+    }
+  }
+
+  private void refresh() {
+    List<RenderRecord> records = history.getRecords();
+    List<RenderRecord> newestFirst = new ArrayList<>(records);
+    Collections.reverse(newestFirst);
+    tableModel.setRecords(newestFirst);
+    rebuildTrends(records);
+  }
+
+  private void rebuildTrends(List<RenderRecord> records) {
+    Map<String, List<RenderRecord>> byConfiguration = new TreeMap<>();
+    for (RenderRecord record : records) {
+      byConfiguration.computeIfAbsent(record.configuration, key -> new ArrayList<>()).add(record);
+    }
+    trendsPanel.removeAll();
+    GridBagConstraints c = new GridBagConstraints();
+    c.gridy = 0;
+    c.anchor = GridBagConstraints.WEST;
+    c.insets = JBUI.insets(2, 0, 2, 8);
+    long now = System.currentTimeMillis();
+    for (Map.Entry<String, List<RenderRecord>> entry : byConfiguration.entrySet()) {
+      List<RenderRecord> configurationRecords = entry.getValue();
+      List<RenderRecord> recent = configurationRecords.subList(
+          Math.max(0, configurationRecords.size() - SPARKLINE_POINTS),
+          configurationRecords.size());
+      Sparkline sparkline = new Sparkline();
+      sparkline.setValues(recent.stream().mapToDouble(record -> record.totalNanos).toArray());
+      sparkline.setToolTipText("Total render time of the last " + recent.size() + " renders");
+      RenderRecord latest = recent.get(recent.size() - 1);
+
+      c.gridx = 0;
+      c.weightx = 0;
+      c.fill = GridBagConstraints.NONE;
+      String name = entry.getKey().isEmpty() ? "(unnamed)" : entry.getKey();
+      trendsPanel.add(new JLabel(name), c);
+      c.gridx = 1;
+      c.weightx = 1;
+      c.fill = GridBagConstraints.HORIZONTAL;
+      trendsPanel.add(sparkline, c);
+      c.gridx = 2;
+      c.weightx = 0;
+      c.fill = GridBagConstraints.NONE;
+      trendsPanel.add(new JLabel("last " + RenderMetrics.formatMillis(latest.totalNanos)), c);
+      c.gridx = 3;
+      trendsPanel.add(createChangeLabel(
+          RenderHistory.weekOverWeekChange(configurationRecords, now)), c);
+      c.gridy++;
+    }
+    if (byConfiguration.isEmpty()) {
+      trendsPanel.add(new JLabel("Run or preview an XSL-FO configuration to record renders."), c);
+      c.gridy++;
+    }
+    c.gridx = 0;
+    c.weighty = 1;
+    trendsPanel.add(new JPanel(), c);
+    trendsPanel.revalidate();
+    trendsPanel.repaint();
+  }
+
+  private static JLabel createChangeLabel(double change) {
+    if (Double.isNaN(change)) {
+      return new JLabel("");
+    }
+    JLabel label = new JLabel(String.format(Locale.ROOT, "%+.0f%% vs previous week",
+        change * 100));
+    if (change >= NOTABLE_CHANGE) {
+      label.setForeground(JBColor.RED);
+    } else if (change <= -NOTABLE_CHANGE) {
+      label.setForeground(JBColor.GREEN);
+    }
+    return label;
+  }
+
+  private void export(String extension, Function<List<RenderRecord>, String> format) {
+    FileSaverDescriptor descriptor = new FileSaverDescriptor("Export Render History",
+        "Save the render history as " + extension.toUpperCase(Locale.ROOT), extension);
+    VirtualFileWrapper target = FileChooserFactory.getInstance()
+        .createSaveFileDialog(descriptor, project)
+        .save((Path) null, "render-history." + extension);
+    if (target == null) {
+      return;
+    }
+    try {
+      Files.writeString(target.getFile().toPath(), format.apply(history.getRecords()),
+          StandardCharsets.UTF_8);
+    } catch (IOException exception) {
+      Messages.showErrorDialog(project,
+          "Could not export the render history: " + exception.getMessage(), "XSL-FO Performance");
+    }
+  }
+
+  @Override
+  public void dispose() {
+  }
+
+  private static final class RecordTableModel extends AbstractTableModel {
+    private static final Map<String, Function<RenderRecord, String>> COLUMNS =
+        new LinkedHashMap<>();
+
+    static {
+      COLUMNS.put("Time", record -> TIME_FORMAT.format(Instant.ofEpochMilli(record.timestamp)));
+      COLUMNS.put("Source", record -> record.source.label());
+      COLUMNS.put("Configuration", record -> record.configuration);
+      COLUMNS.put("Input", record -> new File(record.input).getName());
+      COLUMNS.put("Total", record -> RenderMetrics.formatMillis(record.totalNanos));
+      COLUMNS.put("XSLT compile",
+          record -> phase(record, RenderMetrics.Phase.STYLESHEET_COMPILE));
+      COLUMNS.put("XSLT", record -> phase(record, RenderMetrics.Phase.XSLT));
+      COLUMNS.put("FO tree", record -> phase(record, RenderMetrics.Phase.FO_TREE));
+      COLUMNS.put("Layout", record -> phase(record, RenderMetrics.Phase.LAYOUT));
+      COLUMNS.put("Output", record -> phase(record, RenderMetrics.Phase.OUTPUT));
+      COLUMNS.put("Other", RecordTableModel::otherPhases);
+      COLUMNS.put("Pages", record -> record.pageCount >= 0 ? Integer.toString(record.pageCount)
+          : "");
+      COLUMNS.put("Output size", record -> bytes(record.outputBytes));
+      COLUMNS.put("Peak heap", record -> bytes(record.peakHeapDeltaBytes));
+      COLUMNS.put("Cache hits/misses", record -> record.cacheHits + record.cacheMisses > 0
+          ? record.cacheHits + " / " + record.cacheMisses : "");
+    }
+
+    private final List<Function<RenderRecord, String>> columns = List.copyOf(COLUMNS.values());
+    private final List<String> names = List.copyOf(COLUMNS.keySet());
+    private List<RenderRecord> records = List.of();
+
+    void setRecords(List<RenderRecord> records) {
+      this.records = records;
+      fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+      return records.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+      return columns.size();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+      return names.get(column);
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+      return columns.get(column).apply(records.get(row));
+    }
+
+    private static String phase(RenderRecord record, RenderMetrics.Phase phase) {
+      long nanos = record.getPhaseNanos(phase);
+      return nanos >= 0 ? RenderMetrics.formatMillis(nanos) : "";
+    }
+
+    private static String otherPhases(RenderRecord record) {
+      long other = record.totalNanos;
+      for (RenderMetrics.Phase phase : List.of(RenderMetrics.Phase.STYLESHEET_COMPILE,
+          RenderMetrics.Phase.XSLT, RenderMetrics.Phase.FO_TREE, RenderMetrics.Phase.LAYOUT,
+          RenderMetrics.Phase.OUTPUT)) {
+        other -= Math.max(0, record.getPhaseNanos(phase));
+      }
+      return other > 0 ? RenderMetrics.formatMillis(other) : "";
+    }
+
+    private static String bytes(long bytes) {
+      return bytes >= 0 ? RenderMetrics.formatBytes(bytes) : "";
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package org.intellij.lang.xslfo.performance;
+
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Creates the XSL-FO Performance tool window showing the project's {@link RenderHistory}.
+ */
+public final class PerformanceToolWindowFactory implements ToolWindowFactory, DumbAware {
+
+  @Override
+  public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+    PerformancePanel panel =
+        new PerformancePanel(project, project.getService(RenderHistory.class));
+    Content content = ContentFactory.getInstance().createContent(panel, "", false);
+    content.setDisposer(panel);
+    toolWindow.getContentManager().addContent(content);
+  }
+}
@@ -0,0 +1,177 @@
+package org.intellij.lang.xslfo.performance;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.RoamingType;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.components.StoragePathMacros;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import org.intellij.lang.xslfo.run.RenderMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Project service keeping a rolling history of the figures of every run and preview render,
+ * oldest first, stored in the project's cache file rather than the workspace so trends survive
+ * restarts without bloating workspace.xml. Records are kept for {@link #RETENTION_MILLIS}, so a
+ * week can always be compared with the one before, and at most
+ * {@link #MAX_RECORDS_PER_CONFIGURATION} per configuration, so a busy hot folder cannot grow the
+ * history without limit. Renders record themselves from whatever thread they finish on;
+ * listeners are called on that thread.
+ */
+@State(
+    name = "XslFoRenderHistory",
+    storages = @Storage(value = StoragePathMacros.CACHE_FILE, roamingType = RoamingType.DISABLED)
+)
+public final class RenderHistory implements PersistentStateComponent<RenderHistory.HistoryState> {
+
+  static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(14);
+  static final int MAX_RECORDS_PER_CONFIGURATION = 5000;
+
+  private final Deque<RenderRecord> records = new ArrayDeque<>();
+  private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Returns the history of {@code project}, or null outside a running IDE.
+   */
+  public static @Nullable RenderHistory getInstance(@Nullable Project project) {
+    if (project == null) {
+      return null;
+    }
+    try {
+      return project.isDisposed() ? null : project.getService(RenderHistory.class);
+    } catch (Throwable ignored) {
+      return null;
+    }
+  }
+
+  /**
+   * Adds a finished render to the history of {@code project}, if it has one.
+   */
+  public static void record(@Nullable Project project, @NotNull RenderRecord.Source source,
+                            @Nullable String configuration, @NotNull String input,
+                            @Nullable RenderMetrics metrics) {
+    RenderHistory history = metrics != null ? getInstance(project) : null;
+    if (history != null) {
+      history.add(RenderRecord.of(source, configuration != null ? configuration : "", input,
+          metrics));
+    }
+  }
+
+  public void add(@NotNull RenderRecord record) {
+    synchronized (records) {
+      records.addLast(record);
+      prune(record.timestamp);
+    }
+    fireChanged();
+  }
+
+  public @NotNull List<RenderRecord> getRecords() {
+    synchronized (records) {
+      return new ArrayList<>(records);
+    }
+  }
+
+  public void clear() {
+    synchronized (records) {
+      records.clear();
+    }
+    fireChanged();
+  }
+
+  /**
+   * Calls {@code listener} whenever records are added or cleared, until {@code parent} is
+   * disposed.
+   */
+  public void addListener(@NotNull Runnable listener, @NotNull Disposable parent) {
+    listeners.add(listener);
+    Disposer.register(parent, () -> listeners.remove(listener));
+  }
+
+  /**
+   * Returns by how much the median total duration of {@code records} in the seven days before
+   * {@code now} differs from the seven days before those, as a fraction (0.4 for 40% slower), or
+   * NaN if either week has no records.
+   */
+  public static double weekOverWeekChange(@NotNull List<RenderRecord> records, long now) {
+    long week = TimeUnit.DAYS.toMillis(7);
+    double thisWeek = medianTotalNanos(records, now - week, now);
+    double lastWeek = medianTotalNanos(records, now - 2 * week, now - week);
+    return Double.isNaN(thisWeek) || Double.isNaN(lastWeek) || lastWeek <= 0 ? Double.NaN
+        : thisWeek / lastWeek - 1;
+  }
+
+  private static double medianTotalNanos(List<RenderRecord> records, long from, long to) {
+    long[] totals = records.stream()
+        .filter(record -> record.timestamp > from && record.timestamp <= to)
+        .mapToLong(record -> record.totalNanos)
+        .toArray();
+    if (totals.length == 0) {
+      return Double.NaN;
+    }
+    Arrays.sort(totals);
+    int middle = totals.length / 2;
+    return totals.length % 2 == 1 ? totals[middle] : (totals[middle - 1] + totals[middle]) / 2d;
+  }
+
+  /**
+   * Drops records older than {@link #RETENTION_MILLIS} before {@code now} and the oldest records
+   * of configurations over {@link #MAX_RECORDS_PER_CONFIGURATION}. Called with the lock held.
+   */
+  private void prune(long now) {
+    records.removeIf(record -> record.timestamp < now - RETENTION_MILLIS);
+    Map<String, Integer> counts = new HashMap<>();
+    for (Iterator<RenderRecord> newestFirst = records.descendingIterator();
+         newestFirst.hasNext(); ) {
+      if (counts.merge(newestFirst.next().configuration, 1, Integer::sum)
+          > MAX_RECORDS_PER_CONFIGURATION) {
+        newestFirst.remove();
+      }
+    }
+  }
+
+  private void fireChanged() {
+    for (Runnable listener : listeners) {
+      listener.run();
+    }
+  }
+
+  @Override
+  public @NotNull HistoryState getState() {
+    HistoryState state = new HistoryState();
+    state.records = getRecords();
+    return state;
+  }
+
+  @Override
+  public void loadState(@NotNull HistoryState state) {
+    synchronized (records) {
+      records.clear();
+      if (state.records != null) {
+        records.addAll(state.records);
+        prune(System.currentTimeMillis());
+      }
+    }
+    fireChanged();
+  }
+
+  /**
+   * Persisted form of the history.
+   */
+  public static final class HistoryState {
+    public List<RenderRecord> records = new ArrayList<>();
+  }
+}
@@ -0,0 +1,121 @@
+package org.intellij.lang.xslfo.performance;
+
+import org.intellij.lang.xslfo.run.RenderMetrics;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes render history records as CSV or JSON. Durations are in milliseconds, sizes in bytes;
+ * figures that were not recorded are empty in CSV and null in JSON.
+ */
+final class RenderHistoryExport {
+
+  private RenderHistoryExport() {
+  }
+
+  static @NotNull String toCsv(@NotNull List<RenderRecord> records) {
+    StringBuilder sb = new StringBuilder("timestamp,source,configuration,input,total_ms");
+    for (RenderMetrics.Phase phase : RenderMetrics.Phase.values()) {
+      sb.append(',').append(phase.name().toLowerCase(Locale.ROOT)).append("_ms");
+    }
+    sb.append(",pages,output_bytes,allocated_bytes,peak_heap_delta_bytes,cache_hits,cache_misses")
+        .append('\n');
+    for (RenderRecord record : records) {
+      sb.append(Instant.ofEpochMilli(record.timestamp)).append(',')
+          .append(csvField(record.source.label())).append(',')
+          .append(csvField(record.configuration)).append(',')
+          .append(csvField(record.input)).append(',')
+          .append(millis(record.totalNanos));
+      for (RenderMetrics.Phase phase : RenderMetrics.Phase.values()) {
+        long nanos = record.getPhaseNanos(phase);
+        sb.append(',').append(nanos >= 0 ? millis(nanos) : "");
+      }
+      sb.append(',').append(record.pageCount >= 0 ? record.pageCount : "")
+          .append(',').append(record.outputBytes >= 0 ? record.outputBytes : "")
+          .append(',').append(record.allocatedBytes >= 0 ? record.allocatedBytes : "")
+          .append(',').append(record.peakHeapDeltaBytes >= 0 ? record.peakHeapDeltaBytes : "")
+          .append(',').append(record.cacheHits)
+          .append(',').append(record.cacheMisses)
+          .append('\n');
+    }
+    return sb.toString();
+  }
+
+  static @NotNull String toJson(@NotNull List<RenderRecord> records) {
+    StringBuilder sb = new StringBuilder("[");
+    for (RenderRecord record : records) {
+      sb.append(sb.length() > 1 ? ",\n  {" : "\n  {")
+          .append("\"timestamp\": \"").append(Instant.ofEpochMilli(record.timestamp)).append('"')
+          .append(", \"source\": ").append(jsonString(record.source.label()))
+          .append(", \"configuration\": ").append(jsonString(record.configuration))
+          .append(", \"input\": ").append(jsonString(record.input))
+          .append(", \"totalMs\": ").append(millis(record.totalNanos))
+          .append(", \"phasesMs\": {");
+      boolean first = true;
+      for (RenderMetrics.Phase phase : RenderMetrics.Phase.values()) {
+        long nanos = record.getPhaseNanos(phase);
+        if (nanos >= 0) {
+          sb.append(first ? "" : ", ").append(jsonString(phase.name().toLowerCase(Locale.ROOT)))
+              .append(": ").append(millis(nanos));
+          first = false;
+        }
+      }
+      sb.append('}')
+          .append(", \"pages\": ").append(jsonNumber(record.pageCount))
+          .append(", \"outputBytes\": ").append(jsonNumber(record.outputBytes))
+          .append(", \"allocatedBytes\": ").append(jsonNumber(record.allocatedBytes))
+          .append(", \"peakHeapDeltaBytes\": ").append(jsonNumber(record.peakHeapDeltaBytes))
+          .append(", \"cacheHits\": ").append(record.cacheHits)
+          .append(", \"cacheMisses\": ").append(record.cacheMisses)
+          .append('}');
+    }
+    return sb.append(records.isEmpty() ? "]\n" : "\n]\n").toString();
+  }
+
+  private static String millis(long nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000d);
+  }
+
+  private static String csvField(String value) {
+    if (value == null) {
+      return "";
+    }
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+
+  private static String jsonNumber(long value) {
+    return value >= 0 ? Long.toString(value) : "null";
+  }
+
+  private static String jsonString(String value) {
+    if (value == null) {
+      return "null";
+    }
+    StringBuilder sb = new StringBuilder("\"");
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"' -> sb.append("\\\"");
+        case '\\' -> sb.append("\\\\");
+        case '\n' -> sb.append("\\n");
+        case '\r' -> sb.append("\\r");
+        case '\t' -> sb.append("\\t");
+        default -> {
+          if (c < 0x20) {
+            sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+          } else {
+            sb.append(c);
+          }
+        }
+      }
+    }
+    return sb.append('"').toString();
+  }
+}
@@ -0,0 +1,80 @@
+package org.intellij.lang.xslfo.performance;
+
+import org.intellij.lang.xslfo.run.RenderMetrics;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One entry of the {@link RenderHistory}: the figures of a single rendered input. Fields are
+ * public so the history can be persisted.
+ */
+public final class RenderRecord {
+
+  /**
+   * What triggered the render.
+   */
+  public enum Source {
+    RUN("Run"),
+    PREVIEW("Preview"),
+    HOT_FOLDER("Hot folder");
+
+    private final String label;
+
+    Source(String label) {
+      this.label = label;
+    }
+
+    public @NotNull String label() {
+      return label;
+    }
+  }
+
+  public long timestamp;
+  public Source source = Source.RUN;
+  public String configuration = "";
+  public String input = "";
+  /**
+   * Recorded phase durations in nanoseconds, keyed by {@link RenderMetrics.Phase} name.
+   */
+  public Map<String, Long> phaseNanos = new LinkedHashMap<>();
+  public long totalNanos;
+  public int pageCount = -1;
+  public long outputBytes = -1;
+  public long allocatedBytes = -1;
+  public long peakHeapDeltaBytes = -1;
+  public int cacheHits;
+  public int cacheMisses;
+
+  public static @NotNull RenderRecord of(@NotNull Source source, @NotNull String configuration,
+                                         @NotNull String input, @NotNull RenderMetrics metrics) {
+    RenderRecord record = new RenderRecord();
+    record.timestamp = System.currentTimeMillis();
+    record.source = source;
+    record.configuration = configuration;
+    record.input = input;
+    for (RenderMetrics.Phase phase : RenderMetrics.Phase.values()) {
+      long nanos = metrics.getPhaseNanos(phase);
+      if (nanos >= 0) {
+        record.phaseNanos.put(phase.name(), nanos);
+      }
+    }
+    record.totalNanos = metrics.getTotalNanos();
+    record.pageCount = metrics.getPageCount();
+    record.outputBytes = metrics.getOutputBytes();
+    record.allocatedBytes = metrics.getAllocatedBytes();
+    record.peakHeapDeltaBytes = metrics.getPeakHeapDeltaBytes();
+    record.cacheHits = metrics.getCacheHits();
+    record.cacheMisses = metrics.getCacheMisses();
+    return record;
+  }
+
+  /**
+   * Returns the recorded duration of a phase in nanoseconds, or -1 if it was not recorded.
+   */
+  public long getPhaseNanos(@NotNull RenderMetrics.Phase phase) {
+    Long nanos = phaseNanos != null ? phaseNanos.get(phase.name()) : null;
+    return nanos != null ? nanos : -1;
+  }
+}
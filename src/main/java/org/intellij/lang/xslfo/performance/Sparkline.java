@@ -0,0 +1,78 @@
+package org.intellij.lang.xslfo.performance;
+
+import com.intellij.ui.JBColor;
+import com.intellij.util.ui.JBUI;
+
+import javax.swing.JComponent;
+import java.awt.BasicStroke;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+
+/**
+ * Small line chart of a series of values, scaled between their minimum and maximum, with the last
+ * value marked.
+ */
+final class Sparkline extends JComponent {
+
+  private double[] values = new double[0];
+
+  Sparkline() {
+    setPreferredSize(JBUI.size(160, 24));
+    setMinimumSize(JBUI.size(60, 16));
+  }
+
+  void setValues(double[] values) {
+    this.values = values.clone();
+    repaint();
+  }
+
+  @Override
+  protected void paintComponent(Graphics graphics) {
+    super.paintComponent(graphics);
+    if (values.length == 0) {
+      return;
+    }
+    Graphics2D g = (Graphics2D) graphics.create();
+    try {
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      int inset = JBUI.scale(3);
+      int width = getWidth() - 2 * inset;
+      int height = getHeight() - 2 * inset;
+      double min = Double.MAX_VALUE;
+      double max = -Double.MAX_VALUE;
+      for (double value : values) {
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+      }
+      double range = max - min;
+      double step = values.length > 1 ? (double) width / (values.length - 1) : 0;
+      Path2D.Double line = new Path2D.Double();
+      double x = inset;
+      double y = inset;
+      for (int i = 0; i < values.length; i++) {
+        x = inset + (values.length > 1 ? i * step : width / 2d);
+        y = inset + (range > 0 ? (max - values[i]) / range * height : height / 2d);
+        if (i == 0) {
+          line.moveTo(x, y);
+        } else {
+          line.lineTo(x, y);
+        }
+      }
+      g.setColor(JBColor.BLUE);
+      g.setStroke(new BasicStroke(JBUI.scale(1f)));
+      g.draw(line);
+      int dot = JBUI.scale(4);
+      g.fillOval((int) Math.round(x) - dot / 2, (int) Math.round(y) - dot / 2, dot, dot);
+    } finally {
+      g.dispose();
+    }
+  }
+
+  @Override
+  public Dimension getMaximumSize() {
+    return new Dimension(Integer.MAX_VALUE, getPreferredSize().height);
+  }
+}
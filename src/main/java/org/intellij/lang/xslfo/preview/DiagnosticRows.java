@@ -0,0 +1,81 @@
+package org.intellij.lang.xslfo.preview;
+
+import org.intellij.lang.xslfo.engine.SourceLocation;
+import org.intellij.lang.xslfo.run.XslFoPreviewRenderer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rows of the preview's diagnostics view: the render metrics as an info row followed by the
+ * messages of the shown levels, optionally with equal messages merged into one row that counts
+ * all of them. Built off the EDT, so tens of thousands of messages never block it.
+ */
+final class DiagnosticRows {
+
+  enum Level {
+    ERROR,
+    WARNING,
+    INFO
+  }
+
+  record Row(@NotNull Level level, @NotNull String message, @Nullable SourceLocation location,
+             int count) {
+  }
+
+  /**
+   * Rows to show and the number of messages per level before filtering.
+   */
+  record Result(@NotNull List<Row> rows, @NotNull Map<Level, Integer> counts) {
+  }
+
+  private DiagnosticRows() {
+  }
+
+  static @NotNull Result build(@Nullable String info,
+                               @NotNull List<XslFoPreviewRenderer.PreviewRenderMessage> messages,
+                               @NotNull Set<Level> shown, boolean groupEqual) {
+    Map<Level, Integer> counts = new EnumMap<>(Level.class);
+    List<Row> rows = new ArrayList<>();
+    if (info != null) {
+      counts.put(Level.INFO, 1);
+      if (shown.contains(Level.INFO)) {
+        rows.add(new Row(Level.INFO, info, null, 1));
+      }
+    }
+    Map<List<Object>, Row> groups = groupEqual ? new LinkedHashMap<>() : null;
+    for (XslFoPreviewRenderer.PreviewRenderMessage message : messages) {
+      Level level = level(message.severity());
+      counts.merge(level, message.count(), Integer::sum);
+      if (!shown.contains(level)) {
+        continue;
+      }
+      if (groups == null) {
+        rows.add(row(level, message));
+        continue;
+      }
+      groups.merge(List.of(level, message.message()), row(level, message),
+          (first, next) -> new Row(level, first.message(),
+              first.location() != null ? first.location() : next.location(),
+              first.count() + next.count()));
+    }
+    if (groups != null) {
+      rows.addAll(groups.values());
+    }
+    return new Result(rows, counts);
+  }
+
+  static @NotNull Level level(@NotNull XslFoPreviewRenderer.Severity severity) {
+    return severity == XslFoPreviewRenderer.Severity.ERROR ? Level.ERROR : Level.WARNING;
+  }
+
+  private static Row row(Level level, XslFoPreviewRenderer.PreviewRenderMessage message) {
+    return new Row(level, message.message(), message.location(), message.count());
+  }
+}
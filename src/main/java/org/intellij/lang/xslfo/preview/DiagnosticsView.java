@@ -0,0 +1,303 @@
+package org.intellij.lang.xslfo.preview;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.ui.components.JBCheckBox;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.ui.JBUI;
+import org.intellij.lang.xslfo.engine.SourceLocation;
+import org.intellij.lang.xslfo.run.XslFoPreviewRenderer;
+
+import javax.swing.AbstractAction;
+import javax.swing.Icon;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTable;
+import javax.swing.KeyStroke;
+import javax.swing.ListSelectionModel;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Messages tab of the preview: a table that only paints the rows in view, filtered by level and
+ * optionally with equal messages merged, rebuilt on a pooled thread whenever the messages or the
+ * filter change. Double-click or Enter opens the stylesheet or input position a message points
+ * to.
+ */
+final class DiagnosticsView extends JPanel {
+
+  private static final String NO_MESSAGES = "No warnings or errors.";
+
+  private final Project project;
+  private final RowTableModel model = new RowTableModel();
+  private final JBTable table = new JBTable(model);
+  private final Map<DiagnosticRows.Level, JBCheckBox> levelFilters =
+      new EnumMap<>(DiagnosticRows.Level.class);
+  private final JBCheckBox groupEqual = new JBCheckBox("Group equal messages", true);
+  private final AtomicLong generation = new AtomicLong();
+  private List<XslFoPreviewRenderer.PreviewRenderMessage> messages = List.of();
+  private String info;
+
+  DiagnosticsView(Project project) {
+    super(new BorderLayout());
+    this.project = project;
+
+    JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT, JBUI.scale(8), JBUI.scale(2)));
+    for (DiagnosticRows.Level level : DiagnosticRows.Level.values()) {
+      JBCheckBox filter = new JBCheckBox(levelName(level), true);
+      filter.addActionListener(e -> rebuild());
+      levelFilters.put(level, filter);
+      toolbar.add(filter);
+    }
+    groupEqual.addActionListener(e -> rebuild());
+    toolbar.add(groupEqual);
+
+    table.setShowGrid(false);
+    table.setTableHeader(null);
+    table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+    table.setAutoResizeMode(JTable.AUTO_RESIZE_LAST_COLUMN);
+    table.getColumnModel().getColumn(0).setMaxWidth(JBUI.scale(28));
+    table.getColumnModel().getColumn(2).setPreferredWidth(JBUI.scale(60));
+    table.getColumnModel().getColumn(2).setMaxWidth(JBUI.scale(90));
+    table.getColumnModel().getColumn(3).setPreferredWidth(JBUI.scale(160));
+    table.getColumnModel().getColumn(3).setMaxWidth(JBUI.scale(320));
+    table.getColumnModel().getColumn(1).setPreferredWidth(JBUI.scale(600));
+    table.setDefaultRenderer(Object.class, new RowRenderer());
+    table.getEmptyText().setText(NO_MESSAGES);
+    table.addMouseListener(new MouseAdapter() {
+      @Override
+      public void mouseClicked(MouseEvent e) {
+        if (e.getClickCount() == 2) {
+          navigateToSelection();
+        }
+      }
+    });
+    table.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke("ENTER"), "navigate");
+    table.getActionMap().put("navigate", new AbstractAction() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        navigateToSelection();
+      }
+    });
+
+    add(toolbar, BorderLayout.NORTH);
+    add(new JBScrollPane(table), BorderLayout.CENTER);
+  }
+
+  /**
+   * Clears the table while a render is running; live messages are appended after this.
+   */
+  void showRendering() {
+    generation.incrementAndGet();
+    messages = List.of();
+    info = null;
+    model.setRows(new ArrayList<>());
+    table.getEmptyText().setText("Rendering preview...");
+  }
+
+  /**
+   * Appends messages reported while rendering, unmerged, to the rows in view.
+   */
+  void appendLive(List<XslFoPreviewRenderer.PreviewRenderMessage> liveMessages) {
+    Set<DiagnosticRows.Level> shown = shownLevels();
+    List<DiagnosticRows.Row> rows = new ArrayList<>(liveMessages.size());
+    for (XslFoPreviewRenderer.PreviewRenderMessage message : liveMessages) {
+      DiagnosticRows.Level level = DiagnosticRows.level(message.severity());
+      if (shown.contains(level)) {
+        rows.add(new DiagnosticRows.Row(level, message.message(), message.location(),
+            message.count()));
+      }
+    }
+    model.appendRows(rows);
+  }
+
+  /**
+   * Shows the final messages of a render and the metrics line, if any.
+   */
+  void setMessages(List<XslFoPreviewRenderer.PreviewRenderMessage> messages, String info) {
+    this.messages = messages;
+    this.info = info;
+    rebuild();
+  }
+
+  void addMessage(XslFoPreviewRenderer.PreviewRenderMessage message) {
+    List<XslFoPreviewRenderer.PreviewRenderMessage> extended = new ArrayList<>(messages);
+    extended.add(message);
+    setMessages(extended, info);
+  }
+
+  private void rebuild() {
+    long current = generation.incrementAndGet();
+    List<XslFoPreviewRenderer.PreviewRenderMessage> snapshot = messages;
+    String infoSnapshot = info;
+    Set<DiagnosticRows.Level> shown = shownLevels();
+    boolean group = groupEqual.isSelected();
+    ApplicationManager.getApplication().executeOnPooledThread(() -> {
+      DiagnosticRows.Result result = DiagnosticRows.build(infoSnapshot, snapshot, shown, group);
+      ApplicationManager.getApplication().invokeLater(() -> {
+        if (current != generation.get()) {
+          return;
+        }
+        for (Map.Entry<DiagnosticRows.Level, JBCheckBox> filter : levelFilters.entrySet()) {
+          int count = result.counts().getOrDefault(filter.getKey(), 0);
+          filter.getValue().setText(levelName(filter.getKey())
+              + (count > 0 ? " (" + count + ")" : ""));
+        }
+        table.getEmptyText().setText(snapshot.isEmpty() && infoSnapshot == null ? NO_MESSAGES
+            : "No messages of the selected levels.");
+        model.setRows(result.rows());
+      }, project.getDisposed());
+    });
+  }
+
+  private Set<DiagnosticRows.Level> shownLevels() {
+    Set<DiagnosticRows.Level> shown = EnumSet.noneOf(DiagnosticRows.Level.class);
+    levelFilters.forEach((level, filter) -> {
+      if (filter.isSelected()) {
+        shown.add(level);
+      }
+    });
+    return shown;
+  }
+
+  private void navigateToSelection() {
+    int row = table.getSelectedRow();
+    if (row < 0) {
+      return;
+    }
+    SourceLocation location = model.getRow(row).location();
+    VirtualFile target = findFile(location);
+    if (target != null) {
+      new OpenFileDescriptor(project, target, Math.max(0, location.line() - 1),
+          Math.max(0, location.column() - 1)).navigate(true);
+    }
+  }
+
+  private static boolean hasFile(SourceLocation location) {
+    return location != null && location.systemId() != null && !location.systemId().isBlank();
+  }
+
+  private static VirtualFile findFile(SourceLocation location) {
+    if (!hasFile(location)) {
+      return null;
+    }
+    try {
+      return VfsUtil.findFileByURL(URI.create(location.systemId()).toURL());
+    } catch (IllegalArgumentException | MalformedURLException e) {
+      // Not an absolute URL; FOP and XSLT report plain paths for some sources.
+      return LocalFileSystem.getInstance().findFileByPath(location.systemId());
+    }
+  }
+
+  private static String levelName(DiagnosticRows.Level level) {
+    return switch (level) {
+      case ERROR -> "Errors";
+      case WARNING -> "Warnings";
+      case INFO -> "Info";
+    };
+  }
+
+  private static Icon icon(DiagnosticRows.Level level) {
+    return switch (level) {
+      case ERROR -> AllIcons.General.Error;
+      case WARNING -> AllIcons.General.Warning;
+      case INFO -> AllIcons.General.Information;
+    };
+  }
+
+  private static String describeLocation(SourceLocation location) {
+    if (location == null || location.line() < 1) {
+      return "";
+    }
+    String systemId = location.systemId();
+    if (systemId == null || systemId.isBlank()) {
+      return "FO " + location;
+    }
+    String name = systemId.substring(systemId.lastIndexOf('/') + 1);
+    return name + ":" + location.line();
+  }
+
+  private static final class RowTableModel extends AbstractTableModel {
+    private List<DiagnosticRows.Row> rows = new ArrayList<>();
+
+    void setRows(List<DiagnosticRows.Row> rows) {
+      this.rows = new ArrayList<>(rows);
+      fireTableDataChanged();
+    }
+
+    void appendRows(List<DiagnosticRows.Row> appended) {
+      if (appended.isEmpty()) {
+        return;
+      }
+      int first = rows.size();
+      rows.addAll(appended);
+      fireTableRowsInserted(first, rows.size() - 1);
+    }
+
+    DiagnosticRows.Row getRow(int row) {
+      return rows.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+      return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+      return 4;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+      DiagnosticRows.Row row = rows.get(rowIndex);
+      return switch (columnIndex) {
+        case 0 -> row.level();
+        case 1 -> row.message();
+        case 2 -> row.count() > 1 ? row.count() + "x" : "";
+        default -> describeLocation(row.location());
+      };
+    }
+  }
+
+  private final class RowRenderer extends DefaultTableCellRenderer {
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                   boolean hasFocus, int row, int column) {
+      DiagnosticRows.Row diagnostic = model.getRow(row);
+      boolean levelColumn = column == 0;
+      JLabel label = (JLabel) super.getTableCellRendererComponent(table,
+          levelColumn ? "" : value, isSelected, false, row, column);
+      label.setIcon(levelColumn ? icon(diagnostic.level()) : null);
+      label.setToolTipText(switch (column) {
+        case 1 -> diagnostic.message();
+        case 2 -> diagnostic.count() > 1 ? "Reported " + diagnostic.count() + " times" : null;
+        case 3 -> hasFile(diagnostic.location()) ? "Double-click to open" : null;
+        default -> null;
+      });
+      return label;
+    }
+  }
+}
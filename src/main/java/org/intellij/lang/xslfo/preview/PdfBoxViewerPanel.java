@@ -3,9 +3,9 @@ package org.intellij.lang.xslfo.preview;
 import com.intellij.icons.AllIcons;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.util.ui.JBUI;
-import org.apache.pdfbox.Loader;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.PDFRenderer;
+import org.intellij.lang.xslfo.engine.RenderEvents;
+import org.intellij.lang.xslfo.run.PreviewPages;
+import org.intellij.lang.xslfo.run.RenderMetrics;
 import org.kordamp.ikonli.fontawesome5.FontAwesomeSolid;
 import org.kordamp.ikonli.swing.FontIcon;
 
@@ -34,7 +34,8 @@ import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Lightweight PDFBox-based single-page viewer with standard page navigation controls.
+ * Lightweight single-page viewer with standard page navigation controls. Pages come either from
+ * a rendered PDF (rasterized with PDFBox) or from in-memory {@link PreviewPages}.
  */
 public class PdfBoxViewerPanel extends JPanel {
 
@@ -79,8 +80,12 @@ public class PdfBoxViewerPanel extends JPanel {
 
   private Runnable myRefreshAction = () -> {
   };
-  private PDDocument myDocument;
-  private PDFRenderer myRenderer;
+  private Runnable myMetricsUpdatedAction = () -> {
+  };
+  private PreviewPages myPages;
+  private RenderMetrics myRenderMetrics;
+  private String myEventConfiguration;
+  private String myEventInput;
   private File myCurrentPdfFile;
   private int myPageCount;
   private int myCurrentPage;
@@ -100,6 +105,15 @@ public class PdfBoxViewerPanel extends JPanel {
     };
   }
 
+  /**
+   * Sets the callback invoked on the EDT after load or rasterization timings were recorded into
+   * the metrics passed with the current document.
+   */
+  public void setMetricsUpdatedAction(Runnable metricsUpdatedAction) {
+    myMetricsUpdatedAction = metricsUpdatedAction != null ? metricsUpdatedAction : () -> {
+    };
+  }
+
   private void buildUi() {
     myPageLabel.setVerticalAlignment(SwingConstants.TOP);
     myPageLabel.setBorder(BorderFactory.createEmptyBorder(
@@ -200,13 +214,55 @@ public class PdfBoxViewerPanel extends JPanel {
   }
 
   public void setPdfFile(File pdfFile, int preferredPageIndex) throws IOException {
+    setPdfFile(pdfFile, preferredPageIndex, null);
+  }
+
+  /**
+   * Names the configuration and input of the pages shown next in flight recorder events.
+   */
+  public void setRenderSource(String configuration, String input) {
+    myEventConfiguration = configuration;
+    myEventInput = input;
+  }
+
+  /**
+   * Loads and shows a rendered PDF, recording load and rasterization times into the given
+   * metrics.
+   */
+  public void setPdfFile(File pdfFile, int preferredPageIndex, RenderMetrics metrics)
+      throws IOException {
+    RenderEvents.PreviewLoad loadEvent = new RenderEvents.PreviewLoad();
+    long loadStart = System.nanoTime();
+    loadEvent.begin();
+    PreviewPages pages = PdfPreviewPages.load(pdfFile);
+    if (metrics != null) {
+      metrics.setPhase(RenderMetrics.Phase.PREVIEW_LOAD, System.nanoTime() - loadStart);
+    }
+    if (loadEvent.shouldCommit()) {
+      loadEvent.configuration = myEventConfiguration;
+      loadEvent.input = myEventInput;
+      loadEvent.pageCount = pages.getPageCount();
+      loadEvent.commit();
+    }
+    showPages(pages, preferredPageIndex, metrics, pdfFile);
+  }
+
+  /**
+   * Shows already rendered pages. The viewer takes ownership and closes them when replaced.
+   */
+  public void setPreviewPages(PreviewPages pages, int preferredPageIndex, RenderMetrics metrics) {
+    showPages(pages, preferredPageIndex, metrics, null);
+  }
+
+  private void showPages(PreviewPages pages, int preferredPageIndex, RenderMetrics metrics,
+                         File pdfFile) {
     closeDocument();
     myCurrentPdfFile = pdfFile;
-    myDocument = Loader.loadPDF(pdfFile);
-    myRenderer = new PDFRenderer(myDocument);
-    myPageCount = myDocument.getNumberOfPages();
+    myPages = pages;
+    myRenderMetrics = metrics;
+    myPageCount = pages.getPageCount();
     if (myPageCount <= 0) {
-      showStatus("Rendered preview PDF has no pages.");
+      showStatus("Rendered preview has no pages.");
       return;
     }
     myCurrentPage = Math.max(0, Math.min(preferredPageIndex, myPageCount - 1));
@@ -246,14 +302,17 @@ public class PdfBoxViewerPanel extends JPanel {
   }
 
   private void requestRenderCurrentPage() {
-    if (myRenderer == null || myPageCount <= 0) {
+    if (myPages == null || myPageCount <= 0) {
       return;
     }
     cancelPageRenderTask();
     long requestId = myPageRenderRequestCounter.incrementAndGet();
     int pageIndex = myCurrentPage;
     float dpi = BASE_RENDER_DPI * myZoomFactor;
-    PDFRenderer renderer = myRenderer;
+    PreviewPages renderer = myPages;
+    int pageCount = myPageCount;
+    String eventConfiguration = myEventConfiguration;
+    String eventInput = myEventInput;
     myPageLabel.setIcon(null);
     myPageLabel.setText("Rendering page...");
     myPageField.setText(Integer.toString(pageIndex + 1));
@@ -261,25 +320,38 @@ public class PdfBoxViewerPanel extends JPanel {
     updateNavigationState();
     myPageRenderTask = ApplicationManager.getApplication().executeOnPooledThread(() -> {
       try {
-        BufferedImage pageImage = renderer.renderImageWithDPI(pageIndex, dpi);
+        RenderEvents.Rasterize rasterizeEvent = new RenderEvents.Rasterize();
+        long rasterizeStart = System.nanoTime();
+        rasterizeEvent.begin();
+        BufferedImage pageImage = renderer.renderPage(pageIndex, dpi);
+        long rasterizeNanos = System.nanoTime() - rasterizeStart;
+        if (rasterizeEvent.shouldCommit()) {
+          rasterizeEvent.configuration = eventConfiguration;
+          rasterizeEvent.input = eventInput;
+          rasterizeEvent.page = pageIndex;
+          rasterizeEvent.pageCount = pageCount;
+          rasterizeEvent.dpi = dpi;
+          rasterizeEvent.commit();
+        }
         if (Thread.currentThread().isInterrupted()) {
           return;
         }
         ApplicationManager.getApplication().invokeLater(
-            () -> applyRenderedPage(requestId, renderer, pageIndex, pageImage, null));
+            () -> applyRenderedPage(requestId, renderer, pageIndex, pageImage, rasterizeNanos,
+                null));
       } catch (Exception exception) {
         if (Thread.currentThread().isInterrupted()) {
           return;
         }
         ApplicationManager.getApplication().invokeLater(
-            () -> applyRenderedPage(requestId, renderer, pageIndex, null, exception));
+            () -> applyRenderedPage(requestId, renderer, pageIndex, null, -1, exception));
       }
     });
   }
 
-  private void applyRenderedPage(long requestId, PDFRenderer renderer, int pageIndex,
-                                 BufferedImage pageImage, Exception error) {
-    if (requestId != myPageRenderRequestCounter.get() || renderer != myRenderer) {
+  private void applyRenderedPage(long requestId, PreviewPages renderer, int pageIndex,
+                                 BufferedImage pageImage, long rasterizeNanos, Exception error) {
+    if (requestId != myPageRenderRequestCounter.get() || renderer != myPages) {
       return;
     }
     myPageRenderTask = null;
@@ -289,6 +361,10 @@ public class PdfBoxViewerPanel extends JPanel {
       showError("Could not render preview page: " + message);
       return;
     }
+    if (myRenderMetrics != null && rasterizeNanos >= 0) {
+      myRenderMetrics.setPhase(RenderMetrics.Phase.RASTERIZE, rasterizeNanos);
+      myMetricsUpdatedAction.run();
+    }
     myCurrentPage = pageIndex;
     myPageLabel.setIcon(new ImageIcon(pageImage));
     myPageLabel.setText(null);
@@ -419,15 +495,11 @@ public class PdfBoxViewerPanel extends JPanel {
   private void closeDocument() {
     myPageRenderRequestCounter.incrementAndGet();
     cancelPageRenderTask();
-    myRenderer = null;
     myCurrentPdfFile = null;
-    if (myDocument != null) {
-      try {
-        myDocument.close();
-      } catch (IOException ignore) {
-        // ignore close failures on preview lifecycle
-      }
-      myDocument = null;
+    myRenderMetrics = null;
+    if (myPages != null) {
+      myPages.close();
+      myPages = null;
     }
   }
 
@@ -0,0 +1,48 @@
+package org.intellij.lang.xslfo.preview;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.intellij.lang.xslfo.run.PreviewPages;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Preview pages loaded from a rendered PDF file and rasterized with PDFBox.
+ */
+final class PdfPreviewPages implements PreviewPages {
+
+  private final PDDocument myDocument;
+  private final PDFRenderer myRenderer;
+
+  private PdfPreviewPages(@NotNull PDDocument document) {
+    myDocument = document;
+    myRenderer = new PDFRenderer(document);
+  }
+
+  static @NotNull PdfPreviewPages load(@NotNull File pdfFile) throws IOException {
+    return new PdfPreviewPages(Loader.loadPDF(pdfFile));
+  }
+
+  @Override
+  public int getPageCount() {
+    return myDocument.getNumberOfPages();
+  }
+
+  @Override
+  public @NotNull BufferedImage renderPage(int pageIndex, float dpi) throws IOException {
+    return myRenderer.renderImageWithDPI(pageIndex, dpi);
+  }
+
+  @Override
+  public void close() {
+    try {
+      myDocument.close();
+    } catch (IOException ignore) {
+      // ignore close failures on preview lifecycle
+    }
+  }
+}
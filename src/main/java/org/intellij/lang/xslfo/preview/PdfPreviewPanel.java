@@ -21,6 +21,10 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.ui.JBUI;
 import com.intellij.util.messages.MessageBusConnection;
 import icons.XslFoIcons;
+import org.intellij.lang.xslfo.performance.RenderHistory;
+import org.intellij.lang.xslfo.performance.RenderRecord;
+import org.intellij.lang.xslfo.run.PreviewPages;
+import org.intellij.lang.xslfo.run.RenderMetrics;
 import org.intellij.lang.xslfo.run.XslFoRunConfigType;
 import org.intellij.lang.xslfo.run.XslFoPreviewRenderer;
 import org.intellij.lang.xslfo.run.XslFoRunConfiguration;
@@ -35,9 +39,7 @@ import javax.swing.Icon;
 import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JPanel;
-import javax.swing.JScrollPane;
 import javax.swing.JTabbedPane;
-import javax.swing.JTextArea;
 import javax.swing.SwingConstants;
 import javax.swing.Timer;
 import java.awt.BorderLayout;
@@ -51,12 +53,15 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class PdfPreviewPanel extends JPanel {
 
   private static final int RENDER_DEBOUNCE_MS = 250;
+  private static final int LIVE_DIAGNOSTICS_LINE_LIMIT = 500;
 
   private final Project project;
   private final VirtualFile file;
@@ -64,19 +69,26 @@ public class PdfPreviewPanel extends JPanel {
   private final AtomicLong myRenderRequestCounter = new AtomicLong(0);
   private final Timer myRenderDebounceTimer;
   private final JTabbedPane myResultTabs = new JTabbedPane();
-  private final JTextArea myDiagnosticsArea = new JTextArea();
+  private final DiagnosticsView myDiagnosticsView;
+  private final ConcurrentLinkedQueue<XslFoPreviewRenderer.PreviewRenderMessage> myLiveDiagnostics =
+      new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean myLiveDiagnosticsFlushScheduled = new AtomicBoolean();
+  private int myLiveDiagnosticsLineCount;
 
   private JComboBox<XslFoRunConfiguration> myConfigurationCombo;
   private JComboBox<String> myXmlInputCombo;
   private JButton myGoToXmlButton;
   private boolean myUpdatingXmlInputs;
   private File myRenderedPreviewFile;
+  private List<XslFoPreviewRenderer.PreviewRenderMessage> myDiagnostics = List.of();
+  private RenderMetrics myRenderMetrics;
   private MessageBusConnection mySaveListenerConnection;
   private volatile Future<?> myRenderTask;
 
   public PdfPreviewPanel(Project project, VirtualFile file) {
     this.project = project;
     this.file = file;
+    myDiagnosticsView = new DiagnosticsView(project);
     myRenderDebounceTimer = new Timer(RENDER_DEBOUNCE_MS, e -> startRenderPreview());
     myRenderDebounceTimer.setRepeats(false);
     initUI();
@@ -184,16 +196,12 @@ public class PdfPreviewPanel extends JPanel {
     controls.add(myGoToXmlButton, c);
 
     add(controls, BorderLayout.NORTH);
-    myDiagnosticsArea.setEditable(false);
-    myDiagnosticsArea.setLineWrap(true);
-    myDiagnosticsArea.setWrapStyleWord(true);
-    myDiagnosticsArea.setText("No warnings or errors.");
-
     myResultTabs.addTab("Preview", myPdfViewerPanel);
-    myResultTabs.addTab("Messages", new JScrollPane(myDiagnosticsArea));
+    myResultTabs.addTab("Messages", myDiagnosticsView);
 
     add(myResultTabs, BorderLayout.CENTER);
     myPdfViewerPanel.setRefreshAction(this::requestRenderPreviewNow);
+    myPdfViewerPanel.setMetricsUpdatedAction(this::refreshDiagnostics);
     scheduleInitialRender();
   }
 
@@ -429,16 +437,19 @@ public class PdfPreviewPanel extends JPanel {
     int preferredPageIndex = myPdfViewerPanel.getCurrentPageIndex();
     long requestId = myRenderRequestCounter.incrementAndGet();
     myPdfViewerPanel.showLoading("Rendering preview...");
-    myDiagnosticsArea.setText("Rendering preview...");
+    myDiagnosticsView.showRendering();
+    myLiveDiagnostics.clear();
+    myLiveDiagnosticsLineCount = 0;
 
     myRenderTask = ApplicationManager.getApplication().executeOnPooledThread(() -> {
       if (Thread.currentThread().isInterrupted()) {
         return;
       }
       XslFoPreviewRenderer.PreviewRenderResult renderResult =
-          XslFoPreviewRenderer.renderPreview(selectedConfiguration, selectedXmlInput);
+          XslFoPreviewRenderer.renderPreview(selectedConfiguration, selectedXmlInput,
+              message -> queueLiveDiagnostic(requestId, message));
       if (Thread.currentThread().isInterrupted()) {
-        deletePreviewFile(renderResult.outputFile());
+        discardRenderResult(renderResult);
         return;
       }
       ApplicationManager.getApplication().invokeLater(
@@ -451,6 +462,39 @@ public class PdfPreviewPanel extends JPanel {
     });
   }
 
+  /**
+   * Called from rendering threads. Messages are batched so a burst of FOP warnings results in a
+   * few EDT updates rather than one per line.
+   */
+  private void queueLiveDiagnostic(long requestId,
+                                   XslFoPreviewRenderer.PreviewRenderMessage message) {
+    if (requestId != myRenderRequestCounter.get()) {
+      return;
+    }
+    myLiveDiagnostics.add(message);
+    if (myLiveDiagnosticsFlushScheduled.compareAndSet(false, true)) {
+      ApplicationManager.getApplication().invokeLater(() -> flushLiveDiagnostics(requestId));
+    }
+  }
+
+  private void flushLiveDiagnostics(long requestId) {
+    myLiveDiagnosticsFlushScheduled.set(false);
+    if (requestId != myRenderRequestCounter.get() || myRenderTask == null) {
+      myLiveDiagnostics.clear();
+      return;
+    }
+    List<XslFoPreviewRenderer.PreviewRenderMessage> messages = new ArrayList<>();
+    XslFoPreviewRenderer.PreviewRenderMessage message;
+    while ((message = myLiveDiagnostics.poll()) != null) {
+      if (myLiveDiagnosticsLineCount >= LIVE_DIAGNOSTICS_LINE_LIMIT) {
+        continue;
+      }
+      myLiveDiagnosticsLineCount++;
+      messages.add(message);
+    }
+    myDiagnosticsView.appendLive(messages);
+  }
+
   private void cancelRunningRenderTask() {
     Future<?> task = myRenderTask;
     if (task != null) {
@@ -478,16 +522,29 @@ public class PdfPreviewPanel extends JPanel {
                                  XslFoPreviewRenderer.PreviewRenderResult renderResult) {
     File renderedPdf = renderResult.outputFile();
     if (requestId != myRenderRequestCounter.get()) {
-      deletePreviewFile(renderedPdf);
+      discardRenderResult(renderResult);
       return;
     }
 
-    updateDiagnosticsArea(renderResult.diagnostics());
+    updateDiagnostics(renderResult.diagnostics(), renderResult.metrics());
 
     if (!renderResult.success()) {
       myPdfViewerPanel.showError("Preview rendering failed. See Messages tab.");
       myResultTabs.setSelectedIndex(1);
-      deletePreviewFile(renderedPdf);
+      discardRenderResult(renderResult);
+      return;
+    }
+
+    XslFoRunConfiguration selected = (XslFoRunConfiguration) myConfigurationCombo.getSelectedItem();
+    myPdfViewerPanel.setRenderSource(selected != null ? selected.getName() : null,
+        (String) myXmlInputCombo.getSelectedItem());
+    PreviewPages renderedPages = renderResult.pages();
+    if (renderedPages != null) {
+      myPdfViewerPanel.setPreviewPages(renderedPages, preferredPageIndex,
+          renderResult.metrics());
+      replaceRenderedPreviewFile(null);
+      recordInHistory(renderResult.metrics());
+      myResultTabs.setSelectedIndex(0);
       return;
     }
 
@@ -498,31 +555,47 @@ public class PdfPreviewPanel extends JPanel {
     }
 
     try {
-      myPdfViewerPanel.setPdfFile(renderedPdf, preferredPageIndex);
+      myPdfViewerPanel.setPdfFile(renderedPdf, preferredPageIndex, renderResult.metrics());
       replaceRenderedPreviewFile(renderedPdf);
+      recordInHistory(renderResult.metrics());
       myResultTabs.setSelectedIndex(0);
     } catch (IOException e) {
       deletePreviewFile(renderedPdf);
       myPdfViewerPanel.showError("Could not load rendered preview PDF. See Messages tab.");
-      myDiagnosticsArea.append("\n[ERROR] Could not load rendered preview PDF: " + e.getMessage());
+      myDiagnosticsView.addMessage(new XslFoPreviewRenderer.PreviewRenderMessage(
+          XslFoPreviewRenderer.Severity.ERROR,
+          "Could not load rendered preview PDF: " + e.getMessage()));
       myResultTabs.setSelectedIndex(1);
     }
   }
 
-  private void updateDiagnosticsArea(List<XslFoPreviewRenderer.PreviewRenderMessage> diagnostics) {
-    if (diagnostics == null || diagnostics.isEmpty()) {
-      myDiagnosticsArea.setText("No warnings or errors.");
-      return;
+  private void recordInHistory(RenderMetrics metrics) {
+    XslFoRunConfiguration selected = (XslFoRunConfiguration) myConfigurationCombo.getSelectedItem();
+    String xmlInput = (String) myXmlInputCombo.getSelectedItem();
+    if (selected != null && xmlInput != null) {
+      RenderHistory.record(project, RenderRecord.Source.PREVIEW, selected.getName(), xmlInput,
+          metrics);
     }
-    StringBuilder sb = new StringBuilder();
-    for (XslFoPreviewRenderer.PreviewRenderMessage diagnostic : diagnostics) {
-      if (sb.length() > 0) {
-        sb.append('\n');
-      }
-      sb.append('[').append(diagnostic.severity().name()).append("] ").append(diagnostic.message());
+  }
+
+  private void updateDiagnostics(List<XslFoPreviewRenderer.PreviewRenderMessage> diagnostics,
+                                 RenderMetrics metrics) {
+    myDiagnostics = diagnostics != null ? diagnostics : List.of();
+    myRenderMetrics = metrics;
+    refreshDiagnostics();
+  }
+
+  private void refreshDiagnostics() {
+    myDiagnosticsView.setMessages(myDiagnostics,
+        myRenderMetrics != null ? myRenderMetrics.format() : null);
+  }
+
+  private static void discardRenderResult(XslFoPreviewRenderer.PreviewRenderResult renderResult) {
+    deletePreviewFile(renderResult.outputFile());
+    PreviewPages pages = renderResult.pages();
+    if (pages != null) {
+      pages.close();
     }
-    myDiagnosticsArea.setText(sb.toString());
-    myDiagnosticsArea.setCaretPosition(0);
   }
 
   private void replaceRenderedPreviewFile(File newPreviewFile) {
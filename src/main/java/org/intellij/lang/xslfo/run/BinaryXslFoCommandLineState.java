@@ -12,6 +12,7 @@ import com.intellij.execution.runners.ExecutionEnvironment;
 import com.intellij.notification.NotificationGroupManager;
 import com.intellij.notification.NotificationType;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileManager;
@@ -21,6 +22,7 @@ import org.jetbrains.annotations.NotNull;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.List;
 
 /**
  * Execution state that runs FOP as an external process from the command line.
@@ -52,6 +54,18 @@ public class BinaryXslFoCommandLineState extends CommandLineState {
   @Override
   protected ProcessHandler startProcess() throws ExecutionException {
     // This state is dedicated to external (binary) FOP execution; no switching to bundled here.
+    List<String> xmlInputs =
+        ExternalFopCommandLineBuilder.resolveXmlInputs(myXslFoRunConfiguration);
+    if (xmlInputs.size() > 1) {
+      ProcessHandler batchHandler = ParallelExternalFopExecution.start(myXslFoRunConfiguration,
+          xmlInputs, temporaryFile, getEffectiveOutputFormat(),
+          outputs -> ApplicationManager.getApplication().invokeLater(
+              () -> openGeneratedOutputs(outputs)));
+      notifyExternalFopUsed(
+          ExternalFopCommandLineBuilder.resolveFopExecutablePath(myXslFoRunConfiguration));
+      return batchHandler;
+    }
+
     final GeneralCommandLine commandLine = buildCommandLine();
 
     final OSProcessHandler processHandler =
@@ -71,16 +85,32 @@ public class BinaryXslFoCommandLineState extends CommandLineState {
     });
     processHandler.startNotify();
 
+    notifyExternalFopUsed(commandLine.getExePath());
+    return processHandler;
+  }
+
+  private void notifyExternalFopUsed(String exePath) {
     // Show a popup notification indicating which FOP is used (external)
-    String exePath = commandLine.getExePath();
     String msg =
         "Using FOP (external): " + ("fop".equalsIgnoreCase(exePath) ? "fop (from PATH)" : exePath);
     NotificationGroupManager.getInstance()
         .getNotificationGroup("XSL-FO")
         .createNotification(msg, NotificationType.INFORMATION)
         .notify(myXslFoRunConfiguration.getProject());
+  }
 
-    return processHandler;
+  private void openGeneratedOutputs(@NotNull List<File> outputs) {
+    if (myXslFoRunConfiguration.getProject().isDisposed()) {
+      return;
+    }
+    LocalFileSystem fileSystem = LocalFileSystem.getInstance();
+    for (File output : outputs) {
+      VirtualFile virtualOutput = fileSystem.refreshAndFindFileByIoFile(output);
+      if (virtualOutput != null && !virtualOutput.isDirectory()
+          && myXslFoRunConfiguration.getSettings().openOutputFile()) {
+        FopExecutionHelper.openFileInEditor(myXslFoRunConfiguration.getProject(), virtualOutput);
+      }
+    }
   }
 
   private void handleProcessTerminated(@NotNull ProcessEvent event) {
@@ -8,28 +8,34 @@ import com.intellij.notification.NotificationGroupManager;
 import com.intellij.notification.NotificationType;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
+import org.intellij.lang.xslfo.engine.FopEventGroup;
+import org.intellij.lang.xslfo.performance.RenderHistory;
+import org.intellij.lang.xslfo.performance.RenderRecord;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.SwingUtilities;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * CommandLineState replacement that runs Apache FOP in-process using bundled libraries.
+ * CommandLineState replacement that runs Apache FOP without a console process of its own:
+ * in-process using bundled libraries, or through a {@link FopRunner} that hands the job to a
+ * worker JVM.
  */
 class BundledFopCommandLineState extends CommandLineState {
 
     private final XslFoRunConfiguration config;
+    private final FopRunner runner;
+    private final String runnerDescription;
     private final File temporaryFile;
     private volatile List<File> generatedOutputFiles = List.of();
     private volatile ExecutorService executionExecutor;
@@ -37,8 +43,17 @@ class BundledFopCommandLineState extends CommandLineState {
     private volatile Thread workerThread;
 
     BundledFopCommandLineState(@NotNull XslFoRunConfiguration config, @NotNull ExecutionEnvironment environment) {
+        this(config, environment, BundledFopRunner::runFop, "Using FOP (bundled, in-process)");
+    }
+
+    BundledFopCommandLineState(@NotNull XslFoRunConfiguration config,
+                               @NotNull ExecutionEnvironment environment,
+                               @NotNull FopRunner runner,
+                               @NotNull String runnerDescription) {
         super(environment);
         this.config = config;
+        this.runner = runner;
+        this.runnerDescription = runnerDescription;
         if (config.getSettings().useTemporaryFiles()) {
             try {
                 OutputFormat fmt = BundledFopRunner.getEffectiveOutputFormat(config);
@@ -67,9 +82,9 @@ class BundledFopCommandLineState extends CommandLineState {
                     exitCode = 130;
                     return;
                 }
-                // Show a popup notification indicating which FOP is used (bundled)
-                NotificationGroupManager.getInstance().getNotificationGroup("XSL-FO").createNotification("Using FOP (bundled, in-process)", NotificationType.INFORMATION).notify(config.getProject());
-                runFop();
+                // Show a popup notification indicating which FOP is used
+                NotificationGroupManager.getInstance().getNotificationGroup("XSL-FO").createNotification(runnerDescription, NotificationType.INFORMATION).notify(config.getProject());
+                runFop(handler);
             } catch (Throwable t) {
                 if (isCancellationThrowable(t, handler)) {
                     exitCode = 130;
@@ -87,7 +102,7 @@ class BundledFopCommandLineState extends CommandLineState {
                     String message = t.getMessage() != null ? t.getMessage() : t.getClass().getSimpleName();
                     NotificationGroupManager.getInstance()
                         .getNotificationGroup("XSL-FO")
-                        .createNotification("Bundled FOP execution failed: " + message,
+                        .createNotification("FOP execution failed: " + message,
                             NotificationType.ERROR)
                         .notify(config.getProject());
                 }
@@ -184,79 +199,78 @@ class BundledFopCommandLineState extends CommandLineState {
         return output.exists() ? output : output.getParentFile();
     }
 
-    private void runFop() throws Exception {
-        generatedOutputFiles = BundledFopRunner.runFop(config, temporaryFile);
-    }
-
-    private String getOutputFilePath() {
-        String out = config.getSettings().outputFile();
-        return (temporaryFile != null) ? temporaryFile.getAbsolutePath() : out;
-    }
-
-    /**
-     * Minimal in-memory ProcessHandler to integrate with Run tool window lifecycle.
-     */
-    private static class InProcessFopProcessHandler extends com.intellij.execution.process.ProcessHandler {
-        private final Runnable cancellationCallback;
-        private final AtomicBoolean cancellationRequested = new AtomicBoolean(false);
-        private volatile boolean terminated = false;
-        private volatile boolean terminating = false;
-
-        private InProcessFopProcessHandler(@NotNull Runnable cancellationCallback) {
-            this.cancellationCallback = cancellationCallback;
-        }
-
-        @Override
-        protected void destroyProcessImpl() {
-            requestCancellation();
-            notifyProcessTerminated(130);
-        }
-
-        @Override
-        protected void detachProcessImpl() {
-            notifyProcessDetached();
-        }
+    private void runFop(@NotNull ProcessHandler handler) throws Exception {
+        List<FopEventGroup> eventGroups = Collections.synchronizedList(new ArrayList<>());
+        try {
+            generatedOutputFiles = runner.run(config, temporaryFile,
+                new BundledFopRunner.RenderDiagnosticsSink() {
+                    @Override
+                    public void warning(String message) {
+                        handler.notifyTextAvailable("[WARNING] " + message + "\n",
+                            ProcessOutputTypes.STDOUT);
+                    }
 
-        @Override
-        public boolean detachIsDefault() {
-            return false;
-        }
+                    @Override
+                    public void error(String message) {
+                        handler.notifyTextAvailable("[ERROR] " + message + "\n",
+                            ProcessOutputTypes.STDERR);
+                    }
 
-        @Override
-        public OutputStream getProcessInput() {
-            return new ByteArrayOutputStream();
-        }
+                    @Override
+                    public void fopEvents(FopEventGroup group) {
+                        eventGroups.add(group);
+                        BundledFopRunner.RenderDiagnosticsSink.super.fopEvents(group);
+                    }
 
-        @Override
-        public boolean isProcessTerminated() {
-            return terminated;
-        }
+                    @Override
+                    public void renderCompleted(String xmlPath, RenderMetrics metrics) {
+                        handler.notifyTextAvailable(
+                            new File(xmlPath).getName() + ": " + metrics.format() + "\n",
+                            ProcessOutputTypes.SYSTEM);
+                        RenderHistory.record(config.getProject(), RenderRecord.Source.RUN,
+                            config.getName(), xmlPath, metrics);
+                    }
 
-        @Override
-        public boolean isProcessTerminating() {
-            return terminating && !terminated;
+                    @Override
+                    public String configurationName() {
+                        return config.getName();
+                    }
+                });
+        } finally {
+            printRepeatedEvents(handler, eventGroups);
         }
+    }
 
-        @Override
-        public void notifyProcessTerminated(int exitCode) {
-            if (terminated) {
-                return;
+    /**
+     * Reports how often each FOP warning or error printed during the run was repeated; repeats
+     * are not printed one by one.
+     */
+    private static void printRepeatedEvents(@NotNull ProcessHandler handler,
+                                            List<FopEventGroup> eventGroups) {
+        synchronized (eventGroups) {
+            for (FopEventGroup group : eventGroups) {
+                String repetition = group.describeRepetition();
+                if (repetition != null) {
+                    handler.notifyTextAvailable(
+                        (group.isError() ? "[ERROR] " : "[WARNING] ") + "Repeated " + repetition
+                            + ": " + group.getMessage() + "\n",
+                        group.isError() ? ProcessOutputTypes.STDERR : ProcessOutputTypes.STDOUT);
+                }
             }
-            terminated = true;
-            terminating = false;
-            super.notifyProcessTerminated(exitCode);
         }
+    }
 
-        boolean isCancellationRequested() {
-            return cancellationRequested.get();
-        }
+    private String getOutputFilePath() {
+        String out = config.getSettings().outputFile();
+        return (temporaryFile != null) ? temporaryFile.getAbsolutePath() : out;
+    }
 
-        private void requestCancellation() {
-            if (!cancellationRequested.compareAndSet(false, true)) {
-                return;
-            }
-            terminating = true;
-            cancellationCallback.run();
-        }
+    /**
+     * Renders every configured input and returns the produced output files.
+     */
+    @FunctionalInterface
+    interface FopRunner {
+        List<File> run(XslFoRunConfiguration config, File temporaryFile,
+                       BundledFopRunner.RenderDiagnosticsSink diagnosticsSink) throws Exception;
     }
 }
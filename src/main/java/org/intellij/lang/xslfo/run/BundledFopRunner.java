@@ -1,36 +1,38 @@
 package org.intellij.lang.xslfo.run;
 
+import com.intellij.openapi.application.PathManager;
 import org.apache.fop.apps.FOUserAgent;
 import org.apache.fop.apps.Fop;
-import org.apache.fop.apps.FopConfParser;
-import org.apache.fop.apps.FopFactory;
-import org.apache.fop.apps.FopFactoryBuilder;
-import org.apache.fop.apps.io.InternalResourceResolver;
-import org.apache.fop.apps.io.NullSafeInternalResourceResolver;
-import org.apache.fop.events.EventFormatter;
-import org.apache.fop.events.EventListener;
-import org.apache.fop.events.model.EventSeverity;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.render.awt.AWTRenderer;
 import org.intellij.lang.xslfo.XslFoSettings;
+import org.intellij.lang.xslfo.engine.EngineDiagnostics;
+import org.intellij.lang.xslfo.engine.FoCache;
+import org.intellij.lang.xslfo.engine.FopEngine;
+import org.intellij.lang.xslfo.engine.RenderStats;
+import org.intellij.lang.xslfo.engine.SplitRenderer;
+import org.intellij.lang.xslfo.engine.TransformPipeline;
+import org.intellij.lang.xslfo.engine.XmlRecordSplitter;
 import org.xml.sax.SAXException;
 
-import javax.xml.transform.Result;
-import javax.xml.transform.ErrorListener;
-import javax.xml.transform.Transformer;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.sax.SAXResult;
-import javax.xml.transform.stream.StreamSource;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.lang.reflect.Field;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Encapsulates in-process bundled FOP execution logic so it can be tested independently.
+ * <br>
+ * The pipeline itself lives in {@link FopEngine}; this class maps run configurations onto it and
+ * engine figures onto {@link RenderMetrics}. Engines are kept warm per FOP configuration.
  */
 final class BundledFopRunner {
 
@@ -42,34 +44,200 @@ final class BundledFopRunner {
   private static final String LEGACY_XERCES_DOCUMENT_FACTORY =
       "org.apache.xerces.jaxp.DocumentBuilderFactoryImpl";
 
+  /**
+   * Number of transformed inputs that may wait for layout in multi-input runs.
+   */
+  private static final int PIPELINE_CAPACITY = 2;
+
+  private static final Object FO_CACHE_LOCK = new Object();
+  private static FoCache foCache;
+
+  /**
+   * Number of FOP configurations whose engines are kept warm; each holds parsed fonts, images
+   * and compiled stylesheets, so the least recently used one is dropped beyond this.
+   */
+  private static final int MAX_WARM_ENGINES = 4;
+
+  private static final Map<String, WarmEngine> ENGINES = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, WarmEngine> eldest) {
+      return size() > MAX_WARM_ENGINES;
+    }
+  };
+
   private BundledFopRunner() {
   }
 
   static List<File> runFop(XslFoRunConfiguration config, File temporaryFile)
-      throws IOException, SAXException, TransformerException {
+      throws IOException, SAXException, TransformerException, InterruptedException {
     return runFop(config, temporaryFile, null);
   }
 
+  /**
+   * Renders every configured input. With several inputs the XSLT stage of the next input runs on
+   * a {@link TransformPipeline} thread while the current one is laid out.
+   */
   static List<File> runFop(XslFoRunConfiguration config, File temporaryFile,
                            RenderDiagnosticsSink diagnosticsSink)
+      throws IOException, SAXException, TransformerException, InterruptedException {
+    clearLegacyJaxpOverrides(diagnosticsSink);
+
+    List<String> xmlPaths = resolveXmlPaths(config);
+    String xslPath = resolveXslPath(config);
+
+    long allocationMark = RenderMetrics.currentThreadAllocatedBytes();
+    long setupStart = System.nanoTime();
+    FopEngine engine = obtainEngine(config);
+    long setupNanos = System.nanoTime() - setupStart;
+
+    List<File> outputs = new ArrayList<>();
+    boolean multipleInputs = xmlPaths.size() > 1;
+    try (TransformPipeline pipeline = multipleInputs ? new TransformPipeline(engine, xslPath,
+        xmlPaths, PIPELINE_CAPACITY, diagnosticsSink) : null) {
+      for (String xmlPath : xmlPaths) {
+        RenderMetrics metrics = new RenderMetrics();
+        if (outputs.isEmpty()) {
+          // Factory setup is shared by all inputs; attribute it to the first one.
+          metrics.setPhase(RenderMetrics.Phase.FACTORY_SETUP, setupNanos);
+        }
+        File outFile = resolveOutputFile(config, temporaryFile, xmlPath, multipleInputs);
+        File parent = outFile.getParentFile();
+        if (parent != null) {
+          parent.mkdirs();
+        }
+        try (RenderMetrics.HeapSampler heap = RenderMetrics.sampleHeap();
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(outFile))) {
+          OutputFormat fmt = getEffectiveOutputFormat(config);
+          // A user agent per input, so each input's FOP events are grouped and reported anew.
+          FOUserAgent foUserAgent = engine.newUserAgent(diagnosticsSink);
+          Fop fop = engine.getFopFactory().newFop(fmt.mime(), foUserAgent, out);
+          recordStats(metrics, pipeline != null
+              ? engine.layout(pipeline.next(), fop, diagnosticsSink)
+              : engine.transform(xslPath, xmlPath, fop, diagnosticsSink));
+          metrics.setPeakHeapDeltaBytes(heap.peakDeltaBytes());
+        }
+        metrics.setOutputBytes(outFile.length());
+        if (pipeline != null) {
+          metrics.addAllocatedBytes(pipeline.lastAllocatedBytes());
+        }
+        long allocationNow = RenderMetrics.currentThreadAllocatedBytes();
+        metrics.addAllocatedBytes(RenderMetrics.allocatedSince(allocationMark, allocationNow));
+        allocationMark = allocationNow;
+        if (diagnosticsSink != null) {
+          diagnosticsSink.renderCompleted(xmlPath, metrics);
+        }
+        outputs.add(outFile);
+      }
+    }
+    return List.copyOf(outputs);
+  }
+
+  /**
+   * Renders every configured input by splitting it into chunks of records, rendering the chunks in
+   * parallel with one warm engine and merging the chunk PDFs, whatever execution mode is selected.
+   */
+  static List<File> runSplitFop(XslFoRunConfiguration config, File temporaryFile,
+                                RenderDiagnosticsSink diagnosticsSink)
+      throws IOException, SAXException, XMLStreamException, InterruptedException {
+    clearLegacyJaxpOverrides(diagnosticsSink);
+
+    XslFoRunSettings settings = config.getSettings();
+    List<String> xmlPaths = resolveXmlPaths(config);
+    String xslPath = resolveXslPath(config);
+
+    long setupStart = System.nanoTime();
+    SplitRenderer renderer = new SplitRenderer(obtainEngine(config), 0);
+    XmlRecordSplitter splitter = new XmlRecordSplitter(settings.splitRecordElement(),
+        settings.splitRecordsPerChunk());
+    long setupNanos = System.nanoTime() - setupStart;
+
+    List<File> outputs = new ArrayList<>();
+    boolean multipleInputs = xmlPaths.size() > 1;
+    for (String xmlPath : xmlPaths) {
+      RenderMetrics metrics = new RenderMetrics();
+      if (outputs.isEmpty()) {
+        metrics.setPhase(RenderMetrics.Phase.FACTORY_SETUP, setupNanos);
+      }
+      File outFile = resolveOutputFile(config, temporaryFile, xmlPath, multipleInputs);
+      SplitRenderer.Result result;
+      try (RenderMetrics.HeapSampler heap = RenderMetrics.sampleHeap()) {
+        result = renderer.render(xslPath, Path.of(xmlPath), outFile.toPath(), splitter,
+            settings.splitContinuousPageNumbers(), diagnosticsSink);
+        metrics.setPeakHeapDeltaBytes(heap.peakDeltaBytes());
+      }
+      metrics.setPhase(RenderMetrics.Phase.SPLIT_RENDER, result.renderNanos());
+      metrics.setPhase(RenderMetrics.Phase.MERGE, result.mergeNanos());
+      metrics.setPageCount(result.pageCount());
+      metrics.setOutputBytes(outFile.length());
+      if (diagnosticsSink != null) {
+        diagnosticsSink.renderCompleted(xmlPath, metrics);
+      }
+      outputs.add(outFile);
+    }
+    return List.copyOf(outputs);
+  }
+
+  /**
+   * Lays out the first configured XML input with FOP's Java2D renderer and keeps the resulting
+   * pages in memory for painting, skipping PDF serialization and re-parsing entirely.
+   */
+  static PreviewPages renderJava2DPreview(XslFoRunConfiguration config,
+                                          RenderDiagnosticsSink diagnosticsSink)
       throws IOException, SAXException, TransformerException {
     clearLegacyJaxpOverrides(diagnosticsSink);
 
+    String xmlPath = resolveXmlPaths(config).get(0);
+    String xslPath = resolveXslPath(config);
+
+    RenderMetrics metrics = new RenderMetrics();
+    long allocationMark = RenderMetrics.currentThreadAllocatedBytes();
+    PreviewPages pages;
+    try (RenderMetrics.HeapSampler heap = RenderMetrics.sampleHeap()) {
+      long setupStart = System.nanoTime();
+      FopEngine engine = obtainEngine(config);
+      FOUserAgent foUserAgent = engine.newUserAgent(diagnosticsSink);
+      AWTRenderer renderer = new AWTRenderer(foUserAgent);
+      foUserAgent.setRendererOverride(renderer);
+      Fop fop = engine.getFopFactory().newFop(MimeConstants.MIME_FOP_AWT_PREVIEW, foUserAgent);
+      metrics.setPhase(RenderMetrics.Phase.FACTORY_SETUP, System.nanoTime() - setupStart);
+      recordStats(metrics, engine.transform(xslPath, xmlPath, fop, diagnosticsSink));
+      pages = new Java2DPreviewPages(renderer);
+      metrics.setPeakHeapDeltaBytes(heap.peakDeltaBytes());
+    }
+    metrics.setPageCount(pages.getPageCount());
+    metrics.addAllocatedBytes(RenderMetrics.allocatedSince(allocationMark,
+        RenderMetrics.currentThreadAllocatedBytes()));
+    if (diagnosticsSink != null) {
+      diagnosticsSink.renderCompleted(xmlPath, metrics);
+    }
+    return pages;
+  }
+
+  static List<String> resolveXmlPaths(XslFoRunConfiguration config) throws IOException {
     List<String> xmlPaths = config.getSettings().getXmlInputFilesPointers().stream()
         .map(pointer -> pointer != null ? pointer.getPresentableUrl() : null)
         .filter(path -> path != null && !path.isBlank())
         .toList();
-    String xslPath = config.getSettings().getXsltFilePointer() != null
-        ? config.getSettings().getXsltFilePointer().getPresentableUrl()
-        : null;
     if (xmlPaths.isEmpty()) {
       throw new IOException("No XML input file selected");
     }
+    return xmlPaths;
+  }
+
+  static String resolveXslPath(XslFoRunConfiguration config) throws IOException {
+    String xslPath = config.getSettings().getXsltFilePointer() != null
+        ? config.getSettings().getXsltFilePointer().getPresentableUrl()
+        : null;
     if (xslPath == null || xslPath.isEmpty()) {
       throw new IOException("No XSLT file selected");
     }
+    return xslPath;
+  }
 
-    // Configure FOP factory; optionally load user config if present
+  /**
+   * Returns the FOP user configuration file selected for the run, or null for FOP defaults.
+   */
+  static String resolveUserConfigPath(XslFoRunConfiguration config) {
     XslFoSettings pluginSettings = getPluginSettingsOrNull();
     String userConfig;
     switch (config.getSettings().configMode()) {
@@ -78,82 +246,64 @@ final class BundledFopRunner {
       case FILE -> userConfig = config.getSettings().configFilePath();
       default -> userConfig = null;
     }
-    FopFactory fopFactory;
-    if (userConfig != null && !userConfig.isEmpty()) {
-      FopConfParser parser = new FopConfParser(new File(userConfig));
-      FopFactoryBuilder builder = parser.getFopFactoryBuilder();
-      fopFactory = builder.build();
-    } else {
-      FopFactoryBuilder builder = new FopFactoryBuilder(new File(".").toURI());
-      fopFactory = builder.build();
-    }
-    FOUserAgent foUserAgent = fopFactory.newFOUserAgent();
-    installNullSafeResourceResolver(foUserAgent, diagnosticsSink);
-    if (diagnosticsSink != null) {
-      // Adding a listener prevents FOUserAgent from auto-attaching its LoggingEventListener.
-      foUserAgent.getEventBroadcaster().addEventListener(
-          createDiagnosticsEventListener(diagnosticsSink));
-    }
+    return userConfig != null && !userConfig.isEmpty() ? userConfig : null;
+  }
 
-    List<File> outputs = new ArrayList<>();
-    boolean multipleInputs = xmlPaths.size() > 1;
-    for (String xmlPath : xmlPaths) {
-      File outFile = resolveOutputFile(config, temporaryFile, xmlPath, multipleInputs);
-      File parent = outFile.getParentFile();
-      if (parent != null) {
-        parent.mkdirs();
+  /**
+   * Returns the warm engine for the FOP configuration selected by {@code config}, creating it on
+   * first use or when the configuration file changed. Keeping engines alive between runs keeps the
+   * fonts they parsed, images and compiled stylesheets for the {@value #MAX_WARM_ENGINES} most
+   * recently used configurations; FOP's font cache and compiled hyphenation
+   * patterns in the IDE system directory spare parsing them again after a restart.
+   */
+  static FopEngine obtainEngine(XslFoRunConfiguration config) throws IOException, SAXException {
+    String configPath = resolveUserConfigPath(config);
+    String key = configPath != null ? new File(configPath).getAbsolutePath() : "";
+    long configModified = configPath != null ? new File(configPath).lastModified() : 0;
+    FopEngine engine;
+    synchronized (ENGINES) {
+      WarmEngine warm = ENGINES.get(key);
+      if (warm == null || warm.configModified() != configModified) {
+        warm = new WarmEngine(new FopEngine(configPath, getCacheDirectoryOrNull()),
+            configModified);
+        ENGINES.put(key, warm);
       }
-      try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outFile))) {
-        OutputFormat fmt = getEffectiveOutputFormat(config);
-        Fop fop = fopFactory.newFop(fmt.mime(), foUserAgent, out);
-
-        TransformerFactory factory = TransformerFactory.newInstance();
-        ErrorListener errorListener = createStrictErrorListener(diagnosticsSink);
-        factory.setErrorListener(errorListener);
-
-        File xsltFile = new File(xslPath);
-        StreamSource xsltSource = new StreamSource(xsltFile);
-        xsltSource.setSystemId(xsltFile.toURI().toString());
-        Transformer transformer = factory.newTransformer(xsltSource);
-        transformer.setErrorListener(errorListener);
-
-        File xmlFile = new File(xmlPath);
-        StreamSource xmlSource = new StreamSource(xmlFile);
-        xmlSource.setSystemId(xmlFile.toURI().toString());
-
-        Result res = new SAXResult(fop.getDefaultHandler());
-        transformer.transform(xmlSource, res);
-      }
-      outputs.add(outFile);
+      engine = warm.engine();
     }
-    return List.copyOf(outputs);
+    engine.setFoCache(getFoCache());
+    return engine;
   }
 
-  private static ErrorListener createStrictErrorListener(RenderDiagnosticsSink diagnosticsSink) {
-    return new ErrorListener() {
-      @Override
-      public void warning(TransformerException exception) {
-        if (diagnosticsSink != null && exception != null && exception.getMessage() != null) {
-          diagnosticsSink.warning(exception.getMessage());
-        }
-      }
-
-      @Override
-      public void error(TransformerException exception) throws TransformerException {
-        if (diagnosticsSink != null && exception != null && exception.getMessage() != null) {
-          diagnosticsSink.error(exception.getMessage());
-        }
-        throw exception;
+  /**
+   * Returns the XSLT result cache in the IDE system directory, sized from the plugin settings, or
+   * null when it is disabled or the settings are unavailable. One instance is shared by all runs
+   * so input content hashes are computed once per file version.
+   */
+  static FoCache getFoCache() {
+    XslFoSettings pluginSettings = getPluginSettingsOrNull();
+    if (pluginSettings == null || pluginSettings.getXsltResultCacheSizeMb() == 0) {
+      return null;
+    }
+    long maxBytes = pluginSettings.getXsltResultCacheSizeMb() * 1024L * 1024L;
+    synchronized (FO_CACHE_LOCK) {
+      if (foCache == null || foCache.getMaxBytes() != maxBytes) {
+        foCache = new FoCache(Path.of(PathManager.getSystemPath(), "xslfo", "fo-cache"),
+            maxBytes);
       }
+      return foCache;
+    }
+  }
 
-      @Override
-      public void fatalError(TransformerException exception) throws TransformerException {
-        if (diagnosticsSink != null && exception != null && exception.getMessage() != null) {
-          diagnosticsSink.error(exception.getMessage());
-        }
-        throw exception;
-      }
-    };
+  static void recordStats(RenderMetrics metrics, RenderStats stats) {
+    metrics.setPhase(RenderMetrics.Phase.STYLESHEET_COMPILE, stats.compileNanos());
+    metrics.setPhase(RenderMetrics.Phase.XSLT, stats.xsltNanos());
+    metrics.setPhase(RenderMetrics.Phase.FO_TREE, stats.foTreeNanos());
+    metrics.setPhase(RenderMetrics.Phase.LAYOUT, stats.layoutNanos());
+    metrics.setPhase(RenderMetrics.Phase.OUTPUT, stats.outputNanos());
+    metrics.addCacheLookups(stats.cacheHits(), stats.cacheMisses());
+    if (stats.pageCount() >= 0) {
+      metrics.setPageCount(stats.pageCount());
+    }
   }
 
   private static void clearLegacyJaxpOverrides(RenderDiagnosticsSink diagnosticsSink) {
@@ -176,46 +326,6 @@ final class BundledFopRunner {
     }
   }
 
-  private static EventListener createDiagnosticsEventListener(RenderDiagnosticsSink sink) {
-    return event -> {
-      if (event == null) {
-        return;
-      }
-      String formatted = EventFormatter.format(event);
-      if (formatted == null || formatted.isBlank()) {
-        return;
-      }
-      EventSeverity severity = event.getSeverity();
-      if (severity == EventSeverity.WARN) {
-        sink.warning(formatted);
-      } else if (severity == EventSeverity.ERROR || severity == EventSeverity.FATAL) {
-        sink.error(formatted);
-      }
-    };
-  }
-
-  private static void installNullSafeResourceResolver(FOUserAgent foUserAgent,
-                                                      RenderDiagnosticsSink diagnosticsSink) {
-    try {
-      Field resolverField = FOUserAgent.class.getDeclaredField("resourceResolver");
-      resolverField.setAccessible(true);
-      Object resolver = resolverField.get(foUserAgent);
-      if (!(resolver instanceof InternalResourceResolver internalResolver)) {
-        return;
-      }
-      InternalResourceResolver wrapped =
-          NullSafeInternalResourceResolver.wrap(internalResolver);
-      if (wrapped != null && wrapped != internalResolver) {
-        resolverField.set(foUserAgent, wrapped);
-      }
-    } catch (Throwable throwable) {
-      if (diagnosticsSink != null) {
-        diagnosticsSink.warning("Could not install null-safe resource resolver: "
-            + throwable.getClass().getSimpleName());
-      }
-    }
-  }
-
   static OutputFormat getEffectiveOutputFormat(XslFoRunConfiguration config) {
     XslFoRunSettings settings = config.getSettings();
     if (settings.usePluginOutputFormat()) {
@@ -225,8 +335,8 @@ final class BundledFopRunner {
     return settings.outputFormat();
   }
 
-  private static File resolveOutputFile(XslFoRunConfiguration config, File temporaryFile,
-                                        String xmlPath, boolean multipleInputs) {
+  static File resolveOutputFile(XslFoRunConfiguration config, File temporaryFile,
+                                String xmlPath, boolean multipleInputs) {
     if (!multipleInputs) {
       return new File(getOutputFilePath(config, temporaryFile));
     }
@@ -247,6 +357,14 @@ final class BundledFopRunner {
     return temporaryFile != null ? temporaryFile.getAbsolutePath() : configuredOut;
   }
 
+  private static Path getCacheDirectoryOrNull() {
+    try {
+      return Path.of(PathManager.getSystemPath(), "xslfo");
+    } catch (Throwable ignored) {
+      return null;
+    }
+  }
+
   private static XslFoSettings getPluginSettingsOrNull() {
     try {
       return XslFoSettings.getInstance();
@@ -255,9 +373,14 @@ final class BundledFopRunner {
     }
   }
 
-  interface RenderDiagnosticsSink {
-    void warning(String message);
+  private record WarmEngine(FopEngine engine, long configModified) {
+  }
 
-    void error(String message);
+  interface RenderDiagnosticsSink extends EngineDiagnostics {
+    /**
+     * Called after each XML input has been rendered successfully.
+     */
+    default void renderCompleted(String xmlPath, RenderMetrics metrics) {
+    }
   }
 }
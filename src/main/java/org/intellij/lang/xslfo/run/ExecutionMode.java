@@ -4,7 +4,10 @@ package org.intellij.lang.xslfo.run;
  * Defines how FOP execution is resolved for a run configuration.
  */
 public enum ExecutionMode {
-    PLUGIN,   // follow plugin settings (bundled vs external and installation dir)
-    BUNDLED,  // force bundled FOP
-    EXTERNAL  // force external FOP (binary)
+    PLUGIN,              // follow plugin settings (bundled vs external and installation dir)
+    BUNDLED,             // force bundled FOP
+    BUNDLED_ISOLATED,    // bundled FOP in a persistent child JVM with its own heap
+    EXTERNAL,            // force external FOP (binary)
+    EXTERNAL_DAEMON,     // external FOP installation kept warm in a persistent worker JVM
+    EXTERNAL_IN_PROCESS  // external FOP jars loaded in-process by an isolated class loader
 }
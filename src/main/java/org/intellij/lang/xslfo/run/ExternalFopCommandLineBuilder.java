@@ -23,6 +23,16 @@ final class ExternalFopCommandLineBuilder {
       @NotNull XslFoRunConfiguration configuration,
       @NotNull String outputPath,
       @NotNull OutputFormat outputFormat) throws ExecutionException {
+    List<String> xmlInputs = resolveXmlInputs(configuration);
+    if (xmlInputs.size() > 1) {
+      throw new CantRunException(
+          "Multiple XML input files need one command line per input");
+    }
+    return build(configuration, xmlInputs.get(0), outputPath, outputFormat);
+  }
+
+  static @NotNull List<String> resolveXmlInputs(@NotNull XslFoRunConfiguration configuration)
+      throws CantRunException {
     List<String> xmlInputs = configuration.getSettings().getXmlInputFilesPointers().stream()
         .map(pointer -> pointer != null ? pointer.getPresentableUrl() : null)
         .filter(path -> path != null && !path.isBlank())
@@ -30,11 +40,7 @@ final class ExternalFopCommandLineBuilder {
     if (xmlInputs.isEmpty()) {
       throw new CantRunException("No XML input file selected");
     }
-    if (xmlInputs.size() > 1) {
-      throw new CantRunException(
-          "Multiple XML input files are currently supported only with bundled FOP execution mode");
-    }
-    return build(configuration, xmlInputs.get(0), outputPath, outputFormat);
+    return xmlInputs;
   }
 
   static @NotNull GeneralCommandLine build(@NotNull XslFoRunConfiguration configuration,
@@ -67,24 +73,28 @@ final class ExternalFopCommandLineBuilder {
     return commandLine;
   }
 
-  private static @NotNull String resolveFopExecutablePath(
+  static @NotNull String resolveFopExecutablePath(
       @NotNull XslFoRunConfiguration configuration) {
-    String installationDir;
-    XslFoSettings pluginSettings = getPluginSettingsOrNull();
-    ExecutionMode mode = configuration.getSettings().executionMode();
-    if (mode == ExecutionMode.PLUGIN) {
-      installationDir = pluginSettings != null ? pluginSettings.getFopInstallationDir() : null;
-    } else {
-      installationDir = configuration.getSettings().fopInstallationDirOverride();
-    }
-
-    VirtualFile executable = XslFoUtils.findFopExecutable(installationDir);
+    VirtualFile executable = XslFoUtils.findFopExecutable(resolveInstallationDir(configuration));
     if (executable != null) {
       return executable.getPath();
     }
     return "fop";
   }
 
+  /**
+   * Returns the FOP installation directory that applies to the configuration, or null if FOP
+   * should be taken from the system PATH.
+   */
+  static @Nullable String resolveInstallationDir(@NotNull XslFoRunConfiguration configuration) {
+    XslFoSettings pluginSettings = getPluginSettingsOrNull();
+    ExecutionMode mode = configuration.getSettings().executionMode();
+    if (mode == ExecutionMode.PLUGIN) {
+      return pluginSettings != null ? pluginSettings.getFopInstallationDir() : null;
+    }
+    return configuration.getSettings().fopInstallationDirOverride();
+  }
+
   private static @Nullable String resolveUserConfigPath(
       @NotNull XslFoRunConfiguration configuration) {
     XslFoSettings pluginSettings = getPluginSettingsOrNull();
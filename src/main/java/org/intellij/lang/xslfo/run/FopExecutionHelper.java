@@ -17,24 +17,33 @@ public final class FopExecutionHelper {
   }
 
   /**
-   * Determines whether the bundled in-process FOP should be used for the given configuration.
+   * Resolves the execution mode that actually applies to the given configuration.
    *
    * @param runConfiguration the run configuration to check
-   * @return true if bundled FOP should be used, false if external/binary FOP should be used
+   * @return the concrete mode; never PLUGIN
    *
-   * <p>Logic (preserved from prior inline implementation):
-   * - If ExecutionMode.PLUGIN: follow the plugin setting XslFoSettings.isUseBundledFop().
-   * - If ExecutionMode.BUNDLED: use bundled FOP.
-   * - If ExecutionMode.EXTERNAL: use external/binary FOP.
+   * <p>ExecutionMode.PLUGIN follows the plugin setting XslFoSettings.isUseBundledFop(); every
+   * other mode is returned unchanged.
    */
-  public static boolean useBundledFop(@NotNull XslFoRunConfiguration runConfiguration) {
+  public static @NotNull ExecutionMode resolveExecutionMode(
+      @NotNull XslFoRunConfiguration runConfiguration) {
     ExecutionMode mode = runConfiguration.getSettings().executionMode();
     if (mode == ExecutionMode.PLUGIN) {
       XslFoSettings settings = XslFoSettings.getInstance();
       boolean pluginBundled = settings != null && settings.isUseBundledFop();
-      return pluginBundled;
+      return pluginBundled ? ExecutionMode.BUNDLED : ExecutionMode.EXTERNAL;
     }
-    return mode == ExecutionMode.BUNDLED;
+    return mode;
+  }
+
+  /**
+   * Determines whether the bundled in-process FOP should be used for the given configuration.
+   *
+   * @param runConfiguration the run configuration to check
+   * @return true if bundled FOP should be used, false if an external FOP should be used
+   */
+  public static boolean useBundledFop(@NotNull XslFoRunConfiguration runConfiguration) {
+    return resolveExecutionMode(runConfiguration) == ExecutionMode.BUNDLED;
   }
 
   /**
@@ -0,0 +1,114 @@
+package org.intellij.lang.xslfo.run;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Application service owning the long-lived FOP worker JVMs. Workers are kept per role and
+ * replaced whenever the requested {@link FopWorkerSpec} differs from the running one.
+ * <br>
+ * Callers lease a worker for the duration of a run. A replaced worker is retired rather than
+ * stopped: it finishes the renders of its current leases and is shut down when the last lease
+ * is closed.
+ */
+public final class FopWorkerManager implements Disposable {
+
+  static final String EXTERNAL_DAEMON = "external-daemon";
+  static final String ISOLATED_BUNDLED = "isolated-bundled";
+
+  private final Map<String, FopWorkerProcess> workers = new HashMap<>();
+  private final Map<FopWorkerProcess, Integer> leaseCounts = new IdentityHashMap<>();
+
+  public static FopWorkerManager getInstance() {
+    return ApplicationManager.getApplication().getService(FopWorkerManager.class);
+  }
+
+  /**
+   * Leases a live worker started with {@code spec}, starting one if needed. Close the lease when
+   * the run is done.
+   */
+  @NotNull Lease acquire(@NotNull String role, @NotNull FopWorkerSpec spec) throws IOException {
+    FopWorkerProcess retired = null;
+    Lease lease;
+    synchronized (this) {
+      FopWorkerProcess current = workers.get(role);
+      if (current == null || !current.isAlive() || !current.spec().equals(spec)) {
+        if (current != null) {
+          workers.remove(role);
+          retired = leaseCounts.containsKey(current) ? null : current;
+        }
+        current = FopWorkerProcess.start(spec);
+        workers.put(role, current);
+      }
+      leaseCounts.merge(current, 1, Integer::sum);
+      lease = new Lease(current);
+    }
+    if (retired != null) {
+      retired.shutdown();
+    }
+    return lease;
+  }
+
+  private void release(FopWorkerProcess worker) {
+    synchronized (this) {
+      int remaining = leaseCounts.merge(worker, -1, Integer::sum);
+      if (remaining > 0) {
+        return;
+      }
+      leaseCounts.remove(worker);
+      if (workers.containsValue(worker)) {
+        return;
+      }
+    }
+    worker.shutdown();
+  }
+
+  @Override
+  public void dispose() {
+    List<FopWorkerProcess> running;
+    synchronized (this) {
+      running = new ArrayList<>(workers.values());
+      running.addAll(leaseCounts.keySet());
+      workers.clear();
+      leaseCounts.clear();
+    }
+    for (FopWorkerProcess worker : running) {
+      worker.shutdown();
+    }
+  }
+
+  /**
+   * Use of a worker by one run; the worker is not stopped for a new spec while a lease is open.
+   */
+  final class Lease implements AutoCloseable {
+    private final FopWorkerProcess worker;
+    private boolean closed;
+
+    private Lease(FopWorkerProcess worker) {
+      this.worker = worker;
+    }
+
+    @NotNull FopWorkerProcess worker() {
+      return worker;
+    }
+
+    @Override
+    public void close() {
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+      }
+      release(worker);
+    }
+  }
+}
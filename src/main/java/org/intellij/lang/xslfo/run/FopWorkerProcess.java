@@ -0,0 +1,298 @@
+package org.intellij.lang.xslfo.run;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import org.intellij.lang.xslfo.engine.FopEventGroup;
+import org.intellij.lang.xslfo.engine.FopWorkerMain;
+import org.intellij.lang.xslfo.engine.FopWorkerProtocol;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * IDE-side handle of a running {@link FopWorkerMain} JVM. Jobs are executed one at a time.
+ */
+final class FopWorkerProcess {
+
+  private static final long STARTUP_TIMEOUT_SECONDS = 60;
+  private static final int STDERR_TAIL_LINES = 20;
+  // Compared by identity; marks the end of the worker's stdout.
+  @SuppressWarnings("StringOperationCanBeSimplified")
+  private static final String END_OF_STREAM = new String("<eof>");
+
+  private final FopWorkerSpec spec;
+  private final Process process;
+  private final Writer requests;
+  private final BlockingQueue<String> responses = new LinkedBlockingQueue<>();
+  private final Deque<String> stderrTail = new ArrayDeque<>();
+  private final AtomicLong jobIds = new AtomicLong();
+  private volatile boolean endOfStream;
+
+  private FopWorkerProcess(@NotNull FopWorkerSpec spec, @NotNull Process process) {
+    this.spec = spec;
+    this.process = process;
+    this.requests = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+    startPump("FOP worker stdout", process.getInputStream(), StandardCharsets.UTF_8,
+        responses::add, () -> responses.add(END_OF_STREAM));
+    startPump("FOP worker stderr", process.getErrorStream(), Charset.defaultCharset(),
+        this::rememberStderr, () -> { });
+  }
+
+  static @NotNull FopWorkerProcess start(@NotNull FopWorkerSpec spec) throws IOException {
+    GeneralCommandLine commandLine = new GeneralCommandLine();
+    commandLine.setExePath(javaExecutable());
+    commandLine.addParameter("-Djava.awt.headless=true");
+    commandLine.addParameters(spec.jvmOptions());
+    commandLine.addParameters("-cp", String.join(File.pathSeparator, spec.classpath()));
+    commandLine.addParameter(FopWorkerMain.class.getName());
+    if (spec.bundledFop()) {
+      commandLine.addParameter(FopWorkerMain.BUNDLED_OPTION);
+    }
+    if (spec.configPath() != null) {
+      commandLine.addParameter(spec.configPath());
+    }
+    Process process;
+    try {
+      process = commandLine.createProcess();
+    } catch (ExecutionException executionException) {
+      throw new IOException("Could not start FOP worker: " + executionException.getMessage(),
+          executionException);
+    }
+    FopWorkerProcess worker = new FopWorkerProcess(spec, process);
+    try {
+      worker.awaitReady();
+    } catch (IOException | InterruptedException exception) {
+      worker.destroy();
+      if (exception instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while starting FOP worker", exception);
+      }
+      throw (IOException) exception;
+    }
+    return worker;
+  }
+
+  @NotNull FopWorkerSpec spec() {
+    return spec;
+  }
+
+  boolean isAlive() {
+    return !endOfStream && process.isAlive();
+  }
+
+  /**
+   * Renders one input and blocks until the worker reports the outcome. Interrupting the calling
+   * thread kills the worker, because an abandoned job would otherwise keep it busy.
+   */
+  synchronized @NotNull RenderOutcome render(@NotNull String xslPath,
+                                             @NotNull String xmlPath,
+                                             @NotNull String outputPath,
+                                             @NotNull String mime,
+                                             @Nullable BundledFopRunner.RenderDiagnosticsSink sink)
+      throws IOException, InterruptedException {
+    String jobId = Long.toString(jobIds.incrementAndGet());
+    send(FopWorkerProtocol.RENDER, jobId, xslPath, xmlPath, outputPath, mime);
+    try {
+      while (true) {
+        String line = responses.take();
+        if (line == END_OF_STREAM) {
+          throw new IOException(describeExit("FOP worker exited while rendering"));
+        }
+        List<String> fields = FopWorkerProtocol.decode(line);
+        if (fields.size() < 2 || !jobId.equals(fields.get(1))) {
+          continue;
+        }
+        String kind = fields.get(0);
+        String payload = fields.size() > 2 ? fields.get(2) : "";
+        switch (kind) {
+          case FopWorkerProtocol.WARN -> {
+            if (sink != null) {
+              sink.warning(payload);
+            }
+          }
+          case FopWorkerProtocol.ERROR -> {
+            if (sink != null) {
+              sink.error(payload);
+            }
+          }
+          case FopWorkerProtocol.REPEATED -> {
+            reportRepetition(fields.subList(2, fields.size()), sink);
+          }
+          case FopWorkerProtocol.FAIL -> throw new IOException(payload);
+          case FopWorkerProtocol.DONE -> {
+            return new RenderOutcome(parseInt(payload),
+                fields.size() > 3 ? parseLong(fields.get(3)) : -1,
+                fields.size() > 4 ? parseLong(fields.get(4)) : -1);
+          }
+          default -> {
+            // Unknown message kinds from newer workers are ignored.
+          }
+        }
+      }
+    } catch (InterruptedException interruptedException) {
+      destroy();
+      throw interruptedException;
+    }
+  }
+
+  /**
+   * Asks the worker to exit and kills it if it does not do so promptly.
+   */
+  void shutdown() {
+    if (process.isAlive()) {
+      try {
+        send(FopWorkerProtocol.SHUTDOWN);
+        requests.close();
+        if (process.waitFor(2, TimeUnit.SECONDS)) {
+          return;
+        }
+      } catch (IOException ignored) {
+        // Fall through to destroy.
+      } catch (InterruptedException interruptedException) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    destroy();
+  }
+
+  void destroy() {
+    process.destroyForcibly();
+  }
+
+  private void awaitReady() throws IOException, InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(STARTUP_TIMEOUT_SECONDS);
+    while (true) {
+      long remaining = deadline - System.nanoTime();
+      String line = remaining > 0 ? responses.poll(remaining, TimeUnit.NANOSECONDS) : null;
+      if (line == null) {
+        throw new IOException("FOP worker did not start within " + STARTUP_TIMEOUT_SECONDS
+            + " seconds");
+      }
+      if (line == END_OF_STREAM) {
+        throw new IOException(describeExit("FOP worker exited during startup"));
+      }
+      if (FopWorkerProtocol.READY.equals(line)) {
+        return;
+      }
+    }
+  }
+
+  private void send(String... fields) throws IOException {
+    requests.write(FopWorkerProtocol.encode(fields));
+    requests.write('\n');
+    requests.flush();
+  }
+
+  private String describeExit(String prefix) {
+    String tail;
+    synchronized (stderrTail) {
+      tail = String.join("\n", stderrTail);
+    }
+    return tail.isBlank() ? prefix : prefix + ":\n" + tail;
+  }
+
+  private void rememberStderr(String line) {
+    synchronized (stderrTail) {
+      if (stderrTail.size() == STDERR_TAIL_LINES) {
+        stderrTail.removeFirst();
+      }
+      stderrTail.addLast(line);
+    }
+  }
+
+  private void startPump(String name, InputStream stream, Charset charset,
+                         Consumer<String> lineConsumer, Runnable onEnd) {
+    Thread thread = new Thread(() -> {
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, charset))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          lineConsumer.accept(line);
+        }
+      } catch (IOException ignored) {
+        // Stream closed because the worker went away.
+      } finally {
+        if (stream == process.getInputStream()) {
+          endOfStream = true;
+        }
+        onEnd.run();
+      }
+    }, name);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Reports the summary of a repeated FOP warning or error (kind, count, first and last location,
+   * message) the way the bundled runner reports repeated events.
+   */
+  static void reportRepetition(@NotNull List<String> summary,
+                               @Nullable BundledFopRunner.RenderDiagnosticsSink sink) {
+    if (sink == null || summary.size() < 5) {
+      return;
+    }
+    String repetition = FopEventGroup.describeRepetition(parseInt(summary.get(1)),
+        emptyToNull(summary.get(2)), emptyToNull(summary.get(3)));
+    if (repetition == null) {
+      return;
+    }
+    String message = "Repeated " + repetition + ": " + summary.get(4);
+    if (FopWorkerProtocol.ERROR.equals(summary.get(0))) {
+      sink.error(message);
+    } else {
+      sink.warning(message);
+    }
+  }
+
+  private static String emptyToNull(String value) {
+    return value.isEmpty() ? null : value;
+  }
+
+  private static int parseInt(String value) {
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException ignored) {
+      return -1;
+    }
+  }
+
+  private static long parseLong(String value) {
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException ignored) {
+      return -1;
+    }
+  }
+
+  private static @NotNull String javaExecutable() {
+    File javaHome = new File(System.getProperty("java.home"));
+    File windows = new File(javaHome, "bin/java.exe");
+    return windows.isFile() ? windows.getPath() : new File(javaHome, "bin/java").getPath();
+  }
+
+  /**
+   * Result of one worker render.
+   *
+   * @param pageCount    pages produced, or -1 if FOP did not report it
+   * @param compileNanos time spent obtaining the compiled stylesheet (near zero when cached)
+   * @param renderNanos  time spent transforming, laying out and writing the output
+   */
+  record RenderOutcome(int pageCount, long compileNanos, long renderNanos) {
+  }
+}
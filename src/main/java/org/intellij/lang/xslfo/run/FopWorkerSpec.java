@@ -0,0 +1,30 @@
+package org.intellij.lang.xslfo.run;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Everything that determines how a worker JVM is launched. A running worker is reused only while
+ * the spec it was started with stays equal, so a changed installation (classpath) or a changed or
+ * edited FOP configuration file restarts it.
+ *
+ * @param classpath   classpath entries of the worker JVM, including the worker launcher itself
+ * @param jvmOptions  additional JVM options placed before the main class
+ * @param configPath  FOP user configuration file, or null for FOP defaults
+ * @param configStamp last-modified time of {@code configPath} when the spec was resolved
+ * @param bundledFop  whether the classpath holds the plugin's bundled FOP rather than an external
+ *                    installation, which the worker then drives through public FOP API only
+ */
+record FopWorkerSpec(@NotNull List<String> classpath,
+                     @NotNull List<String> jvmOptions,
+                     @Nullable String configPath,
+                     long configStamp,
+                     boolean bundledFop) {
+
+  FopWorkerSpec {
+    classpath = List.copyOf(classpath);
+    jvmOptions = List.copyOf(jvmOptions);
+  }
+}
@@ -0,0 +1,157 @@
+package org.intellij.lang.xslfo.run;
+
+import com.intellij.execution.configurations.CommandLineState;
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.execution.runners.ExecutionEnvironment;
+import org.intellij.lang.xslfo.engine.BatchRenderer;
+import org.intellij.lang.xslfo.engine.FopEngine;
+import org.intellij.lang.xslfo.engine.HotFolderRenderer;
+import org.intellij.lang.xslfo.performance.RenderHistory;
+import org.intellij.lang.xslfo.performance.RenderRecord;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Runs a configuration in hot folder mode: XML files arriving in the watched directory are
+ * rendered with the configured stylesheet by a warm bundled {@link FopEngine} until the run is
+ * stopped from the Run tool window.
+ */
+final class HotFolderCommandLineState extends CommandLineState {
+
+  private final XslFoRunConfiguration config;
+  private volatile HotFolderRenderer hotFolder;
+  private volatile Thread watcherThread;
+
+  HotFolderCommandLineState(@NotNull XslFoRunConfiguration config,
+                            @NotNull ExecutionEnvironment environment) {
+    super(environment);
+    this.config = config;
+  }
+
+  @NotNull
+  @Override
+  protected ProcessHandler startProcess() {
+    InProcessFopProcessHandler handler = new InProcessFopProcessHandler(this::stop);
+    Thread thread = new Thread(() -> watch(handler), "xslfo-hot-folder-watcher");
+    thread.setDaemon(true);
+    watcherThread = thread;
+    handler.startNotify();
+    thread.start();
+    return handler;
+  }
+
+  private void watch(@NotNull InProcessFopProcessHandler handler) {
+    int exitCode = 0;
+    try {
+      String xslPath = BundledFopRunner.resolveXslPath(config);
+      Path inputDir = Path.of(config.getSettings().watchDirectory().trim());
+      Path outputDir = resolveOutputDirectory();
+      Files.createDirectories(outputDir);
+      OutputFormat format = BundledFopRunner.getEffectiveOutputFormat(config);
+      int parallelism = config.getSettings().watchParallelism() > 0
+          ? config.getSettings().watchParallelism()
+          : Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+      FopEngine engine = BundledFopRunner.obtainEngine(config);
+      HotFolderRenderer renderer = new HotFolderRenderer(engine, xslPath, inputDir, outputDir,
+          format.mime(), format.extension(), parallelism, createListener(handler, config));
+      hotFolder = renderer;
+      if (handler.isCancellationRequested()) {
+        renderer.close();
+        return;
+      }
+      handler.notifyTextAvailable("Watching " + inputDir + " for XML inputs, writing to "
+          + outputDir + " (up to " + parallelism + " concurrent renders)\n",
+          ProcessOutputTypes.SYSTEM);
+      renderer.run();
+    } catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+    } catch (Exception exception) {
+      exitCode = 1;
+      handler.notifyTextAvailable("Hot folder mode failed: " + describe(exception) + "\n",
+          ProcessOutputTypes.STDERR);
+    } finally {
+      hotFolder = null;
+      watcherThread = null;
+      if (!handler.isCancellationRequested()) {
+        if (exitCode == 0) {
+          handler.notifyTextAvailable("Watched directory is no longer available\n",
+              ProcessOutputTypes.SYSTEM);
+        }
+        handler.notifyProcessTerminated(exitCode);
+      }
+    }
+  }
+
+  private @NotNull Path resolveOutputDirectory() {
+    XslFoRunSettings settings = config.getSettings();
+    if (settings.useTemporaryFiles() || settings.outputFile() == null
+        || settings.outputFile().isBlank()) {
+      return Path.of(System.getProperty("java.io.tmpdir"), "xslfo-hot-folder");
+    }
+    return new File(settings.outputFile().trim()).toPath();
+  }
+
+  private static @NotNull BatchRenderer.Listener createListener(
+      @NotNull ProcessHandler handler, @NotNull XslFoRunConfiguration config) {
+    return new BatchRenderer.Listener() {
+      @Override
+      public void warning(BatchRenderer.Job job, String message) {
+        handler.notifyTextAvailable("[" + job.input().getFileName() + "] [WARNING] " + message
+            + "\n", ProcessOutputTypes.STDOUT);
+      }
+
+      @Override
+      public void error(BatchRenderer.Job job, String message) {
+        handler.notifyTextAvailable("[" + job.input().getFileName() + "] [ERROR] " + message
+            + "\n", ProcessOutputTypes.STDERR);
+      }
+
+      @Override
+      public void completed(BatchRenderer.Result result) {
+        String name = "[" + result.job().input().getFileName() + "] ";
+        String millis = String.format(Locale.ROOT, "%.1f ms", result.elapsedNanos() / 1e6);
+        if (result.success()) {
+          handler.notifyTextAvailable(name + "rendered in " + millis + " ("
+              + result.stats().pageCount() + " pages, XSLT compile "
+              + String.format(Locale.ROOT, "%.1f ms", result.stats().compileNanos() / 1e6)
+              + ") -> " + result.job().output() + "\n", ProcessOutputTypes.SYSTEM);
+          RenderMetrics metrics = new RenderMetrics();
+          BundledFopRunner.recordStats(metrics, result.stats());
+          metrics.setOutputBytes(result.job().output().toFile().length());
+          RenderHistory.record(config.getProject(), RenderRecord.Source.HOT_FOLDER,
+              config.getName(), result.job().input().toString(), metrics);
+        } else {
+          handler.notifyTextAvailable(name + "failed after " + millis + ": "
+              + describe(result.failure()) + "\n", ProcessOutputTypes.STDERR);
+        }
+      }
+    };
+  }
+
+  private void stop() {
+    HotFolderRenderer renderer = hotFolder;
+    if (renderer != null) {
+      renderer.close();
+    }
+    Thread thread = watcherThread;
+    if (thread != null) {
+      thread.interrupt();
+    }
+  }
+
+  private static @NotNull String describe(@NotNull Throwable throwable) {
+    for (Throwable current = throwable; current != null; current = current.getCause()) {
+      String message = current.getMessage();
+      if (message != null && !message.isBlank()) {
+        return message;
+      }
+    }
+    return throwable.getClass().getSimpleName();
+  }
+}
@@ -0,0 +1,78 @@
+package org.intellij.lang.xslfo.run;
+
+import com.intellij.execution.process.ProcessHandler;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Minimal in-memory ProcessHandler to integrate with Run tool window lifecycle.
+ * <br>
+ * Used for work that is not a single OS process the IDE could attach to: in-process FOP, worker
+ * JVM jobs and batches of external processes. Stopping the run invokes the cancellation callback.
+ */
+class InProcessFopProcessHandler extends ProcessHandler {
+  private final Runnable cancellationCallback;
+  private final AtomicBoolean cancellationRequested = new AtomicBoolean(false);
+  private volatile boolean terminated = false;
+  private volatile boolean terminating = false;
+
+  InProcessFopProcessHandler(@NotNull Runnable cancellationCallback) {
+    this.cancellationCallback = cancellationCallback;
+  }
+
+  @Override
+  protected void destroyProcessImpl() {
+    requestCancellation();
+    notifyProcessTerminated(130);
+  }
+
+  @Override
+  protected void detachProcessImpl() {
+    notifyProcessDetached();
+  }
+
+  @Override
+  public boolean detachIsDefault() {
+    return false;
+  }
+
+  @Override
+  public OutputStream getProcessInput() {
+    return new ByteArrayOutputStream();
+  }
+
+  @Override
+  public boolean isProcessTerminated() {
+    return terminated;
+  }
+
+  @Override
+  public boolean isProcessTerminating() {
+    return terminating && !terminated;
+  }
+
+  @Override
+  public void notifyProcessTerminated(int exitCode) {
+    if (terminated) {
+      return;
+    }
+    terminated = true;
+    terminating = false;
+    super.notifyProcessTerminated(exitCode);
+  }
+
+  boolean isCancellationRequested() {
+    return cancellationRequested.get();
+  }
+
+  private void requestCancellation() {
+    if (!cancellationRequested.compareAndSet(false, true)) {
+      return;
+    }
+    terminating = true;
+    cancellationCallback.run();
+  }
+}
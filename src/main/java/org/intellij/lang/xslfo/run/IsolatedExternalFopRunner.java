@@ -0,0 +1,228 @@
+package org.intellij.lang.xslfo.run;
+
+import org.intellij.lang.xslfo.engine.FopJobRunner;
+import org.intellij.lang.xslfo.engine.FopWorkerProtocol;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Drives an external FOP installation in-process. Its jars are loaded into a dedicated, cached
+ * {@link URLClassLoader} whose parent is the platform class loader, so neither the IDE's nor the
+ * plugin's bundled FOP classes are visible to it. Calls cross the loader boundary reflectively
+ * through {@link FopJobRunner}, whose API uses JDK types only.
+ * <br>
+ * The class loader is replaced when the installation's classpath changes, and the job runner
+ * inside it is rebuilt when the FOP configuration file changes. Runs lease both, so a replaced job
+ * runner is closed, and a replaced class loader closed, only once the renders using them ended.
+ */
+final class IsolatedExternalFopRunner {
+
+  private static Installation current;
+
+  private IsolatedExternalFopRunner() {
+  }
+
+  static List<File> runFop(XslFoRunConfiguration config, File temporaryFile,
+                           BundledFopRunner.RenderDiagnosticsSink diagnosticsSink)
+      throws Exception {
+    List<String> classpath = WorkerFopRunner.createExternalInstallationClasspath(config);
+    String configPath = BundledFopRunner.resolveUserConfigPath(config);
+    long configStamp = configPath != null ? new File(configPath).lastModified() : 0L;
+    Lease lease = acquire(classpath, configPath, configStamp);
+    try {
+      return WorkerFopRunner.render(lease.bridge()::render, config, temporaryFile,
+          diagnosticsSink);
+    } finally {
+      release(lease);
+    }
+  }
+
+  private static synchronized Lease acquire(List<String> classpath, String configPath,
+                                            long configStamp) throws Exception {
+    if (current == null || !current.classpath().equals(classpath)) {
+      Installation retired = current;
+      current = new Installation(classpath, createClassLoader(classpath));
+      if (retired != null) {
+        retired.retire();
+      }
+    }
+    return current.lease(configPath, configStamp);
+  }
+
+  private static synchronized void release(Lease lease) {
+    lease.installation().release(lease.bridge());
+  }
+
+  private static URLClassLoader createClassLoader(List<String> classpath) throws IOException {
+    URL[] urls = new URL[classpath.size()];
+    for (int i = 0; i < urls.length; i++) {
+      urls[i] = new File(classpath.get(i)).toURI().toURL();
+    }
+    return new URLClassLoader("external-fop", urls, ClassLoader.getPlatformClassLoader());
+  }
+
+  /**
+   * A loaded installation, the job runner for the FOP configuration last used with it, and the
+   * number of renders in flight per job runner. Guarded by the {@link IsolatedExternalFopRunner}
+   * class lock.
+   */
+  private static final class Installation {
+    private final List<String> classpath;
+    private final URLClassLoader classLoader;
+    private final Map<Bridge, Integer> renders = new IdentityHashMap<>();
+    private Bridge bridge;
+    private boolean retired;
+
+    private Installation(List<String> classpath, URLClassLoader classLoader) {
+      this.classpath = List.copyOf(classpath);
+      this.classLoader = classLoader;
+    }
+
+    List<String> classpath() {
+      return classpath;
+    }
+
+    Lease lease(String configPath, long configStamp) throws Exception {
+      if (bridge == null || !bridge.matches(configPath, configStamp)) {
+        Bridge replaced = bridge;
+        bridge = Bridge.create(classLoader, configPath, configStamp);
+        if (replaced != null && !renders.containsKey(replaced)) {
+          replaced.close();
+        }
+      }
+      renders.merge(bridge, 1, Integer::sum);
+      return new Lease(this, bridge);
+    }
+
+    void release(Bridge used) {
+      if (renders.merge(used, -1, Integer::sum) > 0) {
+        return;
+      }
+      renders.remove(used);
+      if (used != bridge || retired) {
+        used.close();
+      }
+      if (retired && renders.isEmpty()) {
+        closeClassLoader();
+      }
+    }
+
+    /**
+     * Called when another installation replaced this one; closes it once no render uses it.
+     */
+    void retire() {
+      retired = true;
+      if (renders.isEmpty()) {
+        if (bridge != null) {
+          bridge.close();
+        }
+        closeClassLoader();
+      }
+    }
+
+    private void closeClassLoader() {
+      try {
+        classLoader.close();
+      } catch (IOException ignored) {
+        // Jar handles are released with the loader anyway.
+      }
+    }
+  }
+
+  private record Lease(Installation installation, Bridge bridge) {
+  }
+
+  /**
+   * Reflective handle on a {@link FopJobRunner} instance defined by the isolated class loader.
+   */
+  private record Bridge(ClassLoader classLoader, Object jobRunner, Method renderMethod,
+                        String configPath, long configStamp) {
+
+    static Bridge create(ClassLoader classLoader, String configPath, long configStamp)
+        throws Exception {
+      Class<?> runnerClass = Class.forName(FopJobRunner.class.getName(), true, classLoader);
+      Constructor<?> constructor = runnerClass.getConstructor(String.class);
+      Object jobRunner = callWithContextClassLoader(classLoader,
+          () -> constructor.newInstance(configPath));
+      Method renderMethod = runnerClass.getMethod("render", String.class, String.class,
+          String.class, String.class, BiConsumer.class);
+      return new Bridge(classLoader, jobRunner, renderMethod, configPath, configStamp);
+    }
+
+    /**
+     * Releases the job runner's warm FopFactory; the class loader must still be open.
+     */
+    void close() {
+      try {
+        callWithContextClassLoader(classLoader,
+            () -> jobRunner.getClass().getMethod("close").invoke(jobRunner));
+      } catch (Exception ignored) {
+        // Nothing to release; the runner is dropped either way.
+      }
+    }
+
+    boolean matches(String otherConfigPath, long otherConfigStamp) {
+      return Objects.equals(configPath, otherConfigPath)
+          && configStamp == otherConfigStamp;
+    }
+
+    FopWorkerProcess.RenderOutcome render(String xslPath, String xmlPath, String outputPath,
+                                          String mime,
+                                          BundledFopRunner.RenderDiagnosticsSink sink)
+        throws Exception {
+      BiConsumer<String, String> diagnostics = (kind, message) -> {
+        if (sink == null || message == null) {
+          return;
+        }
+        if (FopJobRunner.REPEATED.equals(kind)) {
+          FopWorkerProcess.reportRepetition(FopWorkerProtocol.decode(message), sink);
+        } else if (FopJobRunner.ERROR.equals(kind)) {
+          sink.error(message);
+        } else {
+          sink.warning(message);
+        }
+      };
+      long[] result = (long[]) callWithContextClassLoader(classLoader,
+          () -> renderMethod.invoke(jobRunner, xslPath, xmlPath, outputPath, mime, diagnostics));
+      return new FopWorkerProcess.RenderOutcome((int) result[0], result[1], result[2]);
+    }
+  }
+
+  /**
+   * JAXP and FOP discover their service implementations through the context class loader, so it
+   * must point into the installation while FOP code runs.
+   */
+  private static Object callWithContextClassLoader(ClassLoader classLoader,
+                                                   ReflectiveCall call) throws Exception {
+    Thread thread = Thread.currentThread();
+    ClassLoader previous = thread.getContextClassLoader();
+    thread.setContextClassLoader(classLoader);
+    try {
+      return call.call();
+    } catch (InvocationTargetException invocationTargetException) {
+      Throwable cause = invocationTargetException.getCause();
+      if (cause instanceof Exception exception) {
+        throw exception;
+      }
+      throw invocationTargetException;
+    } finally {
+      thread.setContextClassLoader(previous);
+    }
+  }
+
+  @FunctionalInterface
+  private interface ReflectiveCall {
+    Object call() throws Exception;
+  }
+}
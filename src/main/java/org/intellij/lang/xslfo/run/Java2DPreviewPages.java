@@ -0,0 +1,53 @@
+package org.intellij.lang.xslfo.run;
+
+import org.apache.fop.apps.FOPException;
+import org.apache.fop.render.java2d.Java2DRenderer;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Preview pages backed by FOP's Java2D renderer, painting the retained area tree without
+ * producing PDF output.
+ */
+final class Java2DPreviewPages implements PreviewPages {
+
+  private static final double RENDERER_BASE_DPI = 72d;
+
+  private final int pageCount;
+  private Java2DRenderer renderer;
+
+  Java2DPreviewPages(@NotNull Java2DRenderer renderer) {
+    this.renderer = renderer;
+    this.pageCount = renderer.getNumberOfPages();
+  }
+
+  @Override
+  public int getPageCount() {
+    return pageCount;
+  }
+
+  @Override
+  public synchronized @NotNull BufferedImage renderPage(int pageIndex, float dpi)
+      throws IOException {
+    if (renderer == null) {
+      throw new IOException("Preview document has been closed");
+    }
+    // Java2DRenderer paints at 72 dpi for a scale factor of 1.
+    renderer.setScaleFactor(dpi / RENDERER_BASE_DPI);
+    try {
+      return renderer.getPageImage(pageIndex);
+    } catch (FOPException fopException) {
+      throw new IOException(fopException.getMessage(), fopException);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (renderer != null) {
+      renderer.clearViewportList();
+      renderer = null;
+    }
+  }
+}
@@ -0,0 +1,199 @@
+package org.intellij.lang.xslfo.run;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.OSProcessHandler;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.execution.process.ProcessListener;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.openapi.util.Key;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Runs one external {@code fop} process per XML input on a bounded pool and multiplexes their
+ * output into a single Run console, prefixing every line with the input it belongs to.
+ * <br>
+ * The batch ends with exit code 0 only if every process succeeded.
+ */
+final class ParallelExternalFopExecution {
+
+  private final List<Job> jobs;
+  private final int parallelism;
+  private final Consumer<List<File>> onSuccess;
+  private final Set<ProcessHandler> running = ConcurrentHashMap.newKeySet();
+  private final InProcessFopProcessHandler handler;
+  private volatile ExecutorService pool;
+  private volatile CompletableFuture<?>[] futures;
+
+  private ParallelExternalFopExecution(@NotNull List<Job> jobs,
+                                       @NotNull Consumer<List<File>> onSuccess) {
+    this.jobs = jobs;
+    this.parallelism = Math.max(1,
+        Math.min(jobs.size(), Runtime.getRuntime().availableProcessors()));
+    this.onSuccess = onSuccess;
+    this.handler = new InProcessFopProcessHandler(this::cancel);
+  }
+
+  /**
+   * Builds every command line up front, so configuration problems are reported before any
+   * process is started, then starts the batch.
+   *
+   * @param onSuccess receives the produced output files once all processes exited with 0
+   */
+  static @NotNull ProcessHandler start(@NotNull XslFoRunConfiguration config,
+                                       @NotNull List<String> xmlInputs,
+                                       File temporaryFile,
+                                       @NotNull OutputFormat outputFormat,
+                                       @NotNull Consumer<List<File>> onSuccess)
+      throws ExecutionException {
+    List<Job> jobs = new ArrayList<>();
+    for (String xmlInput : xmlInputs) {
+      File output = BundledFopRunner.resolveOutputFile(config, temporaryFile, xmlInput, true);
+      GeneralCommandLine commandLine = ExternalFopCommandLineBuilder.build(config, xmlInput,
+          output.getAbsolutePath(), outputFormat);
+      jobs.add(new Job(new File(xmlInput).getName(), commandLine, output));
+    }
+    ParallelExternalFopExecution execution = new ParallelExternalFopExecution(jobs, onSuccess);
+    execution.startAll();
+    return execution.handler;
+  }
+
+  private void startAll() {
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    pool = executor;
+    handler.notifyTextAvailable("Rendering " + jobs.size() + " inputs with up to " + parallelism
+        + " concurrent FOP processes\n", ProcessOutputTypes.SYSTEM);
+
+    // A job that throws never stores its exit code, so every input counts as failed until then.
+    int[] exitCodes = new int[jobs.size()];
+    Arrays.fill(exitCodes, 1);
+    CompletableFuture<?>[] started = new CompletableFuture<?>[jobs.size()];
+    for (int i = 0; i < jobs.size(); i++) {
+      int index = i;
+      started[i] = CompletableFuture.runAsync(() -> exitCodes[index] = run(jobs.get(index)),
+          executor);
+    }
+    futures = started;
+    executor.shutdown();
+    CompletableFuture.allOf(started).whenComplete((ignored, failure) -> finish(exitCodes));
+    handler.startNotify();
+  }
+
+  private int run(@NotNull Job job) {
+    if (handler.isCancellationRequested()) {
+      return 130;
+    }
+    String prefix = "[" + job.name() + "] ";
+    OSProcessHandler child;
+    try {
+      GeneralCommandLine commandLine = job.commandLine();
+      child = new OSProcessHandler(commandLine.createProcess(),
+          commandLine.getCommandLineString()) {
+        @Override
+        public Charset getCharset() {
+          return commandLine.getCharset();
+        }
+      };
+    } catch (ExecutionException executionException) {
+      handler.notifyTextAvailable(prefix + executionException.getMessage() + "\n",
+          ProcessOutputTypes.STDERR);
+      return 1;
+    }
+    child.addProcessListener(new ProcessListener() {
+      @Override
+      public void onTextAvailable(@NotNull ProcessEvent event, @NotNull Key outputType) {
+        if (outputType != ProcessOutputTypes.SYSTEM) {
+          handler.notifyTextAvailable(prefixLines(prefix, event.getText()), outputType);
+        }
+      }
+    });
+    running.add(child);
+    try {
+      child.startNotify();
+      child.waitFor();
+    } finally {
+      running.remove(child);
+    }
+    Integer exitCode = child.getExitCode();
+    int result = exitCode != null ? exitCode : 1;
+    handler.notifyTextAvailable(prefix + (result == 0 ? "done" : "failed with exit code " + result)
+        + "\n", ProcessOutputTypes.SYSTEM);
+    return result;
+  }
+
+  private void finish(int[] exitCodes) {
+    pool = null;
+    futures = null;
+    if (handler.isCancellationRequested()) {
+      return;
+    }
+    List<File> outputs = new ArrayList<>();
+    List<String> failed = new ArrayList<>();
+    for (int i = 0; i < jobs.size(); i++) {
+      if (exitCodes[i] == 0) {
+        outputs.add(jobs.get(i).output());
+      } else {
+        failed.add(jobs.get(i).name());
+      }
+    }
+    if (failed.isEmpty()) {
+      handler.notifyTextAvailable("All " + jobs.size() + " inputs rendered\n",
+          ProcessOutputTypes.SYSTEM);
+    } else {
+      handler.notifyTextAvailable(failed.size() + " of " + jobs.size() + " inputs failed: "
+          + String.join(", ", failed) + "\n", ProcessOutputTypes.STDERR);
+    }
+    handler.notifyProcessTerminated(failed.isEmpty() ? 0 : 1);
+    if (failed.isEmpty()) {
+      onSuccess.accept(List.copyOf(outputs));
+    }
+  }
+
+  private void cancel() {
+    ExecutorService executor = pool;
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    // Jobs still queued were dropped by shutdownNow; complete their futures so the batch ends.
+    CompletableFuture<?>[] pending = futures;
+    if (pending != null) {
+      for (CompletableFuture<?> future : pending) {
+        future.cancel(false);
+      }
+    }
+    for (ProcessHandler child : running) {
+      child.destroyProcess();
+    }
+  }
+
+  private static @NotNull String prefixLines(@NotNull String prefix, @NotNull String text) {
+    StringBuilder sb = new StringBuilder(text.length() + prefix.length());
+    boolean lineStart = true;
+    for (int i = 0; i < text.length(); i++) {
+      if (lineStart) {
+        sb.append(prefix);
+      }
+      char c = text.charAt(i);
+      sb.append(c);
+      lineStart = c == '\n';
+    }
+    return sb.toString();
+  }
+
+  private record Job(@NotNull String name, @NotNull GeneralCommandLine commandLine,
+                     @NotNull File output) {
+  }
+}
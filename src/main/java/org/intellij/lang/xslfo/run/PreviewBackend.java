@@ -0,0 +1,9 @@
+package org.intellij.lang.xslfo.run;
+
+/**
+ * Defines how the XSL-FO preview turns laid out pages into images.
+ */
+public enum PreviewBackend {
+  PDF,    // render a temporary PDF and rasterize it with PDFBox
+  JAVA2D  // paint FOP's area tree directly with the Java2D renderer (bundled FOP only)
+}
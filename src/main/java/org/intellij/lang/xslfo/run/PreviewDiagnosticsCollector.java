@@ -0,0 +1,152 @@
+package org.intellij.lang.xslfo.run;
+
+import org.intellij.lang.xslfo.engine.FopEventGroup;
+import org.intellij.lang.xslfo.engine.SourceLocation;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects preview diagnostics as they are produced.
+ * <br>
+ * Every message is forwarded to the optional live listener, but only the first
+ * {@code retentionLimit} are kept for the final result; the rest are counted per severity and
+ * summarized, so documents producing tens of thousands of FOP warnings keep memory flat. FOP
+ * events arrive already grouped: a group takes one entry, and its message and occurrence count
+ * are only read when the snapshot is taken.
+ */
+final class PreviewDiagnosticsCollector {
+
+  static final int DEFAULT_RETENTION_LIMIT = 1000;
+
+  private final int retentionLimit;
+  private final @Nullable XslFoPreviewRenderer.DiagnosticsListener listener;
+  private final List<Entry> retained = new ArrayList<>();
+  private final Map<XslFoPreviewRenderer.Severity, Integer> dropped =
+      new EnumMap<>(XslFoPreviewRenderer.Severity.class);
+
+  PreviewDiagnosticsCollector(@Nullable XslFoPreviewRenderer.DiagnosticsListener listener) {
+    this(DEFAULT_RETENTION_LIMIT, listener);
+  }
+
+  PreviewDiagnosticsCollector(int retentionLimit,
+                              @Nullable XslFoPreviewRenderer.DiagnosticsListener listener) {
+    this.retentionLimit = Math.max(0, retentionLimit);
+    this.listener = listener;
+  }
+
+  /**
+   * Adds a message; blank messages and stack trace lines are ignored.
+   */
+  void add(@NotNull XslFoPreviewRenderer.Severity severity, String message) {
+    add(severity, message, null, false);
+  }
+
+  /**
+   * Adds a message pointing to {@code location}.
+   */
+  void add(@NotNull XslFoPreviewRenderer.Severity severity, String message,
+           @Nullable SourceLocation location) {
+    add(severity, message, location, false);
+  }
+
+  /**
+   * Adds a message that is kept even when the retention limit is reached, such as the final
+   * failure reason.
+   */
+  void addRetained(@NotNull XslFoPreviewRenderer.Severity severity, String message) {
+    add(severity, message, null, true);
+  }
+
+  private synchronized void add(@NotNull XslFoPreviewRenderer.Severity severity, String message,
+                                @Nullable SourceLocation location, boolean alwaysRetain) {
+    if (message == null || message.isBlank()) {
+      return;
+    }
+    String trimmed = message.trim();
+    if (trimmed.startsWith("at ")) {
+      return;
+    }
+    XslFoPreviewRenderer.PreviewRenderMessage renderMessage =
+        new XslFoPreviewRenderer.PreviewRenderMessage(severity, trimmed, location, 1);
+    retain(new Entry(renderMessage, null), alwaysRetain);
+    if (listener != null) {
+      listener.messageAdded(renderMessage);
+    }
+  }
+
+  /**
+   * Adds a group of FOP events when its first event is reported.
+   */
+  void addGroup(@NotNull FopEventGroup group) {
+    Entry entry = new Entry(null, group);
+    synchronized (this) {
+      retain(entry, false);
+    }
+    if (listener != null) {
+      listener.messageAdded(new XslFoPreviewRenderer.PreviewRenderMessage(entry.severity(),
+          group.getMessage(), group.getFirstLocation(), 1));
+    }
+  }
+
+  private void retain(Entry entry, boolean alwaysRetain) {
+    if (alwaysRetain || retained.size() < retentionLimit) {
+      retained.add(entry);
+    } else {
+      dropped.merge(entry.severity(), 1, Integer::sum);
+    }
+  }
+
+  /**
+   * Adds one line of external FOP output. FOP logs through commons-logging, so the severity is
+   * only available as text in the line.
+   */
+  void addExternalLine(String line) {
+    if (line == null || line.isBlank()) {
+      return;
+    }
+    XslFoPreviewRenderer.Severity severity = line.toLowerCase().contains("warn")
+        ? XslFoPreviewRenderer.Severity.WARNING
+        : XslFoPreviewRenderer.Severity.ERROR;
+    add(severity, line);
+  }
+
+  /**
+   * Returns the retained messages, grouped FOP events with their current count, followed by one
+   * summary line per severity that overflowed.
+   */
+  synchronized @NotNull List<XslFoPreviewRenderer.PreviewRenderMessage> snapshot() {
+    List<XslFoPreviewRenderer.PreviewRenderMessage> result = new ArrayList<>(retained.size());
+    for (Entry entry : retained) {
+      result.add(entry.toMessage());
+    }
+    for (Map.Entry<XslFoPreviewRenderer.Severity, Integer> entry : dropped.entrySet()) {
+      String kind = entry.getKey() == XslFoPreviewRenderer.Severity.WARNING ? "warning" : "error";
+      result.add(new XslFoPreviewRenderer.PreviewRenderMessage(entry.getKey(),
+          entry.getValue() + " more " + kind + " message(s) not shown"));
+    }
+    return List.copyOf(result);
+  }
+
+  private record Entry(@Nullable XslFoPreviewRenderer.PreviewRenderMessage message,
+                       @Nullable FopEventGroup group) {
+
+    XslFoPreviewRenderer.Severity severity() {
+      return message != null ? message.severity()
+          : group.isError() ? XslFoPreviewRenderer.Severity.ERROR
+          : XslFoPreviewRenderer.Severity.WARNING;
+    }
+
+    XslFoPreviewRenderer.PreviewRenderMessage toMessage() {
+      if (message != null) {
+        return message;
+      }
+      return new XslFoPreviewRenderer.PreviewRenderMessage(severity(), group.getMessage(),
+          group.getFirstLocation(), group.getCount());
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package org.intellij.lang.xslfo.run;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Rendered preview document that can rasterize individual pages on demand.
+ */
+public interface PreviewPages {
+
+  int getPageCount();
+
+  /**
+   * Rasterizes a single page.
+   *
+   * @param pageIndex zero-based page index
+   * @param dpi target resolution in dots per inch
+   * @return the rendered page image
+   * @throws IOException if the page cannot be rendered
+   */
+  @NotNull BufferedImage renderPage(int pageIndex, float dpi) throws IOException;
+
+  /**
+   * Releases resources held by this document. Further render calls fail.
+   */
+  void close();
+}
@@ -0,0 +1,297 @@
+package org.intellij.lang.xslfo.run;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timing and resource figures recorded for a single render (one XML input).
+ * <br>
+ * Phases are recorded by the thread doing the work; reads may happen from any thread.
+ */
+public final class RenderMetrics {
+
+  /**
+   * Render phases in pipeline order.
+   */
+  public enum Phase {
+    FACTORY_SETUP("FOP setup"),
+    STYLESHEET_COMPILE("XSLT compile"),
+    XSLT("XSLT transform"),
+    FO_TREE("FO tree"),
+    LAYOUT("layout"),
+    OUTPUT("output"),
+    SPLIT_RENDER("split and parallel chunk rendering"),
+    MERGE("PDF merge"),
+    EXTERNAL_PROCESS("external FOP"),
+    PREVIEW_LOAD("PDF load"),
+    RASTERIZE("rasterize");
+
+    private final String label;
+
+    Phase(String label) {
+      this.label = label;
+    }
+
+    public @NotNull String label() {
+      return label;
+    }
+  }
+
+  private static final long HEAP_SAMPLE_MILLIS = 10;
+  private static final Set<HeapSampler> HEAP_SAMPLERS = new CopyOnWriteArraySet<>();
+  private static final ScheduledThreadPoolExecutor HEAP_SAMPLING_EXECUTOR =
+      newHeapSamplingExecutor();
+  private static ScheduledFuture<?> heapSampling; // guarded by HEAP_SAMPLERS
+
+  private final Map<Phase, Long> phaseNanos = new EnumMap<>(Phase.class);
+  private int pageCount = -1;
+  private long outputBytes = -1;
+  private long allocatedBytes = -1;
+  private long peakHeapDeltaBytes = -1;
+  private int cacheHits;
+  private int cacheMisses;
+
+  public synchronized void setPhase(@NotNull Phase phase, long nanos) {
+    phaseNanos.put(phase, Math.max(0, nanos));
+  }
+
+  /**
+   * Returns the recorded duration of a phase in nanoseconds, or -1 if it was not recorded.
+   */
+  public synchronized long getPhaseNanos(@NotNull Phase phase) {
+    Long nanos = phaseNanos.get(phase);
+    return nanos != null ? nanos : -1;
+  }
+
+  public synchronized long getTotalNanos() {
+    long total = 0;
+    for (long nanos : phaseNanos.values()) {
+      total += nanos;
+    }
+    return total;
+  }
+
+  public synchronized int getPageCount() {
+    return pageCount;
+  }
+
+  public synchronized void setPageCount(int pageCount) {
+    this.pageCount = pageCount;
+  }
+
+  public synchronized long getOutputBytes() {
+    return outputBytes;
+  }
+
+  public synchronized void setOutputBytes(long outputBytes) {
+    this.outputBytes = outputBytes;
+  }
+
+  public synchronized long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  public synchronized void addAllocatedBytes(long bytes) {
+    if (bytes < 0) {
+      return;
+    }
+    allocatedBytes = allocatedBytes < 0 ? bytes : allocatedBytes + bytes;
+  }
+
+  /**
+   * Returns how far heap usage rose above its level at the start of the render, or -1 if it was
+   * not recorded.
+   */
+  public synchronized long getPeakHeapDeltaBytes() {
+    return peakHeapDeltaBytes;
+  }
+
+  public synchronized void setPeakHeapDeltaBytes(long bytes) {
+    this.peakHeapDeltaBytes = bytes;
+  }
+
+  public synchronized int getCacheHits() {
+    return cacheHits;
+  }
+
+  public synchronized int getCacheMisses() {
+    return cacheMisses;
+  }
+
+  /**
+   * Adds lookups in the XSLT result and stylesheet caches.
+   */
+  public synchronized void addCacheLookups(int hits, int misses) {
+    cacheHits += Math.max(0, hits);
+    cacheMisses += Math.max(0, misses);
+  }
+
+  /**
+   * Formats all recorded figures as a single human-readable line.
+   */
+  public synchronized @NotNull String format() {
+    StringBuilder sb = new StringBuilder("Render timing: ");
+    boolean first = true;
+    for (Map.Entry<Phase, Long> entry : phaseNanos.entrySet()) {
+      if (!first) {
+        sb.append(", ");
+      }
+      first = false;
+      sb.append(entry.getKey().label()).append(' ').append(formatMillis(entry.getValue()));
+    }
+    if (first) {
+      sb.append("n/a");
+    }
+    if (pageCount >= 0) {
+      sb.append(" | ").append(pageCount).append(pageCount == 1 ? " page" : " pages");
+    }
+    if (outputBytes >= 0) {
+      sb.append(" | output ").append(formatBytes(outputBytes));
+    }
+    if (allocatedBytes >= 0) {
+      sb.append(" | allocated ").append(formatBytes(allocatedBytes));
+    }
+    if (peakHeapDeltaBytes >= 0) {
+      sb.append(" | peak heap +").append(formatBytes(peakHeapDeltaBytes));
+    }
+    if (cacheHits + cacheMisses > 0) {
+      sb.append(" | cache ").append(cacheHits).append(" hit").append(cacheHits == 1 ? "" : "s")
+          .append(", ").append(cacheMisses).append(cacheMisses == 1 ? " miss" : " misses");
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public String toString() {
+    return format();
+  }
+
+  /**
+   * Returns the number of bytes allocated so far by the calling thread, or -1 when the JVM does
+   * not support per-thread allocation accounting.
+   */
+  public static long currentThreadAllocatedBytes() {
+    try {
+      if (ManagementFactory.getThreadMXBean()
+          instanceof com.sun.management.ThreadMXBean threadBean
+          && threadBean.isThreadAllocatedMemorySupported()
+          && threadBean.isThreadAllocatedMemoryEnabled()) {
+        return threadBean.getCurrentThreadAllocatedBytes();
+      }
+    } catch (Throwable ignored) {
+      // Allocation accounting is best effort only
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the difference between two {@link #currentThreadAllocatedBytes()} readings, or -1 if
+   * either reading is unavailable.
+   */
+  public static long allocatedSince(long startMark, long endMark) {
+    return startMark < 0 || endMark < 0 ? -1 : Math.max(0, endMark - startMark);
+  }
+
+  /**
+   * Starts tracking how far heap usage rises above its current level; close the sampler when the
+   * render ends. The JVM's peak usage counters are shared by the whole IDE, so instead of resetting
+   * them a daemon thread samples heap usage every {@value #HEAP_SAMPLE_MILLIS} ms while any
+   * sampler is open. Spikes shorter than that may be missed, and renders running at the same time
+   * see each other's allocation, but each keeps its own peak.
+   */
+  public static @NotNull HeapSampler sampleHeap() {
+    HeapSampler sampler = new HeapSampler(usedHeap());
+    synchronized (HEAP_SAMPLERS) {
+      HEAP_SAMPLERS.add(sampler);
+      if (heapSampling == null) {
+        heapSampling = HEAP_SAMPLING_EXECUTOR.scheduleAtFixedRate(RenderMetrics::sampleHeapUsage,
+            HEAP_SAMPLE_MILLIS, HEAP_SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+      }
+    }
+    return sampler;
+  }
+
+  private static void sampleHeapUsage() {
+    long used = usedHeap();
+    for (HeapSampler sampler : HEAP_SAMPLERS) {
+      sampler.sample(used);
+    }
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /**
+   * Peak heap usage of one render, see {@link #sampleHeap()}.
+   */
+  public static final class HeapSampler implements AutoCloseable {
+    private final long usedAtStart;
+    private final AtomicLong peakUsed;
+
+    private HeapSampler(long usedAtStart) {
+      this.usedAtStart = usedAtStart;
+      this.peakUsed = new AtomicLong(usedAtStart);
+    }
+
+    private void sample(long used) {
+      peakUsed.accumulateAndGet(used, Math::max);
+    }
+
+    /**
+     * Returns how far heap usage rose above its level when sampling started.
+     */
+    public long peakDeltaBytes() {
+      sample(usedHeap());
+      return Math.max(0, peakUsed.get() - usedAtStart);
+    }
+
+    @Override
+    public void close() {
+      synchronized (HEAP_SAMPLERS) {
+        HEAP_SAMPLERS.remove(this);
+        if (HEAP_SAMPLERS.isEmpty() && heapSampling != null) {
+          heapSampling.cancel(false);
+          heapSampling = null;
+        }
+      }
+    }
+  }
+
+  private static ScheduledThreadPoolExecutor newHeapSamplingExecutor() {
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "xslfo-heap-sampling");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.setRemoveOnCancelPolicy(true);
+    executor.setKeepAliveTime(1, TimeUnit.SECONDS);
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  public static @NotNull String formatMillis(long nanos) {
+    return String.format(Locale.ROOT, "%.1f ms", nanos / 1_000_000d);
+  }
+
+  public static @NotNull String formatBytes(long bytes) {
+    if (bytes < 1024) {
+      return bytes + " B";
+    }
+    if (bytes < 1024 * 1024) {
+      return String.format(Locale.ROOT, "%.1f KB", bytes / 1024d);
+    }
+    return String.format(Locale.ROOT, "%.1f MB", bytes / (1024d * 1024d));
+  }
+}
@@ -0,0 +1,170 @@
+package org.intellij.lang.xslfo.run;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.util.execution.ParametersListUtil;
+import org.apache.fop.apps.FopFactory;
+import org.intellij.lang.xslfo.XslFoSettings;
+import org.intellij.lang.xslfo.XslFoUtils;
+import org.intellij.lang.xslfo.engine.FopWorkerMain;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs renders through a persistent {@link FopWorkerMain} JVM instead of starting FOP per run,
+ * either on an external FOP installation or on the FOP libraries bundled with the plugin.
+ */
+final class WorkerFopRunner {
+
+  private WorkerFopRunner() {
+  }
+
+  /**
+   * Renders all configured inputs with the external FOP installation, reusing (or starting) the
+   * warm daemon for it.
+   */
+  static List<File> runExternalDaemon(XslFoRunConfiguration config, File temporaryFile,
+                                      BundledFopRunner.RenderDiagnosticsSink diagnosticsSink)
+      throws Exception {
+    try (FopWorkerManager.Lease lease = FopWorkerManager.getInstance()
+        .acquire(FopWorkerManager.EXTERNAL_DAEMON, createExternalDaemonSpec(config))) {
+      return render(lease.worker()::render, config, temporaryFile, diagnosticsSink);
+    }
+  }
+
+  /**
+   * Renders all configured inputs with the bundled FOP classes in a child JVM, so the area tree
+   * of large documents lives outside the IDE heap.
+   */
+  static List<File> runIsolatedBundled(XslFoRunConfiguration config, File temporaryFile,
+                                       BundledFopRunner.RenderDiagnosticsSink diagnosticsSink)
+      throws Exception {
+    try (FopWorkerManager.Lease lease = FopWorkerManager.getInstance()
+        .acquire(FopWorkerManager.ISOLATED_BUNDLED, createIsolatedBundledSpec(config))) {
+      return render(lease.worker()::render, config, temporaryFile, diagnosticsSink);
+    }
+  }
+
+  /**
+   * Renders every configured input through {@code job}, one input at a time, and reports
+   * per-input metrics to the sink.
+   */
+  static List<File> render(RenderJob job, XslFoRunConfiguration config, File temporaryFile,
+                           BundledFopRunner.RenderDiagnosticsSink diagnosticsSink)
+      throws Exception {
+    List<String> xmlPaths = BundledFopRunner.resolveXmlPaths(config);
+    String xslPath = BundledFopRunner.resolveXslPath(config);
+    OutputFormat fmt = BundledFopRunner.getEffectiveOutputFormat(config);
+    boolean multipleInputs = xmlPaths.size() > 1;
+
+    List<File> outputs = new ArrayList<>();
+    for (String xmlPath : xmlPaths) {
+      File outFile =
+          BundledFopRunner.resolveOutputFile(config, temporaryFile, xmlPath, multipleInputs);
+      FopWorkerProcess.RenderOutcome outcome = job.render(xslPath, xmlPath,
+          outFile.getAbsolutePath(), fmt.mime(), diagnosticsSink);
+      RenderMetrics metrics = new RenderMetrics();
+      metrics.setPhase(RenderMetrics.Phase.STYLESHEET_COMPILE, outcome.compileNanos());
+      metrics.setPhase(RenderMetrics.Phase.EXTERNAL_PROCESS, outcome.renderNanos());
+      metrics.setPageCount(outcome.pageCount());
+      metrics.setOutputBytes(outFile.length());
+      if (diagnosticsSink != null) {
+        diagnosticsSink.renderCompleted(xmlPath, metrics);
+      }
+      outputs.add(outFile);
+    }
+    return List.copyOf(outputs);
+  }
+
+  private static FopWorkerSpec createExternalDaemonSpec(XslFoRunConfiguration config)
+      throws IOException {
+    List<String> classpath = createExternalInstallationClasspath(config);
+    String configPath = BundledFopRunner.resolveUserConfigPath(config);
+    long configStamp = configPath != null ? new File(configPath).lastModified() : 0L;
+    return new FopWorkerSpec(classpath, List.of(), configPath, configStamp, false);
+  }
+
+  /**
+   * Returns the worker launcher followed by the jars of the configured external FOP installation.
+   */
+  static List<String> createExternalInstallationClasspath(XslFoRunConfiguration config)
+      throws IOException {
+    String installationDir = ExternalFopCommandLineBuilder.resolveInstallationDir(config);
+    List<File> fopJars = XslFoUtils.findFopJars(installationDir);
+    if (fopJars.isEmpty()) {
+      throw new IOException("This execution mode needs a FOP installation directory with the "
+          + "jars of a FOP binary distribution (build/ and lib/)");
+    }
+    List<String> classpath = new ArrayList<>();
+    classpath.add(getLauncherClasspathEntry());
+    for (File jar : fopJars) {
+      classpath.add(jar.getAbsolutePath());
+    }
+    return classpath;
+  }
+
+  private static FopWorkerSpec createIsolatedBundledSpec(XslFoRunConfiguration config)
+      throws IOException {
+    Set<String> classpath = new LinkedHashSet<>();
+    classpath.add(getLauncherClasspathEntry());
+    String fopJar = PathManager.getJarPathForClass(FopFactory.class);
+    if (fopJar == null) {
+      throw new IOException("Could not locate the bundled FOP libraries");
+    }
+    // The plugin's lib directory holds FOP together with all of its dependencies.
+    File[] pluginJars = new File(fopJar).getParentFile()
+        .listFiles((dir, name) -> name.endsWith(".jar"));
+    if (pluginJars != null) {
+      Arrays.sort(pluginJars);
+      for (File jar : pluginJars) {
+        classpath.add(jar.getAbsolutePath());
+      }
+    }
+    classpath.add(fopJar);
+
+    List<String> jvmOptions = new ArrayList<>();
+    XslFoSettings settings = getPluginSettingsOrNull();
+    if (settings != null) {
+      if (!settings.getIsolatedWorkerMaxHeap().isEmpty()) {
+        jvmOptions.add("-Xmx" + settings.getIsolatedWorkerMaxHeap());
+      }
+      jvmOptions.addAll(ParametersListUtil.parse(settings.getIsolatedWorkerJvmOptions()));
+    }
+    String configPath = BundledFopRunner.resolveUserConfigPath(config);
+    long configStamp = configPath != null ? new File(configPath).lastModified() : 0L;
+    return new FopWorkerSpec(new ArrayList<>(classpath), jvmOptions, configPath, configStamp,
+        true);
+  }
+
+  private static XslFoSettings getPluginSettingsOrNull() {
+    try {
+      return XslFoSettings.getInstance();
+    } catch (Throwable ignored) {
+      return null;
+    }
+  }
+
+  /**
+   * One render of one input, executed by a worker JVM or an in-process bridge.
+   */
+  @FunctionalInterface
+  interface RenderJob {
+    FopWorkerProcess.RenderOutcome render(String xslPath, String xmlPath, String outputPath,
+                                          String mime,
+                                          BundledFopRunner.RenderDiagnosticsSink diagnosticsSink)
+        throws Exception;
+  }
+
+  private static String getLauncherClasspathEntry() throws IOException {
+    String path = PathManager.getJarPathForClass(FopWorkerMain.class);
+    if (path == null) {
+      throw new IOException("Could not locate the FOP worker launcher classes");
+    }
+    return path;
+  }
+}
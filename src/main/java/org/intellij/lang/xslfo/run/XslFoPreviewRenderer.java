@@ -2,18 +2,27 @@ package org.intellij.lang.xslfo.run;
 
 import com.intellij.execution.ExecutionException;
 import com.intellij.execution.configurations.GeneralCommandLine;
-import com.intellij.execution.process.ProcessOutput;
-import com.intellij.execution.util.ExecUtil;
+import org.intellij.lang.xslfo.XslFoSettings;
+import org.intellij.lang.xslfo.engine.FopEventGroup;
+import org.intellij.lang.xslfo.engine.SourceLocation;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
- * Generates single-input PDF preview output and captures rendering diagnostics.
+ * Generates single-input preview output (a PDF file or in-memory Java2D pages) and captures
+ * rendering diagnostics. Diagnostics can be observed live through a {@link DiagnosticsListener};
+ * the result retains a bounded number of them.
  */
 public final class XslFoPreviewRenderer {
 
@@ -27,11 +36,23 @@ public final class XslFoPreviewRenderer {
   public static @NotNull PreviewRenderResult renderPreview(
       @NotNull XslFoRunConfiguration runConfiguration,
       @NotNull String xmlInputPath) {
-    List<PreviewRenderMessage> messages = new ArrayList<>();
+    return renderPreview(runConfiguration, xmlInputPath, null);
+  }
+
+  /**
+   * Renders a preview, reporting every diagnostic to {@code listener} as soon as it is produced.
+   * The listener is called on the rendering thread or on an output reader thread.
+   */
+  public static @NotNull PreviewRenderResult renderPreview(
+      @NotNull XslFoRunConfiguration runConfiguration,
+      @NotNull String xmlInputPath,
+      @Nullable DiagnosticsListener listener) {
+    PreviewDiagnosticsCollector messages = new PreviewDiagnosticsCollector(listener);
+    AtomicReference<RenderMetrics> metrics = new AtomicReference<>();
     String trimmedXmlInput = xmlInputPath.trim();
     if (trimmedXmlInput.isEmpty()) {
-      addMessage(messages, Severity.ERROR, "No XML input file selected");
-      return new PreviewRenderResult(null, List.copyOf(messages), false);
+      messages.add(Severity.ERROR, "No XML input file selected");
+      return new PreviewRenderResult(null, null, messages.snapshot(), metrics.get(), false);
     }
 
     XslFoRunConfiguration previewConfiguration =
@@ -43,9 +64,9 @@ public final class XslFoPreviewRenderer {
       previewOutputFile = File.createTempFile("xslfo_preview_", OutputFormat.PDF.extension());
       previewOutputFile.deleteOnExit();
     } catch (IOException ioException) {
-      addMessage(messages, Severity.ERROR,
+      messages.add(Severity.ERROR,
           "Could not create temporary preview output file: " + ioException.getMessage());
-      return new PreviewRenderResult(null, List.copyOf(messages), false);
+      return new PreviewRenderResult(null, null, messages.snapshot(), metrics.get(), false);
     }
 
     XslFoRunSettings previewSettings = previewConfiguration.getSettings()
@@ -57,58 +78,146 @@ public final class XslFoPreviewRenderer {
     previewConfiguration.setSettings(previewSettings);
 
     try {
-      if (FopExecutionHelper.useBundledFop(previewConfiguration)) {
-        File output = runBundled(previewConfiguration, messages);
-        return new PreviewRenderResult(output, List.copyOf(messages), true);
+      ExecutionMode executionMode = FopExecutionHelper.resolveExecutionMode(previewConfiguration);
+      if (executionMode == ExecutionMode.BUNDLED) {
+        if (getPreviewBackend() == PreviewBackend.JAVA2D) {
+          previewOutputFile.delete();
+          PreviewPages pages = runBundledJava2D(previewConfiguration, messages, metrics);
+          return new PreviewRenderResult(null, pages, messages.snapshot(), metrics.get(), true);
+        }
+        File output = runWithoutProcess(BundledFopRunner::runFop, previewConfiguration, messages,
+            metrics);
+        return new PreviewRenderResult(output, null, messages.snapshot(), metrics.get(),
+            true);
+      }
+      BundledFopCommandLineState.FopRunner runner = switch (executionMode) {
+        case BUNDLED_ISOLATED -> WorkerFopRunner::runIsolatedBundled;
+        case EXTERNAL_DAEMON -> WorkerFopRunner::runExternalDaemon;
+        case EXTERNAL_IN_PROCESS -> IsolatedExternalFopRunner::runFop;
+        default -> null;
+      };
+      if (runner != null) {
+        File output = runWithoutProcess(runner, previewConfiguration, messages, metrics);
+        return new PreviewRenderResult(output, null, messages.snapshot(), metrics.get(),
+            true);
       }
-      File output = runExternal(previewConfiguration, trimmedXmlInput, previewOutputFile, messages);
-      return new PreviewRenderResult(output, List.copyOf(messages), true);
+      File output = runExternal(previewConfiguration, trimmedXmlInput, previewOutputFile, messages,
+          metrics);
+      return new PreviewRenderResult(output, null, messages.snapshot(), metrics.get(),
+          true);
     } catch (Exception exception) {
       String message = containsNullResourceUriError(exception) ? NULL_RESOURCE_URI_MESSAGE :
           extractErrorMessage(exception);
-      addMessage(messages, Severity.ERROR, message);
-      return new PreviewRenderResult(null, List.copyOf(messages), false);
+      messages.addRetained(Severity.ERROR, message);
+      return new PreviewRenderResult(null, null, messages.snapshot(), metrics.get(), false);
     }
   }
 
-  private static @NotNull File runBundled(@NotNull XslFoRunConfiguration configuration,
-                                          @NotNull List<PreviewRenderMessage> messages)
-      throws Exception {
-    List<File> outputs = BundledFopRunner.runFop(configuration, null, new BundledFopRunner.RenderDiagnosticsSink() {
+  private static @NotNull File runWithoutProcess(
+      @NotNull BundledFopCommandLineState.FopRunner runner,
+      @NotNull XslFoRunConfiguration configuration,
+      @NotNull PreviewDiagnosticsCollector messages,
+      @NotNull AtomicReference<RenderMetrics> metrics) throws Exception {
+    List<File> outputs = runner.run(configuration, null,
+        createDiagnosticsSink(configuration, messages, metrics));
+    if (outputs.isEmpty()) {
+      throw new IOException("FOP did not produce any output for preview.");
+    }
+    File produced = outputs.get(0);
+    if (!produced.exists()) {
+      throw new IOException("FOP did not produce a preview PDF file.");
+    }
+    return produced;
+  }
+
+  private static @NotNull PreviewPages runBundledJava2D(
+      @NotNull XslFoRunConfiguration configuration,
+      @NotNull PreviewDiagnosticsCollector messages,
+      @NotNull AtomicReference<RenderMetrics> metrics) throws Exception {
+    PreviewPages pages = BundledFopRunner.renderJava2DPreview(configuration,
+        createDiagnosticsSink(configuration, messages, metrics));
+    if (pages.getPageCount() <= 0) {
+      pages.close();
+      throw new IOException("Bundled FOP did not lay out any preview pages.");
+    }
+    return pages;
+  }
+
+  private static @NotNull BundledFopRunner.RenderDiagnosticsSink createDiagnosticsSink(
+      @NotNull XslFoRunConfiguration configuration,
+      @NotNull PreviewDiagnosticsCollector messages,
+      @NotNull AtomicReference<RenderMetrics> metrics) {
+    return new BundledFopRunner.RenderDiagnosticsSink() {
       @Override
       public void warning(String message) {
-        addMessage(messages, Severity.WARNING, message);
+        messages.add(Severity.WARNING, message);
       }
 
       @Override
       public void error(String message) {
-        addMessage(messages, Severity.ERROR, message);
+        messages.add(Severity.ERROR, message);
       }
-    });
-    if (outputs.isEmpty()) {
-      throw new IOException("Bundled FOP did not produce any output for preview.");
-    }
-    File produced = outputs.get(0);
-    if (!produced.exists()) {
-      throw new IOException("Bundled FOP did not produce a preview PDF file.");
+
+      @Override
+      public void warning(String message, SourceLocation location) {
+        messages.add(Severity.WARNING, message, location);
+      }
+
+      @Override
+      public void error(String message, SourceLocation location) {
+        messages.add(Severity.ERROR, message, location);
+      }
+
+      @Override
+      public void fopEvents(FopEventGroup group) {
+        messages.addGroup(group);
+      }
+
+      @Override
+      public void renderCompleted(String xmlPath, RenderMetrics renderMetrics) {
+        metrics.set(renderMetrics);
+      }
+
+      @Override
+      public String configurationName() {
+        return configuration.getName();
+      }
+    };
+  }
+
+  private static @NotNull PreviewBackend getPreviewBackend() {
+    try {
+      XslFoSettings settings = XslFoSettings.getInstance();
+      return settings != null ? settings.getPreviewBackend() : PreviewBackend.PDF;
+    } catch (Throwable ignored) {
+      return PreviewBackend.PDF;
     }
-    return produced;
   }
 
   private static @NotNull File runExternal(@NotNull XslFoRunConfiguration configuration,
                                            @NotNull String xmlInputPath,
                                            @NotNull File outputFile,
-                                           @NotNull List<PreviewRenderMessage> messages)
+                                           @NotNull PreviewDiagnosticsCollector messages,
+                                           @NotNull AtomicReference<RenderMetrics> metrics)
       throws IOException, ExecutionException {
     GeneralCommandLine commandLine = ExternalFopCommandLineBuilder.build(
         configuration,
         xmlInputPath,
         outputFile.getAbsolutePath(),
         OutputFormat.PDF);
-    ProcessOutput processOutput = ExecUtil.execAndGetOutput(commandLine);
-    collectExternalDiagnostics(processOutput, messages);
-    if (processOutput.getExitCode() != 0) {
-      throw new IOException(buildExternalErrorMessage(processOutput));
+    RenderMetrics processMetrics = new RenderMetrics();
+    long processStart = System.nanoTime();
+    ExternalOutputSummary summary = new ExternalOutputSummary();
+    int exitCode = runAndStreamOutput(commandLine, line -> {
+      summary.stderrLine(line);
+      messages.addExternalLine(line);
+    }, summary::stdoutLine);
+    processMetrics.setPhase(RenderMetrics.Phase.EXTERNAL_PROCESS,
+        System.nanoTime() - processStart);
+    processMetrics.setOutputBytes(outputFile.length());
+    metrics.set(processMetrics);
+    if (exitCode != 0) {
+      throw new IOException(buildExternalErrorMessage(exitCode, summary));
     }
     if (!outputFile.exists()) {
       throw new IOException("External FOP finished without creating preview PDF output.");
@@ -116,25 +225,58 @@ public final class XslFoPreviewRenderer {
     return outputFile;
   }
 
-  private static void collectExternalDiagnostics(@NotNull ProcessOutput output,
-                                                 @NotNull List<PreviewRenderMessage> messages) {
-    addExternalLines(output.getStderr(), messages);
+  /**
+   * Runs the process and hands each stderr and stdout line to the given consumers while it runs.
+   * Nothing is buffered beyond the current line. Interrupting the calling thread kills the process.
+   */
+  private static int runAndStreamOutput(@NotNull GeneralCommandLine commandLine,
+                                        @NotNull Consumer<String> stderrLines,
+                                        @NotNull Consumer<String> stdoutLines)
+      throws IOException, ExecutionException {
+    Process process = commandLine.createProcess();
+    Charset charset = commandLine.getCharset();
+    process.getOutputStream().close();
+    Thread stderrPump = startLinePump("xslfo-preview-stderr", process.getErrorStream(), charset,
+        stderrLines);
+    Thread stdoutPump = startLinePump("xslfo-preview-stdout", process.getInputStream(), charset,
+        stdoutLines);
+    try {
+      int exitCode = process.waitFor();
+      stderrPump.join();
+      stdoutPump.join();
+      return exitCode;
+    } catch (InterruptedException interruptedException) {
+      process.destroyForcibly();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("External FOP preview rendering was cancelled.");
+    } finally {
+      if (process.isAlive()) {
+        process.destroyForcibly();
+      }
+    }
   }
 
-  private static void addExternalLines(String text, List<PreviewRenderMessage> messages) {
-    if (text == null || text.isBlank()) {
-      return;
-    }
-    for (String line : text.split("\\R")) {
-      String trimmed = line.trim();
-      if (trimmed.isEmpty()) {
-        continue;
+  private static @NotNull Thread startLinePump(@NotNull String name, @NotNull InputStream stream,
+                                               @NotNull Charset charset,
+                                               @NotNull Consumer<String> lines) {
+    Thread thread = new Thread(() -> {
+      try {
+        pumpLines(stream, charset, lines);
+      } catch (IOException ignored) {
+        // The process went away; its exit code tells the rest.
       }
-      String lower = trimmed.toLowerCase();
-      if (lower.contains("warn")) {
-        addMessage(messages, Severity.WARNING, trimmed);
-      } else {
-        addMessage(messages, Severity.ERROR, trimmed);
+    }, name);
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  private static void pumpLines(@NotNull InputStream stream, @NotNull Charset charset,
+                                @NotNull Consumer<String> lines) throws IOException {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, charset))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lines.accept(line);
       }
     }
   }
@@ -171,34 +313,17 @@ public final class XslFoPreviewRenderer {
         && (text.contains("startsWith") || text.contains("InternalResourceResolver"));
   }
 
-  private static @NotNull String buildExternalErrorMessage(@NotNull ProcessOutput output) {
-    String rawError = output.getStderr();
-    if (rawError == null || rawError.isBlank()) {
-      rawError = output.getStdout();
-    }
-    if (containsNullResourceUriError(rawError)) {
+  private static @NotNull String buildExternalErrorMessage(int exitCode,
+                                                          @NotNull ExternalOutputSummary summary) {
+    if (summary.hasNullResourceUriError()) {
       return "External FOP preview rendering failed because a referenced resource URI is empty/null. "
           + "Check generated image/resource src/href values and configured base paths.";
     }
-    String firstLine = firstNonEmptyLine(rawError);
+    String firstLine = summary.firstLine();
     if (firstLine == null) {
-      return "External FOP preview rendering failed with exit code " + output.getExitCode() + ".";
+      return "External FOP preview rendering failed with exit code " + exitCode + ".";
     }
-    return "External FOP preview rendering failed (exit code " + output.getExitCode()
-        + "): " + firstLine;
-  }
-
-  private static String firstNonEmptyLine(String text) {
-    if (text == null) {
-      return null;
-    }
-    for (String line : text.split("\\R")) {
-      String trimmed = line.trim();
-      if (!trimmed.isEmpty()) {
-        return trimmed;
-      }
-    }
-    return null;
+    return "External FOP preview rendering failed (exit code " + exitCode + "): " + firstLine;
   }
 
   private static @NotNull String extractErrorMessage(@NotNull Throwable throwable) {
@@ -211,28 +336,78 @@ public final class XslFoPreviewRenderer {
     return throwable.getClass().getSimpleName();
   }
 
-  private static void addMessage(List<PreviewRenderMessage> messages, Severity severity,
-                                 String message) {
-    if (message == null || message.isBlank()) {
-      return;
-    }
-    String trimmed = message.trim();
-    if (trimmed.startsWith("at ")) {
-      return;
-    }
-    messages.add(new PreviewRenderMessage(severity, trimmed));
-  }
-
   public enum Severity {
     WARNING,
     ERROR
   }
 
-  public record PreviewRenderMessage(@NotNull Severity severity, @NotNull String message) {
+  /**
+   * One preview diagnostic.
+   *
+   * @param location where it points to in the stylesheet, the input or the FO, or null
+   * @param count    how many equal diagnostics it stands for
+   */
+  public record PreviewRenderMessage(@NotNull Severity severity, @NotNull String message,
+                                     @Nullable SourceLocation location, int count) {
+
+    public PreviewRenderMessage(@NotNull Severity severity, @NotNull String message) {
+      this(severity, message, null, 1);
+    }
+  }
+
+  /**
+   * Receives preview diagnostics while rendering is still running.
+   */
+  @FunctionalInterface
+  public interface DiagnosticsListener {
+    void messageAdded(@NotNull PreviewRenderMessage message);
+  }
+
+  /**
+   * What is kept of external FOP output once its lines went to the diagnostics collector: the
+   * first non-empty line of each stream and whether the tokens of FOP's null resource URI failure
+   * appeared anywhere in stderr (or stdout when stderr stays empty).
+   */
+  private static final class ExternalOutputSummary {
+    private String firstStderrLine;
+    private String firstStdoutLine;
+    private final boolean[] stderrTokens = new boolean[3];
+    private final boolean[] stdoutTokens = new boolean[3];
+
+    synchronized void stderrLine(String line) {
+      firstStderrLine = remember(firstStderrLine, line, stderrTokens);
+    }
+
+    synchronized void stdoutLine(String line) {
+      firstStdoutLine = remember(firstStdoutLine, line, stdoutTokens);
+    }
+
+    synchronized String firstLine() {
+      return firstStderrLine != null ? firstStderrLine : firstStdoutLine;
+    }
+
+    synchronized boolean hasNullResourceUriError() {
+      boolean[] tokens = firstStderrLine != null ? stderrTokens : stdoutTokens;
+      return tokens[0] && tokens[1] && tokens[2];
+    }
+
+    private static String remember(String firstLine, String line, boolean[] tokens) {
+      tokens[0] |= line.contains("stringUri");
+      tokens[1] |= line.contains("null");
+      tokens[2] |= line.contains("startsWith") || line.contains("InternalResourceResolver");
+      String trimmed = line.trim();
+      return firstLine == null && !trimmed.isEmpty() ? trimmed : firstLine;
+    }
   }
 
+  /**
+   * Outcome of a preview render. Exactly one of {@code outputFile} (PDF backend) and
+   * {@code pages} (Java2D backend) is set when rendering succeeded.
+   */
   public record PreviewRenderResult(@Nullable File outputFile,
+                                    @Nullable PreviewPages pages,
                                     @NotNull List<PreviewRenderMessage> diagnostics,
+                                    @Nullable RenderMetrics metrics,
                                     boolean success) {
   }
 }
@@ -46,7 +46,8 @@ public class XslFoRunConfiguration extends LocatableConfigurationBase<XslFoRunSe
 
   private XslFoRunSettings settings =
       new XslFoRunSettings(null, null, List.of(), null, false, false, ExecutionMode.PLUGIN, null,
-          SettingsFileMode.PLUGIN, null, true, org.intellij.lang.xslfo.run.OutputFormat.PDF);
+          SettingsFileMode.PLUGIN, null, true, org.intellij.lang.xslfo.run.OutputFormat.PDF,
+          null, 0, null, XslFoRunSettings.DEFAULT_SPLIT_RECORDS_PER_CHUNK, false);
 
   public XslFoRunConfiguration(Project project, ConfigurationFactory factory) {
     super(project, factory, NAME);
@@ -67,6 +68,10 @@ public class XslFoRunConfiguration extends LocatableConfigurationBase<XslFoRunSe
     if (xslt == null || xslt.isEmpty()) {
       throw new RuntimeConfigurationError("No XSLT file selected");
     }
+    if (settings.isWatchMode()) {
+      checkWatchConfiguration();
+      return;
+    }
     List<String> xmlInputPaths = settings.getXmlInputFilesPointers().stream()
         .map(pointer -> pointer != null ? pointer.getPresentableUrl() : null)
         .filter(path -> path != null && !path.isBlank())
@@ -74,6 +79,9 @@ public class XslFoRunConfiguration extends LocatableConfigurationBase<XslFoRunSe
     if (xmlInputPaths.isEmpty()) {
       throw new RuntimeConfigurationError("No XML input file selected");
     }
+    if (settings.isSplitMode()) {
+      checkSplitConfiguration();
+    }
     // If temporary file is not selected, the 'Save to file' path must be provided (used for final destination)
     if (!settings.useTemporaryFiles()) {
       String out = settings.outputFile();
@@ -87,6 +95,35 @@ public class XslFoRunConfiguration extends LocatableConfigurationBase<XslFoRunSe
     }
   }
 
+  private void checkWatchConfiguration() throws RuntimeConfigurationError {
+    File watchDirectory = new File(settings.watchDirectory().trim());
+    if (!watchDirectory.isDirectory()) {
+      throw new RuntimeConfigurationError(
+          "Watched input directory does not exist: " + watchDirectory.getPath());
+    }
+    if (!settings.useTemporaryFiles()) {
+      String out = settings.outputFile();
+      if (out == null || out.trim().isEmpty()) {
+        throw new RuntimeConfigurationError(
+            "'Save to file' must name an output directory when watching an input directory");
+      }
+      validateOutputDirectoryForMultipleInputs(out.trim());
+    }
+    if (settings.watchParallelism() < 0) {
+      throw new RuntimeConfigurationError("Concurrent renders must not be negative");
+    }
+  }
+
+  private void checkSplitConfiguration() throws RuntimeConfigurationError {
+    if (BundledFopRunner.getEffectiveOutputFormat(this) != OutputFormat.PDF) {
+      throw new RuntimeConfigurationError(
+          "Splitting inputs into chunks requires PDF output, as the chunks are merged as PDFs");
+    }
+    if (settings.splitRecordsPerChunk() < 1) {
+      throw new RuntimeConfigurationError("Records per chunk must be at least 1");
+    }
+  }
+
   private static void validateOutputDirectoryForMultipleInputs(@NotNull String path)
       throws RuntimeConfigurationError {
     File output = new File(path);
@@ -126,9 +163,23 @@ public class XslFoRunConfiguration extends LocatableConfigurationBase<XslFoRunSe
   @NotNull
   protected RunProfileState createState(@NotNull ExecutionEnvironment environment)
       throws ExecutionException {
-    boolean useBundled = FopExecutionHelper.useBundledFop(this);
-    return useBundled ? new BundledFopCommandLineState(this, environment) :
-        new BinaryXslFoCommandLineState(this, environment);
+    if (settings.isWatchMode()) {
+      return new HotFolderCommandLineState(this, environment);
+    }
+    if (settings.isSplitMode()) {
+      return new BundledFopCommandLineState(this, environment, BundledFopRunner::runSplitFop,
+          "Using FOP (bundled, split into parallel chunks)");
+    }
+    return switch (FopExecutionHelper.resolveExecutionMode(this)) {
+      case BUNDLED -> new BundledFopCommandLineState(this, environment);
+      case BUNDLED_ISOLATED -> new BundledFopCommandLineState(this, environment,
+          WorkerFopRunner::runIsolatedBundled, "Using FOP (bundled, isolated JVM)");
+      case EXTERNAL_DAEMON -> new BundledFopCommandLineState(this, environment,
+          WorkerFopRunner::runExternalDaemon, "Using FOP (external, warm daemon)");
+      case EXTERNAL_IN_PROCESS -> new BundledFopCommandLineState(this, environment,
+          IsolatedExternalFopRunner::runFop, "Using FOP (external, in-process)");
+      default -> new BinaryXslFoCommandLineState(this, environment);
+    };
   }
 
   @Override
@@ -268,10 +319,42 @@ public class XslFoRunConfiguration extends LocatableConfigurationBase<XslFoRunSe
       }
     }
 
+    String watchDirectory = element.getAttributeValue("watchDirectory");
+    if (watchDirectory != null && watchDirectory.isEmpty()) {
+      watchDirectory = null;
+    }
+    int watchParallelism = 0;
+    String watchParallelismAttr = element.getAttributeValue("watchParallelism");
+    if (watchParallelismAttr != null && !watchParallelismAttr.isEmpty()) {
+      try {
+        watchParallelism = Integer.parseInt(watchParallelismAttr);
+      } catch (NumberFormatException ignore) {
+        watchParallelism = 0;
+      }
+    }
+
+    String splitRecordElement = element.getAttributeValue("splitRecordElement");
+    if (splitRecordElement != null && splitRecordElement.isEmpty()) {
+      splitRecordElement = null;
+    }
+    int splitRecordsPerChunk = XslFoRunSettings.DEFAULT_SPLIT_RECORDS_PER_CHUNK;
+    String splitRecordsAttr = element.getAttributeValue("splitRecordsPerChunk");
+    if (splitRecordsAttr != null && !splitRecordsAttr.isEmpty()) {
+      try {
+        splitRecordsPerChunk = Integer.parseInt(splitRecordsAttr);
+      } catch (NumberFormatException ignore) {
+        splitRecordsPerChunk = XslFoRunSettings.DEFAULT_SPLIT_RECORDS_PER_CHUNK;
+      }
+    }
+    boolean splitContinuousPageNumbers =
+        Boolean.parseBoolean(element.getAttributeValue("splitContinuousPageNumbers"));
+
     settings =
         new XslFoRunSettings(xslt, xml, xmlFiles, outPath, openOut, useTemp, executionMode,
             fopDirOverride,
-            configMode, configFilePath, usePluginOutputFormat, outputFormat);
+            configMode, configFilePath, usePluginOutputFormat, outputFormat, watchDirectory,
+            watchParallelism, splitRecordElement, splitRecordsPerChunk,
+            splitContinuousPageNumbers);
   }
 
   @Override
@@ -319,6 +402,19 @@ public class XslFoRunConfiguration extends LocatableConfigurationBase<XslFoRunSe
     element.setAttribute("usePluginOutputFormat",
         Boolean.toString(settings.usePluginOutputFormat()));
     element.setAttribute("outputFormat", settings.outputFormat().name());
+    if (settings.isWatchMode()) {
+      element.setAttribute("watchDirectory", settings.watchDirectory());
+      if (settings.watchParallelism() > 0) {
+        element.setAttribute("watchParallelism", Integer.toString(settings.watchParallelism()));
+      }
+    }
+    if (settings.isSplitMode()) {
+      element.setAttribute("splitRecordElement", settings.splitRecordElement());
+      element.setAttribute("splitRecordsPerChunk",
+          Integer.toString(settings.splitRecordsPerChunk()));
+      element.setAttribute("splitContinuousPageNumbers",
+          Boolean.toString(settings.splitContinuousPageNumbers()));
+    }
   }
 
   @Override
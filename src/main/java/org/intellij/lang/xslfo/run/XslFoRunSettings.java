@@ -30,7 +30,17 @@ public record XslFoRunSettings(@Nullable VirtualFilePointer xsltFile,
                                @Nullable String configFilePath,
                                // Output format selection
                                boolean usePluginOutputFormat,
-                               @NotNull OutputFormat outputFormat) implements Cloneable {
+                               @NotNull OutputFormat outputFormat,
+                               // Hot folder: render XML files arriving here instead of the inputs
+                               @Nullable String watchDirectory,
+                               // Concurrent hot folder renders; 0 picks one from the core count
+                               int watchParallelism,
+                               // Split-render-merge: record element to split single inputs at
+                               @Nullable String splitRecordElement,
+                               int splitRecordsPerChunk,
+                               boolean splitContinuousPageNumbers) implements Cloneable {
+
+  public static final int DEFAULT_SPLIT_RECORDS_PER_CHUNK = 1000;
 
   public XslFoRunSettings {
     xmlInputFiles = xmlInputFiles == null ? List.of() : List.copyOf(xmlInputFiles);
@@ -40,7 +50,9 @@ public record XslFoRunSettings(@Nullable VirtualFilePointer xsltFile,
     return new XslFoRunSettings(xsltFile, xmlInputFile, xmlInputFiles, outputFile,
         openOutputFile,
         useTemporaryFiles,
-        executionMode, fopInstallationDirOverride, configMode, configFilePath, value, outputFormat);
+        executionMode, fopInstallationDirOverride, configMode, configFilePath, value, outputFormat,
+        watchDirectory, watchParallelism, splitRecordElement, splitRecordsPerChunk,
+        splitContinuousPageNumbers);
   }
 
   public @NotNull XslFoRunSettings withOutputFormat(@NotNull OutputFormat format) {
@@ -48,7 +60,8 @@ public record XslFoRunSettings(@Nullable VirtualFilePointer xsltFile,
         openOutputFile,
         useTemporaryFiles,
         executionMode, fopInstallationDirOverride, configMode, configFilePath,
-        usePluginOutputFormat, format);
+        usePluginOutputFormat, format, watchDirectory, watchParallelism,
+        splitRecordElement, splitRecordsPerChunk, splitContinuousPageNumbers);
   }
 
   public @Nullable VirtualFilePointer getXsltFilePointer() {
@@ -73,14 +86,16 @@ public record XslFoRunSettings(@Nullable VirtualFilePointer xsltFile,
     return new XslFoRunSettings(newXslt, xmlInputFile, xmlInputFiles, outputFile, openOutputFile,
         useTemporaryFiles,
         executionMode, fopInstallationDirOverride, configMode, configFilePath,
-        usePluginOutputFormat, outputFormat);
+        usePluginOutputFormat, outputFormat, watchDirectory, watchParallelism,
+        splitRecordElement, splitRecordsPerChunk, splitContinuousPageNumbers);
   }
 
   public XslFoRunSettings withXmlInputFile(@Nullable VirtualFilePointer newXml) {
     return new XslFoRunSettings(xsltFile, newXml,
         newXml == null ? List.of() : List.of(newXml), outputFile, openOutputFile, useTemporaryFiles,
         executionMode, fopInstallationDirOverride, configMode, configFilePath,
-        usePluginOutputFormat, outputFormat);
+        usePluginOutputFormat, outputFormat, watchDirectory, watchParallelism,
+        splitRecordElement, splitRecordsPerChunk, splitContinuousPageNumbers);
   }
 
   public XslFoRunSettings withXmlInputFiles(@NotNull List<VirtualFilePointer> newXmls) {
@@ -89,55 +104,119 @@ public record XslFoRunSettings(@Nullable VirtualFilePointer xsltFile,
     return new XslFoRunSettings(xsltFile, primary, Collections.unmodifiableList(copy), outputFile,
         openOutputFile, useTemporaryFiles,
         executionMode, fopInstallationDirOverride, configMode, configFilePath,
-        usePluginOutputFormat, outputFormat);
+        usePluginOutputFormat, outputFormat, watchDirectory, watchParallelism,
+        splitRecordElement, splitRecordsPerChunk, splitContinuousPageNumbers);
   }
 
   public XslFoRunSettings withOutputFile(@Nullable String newOutput) {
     return new XslFoRunSettings(xsltFile, xmlInputFile, xmlInputFiles, newOutput, openOutputFile,
         useTemporaryFiles,
         executionMode, fopInstallationDirOverride, configMode, configFilePath,
-        usePluginOutputFormat, outputFormat);
+        usePluginOutputFormat, outputFormat, watchDirectory, watchParallelism,
+        splitRecordElement, splitRecordsPerChunk, splitContinuousPageNumbers);
   }
 
   public XslFoRunSettings withOpenOutputFile(boolean newOpen) {
     return new XslFoRunSettings(xsltFile, xmlInputFile, xmlInputFiles, outputFile, newOpen,
         useTemporaryFiles,
         executionMode, fopInstallationDirOverride, configMode, configFilePath,
-        usePluginOutputFormat, outputFormat);
+        usePluginOutputFormat, outputFormat, watchDirectory, watchParallelism,
+        splitRecordElement, splitRecordsPerChunk, splitContinuousPageNumbers);
   }
 
   public XslFoRunSettings withUseTemporaryFiles(boolean newUseTemp) {
     return new XslFoRunSettings(xsltFile, xmlInputFile, xmlInputFiles, outputFile, openOutputFile,
         newUseTemp,
         executionMode, fopInstallationDirOverride, configMode, configFilePath,
-        usePluginOutputFormat, outputFormat);
+        usePluginOutputFormat, outputFormat, watchDirectory, watchParallelism,
+        splitRecordElement, splitRecordsPerChunk, splitContinuousPageNumbers);
   }
 
   public XslFoRunSettings withFopInstallationDirOverride(@Nullable String dir) {
     return new XslFoRunSettings(xsltFile, xmlInputFile, xmlInputFiles, outputFile, openOutputFile,
         useTemporaryFiles,
-        executionMode, dir, configMode, configFilePath, usePluginOutputFormat, outputFormat);
+        executionMode, dir, configMode, configFilePath, usePluginOutputFormat, outputFormat,
+        watchDirectory, watchParallelism, splitRecordElement, splitRecordsPerChunk,
+        splitContinuousPageNumbers);
   }
 
   public XslFoRunSettings withExecutionMode(@NotNull ExecutionMode mode) {
     return new XslFoRunSettings(xsltFile, xmlInputFile, xmlInputFiles, outputFile, openOutputFile,
         useTemporaryFiles,
         mode, fopInstallationDirOverride, configMode, configFilePath, usePluginOutputFormat,
-        outputFormat);
+        outputFormat, watchDirectory, watchParallelism,
+        splitRecordElement, splitRecordsPerChunk, splitContinuousPageNumbers);
   }
 
   public XslFoRunSettings withConfigMode(@NotNull SettingsFileMode mode) {
     return new XslFoRunSettings(xsltFile, xmlInputFile, xmlInputFiles, outputFile, openOutputFile,
         useTemporaryFiles,
         executionMode, fopInstallationDirOverride, mode, configFilePath, usePluginOutputFormat,
-        outputFormat);
+        outputFormat, watchDirectory, watchParallelism,
+        splitRecordElement, splitRecordsPerChunk, splitContinuousPageNumbers);
   }
 
   public XslFoRunSettings withConfigFilePath(@Nullable String path) {
     return new XslFoRunSettings(xsltFile, xmlInputFile, xmlInputFiles, outputFile, openOutputFile,
         useTemporaryFiles,
         executionMode, fopInstallationDirOverride, configMode, path, usePluginOutputFormat,
-        outputFormat);
+        outputFormat, watchDirectory, watchParallelism,
+        splitRecordElement, splitRecordsPerChunk, splitContinuousPageNumbers);
+  }
+
+  public XslFoRunSettings withWatchDirectory(@Nullable String dir) {
+    return new XslFoRunSettings(xsltFile, xmlInputFile, xmlInputFiles, outputFile, openOutputFile,
+        useTemporaryFiles,
+        executionMode, fopInstallationDirOverride, configMode, configFilePath,
+        usePluginOutputFormat, outputFormat, dir, watchParallelism, splitRecordElement,
+        splitRecordsPerChunk, splitContinuousPageNumbers);
+  }
+
+  public XslFoRunSettings withWatchParallelism(int parallelism) {
+    return new XslFoRunSettings(xsltFile, xmlInputFile, xmlInputFiles, outputFile, openOutputFile,
+        useTemporaryFiles,
+        executionMode, fopInstallationDirOverride, configMode, configFilePath,
+        usePluginOutputFormat, outputFormat, watchDirectory, parallelism, splitRecordElement,
+        splitRecordsPerChunk, splitContinuousPageNumbers);
+  }
+
+  public XslFoRunSettings withSplitRecordElement(@Nullable String element) {
+    return new XslFoRunSettings(xsltFile, xmlInputFile, xmlInputFiles, outputFile, openOutputFile,
+        useTemporaryFiles,
+        executionMode, fopInstallationDirOverride, configMode, configFilePath,
+        usePluginOutputFormat, outputFormat, watchDirectory, watchParallelism, element,
+        splitRecordsPerChunk, splitContinuousPageNumbers);
+  }
+
+  public XslFoRunSettings withSplitRecordsPerChunk(int records) {
+    return new XslFoRunSettings(xsltFile, xmlInputFile, xmlInputFiles, outputFile, openOutputFile,
+        useTemporaryFiles,
+        executionMode, fopInstallationDirOverride, configMode, configFilePath,
+        usePluginOutputFormat, outputFormat, watchDirectory, watchParallelism, splitRecordElement,
+        records, splitContinuousPageNumbers);
+  }
+
+  public XslFoRunSettings withSplitContinuousPageNumbers(boolean continuous) {
+    return new XslFoRunSettings(xsltFile, xmlInputFile, xmlInputFiles, outputFile, openOutputFile,
+        useTemporaryFiles,
+        executionMode, fopInstallationDirOverride, configMode, configFilePath,
+        usePluginOutputFormat, outputFormat, watchDirectory, watchParallelism, splitRecordElement,
+        splitRecordsPerChunk, continuous);
+  }
+
+  /**
+   * Returns whether this configuration watches a directory instead of rendering fixed inputs.
+   */
+  public boolean isWatchMode() {
+    return watchDirectory != null && !watchDirectory.isBlank();
+  }
+
+  /**
+   * Returns whether each input is split into chunks of records that are rendered in parallel and
+   * merged into one PDF.
+   */
+  public boolean isSplitMode() {
+    return splitRecordElement != null && !splitRecordElement.isBlank();
   }
 
   /**
@@ -149,7 +228,8 @@ public record XslFoRunSettings(@Nullable VirtualFilePointer xsltFile,
     return new XslFoRunSettings(xsltFile, xmlInputFile, xmlInputFiles, outputFile, openOutputFile,
         useTemporaryFiles,
         executionMode, fopInstallationDirOverride, configMode, configFilePath,
-        usePluginOutputFormat, outputFormat);
+        usePluginOutputFormat, outputFormat, watchDirectory, watchParallelism,
+        splitRecordElement, splitRecordsPerChunk, splitContinuousPageNumbers);
   }
 
   @Override
@@ -171,7 +251,12 @@ public record XslFoRunSettings(@Nullable VirtualFilePointer xsltFile,
         && configMode == that.configMode
         && Objects.equals(configFilePath, that.configFilePath)
         && usePluginOutputFormat == that.usePluginOutputFormat
-        && outputFormat == that.outputFormat;
+        && outputFormat == that.outputFormat
+        && Objects.equals(watchDirectory, that.watchDirectory)
+        && watchParallelism == that.watchParallelism
+        && Objects.equals(splitRecordElement, that.splitRecordElement)
+        && splitRecordsPerChunk == that.splitRecordsPerChunk
+        && splitContinuousPageNumbers == that.splitContinuousPageNumbers;
   }
 
   @Override
@@ -189,6 +274,11 @@ public record XslFoRunSettings(@Nullable VirtualFilePointer xsltFile,
         ", configFilePath='" + configFilePath + '\'' +
         ", usePluginOutputFormat=" + usePluginOutputFormat +
         ", outputFormat=" + outputFormat +
+        ", watchDirectory='" + watchDirectory + '\'' +
+        ", watchParallelism=" + watchParallelism +
+        ", splitRecordElement='" + splitRecordElement + '\'' +
+        ", splitRecordsPerChunk=" + splitRecordsPerChunk +
+        ", splitContinuousPageNumbers=" + splitContinuousPageNumbers +
         '}';
   }
 }
@@ -12,6 +12,7 @@ import org.intellij.lang.xslfo.run.ExecutionMode;
 import org.intellij.lang.xslfo.run.OutputFormat;
 import org.intellij.lang.xslfo.run.SettingsFileMode;
 import org.intellij.lang.xslfo.run.XslFoRunConfiguration;
+import org.intellij.lang.xslfo.run.XslFoRunSettings;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.ButtonGroup;
@@ -21,6 +22,9 @@ import javax.swing.JCheckBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JRadioButton;
+import javax.swing.JSpinner;
+import javax.swing.JTextField;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import java.awt.BorderLayout;
@@ -36,6 +40,11 @@ public class XslFoRunConfigurationEditor extends SettingsEditor<XslFoRunConfigur
 
   private XsltFileField myXsltFile;
   private XmlInputFileField myXmlInputFile;
+  private TextFieldWithBrowseButton myWatchDirectory;
+  private JSpinner myWatchParallelism;
+  private JTextField mySplitRecordElement;
+  private JSpinner mySplitRecordsPerChunk;
+  private JCheckBox mySplitContinuousPageNumbers;
   private JPanel myComponent;
   private TextFieldWithBrowseButton myOutputFile;
   private JCheckBox myOpenOutputFile;
@@ -47,7 +56,10 @@ public class XslFoRunConfigurationEditor extends SettingsEditor<XslFoRunConfigur
 
   private JRadioButton myUsePluginExecutionRadio;
   private JRadioButton myUseBundledFopRadio;
+  private JRadioButton myUseIsolatedBundledFopRadio;
   private JRadioButton myUseBinaryFopRadio;
+  private JRadioButton myUseDaemonFopRadio;
+  private JRadioButton myUseInProcessExternalFopRadio;
   private JLabel myExternalFopInfoLabel;
   private TextFieldWithBrowseButton myFopInstallationDir;
 
@@ -81,13 +93,19 @@ public class XslFoRunConfigurationEditor extends SettingsEditor<XslFoRunConfigur
     myUseCustomOutputFormatRadio.addActionListener(e -> updateComponentsState());
 
     FileChooserDescriptor dirDescriptor = FileChooserDescriptorFactory.createSingleFolderDescriptor();
+    myWatchDirectory.addActionListener(
+        e -> FileChooser.chooseFile(dirDescriptor, myProject, null, file -> {
+          if (file != null) {
+            myWatchDirectory.setText(file.getPath().replace('/', java.io.File.separatorChar));
+          }
+        }));
     myFopInstallationDir.addActionListener(
         e -> FileChooser.chooseFile(dirDescriptor, myProject, null, file -> {
           if (file != null) {
             myFopInstallationDir.setText(file.getPath().replace('/', java.io.File.separatorChar));
           }
         }));
-    addStateUpdateDocumentListener(myFopInstallationDir);
+    addStateUpdateDocumentListener(myFopInstallationDir.getTextField());
 
     FileChooserDescriptor configFileDescriptor =
         new FileChooserDescriptor(true, false, false, false, false, true);
@@ -97,12 +115,17 @@ public class XslFoRunConfigurationEditor extends SettingsEditor<XslFoRunConfigur
             myUserConfigLocation.setText(file.getPath().replace('/', java.io.File.separatorChar));
           }
         }));
-    addStateUpdateDocumentListener(myUserConfigLocation);
+    addStateUpdateDocumentListener(myUserConfigLocation.getTextField());
+    addStateUpdateDocumentListener(myWatchDirectory.getTextField());
+    addStateUpdateDocumentListener(mySplitRecordElement);
 
     ButtonGroup executionGroup = new ButtonGroup();
     executionGroup.add(myUsePluginExecutionRadio);
     executionGroup.add(myUseBundledFopRadio);
+    executionGroup.add(myUseIsolatedBundledFopRadio);
     executionGroup.add(myUseBinaryFopRadio);
+    executionGroup.add(myUseDaemonFopRadio);
+    executionGroup.add(myUseInProcessExternalFopRadio);
     applyBundledFopVersionLabel();
 
     ButtonGroup configGroup = new ButtonGroup();
@@ -112,7 +135,10 @@ public class XslFoRunConfigurationEditor extends SettingsEditor<XslFoRunConfigur
 
     myUsePluginExecutionRadio.addActionListener(e -> updateComponentsState());
     myUseBundledFopRadio.addActionListener(e -> updateComponentsState());
+    myUseIsolatedBundledFopRadio.addActionListener(e -> updateComponentsState());
     myUseBinaryFopRadio.addActionListener(e -> updateComponentsState());
+    myUseDaemonFopRadio.addActionListener(e -> updateComponentsState());
+    myUseInProcessExternalFopRadio.addActionListener(e -> updateComponentsState());
     myUsePluginConfig.addActionListener(e -> updateComponentsState());
     myUseEmptyConfig.addActionListener(e -> updateComponentsState());
     myUseConfigFile.addActionListener(e -> updateComponentsState());
@@ -124,6 +150,19 @@ public class XslFoRunConfigurationEditor extends SettingsEditor<XslFoRunConfigur
   private void buildUi() {
     myXsltFile = new XsltFileField(myProject);
     myXmlInputFile = new XmlInputFileField(myProject, myXsltFile);
+    myWatchDirectory = new TextFieldWithBrowseButton();
+    myWatchDirectory.setToolTipText("When set, the run keeps rendering XML files created or "
+        + "changed in this directory into the output directory until it is stopped");
+    myWatchParallelism = new JSpinner(new SpinnerNumberModel(0, 0, 64, 1));
+    myWatchParallelism.setToolTipText("Maximum number of watched files rendered at the same "
+        + "time; 0 uses up to four, depending on the number of cores");
+    mySplitRecordElement = new JTextField();
+    mySplitRecordElement.setToolTipText("When set, each input is split before every chunk of "
+        + "these elements; chunks are rendered in parallel and merged into one PDF");
+    mySplitRecordsPerChunk = new JSpinner(new SpinnerNumberModel(
+        XslFoRunSettings.DEFAULT_SPLIT_RECORDS_PER_CHUNK, 1, Integer.MAX_VALUE, 100));
+    mySplitContinuousPageNumbers = new JCheckBox(
+        "Continuous page numbers across chunks (may render chunks twice)");
     myOutputFile = new TextFieldWithBrowseButton();
     myOpenOutputFile = new JCheckBox("Open saved file after execution", true);
     myUseTemporaryFiles = new JCheckBox("Use temporary file to save generated document");
@@ -134,7 +173,10 @@ public class XslFoRunConfigurationEditor extends SettingsEditor<XslFoRunConfigur
 
     myUsePluginExecutionRadio = new JRadioButton("Use plugin settings", true);
     myUseBundledFopRadio = new JRadioButton("Use bundled FOP");
+    myUseIsolatedBundledFopRadio = new JRadioButton("Use bundled FOP (isolated JVM)");
     myUseBinaryFopRadio = new JRadioButton("Use external FOP (binary)");
+    myUseDaemonFopRadio = new JRadioButton("Use external FOP (warm daemon)");
+    myUseInProcessExternalFopRadio = new JRadioButton("Use external FOP (in-process)");
     myExternalFopInfoLabel = new JLabel();
     myFopInstallationDir = new TextFieldWithBrowseButton();
 
@@ -156,6 +198,11 @@ public class XslFoRunConfigurationEditor extends SettingsEditor<XslFoRunConfigur
     JPanel panel = FormBuilder.createFormBuilder()
         .addLabeledComponent("XSLT script file:", myXsltFile)
         .addComponent(myXmlInputFile)
+        .addLabeledComponent("Watch input directory:", myWatchDirectory)
+        .addLabeledComponent("Concurrent renders:", myWatchParallelism)
+        .addLabeledComponent("Split inputs at record element:", mySplitRecordElement)
+        .addLabeledComponent("Records per chunk:", mySplitRecordsPerChunk)
+        .addComponent(mySplitContinuousPageNumbers)
         .getPanel();
     panel.setBorder(javax.swing.BorderFactory.createTitledBorder("Input"));
     return panel;
@@ -181,7 +228,10 @@ public class XslFoRunConfigurationEditor extends SettingsEditor<XslFoRunConfigur
     JPanel executionModeRow = new JPanel(new FlowLayout(FlowLayout.LEFT));
     executionModeRow.add(myUsePluginExecutionRadio);
     executionModeRow.add(myUseBundledFopRadio);
+    executionModeRow.add(myUseIsolatedBundledFopRadio);
     executionModeRow.add(myUseBinaryFopRadio);
+    executionModeRow.add(myUseDaemonFopRadio);
+    executionModeRow.add(myUseInProcessExternalFopRadio);
 
     JPanel panel = FormBuilder.createFormBuilder()
         .addComponent(executionModeRow)
@@ -206,8 +256,8 @@ public class XslFoRunConfigurationEditor extends SettingsEditor<XslFoRunConfigur
     return panel;
   }
 
-  private void addStateUpdateDocumentListener(TextFieldWithBrowseButton field) {
-    field.getTextField().getDocument().addDocumentListener(new DocumentListener() {
+  private void addStateUpdateDocumentListener(JTextField field) {
+    field.getDocument().addDocumentListener(new DocumentListener() {
       @Override
       public void insertUpdate(DocumentEvent e) {
         updateComponentsState();
@@ -256,6 +306,11 @@ public class XslFoRunConfigurationEditor extends SettingsEditor<XslFoRunConfigur
         .filter(path -> path != null && !path.isBlank())
         .toList();
     myXmlInputFile.setXmlInputFiles(xmlInputs);
+    myWatchDirectory.setText(settings.watchDirectory());
+    myWatchParallelism.setValue(Math.max(0, settings.watchParallelism()));
+    mySplitRecordElement.setText(settings.splitRecordElement());
+    mySplitRecordsPerChunk.setValue(Math.max(1, settings.splitRecordsPerChunk()));
+    mySplitContinuousPageNumbers.setSelected(settings.splitContinuousPageNumbers());
     myOutputFile.setText(settings.outputFile());
     myOpenOutputFile.setSelected(settings.openOutputFile());
     myUseTemporaryFiles.setSelected(settings.useTemporaryFiles());
@@ -273,7 +328,10 @@ public class XslFoRunConfigurationEditor extends SettingsEditor<XslFoRunConfigur
     switch (settings.executionMode()) {
       case PLUGIN -> myUsePluginExecutionRadio.setSelected(true);
       case BUNDLED -> myUseBundledFopRadio.setSelected(true);
+      case BUNDLED_ISOLATED -> myUseIsolatedBundledFopRadio.setSelected(true);
       case EXTERNAL -> myUseBinaryFopRadio.setSelected(true);
+      case EXTERNAL_DAEMON -> myUseDaemonFopRadio.setSelected(true);
+      case EXTERNAL_IN_PROCESS -> myUseInProcessExternalFopRadio.setSelected(true);
       default -> {
         // keep current selection
       }
@@ -316,9 +374,15 @@ public class XslFoRunConfigurationEditor extends SettingsEditor<XslFoRunConfigur
     settings = settings.withOutputFile(myOutputFile.getText())
         .withOpenOutputFile(myOpenOutputFile.isSelected())
         .withUseTemporaryFiles(myUseTemporaryFiles.isSelected())
-        .withExecutionMode(myUsePluginExecutionRadio.isSelected() ? ExecutionMode.PLUGIN :
-            (myUseBundledFopRadio.isSelected() ? ExecutionMode.BUNDLED : ExecutionMode.EXTERNAL))
-        .withFopInstallationDirOverride(myFopInstallationDir.getText());
+        .withExecutionMode(getSelectedExecutionMode())
+        .withFopInstallationDirOverride(myFopInstallationDir.getText())
+        .withWatchDirectory(myWatchDirectory.getText().isBlank()
+            ? null : myWatchDirectory.getText().trim())
+        .withWatchParallelism((Integer) myWatchParallelism.getValue())
+        .withSplitRecordElement(mySplitRecordElement.getText().isBlank()
+            ? null : mySplitRecordElement.getText().trim())
+        .withSplitRecordsPerChunk((Integer) mySplitRecordsPerChunk.getValue())
+        .withSplitContinuousPageNumbers(mySplitContinuousPageNumbers.isSelected());
 
     if (myUsePluginOutputFormatRadio.isSelected()) {
       settings = settings.withUsePluginOutputFormat(true);
@@ -341,6 +405,23 @@ public class XslFoRunConfigurationEditor extends SettingsEditor<XslFoRunConfigur
     configuration.setSettings(settings);
   }
 
+  private ExecutionMode getSelectedExecutionMode() {
+    if (myUsePluginExecutionRadio.isSelected()) {
+      return ExecutionMode.PLUGIN;
+    }
+    if (myUseBundledFopRadio.isSelected()) {
+      return ExecutionMode.BUNDLED;
+    }
+    if (myUseIsolatedBundledFopRadio.isSelected()) {
+      return ExecutionMode.BUNDLED_ISOLATED;
+    }
+    if (myUseDaemonFopRadio.isSelected()) {
+      return ExecutionMode.EXTERNAL_DAEMON;
+    }
+    return myUseInProcessExternalFopRadio.isSelected()
+        ? ExecutionMode.EXTERNAL_IN_PROCESS : ExecutionMode.EXTERNAL;
+  }
+
   @NotNull
   @Override
   protected JComponent createEditor() {
@@ -355,6 +436,11 @@ public class XslFoRunConfigurationEditor extends SettingsEditor<XslFoRunConfigur
   }
 
   private void updateComponentsState() {
+    myWatchParallelism.setEnabled(!myWatchDirectory.getText().isBlank());
+    boolean splitEnabled = !mySplitRecordElement.getText().isBlank();
+    mySplitRecordsPerChunk.setEnabled(splitEnabled);
+    mySplitContinuousPageNumbers.setEnabled(splitEnabled);
+
     myOutputFile.setEnabled(!myUseTemporaryFiles.isSelected());
     myOpenOutputFile.setEnabled(!myUseTemporaryFiles.isSelected());
     if (myUseTemporaryFiles.isSelected()) {
@@ -363,9 +449,24 @@ public class XslFoRunConfigurationEditor extends SettingsEditor<XslFoRunConfigur
 
     boolean pluginSelected = myUsePluginExecutionRadio.isSelected();
     boolean externalSelected = myUseBinaryFopRadio.isSelected();
-    myFopInstallationDir.setEnabled(externalSelected);
+    boolean daemonSelected = myUseDaemonFopRadio.isSelected();
+    boolean inProcessExternalSelected = myUseInProcessExternalFopRadio.isSelected();
+    myFopInstallationDir.setEnabled(
+        externalSelected || daemonSelected || inProcessExternalSelected);
 
-    if (externalSelected) {
+    if (daemonSelected || inProcessExternalSelected) {
+      String dir = myFopInstallationDir.getText();
+      String message;
+      if (dir == null || dir.trim().isEmpty()) {
+        message = "This mode requires a FOP installation directory";
+      } else if (daemonSelected) {
+        message = "Keeping a FOP JVM running for installation directory: " + dir.trim();
+      } else {
+        message = "Loading FOP jars in-process from installation directory: " + dir.trim();
+      }
+      myExternalFopInfoLabel.setText(message);
+      myExternalFopInfoLabel.setVisible(true);
+    } else if (externalSelected) {
       String dir = myFopInstallationDir.getText();
       String message = (dir == null || dir.trim().isEmpty())
           ? "Using FOP from system PATH (command: 'fop')"
@@ -11,46 +11,44 @@ import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Registers any XSD files bundled with the plugin so they are available to the IDE
  * without additional setup by the user.
  * <br>
- * The provider will read each XSD, extract its targetNamespace and register
- * it as a standard resource so that references to that namespace can be resolved.
+ * The targetNamespace of each schema listed in {@code index.txt} is extracted at build time by
+ * the {@code generateSchemaNamespaceIndex} task, so the provider only reads that generated index
+ * and never opens an XSD at startup; the IDE loads a schema when it first resolves its namespace.
  */
 public class BundledSchemasProvider implements StandardResourceProvider {
 
-  private static final String INDEX_PATH = "META-INF/xslfo/schemas/index.txt";
-  private static final Pattern TARGET_NS = Pattern.compile("targetNamespace\\s*=\\s*\"([^\"]+)\"");
+  static final String NAMESPACE_INDEX_PATH = "META-INF/xslfo/schemas/namespaces.txt";
+
+  /**
+   * A bundled schema: its targetNamespace and the class path resource it is loaded from.
+   */
+  record SchemaResource(@NotNull String namespace, @NotNull String resourcePath) {
+  }
 
   @Override
   public void registerResources(@NotNull ResourceRegistrar registrar) {
-    ClassLoader cl = BundledSchemasProvider.class.getClassLoader();
-    List<String> resources = loadIndex(cl);
-    for (String resPath : resources) {
-      if (resPath == null || resPath.isBlank()) {
-        continue;
-      }
-      try (InputStream is = cl.getResourceAsStream(resPath)) {
-        if (is == null) {
-          continue;
-        }
-        String ns = extractTargetNamespace(is);
-        if (ns != null && !ns.isBlank()) {
-          registrar.addStdResource(ns, null, "/" + resPath, BundledSchemasProvider.class);
-        }
-      } catch (IOException ignored) {
-        // Ignore malformed entries; keep plugin robust
-      }
+    registerResources(registrar, BundledSchemasProvider.class.getClassLoader());
+  }
+
+  static void registerResources(@NotNull ResourceRegistrar registrar, ClassLoader cl) {
+    for (SchemaResource schema : loadNamespaceIndex(cl)) {
+      registrar.addStdResource(schema.namespace(), null, "/" + schema.resourcePath(),
+          BundledSchemasProvider.class);
     }
   }
 
-  private static @NotNull List<String> loadIndex(ClassLoader cl) {
-    List<String> items = new ArrayList<>();
-    try (InputStream is = cl.getResourceAsStream(INDEX_PATH)) {
+  /**
+   * Reads the generated index, one {@code namespace<TAB>resource} pair per line. Returns an empty
+   * list if no schemas are bundled or the index cannot be read.
+   */
+  static @NotNull List<SchemaResource> loadNamespaceIndex(ClassLoader cl) {
+    List<SchemaResource> items = new ArrayList<>();
+    try (InputStream is = cl.getResourceAsStream(NAMESPACE_INDEX_PATH)) {
       if (is == null) {
         return items; // no schemas bundled
       }
@@ -58,11 +56,15 @@ public class BundledSchemasProvider implements StandardResourceProvider {
           new InputStreamReader(is, StandardCharsets.UTF_8))) {
         String line;
         while ((line = br.readLine()) != null) {
-          line = line.trim();
-          if (line.isEmpty() || line.startsWith("#")) {
+          if (line.isBlank() || line.startsWith("#")) {
             continue;
           }
-          items.add(line);
+          int tab = line.indexOf('\t');
+          if (tab <= 0 || tab == line.length() - 1) {
+            continue; // malformed entry; keep plugin robust
+          }
+          items.add(new SchemaResource(line.substring(0, tab).trim(),
+              line.substring(tab + 1).trim()));
         }
       }
     } catch (IOException ignored) {
@@ -70,15 +72,4 @@ public class BundledSchemasProvider implements StandardResourceProvider {
     }
     return items;
   }
-
-  private static String extractTargetNamespace(InputStream is) throws IOException {
-    // Read small prefix; targetNamespace is near top usually
-    byte[] buf = is.readNBytes(8192);
-    String head = new String(buf, StandardCharsets.UTF_8);
-    Matcher m = TARGET_NS.matcher(head);
-    if (m.find()) {
-      return m.group(1).trim();
-    }
-    return null;
-  }
 }
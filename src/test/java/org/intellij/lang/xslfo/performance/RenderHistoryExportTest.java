@@ -0,0 +1,85 @@
+package org.intellij.lang.xslfo.performance;
+
+import org.intellij.lang.xslfo.run.RenderMetrics;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RenderHistoryExportTest {
+
+  @Test
+  public void toCsv_quotesFieldsAndLeavesUnrecordedFiguresEmpty() {
+    RenderMetrics metrics = new RenderMetrics();
+    metrics.setPhase(RenderMetrics.Phase.XSLT, 2_500_000);
+    metrics.setPageCount(3);
+    metrics.addCacheLookups(1, 1);
+    RenderRecord record = RenderRecord.of(RenderRecord.Source.RUN, "Invoice, \"v2\"",
+        "/data/in.xml", metrics);
+    record.timestamp = 0;
+
+    String[] lines = RenderHistoryExport.toCsv(List.of(record)).split("\n");
+
+    assertEquals(2, lines.length);
+    assertTrue(lines[0].startsWith("timestamp,source,configuration,input,total_ms,"));
+    assertTrue(lines[1].startsWith(
+        "1970-01-01T00:00:00Z,Run,\"Invoice, \"\"v2\"\"\",/data/in.xml,2.500,,,2.500,"));
+    assertTrue(lines[1].endsWith(",3,,,,1,1"));
+  }
+
+  @Test
+  public void toJson_writesPhasesAndNullsForUnrecordedFigures() {
+    RenderMetrics metrics = new RenderMetrics();
+    metrics.setPhase(RenderMetrics.Phase.LAYOUT, 1_000_000);
+    RenderRecord record = RenderRecord.of(RenderRecord.Source.PREVIEW, "a\\b", "in.xml",
+        metrics);
+    record.timestamp = 0;
+
+    String json = RenderHistoryExport.toJson(List.of(record));
+
+    assertTrue(json.contains("\"configuration\": \"a\\\\b\""));
+    assertTrue(json.contains("\"phasesMs\": {\"layout\": 1.000}"));
+    assertTrue(json.contains("\"pages\": null"));
+    assertEquals("[]\n", RenderHistoryExport.toJson(List.of()));
+  }
+
+  @Test
+  public void weekOverWeekChange_comparesMedianTotals() {
+    long now = TimeUnit.DAYS.toMillis(30);
+    long day = TimeUnit.DAYS.toMillis(1);
+    List<RenderRecord> records = List.of(
+        record(now - 10 * day, 100), record(now - 9 * day, 100), record(now - 8 * day, 300),
+        record(now - 2 * day, 140), record(now - day, 140));
+
+    assertEquals(0.4, RenderHistory.weekOverWeekChange(records, now), 1e-9);
+    assertTrue(Double.isNaN(RenderHistory.weekOverWeekChange(records.subList(3, 5), now)));
+  }
+
+  @Test
+  public void add_keepsTwoWeeksAndCapsEachConfiguration() {
+    long now = TimeUnit.DAYS.toMillis(30);
+    long day = TimeUnit.DAYS.toMillis(1);
+    RenderHistory history = new RenderHistory();
+    history.add(record(now - 15 * day, 100));
+    history.add(record(now - 13 * day, 100));
+    for (int i = 0; i < RenderHistory.MAX_RECORDS_PER_CONFIGURATION + 10; i++) {
+      RenderRecord busy = record(now, 100);
+      busy.configuration = "Hot folder";
+      history.add(busy);
+    }
+
+    List<RenderRecord> records = history.getRecords();
+    assertEquals(RenderHistory.MAX_RECORDS_PER_CONFIGURATION + 1, records.size());
+    assertEquals(now - 13 * day, records.get(0).timestamp);
+  }
+
+  private static RenderRecord record(long timestamp, long totalNanos) {
+    RenderRecord record = new RenderRecord();
+    record.timestamp = timestamp;
+    record.totalNanos = totalNanos;
+    return record;
+  }
+}
@@ -0,0 +1,57 @@
+package org.intellij.lang.xslfo.preview;
+
+import org.intellij.lang.xslfo.engine.SourceLocation;
+import org.intellij.lang.xslfo.run.XslFoPreviewRenderer;
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class DiagnosticRowsTest {
+
+  private static final SourceLocation STYLESHEET =
+      new SourceLocation("file:/work/style.xsl", 12, 5);
+
+  private static final List<XslFoPreviewRenderer.PreviewRenderMessage> MESSAGES = List.of(
+      warning("overflow", null, 40_000),
+      new XslFoPreviewRenderer.PreviewRenderMessage(XslFoPreviewRenderer.Severity.ERROR,
+          "broken", STYLESHEET, 1),
+      warning("overflow", STYLESHEET, 2),
+      warning("font missing", null, 1));
+
+  @Test
+  public void build_mergesEqualMessagesKeepingTheFirstKnownLocation() {
+    DiagnosticRows.Result result = DiagnosticRows.build("12 ms", MESSAGES,
+        EnumSet.allOf(DiagnosticRows.Level.class), true);
+
+    assertEquals(List.of(
+        new DiagnosticRows.Row(DiagnosticRows.Level.INFO, "12 ms", null, 1),
+        new DiagnosticRows.Row(DiagnosticRows.Level.WARNING, "overflow", STYLESHEET, 40_002),
+        new DiagnosticRows.Row(DiagnosticRows.Level.ERROR, "broken", STYLESHEET, 1),
+        new DiagnosticRows.Row(DiagnosticRows.Level.WARNING, "font missing", null, 1)),
+        result.rows());
+    assertEquals(Map.of(DiagnosticRows.Level.INFO, 1, DiagnosticRows.Level.ERROR, 1,
+        DiagnosticRows.Level.WARNING, 40_003), result.counts());
+  }
+
+  @Test
+  public void build_filtersByLevelButCountsEveryMessage() {
+    DiagnosticRows.Result result = DiagnosticRows.build(null, MESSAGES,
+        EnumSet.of(DiagnosticRows.Level.ERROR), false);
+
+    assertEquals(List.of(
+        new DiagnosticRows.Row(DiagnosticRows.Level.ERROR, "broken", STYLESHEET, 1)),
+        result.rows());
+    assertEquals(40_003, (int) result.counts().get(DiagnosticRows.Level.WARNING));
+  }
+
+  private static XslFoPreviewRenderer.PreviewRenderMessage warning(String message,
+                                                                   SourceLocation location,
+                                                                   int count) {
+    return new XslFoPreviewRenderer.PreviewRenderMessage(XslFoPreviewRenderer.Severity.WARNING,
+        message, location, count);
+  }
+}
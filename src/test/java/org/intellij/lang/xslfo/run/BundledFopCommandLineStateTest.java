@@ -2,6 +2,7 @@ package org.intellij.lang.xslfo.run;
 
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.pointers.VirtualFilePointer;
+import org.intellij.lang.xslfo.engine.FopEventGroup;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -46,6 +47,88 @@ public class BundledFopCommandLineStateTest {
     assertEquals(outputDir.getCanonicalPath(), outputs.get(1).getParentFile().getCanonicalPath());
   }
 
+  @Test(timeout = 15000)
+  public void bundledRunner_reportsPerInputRenderMetrics() throws Exception {
+    XslFoRunConfiguration config = createConfigurationForSimpleInputs();
+    List<RenderMetrics> metrics = new ArrayList<>();
+
+    List<File> outputs = BundledFopRunner.runFop(config, null,
+        new BundledFopRunner.RenderDiagnosticsSink() {
+          @Override
+          public void warning(String message) {
+          }
+
+          @Override
+          public void error(String message) {
+          }
+
+          @Override
+          public void renderCompleted(String xmlPath, RenderMetrics renderMetrics) {
+            metrics.add(renderMetrics);
+          }
+        });
+
+    assertEquals(2, metrics.size());
+    assertTrue(metrics.get(0).getPhaseNanos(RenderMetrics.Phase.FACTORY_SETUP) >= 0);
+    assertEquals(-1, metrics.get(1).getPhaseNanos(RenderMetrics.Phase.FACTORY_SETUP));
+    for (int i = 0; i < metrics.size(); i++) {
+      RenderMetrics renderMetrics = metrics.get(i);
+      assertEquals(1, renderMetrics.getPageCount());
+      assertEquals(outputs.get(i).length(), renderMetrics.getOutputBytes());
+      assertTrue(renderMetrics.getPhaseNanos(RenderMetrics.Phase.XSLT) >= 0);
+      assertTrue(renderMetrics.getPhaseNanos(RenderMetrics.Phase.FO_TREE) > 0);
+      assertTrue(renderMetrics.getPhaseNanos(RenderMetrics.Phase.LAYOUT) > 0);
+      assertTrue(renderMetrics.getPhaseNanos(RenderMetrics.Phase.OUTPUT) > 0);
+      assertTrue(renderMetrics.format().contains("1 page"));
+    }
+  }
+
+  @Test(timeout = 15000)
+  public void bundledRunner_reportsFopEventsOfEveryInput() throws Exception {
+    XslFoRunConfiguration config = createConfigurationForSimpleInputs();
+    File template = temporaryFolder.newFile("template-missing-font.xsl");
+    Files.writeString(template.toPath(), templateWithMissingFont(), StandardCharsets.UTF_8);
+    config.setSettings(config.getSettings().withXsltFile(
+        new XslFoRunExecutorTestHelper.FakeVirtualFilePointer(template.getAbsolutePath())));
+    List<String> eventIds = new ArrayList<>();
+
+    BundledFopRunner.runFop(config, null, new BundledFopRunner.RenderDiagnosticsSink() {
+      @Override
+      public void warning(String message) {
+      }
+
+      @Override
+      public void error(String message) {
+      }
+
+      @Override
+      public void fopEvents(FopEventGroup group) {
+        eventIds.add(group.getEventId());
+      }
+    });
+
+    int perInput = eventIds.size() / 2;
+    assertTrue(eventIds.contains("org.apache.fop.fonts.FontEventProducer.fontSubstituted"));
+    assertEquals(eventIds.subList(0, perInput), eventIds.subList(perInput, eventIds.size()));
+  }
+
+  @Test(timeout = 15000)
+  public void bundledRunner_java2DPreviewPaintsPagesWithoutWritingOutput() throws Exception {
+    XslFoRunConfiguration config = createConfigurationForSimpleInputs();
+    File outputDir = new File(config.getSettings().outputFile());
+
+    PreviewPages pages = BundledFopRunner.renderJava2DPreview(config, null);
+    try {
+      assertEquals(1, pages.getPageCount());
+      java.awt.image.BufferedImage image = pages.renderPage(0, 72f);
+      assertTrue(image.getWidth() > 0);
+      assertTrue(image.getHeight() > image.getWidth());
+      assertEquals(0, outputDir.list().length);
+    } finally {
+      pages.close();
+    }
+  }
+
   @Test(timeout = 15000)
   public void bundledRunner_doesNotMutateGlobalJaxpSystemProperties() throws Exception {
     XslFoRunConfiguration config = createConfigurationForSimpleInputs();
@@ -143,6 +226,30 @@ public class BundledFopCommandLineStateTest {
     return config;
   }
 
+  private static String templateWithMissingFont() {
+    return """
+        <?xml version="1.0" encoding="UTF-8"?>
+        <xsl:stylesheet version="1.0"
+            xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
+            xmlns:fo="http://www.w3.org/1999/XSL/Format">
+          <xsl:template match="/">
+            <fo:root>
+              <fo:layout-master-set>
+                <fo:simple-page-master master-name="p" page-width="210mm" page-height="297mm">
+                  <fo:region-body/>
+                </fo:simple-page-master>
+              </fo:layout-master-set>
+              <fo:page-sequence master-reference="p">
+                <fo:flow flow-name="xsl-region-body">
+                  <fo:block font-family="NoSuchFont">Substituted font</fo:block>
+                </fo:flow>
+              </fo:page-sequence>
+            </fo:root>
+          </xsl:template>
+        </xsl:stylesheet>
+        """;
+  }
+
   private static String templateWithSvgImageWithoutHref() {
     return """
         <?xml version="1.0" encoding="UTF-8"?>
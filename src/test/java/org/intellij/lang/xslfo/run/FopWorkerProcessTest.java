@@ -0,0 +1,126 @@
+package org.intellij.lang.xslfo.run;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.pointers.VirtualFilePointer;
+import org.intellij.lang.xslfo.engine.FopWorkerProtocol;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FopWorkerProcessTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void protocol_roundTripsSeparatorsAndLineBreaks() {
+    String path = "C:\\out\\tab\there";
+    String message = "line one\nline two\r\n";
+
+    List<String> decoded = FopWorkerProtocol.decode(
+        FopWorkerProtocol.encode(FopWorkerProtocol.WARN, "7", path, message, ""));
+
+    assertEquals(List.of(FopWorkerProtocol.WARN, "7", path, message, ""), decoded);
+  }
+
+  @Test(timeout = 60000)
+  public void worker_rendersRepeatedJobsInOneJvm() throws Exception {
+    FopWorkerSpec spec = new FopWorkerSpec(
+        Arrays.asList(System.getProperty("java.class.path").split(File.pathSeparator)),
+        List.of(), null, 0L, false);
+    FopWorkerProcess worker = FopWorkerProcess.start(spec);
+    try {
+      XslFoRunConfiguration config = createConfigurationForSimpleInputs();
+      List<RenderMetrics> metrics = new ArrayList<>();
+      BundledFopRunner.RenderDiagnosticsSink sink = new BundledFopRunner.RenderDiagnosticsSink() {
+        @Override
+        public void warning(String message) {
+        }
+
+        @Override
+        public void error(String message) {
+        }
+
+        @Override
+        public void renderCompleted(String xmlPath, RenderMetrics renderMetrics) {
+          metrics.add(renderMetrics);
+        }
+      };
+
+      List<File> first = WorkerFopRunner.render(worker::render, config, null, sink);
+      List<File> second = WorkerFopRunner.render(worker::render, config, null, sink);
+
+      assertEquals(2, first.size());
+      assertEquals(first, second);
+      assertTrue(worker.isAlive());
+      assertEquals(4, metrics.size());
+      for (int i = 0; i < metrics.size(); i++) {
+        assertEquals(1, metrics.get(i).getPageCount());
+        assertTrue(metrics.get(i).getOutputBytes() > 0);
+      }
+    } finally {
+      worker.shutdown();
+    }
+    assertFalse(worker.isAlive());
+  }
+
+  @Test(timeout = 60000)
+  public void manager_keepsReplacedWorkerAliveUntilItsLeaseIsClosed() throws Exception {
+    List<String> classpath =
+        Arrays.asList(System.getProperty("java.class.path").split(File.pathSeparator));
+    FopWorkerManager manager = new FopWorkerManager();
+    try {
+      FopWorkerManager.Lease first = manager.acquire(FopWorkerManager.EXTERNAL_DAEMON,
+          new FopWorkerSpec(classpath, List.of(), null, 0L, false));
+      FopWorkerManager.Lease second = manager.acquire(FopWorkerManager.EXTERNAL_DAEMON,
+          new FopWorkerSpec(classpath, List.of("-Xmx256m"), null, 0L, false));
+
+      assertTrue(first.worker().isAlive());
+      first.close();
+      assertFalse(first.worker().isAlive());
+      assertTrue(second.worker().isAlive());
+      second.close();
+      assertTrue(second.worker().isAlive());
+    } finally {
+      manager.dispose();
+    }
+  }
+
+  private XslFoRunConfiguration createConfigurationForSimpleInputs() throws Exception {
+    Project project = XslFoRunExecutorTestHelper.createTestProject();
+    XslFoRunConfiguration config = new XslFoRunConfiguration(project,
+        XslFoRunExecutorTestHelper.createTestFactory());
+
+    File template = new File("src/test/resources/simple/template.xsl").getCanonicalFile();
+    File xml1 = new File("src/test/resources/simple/values.xml").getCanonicalFile();
+    File xml2 = new File("src/test/resources/simple/values_2.xml").getCanonicalFile();
+    File outputDir = temporaryFolder.newFolder("worker-output");
+
+    List<VirtualFilePointer> xmlPointers = List.of(
+        new XslFoRunExecutorTestHelper.FakeVirtualFilePointer(xml1.getAbsolutePath()),
+        new XslFoRunExecutorTestHelper.FakeVirtualFilePointer(xml2.getAbsolutePath()));
+
+    XslFoRunSettings settings = config.getSettings()
+        .withXsltFile(new XslFoRunExecutorTestHelper.FakeVirtualFilePointer(
+            template.getAbsolutePath()))
+        .withXmlInputFiles(xmlPointers)
+        .withOutputFile(outputDir.getAbsolutePath())
+        .withOpenOutputFile(false)
+        .withUseTemporaryFiles(false)
+        .withExecutionMode(ExecutionMode.EXTERNAL_DAEMON)
+        .withConfigMode(SettingsFileMode.EMPTY)
+        .withUsePluginOutputFormat(false)
+        .withOutputFormat(OutputFormat.PDF);
+    config.setSettings(settings);
+    return config;
+  }
+}
@@ -0,0 +1,81 @@
+package org.intellij.lang.xslfo.run;
+
+import org.apache.fop.events.Event;
+import org.apache.fop.events.model.EventSeverity;
+import org.intellij.lang.xslfo.engine.EngineDiagnostics;
+import org.intellij.lang.xslfo.engine.FopEventAggregator;
+import org.intellij.lang.xslfo.engine.FopEventGroup;
+import org.intellij.lang.xslfo.engine.SourceLocation;
+import org.junit.Test;
+import org.xml.sax.helpers.LocatorImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class PreviewDiagnosticsCollectorTest {
+
+  @Test
+  public void collector_retainsLimitAndSummarizesOverflow() {
+    List<XslFoPreviewRenderer.PreviewRenderMessage> live = new ArrayList<>();
+    PreviewDiagnosticsCollector collector = new PreviewDiagnosticsCollector(2, live::add);
+
+    collector.addExternalLine("WARNING: first");
+    collector.addExternalLine("   ");
+    collector.addExternalLine("at org.apache.fop.Foo.bar(Foo.java:1)");
+    collector.addExternalLine("SEVERE: broken");
+    collector.addExternalLine("WARNING: third");
+    collector.addExternalLine("WARNING: fourth");
+    collector.addRetained(XslFoPreviewRenderer.Severity.ERROR, "Rendering failed");
+
+    assertEquals(5, live.size());
+    assertEquals(List.of(
+        new XslFoPreviewRenderer.PreviewRenderMessage(XslFoPreviewRenderer.Severity.WARNING,
+            "WARNING: first"),
+        new XslFoPreviewRenderer.PreviewRenderMessage(XslFoPreviewRenderer.Severity.ERROR,
+            "SEVERE: broken"),
+        new XslFoPreviewRenderer.PreviewRenderMessage(XslFoPreviewRenderer.Severity.ERROR,
+            "Rendering failed"),
+        new XslFoPreviewRenderer.PreviewRenderMessage(XslFoPreviewRenderer.Severity.WARNING,
+            "2 more warning message(s) not shown")),
+        collector.snapshot());
+  }
+
+  @Test
+  public void collector_keepsOneEntryPerFopEventGroup() {
+    List<XslFoPreviewRenderer.PreviewRenderMessage> live = new ArrayList<>();
+    PreviewDiagnosticsCollector collector = new PreviewDiagnosticsCollector(2, live::add);
+    FopEventAggregator aggregator = new FopEventAggregator(new EngineDiagnostics() {
+      @Override
+      public void warning(String message) {
+      }
+
+      @Override
+      public void error(String message) {
+      }
+
+      @Override
+      public void fopEvents(FopEventGroup group) {
+        collector.addGroup(group);
+      }
+    });
+
+    for (int line = 1; line <= 3; line++) {
+      LocatorImpl locator = new LocatorImpl();
+      locator.setLineNumber(line);
+      locator.setColumnNumber(1);
+      aggregator.processEvent(new Event(this,
+          "org.apache.fop.layoutmgr.BlockLevelEventProducer.overconstrainedAdjustEndIndent",
+          EventSeverity.WARN, Map.of("elementName", "fo:table", "amount", line, "loc", locator)));
+    }
+
+    assertEquals(1, live.size());
+    List<XslFoPreviewRenderer.PreviewRenderMessage> snapshot = collector.snapshot();
+    assertEquals(1, snapshot.size());
+    assertEquals(XslFoPreviewRenderer.Severity.WARNING, snapshot.get(0).severity());
+    assertEquals(3, snapshot.get(0).count());
+    assertEquals(new SourceLocation(null, 1, 1), snapshot.get(0).location());
+  }
+}
@@ -0,0 +1,333 @@
+package org.intellij.lang.xslfo.run;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.pointers.VirtualFilePointer;
+import org.intellij.lang.xslfo.engine.StatementCorpus;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Performance gate for the bundled render path, run by {@code ./gradlew perfTest} instead of with
+ * the unit tests.
+ * <br>
+ * Each case renders the {@code simple} fixtures, or a generated {@link StatementCorpus} of a few
+ * dozen pages, a few times to warm up, then takes the median of several measured renders: the
+ * wall time divided by the time of a fixed pure-JDK calibration workload, so budgets carry over
+ * between machines of different speed, and the bytes allocated by the threads doing the render.
+ * Allocation is counted per thread, so IDE background threads in the same JVM do not inflate it:
+ * the calling thread, plus the {@code TransformPipeline} thread that runs XSLT in batch renders,
+ * whose share {@link BundledFopRunner} adds to each input's {@link RenderMetrics}. A case fails
+ * when either figure exceeds its budget in the baseline file by more than the tolerance; cases
+ * without a budget are skipped. When updating the baseline, the measurements are written to the
+ * file instead.
+ */
+public class RenderPerformanceTest {
+
+  private static final String BASELINE_PROPERTY = "xslfo.perf.baseline";
+  private static final String TOLERANCE_PROPERTY = "xslfo.perf.tolerance";
+  private static final String UPDATE_PROPERTY = "xslfo.perf.updateBaseline";
+  private static final String DEFAULT_BASELINE =
+      "src/test/resources/perf/render-baseline.properties";
+  private static final double DEFAULT_TOLERANCE = 0.25;
+
+  private static final int CALIBRATION_RUNS = 5;
+  private static final int WARMUP_RUNS = 3;
+  private static final int MEASURED_RUNS = 7;
+
+  private static final String BASELINE_HEADER = """
+      # Render performance budgets checked by ./gradlew perfTest.
+      # <case>.time is the median wall time of a render divided by the time of the calibration
+      # workload; <case>.allocatedBytes is the median number of bytes allocated by the threads
+      # doing a render. Record budgets on the reference machine with
+      # ./gradlew perfTest -PperfUpdateBaseline=true and commit the result.
+      """;
+
+  @ClassRule
+  public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static final Map<String, String> MEASUREMENTS = new TreeMap<>();
+  private static Properties baseline;
+  private static long calibrationNanos;
+  private static volatile int calibrationSink;
+
+  @BeforeClass
+  public static void calibrate() throws IOException {
+    baseline = new Properties();
+    Path baselineFile = baselineFile();
+    if (Files.isRegularFile(baselineFile)) {
+      try (Reader reader = Files.newBufferedReader(baselineFile, StandardCharsets.UTF_8)) {
+        baseline.load(reader);
+      }
+    }
+    long best = Long.MAX_VALUE;
+    for (int run = 0; run < CALIBRATION_RUNS; run++) {
+      long start = System.nanoTime();
+      calibrationSink += calibrationWorkload();
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    calibrationNanos = best;
+  }
+
+  @AfterClass
+  public static void updateBaseline() throws IOException {
+    if (!Boolean.getBoolean(UPDATE_PROPERTY)) {
+      return;
+    }
+    Map<String, String> budgets = new TreeMap<>();
+    baseline.forEach((key, value) -> budgets.put((String) key, (String) value));
+    budgets.putAll(MEASUREMENTS);
+    Path baselineFile = baselineFile();
+    Files.createDirectories(baselineFile.toAbsolutePath().getParent());
+    try (Writer writer = Files.newBufferedWriter(baselineFile, StandardCharsets.UTF_8)) {
+      writer.write(BASELINE_HEADER);
+      writer.write(String.format(Locale.ROOT, "# Recorded on %s %s with Java %s.%n",
+          System.getProperty("os.name"), System.getProperty("os.arch"),
+          System.getProperty("java.version")));
+      for (Map.Entry<String, String> budget : budgets.entrySet()) {
+        writer.write(budget.getKey() + "=" + budget.getValue() + System.lineSeparator());
+      }
+    }
+  }
+
+  @Test
+  public void bundledRunner_singleInput() throws Exception {
+    XslFoRunConfiguration config = createConfiguration("single", "values.xml");
+
+    measure("bundledRunner.single", () -> runFop(config));
+  }
+
+  @Test
+  public void bundledRunner_batch() throws Exception {
+    XslFoRunConfiguration config = createConfiguration("batch", "values.xml", "values_2.xml");
+
+    measure("bundledRunner.batch", () -> runFop(config));
+  }
+
+  @Test
+  public void bundledRunner_statements() throws Exception {
+    StatementCorpus corpus = StatementCorpus.generate(
+        temporaryFolder.newFolder("corpus").toPath(), 10, 150, StatementCorpus.DEFAULT_SEED);
+    XslFoRunConfiguration config = createConfiguration("statements",
+        corpus.stylesheet().toFile(), corpus.input().toFile());
+
+    measure("bundledRunner.statements", () -> runFop(config));
+  }
+
+  @Test
+  public void bundledRunner_java2dPreview() throws Exception {
+    XslFoRunConfiguration config = createConfiguration("java2d", "values.xml");
+
+    measure("preview.java2d", () -> onCallingThread(
+        () -> BundledFopRunner.renderJava2DPreview(config, null).close()));
+  }
+
+  @Test
+  public void previewRenderer_pdf() throws Exception {
+    XslFoRunConfiguration config = createConfiguration("preview", "values.xml");
+    String xmlPath = fixture("values.xml").getAbsolutePath();
+
+    measure("preview.pdf", () -> onCallingThread(() -> {
+      XslFoPreviewRenderer.PreviewRenderResult result =
+          XslFoPreviewRenderer.renderPreview(config, xmlPath);
+      assertTrue(String.valueOf(result.diagnostics()), result.success());
+      result.outputFile().delete();
+    }));
+  }
+
+  private static void measure(String name, Render render) throws Exception {
+    for (int run = 0; run < WARMUP_RUNS; run++) {
+      render.run();
+    }
+    long[] nanos = new long[MEASURED_RUNS];
+    long[] allocated = new long[MEASURED_RUNS];
+    for (int run = 0; run < MEASURED_RUNS; run++) {
+      long start = System.nanoTime();
+      allocated[run] = render.run();
+      nanos[run] = System.nanoTime() - start;
+    }
+    double time = (double) median(nanos) / calibrationNanos;
+    long bytes = median(allocated);
+    System.out.printf(Locale.ROOT, "%s: %.3f x calibration (%.1f ms), %d bytes allocated%n",
+        name, time, median(nanos) / 1_000_000d, bytes);
+    synchronized (MEASUREMENTS) {
+      MEASUREMENTS.put(name + ".time", String.format(Locale.ROOT, "%.3f", time));
+      if (bytes >= 0) {
+        MEASUREMENTS.put(name + ".allocatedBytes", Long.toString(bytes));
+      }
+    }
+    if (Boolean.getBoolean(UPDATE_PROPERTY)) {
+      return;
+    }
+
+    String timeBudget = baseline.getProperty(name + ".time");
+    String bytesBudget = baseline.getProperty(name + ".allocatedBytes");
+    assumeTrue("No budget for " + name + " in " + baselineFile()
+        + "; record one with -PperfUpdateBaseline=true", timeBudget != null || bytesBudget != null);
+    double tolerance = tolerance();
+    List<String> exceeded = new ArrayList<>();
+    if (timeBudget != null && time > Double.parseDouble(timeBudget) * (1 + tolerance)) {
+      exceeded.add(String.format(Locale.ROOT, "time %.3f x calibration exceeds budget %s",
+          time, timeBudget));
+    }
+    if (bytesBudget != null && bytes >= 0
+        && bytes > Long.parseLong(bytesBudget) * (1 + tolerance)) {
+      exceeded.add("allocated " + bytes + " bytes exceeds budget " + bytesBudget);
+    }
+    assertTrue(String.format(Locale.ROOT, "%s: %s (tolerance %.0f%%)", name,
+        String.join(", ", exceeded), tolerance * 100), exceeded.isEmpty());
+  }
+
+  /**
+   * Sorts and hashes a seeded list of strings: allocation-heavy, single-threaded work that touches
+   * none of the libraries the render path depends on, so their regressions are not calibrated away.
+   */
+  private static int calibrationWorkload() {
+    Random random = new Random(42);
+    List<String> words = new ArrayList<>();
+    for (int i = 0; i < 200_000; i++) {
+      words.add(Long.toString(random.nextLong(), 36));
+    }
+    Collections.sort(words);
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException exception) {
+      throw new IllegalStateException("SHA-256 is not available", exception);
+    }
+    for (String word : words) {
+      digest.update(word.getBytes(StandardCharsets.UTF_8));
+    }
+    return digest.digest()[0];
+  }
+
+  /**
+   * Renders every input of {@code config} and returns the bytes allocated for them, as recorded
+   * in their metrics for the calling and the pipeline thread, or -1 if none were recorded.
+   */
+  private static long runFop(XslFoRunConfiguration config) throws Exception {
+    long[] allocated = {-1};
+    BundledFopRunner.runFop(config, null, new BundledFopRunner.RenderDiagnosticsSink() {
+      @Override
+      public void warning(String message) {
+      }
+
+      @Override
+      public void error(String message) {
+      }
+
+      @Override
+      public void renderCompleted(String xmlPath, RenderMetrics metrics) {
+        if (metrics.getAllocatedBytes() >= 0) {
+          allocated[0] = Math.max(0, allocated[0]) + metrics.getAllocatedBytes();
+        }
+      }
+    });
+    return allocated[0];
+  }
+
+  /**
+   * Runs a render that does all its work on the calling thread and returns the bytes that thread
+   * allocated, or -1 when the JVM does not account for allocation.
+   */
+  private static long onCallingThread(ThrowingRunnable render) throws Exception {
+    long allocationMark = RenderMetrics.currentThreadAllocatedBytes();
+    render.run();
+    return RenderMetrics.allocatedSince(allocationMark,
+        RenderMetrics.currentThreadAllocatedBytes());
+  }
+
+  private static long median(long[] values) {
+    long[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+
+  private static double tolerance() {
+    String tolerance = System.getProperty(TOLERANCE_PROPERTY);
+    return tolerance != null && !tolerance.isBlank() ? Double.parseDouble(tolerance)
+        : DEFAULT_TOLERANCE;
+  }
+
+  private static Path baselineFile() {
+    return Path.of(System.getProperty(BASELINE_PROPERTY, DEFAULT_BASELINE));
+  }
+
+  private static File fixture(String name) throws IOException {
+    return new File("src/test/resources/simple", name).getCanonicalFile();
+  }
+
+  private static XslFoRunConfiguration createConfiguration(String outputName, String... inputs)
+      throws IOException {
+    File[] inputFiles = new File[inputs.length];
+    for (int i = 0; i < inputs.length; i++) {
+      inputFiles[i] = fixture(inputs[i]);
+    }
+    return createConfiguration(outputName, fixture("template.xsl"), inputFiles);
+  }
+
+  private static XslFoRunConfiguration createConfiguration(String outputName, File stylesheet,
+                                                           File... inputs) throws IOException {
+    Project project = XslFoRunExecutorTestHelper.createTestProject();
+    XslFoRunConfiguration config = new XslFoRunConfiguration(project,
+        XslFoRunExecutorTestHelper.createTestFactory());
+    List<VirtualFilePointer> xmlPointers = new ArrayList<>();
+    for (File input : inputs) {
+      xmlPointers.add(new XslFoRunExecutorTestHelper.FakeVirtualFilePointer(
+          input.getAbsolutePath()));
+    }
+    File outputDir = temporaryFolder.newFolder(outputName);
+    File output = inputs.length > 1 ? outputDir : new File(outputDir, outputName + ".pdf");
+
+    XslFoRunSettings settings = config.getSettings()
+        .withXsltFile(new XslFoRunExecutorTestHelper.FakeVirtualFilePointer(
+            stylesheet.getAbsolutePath()))
+        .withXmlInputFiles(xmlPointers)
+        .withOutputFile(output.getAbsolutePath())
+        .withOpenOutputFile(false)
+        .withUseTemporaryFiles(false)
+        .withExecutionMode(ExecutionMode.BUNDLED)
+        .withConfigMode(SettingsFileMode.EMPTY)
+        .withUsePluginOutputFormat(false)
+        .withOutputFormat(OutputFormat.PDF);
+    config.setSettings(settings);
+    return config;
+  }
+
+  @FunctionalInterface
+  private interface Render {
+    /**
+     * Renders once and returns the bytes allocated by the threads doing it, or -1 if unknown.
+     */
+    long run() throws Exception;
+  }
+
+  @FunctionalInterface
+  private interface ThrowingRunnable {
+    void run() throws Exception;
+  }
+}
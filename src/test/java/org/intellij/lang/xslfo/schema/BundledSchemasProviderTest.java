@@ -0,0 +1,75 @@
+package org.intellij.lang.xslfo.schema;
+
+import com.intellij.javaee.ResourceRegistrar;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class BundledSchemasProviderTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void registerResources_registersEveryBundledSchemaFromGeneratedIndex() {
+    ResourceRegistrar registrar = mock(ResourceRegistrar.class);
+
+    new BundledSchemasProvider().registerResources(registrar);
+
+    verify(registrar).addStdResource(eq("http://www.w3.org/1999/XSL/Format"), isNull(),
+        eq("/META-INF/xslfo/schemas/fop-schema/fo.xsd"), eq(BundledSchemasProvider.class));
+    verify(registrar).addStdResource(eq("http://xmlgraphics.apache.org/fop/extensions"), isNull(),
+        eq("/META-INF/xslfo/schemas/fop-schema/fox.xsd"), eq(BundledSchemasProvider.class));
+    verify(registrar, times(6)).addStdResource(anyString(), isNull(), anyString(),
+        eq(BundledSchemasProvider.class));
+  }
+
+  @Test
+  public void loadNamespaceIndex_skipsCommentsAndMalformedLines() throws Exception {
+    Path index = tmp.getRoot().toPath().resolve(BundledSchemasProvider.NAMESPACE_INDEX_PATH);
+    Files.createDirectories(index.getParent());
+    Files.writeString(index, """
+        # Generated
+        urn:a\tschemas/a.xsd
+
+        no-tab-here
+        urn:b\t
+        urn:c \t schemas/c.xsd
+        """, StandardCharsets.UTF_8);
+
+    try (URLClassLoader loader = classLoader(tmp.getRoot())) {
+      assertEquals(List.of(
+              new BundledSchemasProvider.SchemaResource("urn:a", "schemas/a.xsd"),
+              new BundledSchemasProvider.SchemaResource("urn:c", "schemas/c.xsd")),
+          BundledSchemasProvider.loadNamespaceIndex(loader));
+    }
+  }
+
+  @Test
+  public void loadNamespaceIndex_returnsEmptyListWithoutIndex() throws Exception {
+    try (URLClassLoader loader = classLoader(tmp.getRoot())) {
+      assertTrue(BundledSchemasProvider.loadNamespaceIndex(loader).isEmpty());
+    }
+  }
+
+  private static URLClassLoader classLoader(File root) throws Exception {
+    return new URLClassLoader(new URL[] {root.toURI().toURL()}, null);
+  }
+}
@@ -0,0 +1,164 @@
+package org.intellij.lang.xslfo.schema;
+
+import com.intellij.javaee.ResourceRegistrar;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Startup benchmark for {@link BundledSchemasProvider}, run by {@code ./gradlew perfTest} instead
+ * of with the unit tests.
+ * <br>
+ * Bundles a growing number of generated schemas and compares registering them by opening each
+ * XSD to scan for its targetNamespace, as the provider did before the index was generated at
+ * build time, with registering them from the namespace index. Prints the median of several runs
+ * per schema count; fails if the index path opens any XSD or is not faster than the scan.
+ */
+public class SchemaRegistrationPerformanceTest {
+
+  private static final int[] SCHEMA_COUNTS = {6, 60, 600};
+  private static final int WARMUP_RUNS = 5;
+  private static final int MEASURED_RUNS = 15;
+  private static final Pattern TARGET_NS = Pattern.compile("targetNamespace\\s*=\\s*\"([^\"]+)\"");
+
+  @ClassRule
+  public static TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void registration_costStaysFlatAsSchemasAreAdded() throws Exception {
+    ResourceRegistrar registrar = mock(ResourceRegistrar.class, withSettings().stubOnly());
+    System.out.println(String.format(Locale.ROOT, "%8s %14s %14s %10s",
+        "schemas", "scan (us)", "index (us)", "xsd opens"));
+    for (int count : SCHEMA_COUNTS) {
+      Path root = bundle(count);
+      try (CountingClassLoader loader = new CountingClassLoader(root)) {
+        long scan = median(() -> scanRegistration(registrar, loader));
+        loader.xsdOpens.set(0);
+        long indexed = median(() -> BundledSchemasProvider.registerResources(registrar, loader));
+        int opens = loader.xsdOpens.get();
+        System.out.println(String.format(Locale.ROOT, "%8d %14.1f %14.1f %10d",
+            count, scan / 1000.0, indexed / 1000.0, opens));
+
+        assertEquals(count, BundledSchemasProvider.loadNamespaceIndex(loader).size());
+        assertEquals("Registration from the index must not open any schema", 0, opens);
+        if (count == SCHEMA_COUNTS[SCHEMA_COUNTS.length - 1]) {
+          assertTrue("Index registration (" + indexed + " ns) should be faster than the scan ("
+              + scan + " ns) with " + count + " schemas", indexed < scan);
+        }
+      }
+    }
+  }
+
+  /**
+   * Registration as it was before the namespace index: every listed XSD is opened and its first
+   * 8 KB scanned for the targetNamespace.
+   */
+  private static void scanRegistration(ResourceRegistrar registrar, ClassLoader cl) {
+    List<String> resources = new ArrayList<>();
+    try (InputStream is = cl.getResourceAsStream("META-INF/xslfo/schemas/index.txt");
+         BufferedReader br = new BufferedReader(
+             new InputStreamReader(is, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = br.readLine()) != null) {
+        if (!line.isBlank() && !line.startsWith("#")) {
+          resources.add(line.trim());
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    for (String resPath : resources) {
+      try (InputStream is = cl.getResourceAsStream(resPath)) {
+        String head = new String(is.readNBytes(8192), StandardCharsets.UTF_8);
+        Matcher m = TARGET_NS.matcher(head);
+        if (m.find()) {
+          registrar.addStdResource(m.group(1), null, "/" + resPath,
+              BundledSchemasProvider.class);
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  /**
+   * Writes {@code count} schemas with a license header, the listing and the namespace index the
+   * build would generate for them.
+   */
+  private static Path bundle(int count) throws IOException {
+    Path root = tmp.newFolder("schemas-" + count).toPath();
+    Path dir = root.resolve("META-INF/xslfo/schemas");
+    Files.createDirectories(dir.resolve("generated"));
+    String header = "<!--\n" + "  Licensed under the Apache License, Version 2.0.\n".repeat(40)
+        + "-->\n";
+    StringBuilder listing = new StringBuilder("# Bundled schemas:\n");
+    StringBuilder index = new StringBuilder("# Generated\n");
+    for (int i = 0; i < count; i++) {
+      String resource = "META-INF/xslfo/schemas/generated/schema" + i + ".xsd";
+      String namespace = "urn:xslfo:test:schema" + i;
+      Files.writeString(root.resolve(resource), "<?xml version=\"1.0\"?>\n" + header
+          + "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\"\n"
+          + "           targetNamespace = \"" + namespace + "\">\n"
+          + "  <xs:element name=\"root\" type=\"xs:string\"/>\n"
+          + "</xs:schema>\n", StandardCharsets.UTF_8);
+      listing.append(resource).append('\n');
+      index.append(namespace).append('\t').append(resource).append('\n');
+    }
+    Files.writeString(dir.resolve("index.txt"), listing, StandardCharsets.UTF_8);
+    Files.writeString(root.resolve(BundledSchemasProvider.NAMESPACE_INDEX_PATH), index,
+        StandardCharsets.UTF_8);
+    return root;
+  }
+
+  private static long median(Runnable registration) {
+    for (int i = 0; i < WARMUP_RUNS; i++) {
+      registration.run();
+    }
+    long[] times = new long[MEASURED_RUNS];
+    for (int i = 0; i < MEASURED_RUNS; i++) {
+      long start = System.nanoTime();
+      registration.run();
+      times[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(times);
+    return times[MEASURED_RUNS / 2];
+  }
+
+  private static final class CountingClassLoader extends URLClassLoader {
+    final AtomicInteger xsdOpens = new AtomicInteger();
+
+    CountingClassLoader(Path root) throws IOException {
+      super(new URL[] {root.toUri().toURL()}, null);
+    }
+
+    @Override
+    public InputStream getResourceAsStream(String name) {
+      if (name.endsWith(".xsd")) {
+        xsdOpens.incrementAndGet();
+      }
+      return super.getResourceAsStream(name);
+    }
+  }
+}
@@ -0,0 +1,81 @@
+// Headless XSLT + FOP rendering pipeline shared by the plugin and command line/CI use.
+// Must not depend on the IntelliJ Platform.
+plugins {
+    `java-library`
+    application
+    `java-test-fixtures`
+    checkstyle
+    id("me.champeau.jmh") version "0.7.3"
+}
+
+repositories {
+    mavenCentral()
+}
+
+configurations.configureEach {
+    exclude(group = "xml-apis")
+    exclude(group = "xalan", module = "xalan")
+    exclude(group = "xalan", module = "serializer")
+}
+
+val targetJava: String = project.findProperty("javaVersion") as String
+val fopVersion: String = project.findProperty("fopVersion") as String
+val pdfboxVersion: String = project.findProperty("pdfboxVersion") as String
+
+java {
+    sourceCompatibility = JavaVersion.toVersion(targetJava)
+    targetCompatibility = JavaVersion.toVersion(targetJava)
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(targetJava.toInt())
+    }
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+    options.compilerArgs.add("-Xlint:deprecation")
+}
+
+dependencies {
+    api("org.apache.xmlgraphics:fop:$fopVersion")
+    implementation("org.apache.pdfbox:pdfbox:$pdfboxVersion")
+
+    testImplementation("junit:junit:4.13.2")
+    jmhImplementation(testFixtures(project))
+}
+
+application {
+    mainClass = "org.intellij.lang.xslfo.engine.XslFoBatchMain"
+    applicationName = "xslfo-engine"
+}
+
+// Benchmarks live in src/jmh; `gradlew :xslfo-engine:jmh` writes JSON results named after the
+// project version, so runs of two versions can be compared with any JMH result viewer.
+jmh {
+    jmhVersion = "1.37"
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("reports/jmh/results-${project.version}.json")
+    jvmArgsAppend.add("-Dxslfo.fixtures=${rootDir}/src/test/resources/simple")
+    findProperty("jmhInclude")?.let { includes.add(it as String) }
+}
+
+// Seeded statement corpus from src/testFixtures for load tests, e.g.
+// `gradlew :xslfo-engine:generateCorpus -PcorpusSize=medium -PcorpusSeed=7`.
+tasks.register<JavaExec>("generateCorpus") {
+    description = "Writes a seeded corpus of large statement documents to build/corpus."
+    group = "verification"
+    classpath = sourceSets["testFixtures"].runtimeClasspath
+    mainClass = "org.intellij.lang.xslfo.engine.StatementCorpus"
+    val corpusDir = layout.buildDirectory.dir("corpus")
+    outputs.dir(corpusDir)
+    outputs.upToDateWhen { false }
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf(corpusDir.get().asFile.path,
+            findProperty("corpusSize") as String? ?: "large",
+            findProperty("corpusSeed") as String? ?: "42")
+    })
+}
+
+checkstyle {
+    toolVersion = "13.3.0"
+    configFile = file("$rootDir/config/checkstyle/google_checks.xml")
+}
@@ -0,0 +1,67 @@
+package org.intellij.lang.xslfo.engine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Locates the benchmark fixtures and prepares scratch directories for the rendered output.
+ * <br>
+ * The fixtures are the plugin's {@code src/test/resources/simple} stylesheet and inputs; the
+ * {@code jmh} task passes their location in the {@code xslfo.fixtures} system property.
+ */
+final class BenchmarkFixtures {
+
+  private static final String FIXTURES_PROPERTY = "xslfo.fixtures";
+
+  private BenchmarkFixtures() {
+  }
+
+  static Path fixtureDirectory() {
+    Path directory = Path.of(System.getProperty(FIXTURES_PROPERTY,
+        "../src/test/resources/simple")).toAbsolutePath().normalize();
+    if (!Files.isRegularFile(directory.resolve("template.xsl"))) {
+      throw new IllegalStateException("Benchmark fixtures not found in " + directory
+          + "; set -D" + FIXTURES_PROPERTY);
+    }
+    return directory;
+  }
+
+  static String stylesheet() {
+    return fixtureDirectory().resolve("template.xsl").toString();
+  }
+
+  static String input() {
+    return fixtureDirectory().resolve("values.xml").toString();
+  }
+
+  /**
+   * Copies the fixture inputs round-robin into {@code count} distinct files below {@code scratch}.
+   */
+  static List<String> inputs(Path scratch, int count) throws IOException {
+    Path fixtures = fixtureDirectory();
+    List<Path> sources = List.of(fixtures.resolve("values.xml"), fixtures.resolve("values_2.xml"));
+    List<String> inputs = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Path copy = scratch.resolve("input-" + i + ".xml");
+      Files.copy(sources.get(i % sources.size()), copy);
+      inputs.add(copy.toString());
+    }
+    return inputs;
+  }
+
+  static void deleteRecursively(Path directory) throws IOException {
+    if (directory == null || !Files.exists(directory)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.deleteIfExists(path);
+      }
+    }
+  }
+}
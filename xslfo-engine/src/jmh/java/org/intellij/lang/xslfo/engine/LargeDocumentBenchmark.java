@@ -0,0 +1,69 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.fop.apps.MimeConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a {@link StatementCorpus} of production-like size with a warm engine, in one piece and
+ * split into chunks rendered in parallel. A single render of the large corpus takes minutes, so
+ * each invocation is timed on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class LargeDocumentBenchmark {
+
+  @Param({"MEDIUM", "LARGE"})
+  public StatementCorpus.Size size;
+
+  private StatementCorpus corpus;
+  private Path scratch;
+  private File output;
+  private FopEngine engine;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    scratch = Files.createTempDirectory("xslfo-jmh");
+    corpus = StatementCorpus.generate(scratch.resolve("corpus"), size,
+        StatementCorpus.DEFAULT_SEED);
+    output = scratch.resolve("statements.pdf").toFile();
+    engine = new FopEngine(null);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    BenchmarkFixtures.deleteRecursively(scratch);
+  }
+
+  @Benchmark
+  public RenderStats render() throws Exception {
+    return engine.render(corpus.stylesheet().toString(), corpus.input().toString(), output,
+        MimeConstants.MIME_PDF, null);
+  }
+
+  @Benchmark
+  public SplitRenderer.Result splitRender() throws Exception {
+    return new SplitRenderer(engine, 0).render(corpus.stylesheet().toString(), corpus.input(),
+        output.toPath(), new XmlRecordSplitter(StatementCorpus.RECORD_ELEMENT, 20), true, null);
+  }
+}
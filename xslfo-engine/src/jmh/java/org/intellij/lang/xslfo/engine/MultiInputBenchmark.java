@@ -0,0 +1,112 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.MimeConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders 1 to N inputs with one warm engine the way a multi-input bundled run does: sequentially
+ * with a shared user agent, with and without the XSLT stage overlapped on a
+ * {@link TransformPipeline}, and on a parallel {@link BatchRenderer} for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class MultiInputBenchmark {
+
+  @Param({"1", "2", "4", "8", "16"})
+  public int inputCount;
+
+  private String stylesheet;
+  private List<String> inputs;
+  private List<BatchRenderer.Job> jobs;
+  private Path scratch;
+  private FopEngine engine;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    stylesheet = BenchmarkFixtures.stylesheet();
+    scratch = Files.createTempDirectory("xslfo-jmh");
+    inputs = BenchmarkFixtures.inputs(scratch, inputCount);
+    jobs = BatchRenderer.jobsFor(inputs.stream().map(Path::of).toList(), scratch,
+        scratch.resolve("batch"), ".pdf");
+    engine = new FopEngine(null);
+    sequential();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    BenchmarkFixtures.deleteRecursively(scratch);
+  }
+
+  @Benchmark
+  public int sequential() throws Exception {
+    FOUserAgent userAgent = engine.newUserAgent(null);
+    int pages = 0;
+    for (String input : inputs) {
+      try (OutputStream out = newOutput(input)) {
+        pages += engine.transform(stylesheet, input,
+            engine.getFopFactory().newFop(MimeConstants.MIME_PDF, userAgent, out), null)
+            .pageCount();
+      }
+    }
+    return pages;
+  }
+
+  @Benchmark
+  public int pipelined() throws Exception {
+    FOUserAgent userAgent = engine.newUserAgent(null);
+    int pages = 0;
+    try (TransformPipeline pipeline = new TransformPipeline(engine, stylesheet, inputs, 2, null)) {
+      for (String input : inputs) {
+        try (OutputStream out = newOutput(input)) {
+          pages += engine.layout(pipeline.next(),
+              engine.getFopFactory().newFop(MimeConstants.MIME_PDF, userAgent, out)).pageCount();
+        }
+      }
+    }
+    return pages;
+  }
+
+  @Benchmark
+  public int parallelBatch() throws Exception {
+    List<BatchRenderer.Result> results = new BatchRenderer(engine, 0).render(stylesheet, jobs,
+        MimeConstants.MIME_PDF, new BatchRenderer.Listener() {
+          @Override
+          public void warning(BatchRenderer.Job job, String message) {
+          }
+
+          @Override
+          public void error(BatchRenderer.Job job, String message) {
+          }
+        });
+    return results.size();
+  }
+
+  private OutputStream newOutput(String input) throws Exception {
+    return new BufferedOutputStream(
+        Files.newOutputStream(Path.of(input.substring(0, input.length() - 4) + ".pdf")));
+  }
+}
@@ -0,0 +1,62 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@code Loader.loadPDF}, which the PDF preview pays on every refresh, by document size
+ * and kind of content.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class PdfLoadBenchmark {
+
+  @Param({"TEXT", "IMAGES", "VECTOR"})
+  public PreviewDocuments.Kind kind;
+
+  @Param({"1", "10", "50"})
+  public int pages;
+
+  private Path scratch;
+  private File pdf;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    scratch = Files.createTempDirectory("xslfo-jmh");
+    pdf = PreviewDocuments.render(scratch, kind, pages).toFile();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    BenchmarkFixtures.deleteRecursively(scratch);
+  }
+
+  @Benchmark
+  public int load() throws Exception {
+    try (PDDocument document = Loader.loadPDF(pdf)) {
+      return document.getNumberOfPages();
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rasterizing one page the way the PDF preview does, {@code renderImageWithDPI} at 96 DPI times
+ * the zoom, at every zoom level the viewer offers and for each image type.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class PdfRasterizeBenchmark {
+
+  private static final float BASE_RENDER_DPI = 96f;
+
+  /**
+   * A loaded document of one page.
+   */
+  @State(Scope.Benchmark)
+  public static class Page {
+    @Param({"TEXT", "IMAGES", "VECTOR"})
+    public PreviewDocuments.Kind kind;
+
+    Path scratch;
+    PDDocument document;
+    PDFRenderer renderer;
+
+    @Setup(Level.Trial)
+    public void load() throws Exception {
+      scratch = Files.createTempDirectory("xslfo-jmh");
+      document = Loader.loadPDF(PreviewDocuments.render(scratch, kind, 1).toFile());
+      renderer = new PDFRenderer(document);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+      document.close();
+      BenchmarkFixtures.deleteRecursively(scratch);
+    }
+  }
+
+  /**
+   * The zoom levels of {@code PdfBoxViewerPanel.ZOOM_LEVELS}, in percent.
+   */
+  public static class ZoomedPage extends Page {
+    @Param({"25", "50", "75", "100", "125", "150", "175", "200", "250", "300", "400", "500", "750",
+        "1000"})
+    public int zoomPercent;
+  }
+
+  /**
+   * A page at 100% in each image type PDFBox can render to.
+   */
+  public static class TypedPage extends Page {
+    @Param({"RGB", "ARGB", "GRAY"})
+    public ImageType imageType;
+  }
+
+  @Benchmark
+  public BufferedImage atZoom(ZoomedPage page) throws Exception {
+    return page.renderer.renderImageWithDPI(0, BASE_RENDER_DPI * page.zoomPercent / 100f);
+  }
+
+  @Benchmark
+  public BufferedImage byImageType(TypedPage page) throws Exception {
+    return page.renderer.renderImageWithDPI(0, BASE_RENDER_DPI, page.imageType);
+  }
+}
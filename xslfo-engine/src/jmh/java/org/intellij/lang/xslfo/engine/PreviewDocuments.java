@@ -0,0 +1,132 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.fop.apps.MimeConstants;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generates the PDF documents the preview benchmarks load and rasterize, by rendering generated
+ * FO through a {@link FopEngine}. Content is seeded, so every run measures the same documents.
+ * Public because JMH's generated code converts benchmark parameters of type {@link Kind}.
+ */
+public final class PreviewDocuments {
+
+  private static final String IDENTITY_XSL = """
+      <xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+        <xsl:template match="/"><xsl:copy-of select="."/></xsl:template>
+      </xsl:stylesheet>
+      """;
+
+  private static final String PAGE_MASTERS = """
+      <fo:layout-master-set>
+        <fo:simple-page-master master-name="A4" page-height="29.7cm" page-width="21cm"
+                               margin="2cm">
+          <fo:region-body/>
+        </fo:simple-page-master>
+      </fo:layout-master-set>
+      """;
+
+  private PreviewDocuments() {
+  }
+
+  /**
+   * Kinds of content that stress different parts of PDF loading and rasterization.
+   */
+  public enum Kind {
+    /** Paragraphs of text only: font loading and glyph rendering. */
+    TEXT,
+    /** Several noisy raster photos per page: image decoding and scaling. */
+    IMAGES,
+    /** Dense SVG line art per page: path filling and stroking. */
+    VECTOR
+  }
+
+  /**
+   * Renders a document of {@code pages} pages of {@code kind} content below {@code scratch}.
+   */
+  static Path render(Path scratch, Kind kind, int pages) throws Exception {
+    Path xsl = scratch.resolve("identity.xsl");
+    if (!Files.exists(xsl)) {
+      Files.writeString(xsl, IDENTITY_XSL);
+    }
+    Path photo = scratch.resolve("photo.png");
+    if (kind == Kind.IMAGES && !Files.exists(photo)) {
+      writePhoto(photo);
+    }
+    Path fo = scratch.resolve(kind.name().toLowerCase() + "-" + pages + ".fo");
+    Files.writeString(fo, document(kind, pages, photo));
+    Path pdf = scratch.resolve(kind.name().toLowerCase() + "-" + pages + ".pdf");
+    new FopEngine(null).render(xsl.toString(), fo.toString(), pdf.toFile(),
+        MimeConstants.MIME_PDF, null);
+    return pdf;
+  }
+
+  private static String document(Kind kind, int pages, Path photo) {
+    Random random = new Random(42);
+    StringBuilder fo = new StringBuilder(
+        "<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">").append(PAGE_MASTERS);
+    fo.append("<fo:page-sequence master-reference=\"A4\"><fo:flow flow-name=\"xsl-region-body\">");
+    for (int page = 0; page < pages; page++) {
+      fo.append("<fo:block").append(page > 0 ? " break-before=\"page\"" : "").append('>');
+      switch (kind) {
+        case TEXT -> appendText(fo, random);
+        case IMAGES -> appendImages(fo, photo);
+        case VECTOR -> appendVector(fo, random);
+        default -> throw new IllegalArgumentException(kind.name());
+      }
+      fo.append("</fo:block>");
+    }
+    return fo.append("</fo:flow></fo:page-sequence></fo:root>").toString();
+  }
+
+  private static void appendText(StringBuilder fo, Random random) {
+    for (int paragraph = 0; paragraph < 12; paragraph++) {
+      fo.append("<fo:block space-after=\"6pt\" font-size=\"10pt\">");
+      for (int word = 0; word < 60; word++) {
+        int length = 2 + random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+          fo.append((char) ('a' + random.nextInt(26)));
+        }
+        fo.append(' ');
+      }
+      fo.append("</fo:block>");
+    }
+  }
+
+  private static void appendImages(StringBuilder fo, Path photo) {
+    for (int image = 0; image < 4; image++) {
+      fo.append("<fo:block><fo:external-graphic src=\"").append(photo.toUri())
+          .append("\" content-width=\"8cm\"/></fo:block>");
+    }
+  }
+
+  private static void appendVector(StringBuilder fo, Random random) {
+    fo.append("<fo:instream-foreign-object><svg xmlns=\"http://www.w3.org/2000/svg\" "
+        + "width=\"17cm\" height=\"24cm\" viewBox=\"0 0 1700 2400\">");
+    for (int shape = 0; shape < 2000; shape++) {
+      fo.append("<path fill=\"none\" stroke=\"#")
+          .append(String.format("%06x", random.nextInt(0x1000000)))
+          .append("\" d=\"M").append(random.nextInt(1700)).append(' ')
+          .append(random.nextInt(2400)).append(" Q").append(random.nextInt(1700)).append(' ')
+          .append(random.nextInt(2400)).append(' ').append(random.nextInt(1700)).append(' ')
+          .append(random.nextInt(2400)).append("\"/>");
+    }
+    fo.append("</svg></fo:instream-foreign-object>");
+  }
+
+  private static void writePhoto(Path photo) throws IOException {
+    Random random = new Random(7);
+    BufferedImage image = new BufferedImage(1200, 900, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        image.setRGB(x, y, random.nextInt(0x1000000));
+      }
+    }
+    ImageIO.write(image, "png", photo.toFile());
+  }
+}
@@ -0,0 +1,57 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.FopFactoryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction costs a cold render pays before producing output: a bare FOP factory, a complete
+ * engine with its shared caches installed, and compiling the fixture stylesheet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class SetupBenchmark {
+
+  private File stylesheet;
+
+  @Setup
+  public void setUp() {
+    stylesheet = new File(BenchmarkFixtures.stylesheet());
+  }
+
+  @Benchmark
+  public FopFactory fopFactory() {
+    return new FopFactoryBuilder(new File(".").toURI()).build();
+  }
+
+  @Benchmark
+  public FopEngine engine() throws Exception {
+    return new FopEngine(null);
+  }
+
+  @Benchmark
+  public Templates templates() throws Exception {
+    StreamSource source = new StreamSource(stylesheet);
+    source.setSystemId(stylesheet.toURI().toString());
+    return TransformerFactory.newInstance().newTemplates(source);
+  }
+}
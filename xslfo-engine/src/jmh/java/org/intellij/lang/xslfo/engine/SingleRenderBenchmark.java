@@ -0,0 +1,70 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.fop.apps.MimeConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the simple fixture once per invocation, either with a fresh engine (cold: FOP factory
+ * and stylesheet built for the render, as every run did before engines were kept warm) or with a
+ * warm one, for each output format the bundled runner supports.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class SingleRenderBenchmark {
+
+  @Param({MimeConstants.MIME_PDF, MimeConstants.MIME_POSTSCRIPT, MimeConstants.MIME_PCL,
+      MimeConstants.MIME_AFP})
+  public String mime;
+
+  private String stylesheet;
+  private String input;
+  private Path scratch;
+  private File output;
+  private FopEngine warmEngine;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    stylesheet = BenchmarkFixtures.stylesheet();
+    input = BenchmarkFixtures.input();
+    scratch = Files.createTempDirectory("xslfo-jmh");
+    output = scratch.resolve("out").toFile();
+    warmEngine = new FopEngine(null);
+    warmEngine.render(stylesheet, input, output, mime, null);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    BenchmarkFixtures.deleteRecursively(scratch);
+  }
+
+  @Benchmark
+  public RenderStats coldRender() throws Exception {
+    return new FopEngine(null).render(stylesheet, input, output, mime, null);
+  }
+
+  @Benchmark
+  public RenderStats warmRender() throws Exception {
+    return warmEngine.render(stylesheet, input, output, mime, null);
+  }
+}
@@ -0,0 +1,200 @@
+package org.apache.fop.apps.io;
+
+import org.apache.xmlgraphics.io.Resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.InvalidMarkException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Serves local files as resources read from shared, read-only memory mappings.
+ * <br>
+ * Each file is mapped once per process and every resource opened on it reads from its own view of
+ * that mapping, so concurrent renders share the pages of large fonts and images instead of each
+ * reading them through a fresh stream. A mapping is replaced when the file's size or timestamp
+ * changes. The most recently used mappings are kept up to {@link #MAX_MAPPED_BYTES} in total;
+ * an evicted mapping is released once the last resource reading it is collected. Small files are
+ * not worth a mapping, and files too large for one buffer cannot be mapped; both are left to the
+ * regular resolver. A file truncated while a resource reads it fails that read with an
+ * IOException. On Windows a mapped file stays locked until the
+ * mapping is garbage collected, which would stop users from saving fonts and images they edit, so
+ * mapping is disabled there.
+ */
+final class MappedFileResources {
+
+  static final long MIN_MAPPED_BYTES = 64 * 1024;
+  static final long MAX_MAPPED_BYTES = 256L * 1024 * 1024;
+
+  private static final boolean ENABLED =
+      !System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+
+  /**
+   * Mappings by absolute path, least recently used first; guarded by itself.
+   */
+  private static final Map<String, Mapping> MAPPINGS = new LinkedHashMap<>(16, 0.75f, true);
+  private static long mappedBytes;
+
+  private MappedFileResources() {
+  }
+
+  /**
+   * Returns a resource reading {@code uri} from a shared mapping, or null if it is not a local
+   * file that should be mapped.
+   */
+  static Resource open(URI uri) throws IOException {
+    ByteBuffer mapped = map(uri);
+    return mapped != null ? new Resource(new ByteBufferInputStream(mapped, new File(uri))) : null;
+  }
+
+  /**
+   * Returns a private read-only view of the shared mapping of {@code uri}, or null.
+   */
+  static ByteBuffer map(URI uri) throws IOException {
+    if (!ENABLED || uri == null || !"file".equalsIgnoreCase(uri.getScheme())) {
+      return null;
+    }
+    File file;
+    try {
+      file = new File(uri);
+    } catch (IllegalArgumentException notAPlainFile) {
+      return null;
+    }
+    long size = file.length();
+    if (!file.isFile() || size < MIN_MAPPED_BYTES || size > Integer.MAX_VALUE) {
+      return null;
+    }
+    String path = file.getAbsolutePath();
+    long lastModified = file.lastModified();
+    Mapping mapping;
+    synchronized (MAPPINGS) {
+      mapping = MAPPINGS.get(path);
+    }
+    if (mapping == null || mapping.size() != size || mapping.lastModified() != lastModified) {
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        mapping = new Mapping(buffer.asReadOnlyBuffer(), size, lastModified);
+      }
+      store(path, mapping);
+    }
+    return mapping.buffer().duplicate();
+  }
+
+  private static void store(String path, Mapping mapping) {
+    synchronized (MAPPINGS) {
+      Mapping replaced = MAPPINGS.put(path, mapping);
+      mappedBytes += mapping.buffer().capacity()
+          - (replaced != null ? replaced.buffer().capacity() : 0);
+      Iterator<Mapping> eldest = MAPPINGS.values().iterator();
+      while (mappedBytes > MAX_MAPPED_BYTES && MAPPINGS.size() > 1) {
+        mappedBytes -= eldest.next().buffer().capacity();
+        eldest.remove();
+      }
+    }
+  }
+
+  private record Mapping(ByteBuffer buffer, long size, long lastModified) {
+  }
+
+  /**
+   * InputStream over a buffer of its own; reads copy straight from the mapped pages.
+   * <br>
+   * Touching a page the file no longer has, after it was truncated, raises an InternalError.
+   * HotSpot may deliver it only after the copy has returned, so bulk reads check that the file
+   * still covers the mapping when reading starts and again after every
+   * {@value #LENGTH_CHECK_INTERVAL} bytes, rather than paying a stat on every read; an
+   * InternalError that is raised within a read is reported as the IOException a stream reader
+   * expects.
+   */
+  private static final class ByteBufferInputStream extends InputStream {
+    private static final int LENGTH_CHECK_INTERVAL = 1024 * 1024;
+
+    private final ByteBuffer buffer;
+    private final File file;
+    private long nextLengthCheck;
+
+    private ByteBufferInputStream(ByteBuffer buffer, File file) {
+      this.buffer = buffer;
+      this.file = file;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      try {
+        return buffer.get() & 0xFF;
+      } catch (InternalError truncated) {
+        throw truncatedFile(truncated);
+      }
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      if (buffer.position() >= nextLengthCheck) {
+        if (file.length() < buffer.limit()) {
+          throw new IOException("Mapped file was truncated while being read: " + file);
+        }
+        nextLengthCheck = (long) buffer.position() + LENGTH_CHECK_INTERVAL;
+      }
+      int count = Math.min(length, buffer.remaining());
+      try {
+        buffer.get(bytes, offset, count);
+      } catch (InternalError truncated) {
+        throw truncatedFile(truncated);
+      }
+      return count;
+    }
+
+    private static IOException truncatedFile(InternalError error) {
+      return new IOException("Mapped file was truncated while being read", error);
+    }
+
+    @Override
+    public long skip(long count) {
+      int skipped = (int) Math.max(0, Math.min(count, buffer.remaining()));
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+
+    @Override
+    public boolean markSupported() {
+      return true;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+      buffer.mark();
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+      try {
+        buffer.reset();
+      } catch (InvalidMarkException exception) {
+        throw new IOException("Stream was not marked", exception);
+      }
+    }
+  }
+}
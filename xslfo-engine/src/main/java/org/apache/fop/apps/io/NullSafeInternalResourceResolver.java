@@ -11,6 +11,9 @@ import java.net.URISyntaxException;
 
 /**
  * InternalResourceResolver wrapper that guards null/blank URIs and avoids NPEs inside FOP.
+ * <br>
+ * Large local files are served from shared memory mappings (see {@link MappedFileResources});
+ * everything else goes through the wrapped resolver.
  */
 public final class NullSafeInternalResourceResolver extends InternalResourceResolver {
 
@@ -33,6 +36,12 @@ public final class NullSafeInternalResourceResolver extends InternalResourceReso
     if (stringUri == null || stringUri.trim().isEmpty()) {
       throw new FileNotFoundException("Resource URI is empty");
     }
+    if (!stringUri.startsWith("data:")) {
+      Resource mapped = MappedFileResources.open(delegate.resolveFromBase(cleanURI(stringUri)));
+      if (mapped != null) {
+        return mapped;
+      }
+    }
     return delegate.getResource(stringUri);
   }
 
@@ -41,6 +50,10 @@ public final class NullSafeInternalResourceResolver extends InternalResourceReso
     if (uri == null) {
       throw new FileNotFoundException("Resource URI is empty");
     }
+    Resource mapped = MappedFileResources.open(delegate.resolveFromBase(uri));
+    if (mapped != null) {
+      return mapped;
+    }
     return delegate.getResource(uri);
   }
 
@@ -0,0 +1,137 @@
+package org.intellij.lang.xslfo.engine;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Renders many inputs with one stylesheet on a bounded thread pool sharing a single
+ * {@link FopEngine}, so FOP setup and stylesheet compilation are paid once per batch.
+ */
+public final class BatchRenderer {
+
+  private final FopEngine engine;
+  private final int parallelism;
+
+  /**
+   * @param parallelism maximum number of concurrent renders; values below 1 mean one per core
+   */
+  public BatchRenderer(FopEngine engine, int parallelism) {
+    this.engine = engine;
+    this.parallelism = parallelism > 0 ? parallelism
+        : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Pairs every input with an output below {@code outputDir}, mirroring the input's location
+   * relative to {@code baseDir} and replacing its extension.
+   */
+  public static List<Job> jobsFor(List<Path> inputs, Path baseDir, Path outputDir,
+                                  String extension) {
+    List<Job> jobs = new ArrayList<>(inputs.size());
+    Path base = baseDir.toAbsolutePath().normalize();
+    for (Path input : inputs) {
+      Path absolute = input.toAbsolutePath().normalize();
+      Path relative = absolute.startsWith(base) ? base.relativize(absolute)
+          : absolute.getFileName();
+      String fileName = relative.getFileName().toString();
+      int dot = fileName.lastIndexOf('.');
+      String outputName = (dot > 0 ? fileName.substring(0, dot) : fileName) + extension;
+      Path parent = relative.getParent();
+      Path output = parent != null ? outputDir.resolve(parent).resolve(outputName)
+          : outputDir.resolve(outputName);
+      jobs.add(new Job(input, output));
+    }
+    return jobs;
+  }
+
+  /**
+   * Renders all jobs and returns their results in job order. A failing input does not stop the
+   * others.
+   */
+  public List<Result> render(String xslPath, List<Job> jobs, String mime, Listener listener)
+      throws InterruptedException {
+    int threads = Math.max(1, Math.min(parallelism, jobs.size()));
+    ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "xslfo-batch");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      List<Future<Result>> futures = new ArrayList<>(jobs.size());
+      for (Job job : jobs) {
+        futures.add(pool.submit(() -> renderJob(xslPath, job, mime, listener)));
+      }
+      List<Result> results = new ArrayList<>(jobs.size());
+      for (Future<Result> future : futures) {
+        try {
+          results.add(future.get());
+        } catch (ExecutionException executionException) {
+          // renderJob() reports failures in its result; only errors end up here.
+          throw new IllegalStateException(executionException.getCause());
+        }
+      }
+      return List.copyOf(results);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Renders one job on the calling thread, reporting its diagnostics and result to the listener.
+   */
+  Result renderJob(String xslPath, Job job, String mime, Listener listener) {
+    long start = System.nanoTime();
+    Result result;
+    try {
+      RenderStats stats = engine.render(xslPath, job.input().toString(), job.output().toFile(),
+          mime, new EngineDiagnostics() {
+            @Override
+            public void warning(String message) {
+              listener.warning(job, message);
+            }
+
+            @Override
+            public void error(String message) {
+              listener.error(job, message);
+            }
+          });
+      result = new Result(job, stats, System.nanoTime() - start, null);
+    } catch (Exception exception) {
+      result = new Result(job, null, System.nanoTime() - start, exception);
+    }
+    listener.completed(result);
+    return result;
+  }
+
+  /**
+   * One input and the file it is rendered to.
+   */
+  public record Job(Path input, Path output) {
+  }
+
+  /**
+   * Outcome of one job; exactly one of {@code stats} and {@code failure} is set.
+   */
+  public record Result(Job job, RenderStats stats, long elapsedNanos, Exception failure) {
+    public boolean success() {
+      return failure == null;
+    }
+  }
+
+  /**
+   * Receives diagnostics and results from the rendering threads.
+   */
+  public interface Listener {
+    void warning(Job job, String message);
+
+    void error(Job job, String message);
+
+    default void completed(Result result) {
+    }
+  }
+}
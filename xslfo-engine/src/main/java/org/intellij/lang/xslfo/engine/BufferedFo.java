@@ -0,0 +1,19 @@
+package org.intellij.lang.xslfo.engine;
+
+/**
+ * The XSLT result for one input, buffered for layout by {@link FopEngine#layout}.
+ *
+ * @param xmlPath      the transformed input
+ * @param events       the FO document as recorded SAX events
+ * @param compileNanos time spent compiling the stylesheet (close to zero when it was cached)
+ * @param xsltNanos    time the transformer spent producing the events
+ * @param cacheHits    lookups in the XSLT result and stylesheet caches that were answered
+ * @param cacheMisses  lookups in those caches that had to be computed
+ */
+public record BufferedFo(String xmlPath, SaxEventBuffer events, long compileNanos,
+                         long xsltNanos, int cacheHits, int cacheMisses) {
+
+  public BufferedFo(String xmlPath, SaxEventBuffer events, long compileNanos, long xsltNanos) {
+    this(xmlPath, events, compileNanos, xsltNanos, 0, 0);
+  }
+}
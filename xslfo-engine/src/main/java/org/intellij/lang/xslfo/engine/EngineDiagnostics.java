@@ -0,0 +1,47 @@
+package org.intellij.lang.xslfo.engine;
+
+/**
+ * Receives XSLT and FOP diagnostics while a document is rendered.
+ */
+public interface EngineDiagnostics {
+  void warning(String message);
+
+  void error(String message);
+
+  /**
+   * Receives an XSLT warning with the position it refers to, or null if unknown. By default it is
+   * reported without the position.
+   */
+  default void warning(String message, SourceLocation location) {
+    warning(message);
+  }
+
+  /**
+   * Receives an XSLT error with the position it refers to, or null if unknown. By default it is
+   * reported without the position.
+   */
+  default void error(String message, SourceLocation location) {
+    error(message);
+  }
+
+  /**
+   * Receives a group of equal FOP warnings or errors when its first event is reported; later
+   * events only update the group. By default the first event is formatted and reported as a
+   * warning or error.
+   */
+  default void fopEvents(FopEventGroup group) {
+    if (group.isError()) {
+      error(group.getMessage());
+    } else {
+      warning(group.getMessage());
+    }
+  }
+
+  /**
+   * Names the configuration being rendered in flight recorder events, or null to name the FOP
+   * configuration file.
+   */
+  default String configurationName() {
+    return null;
+  }
+}
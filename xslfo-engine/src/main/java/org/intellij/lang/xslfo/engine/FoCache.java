@@ -0,0 +1,270 @@
+package org.intellij.lang.xslfo.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * On-disk cache of XSLT results, so re-rendering an input whose stylesheet and data did not change
+ * only pays for FOP layout.
+ * <br>
+ * Entries are keyed by stylesheet path, input path and stylesheet parameters, and list every file
+ * the transformation read: the stylesheet and its includes, the input and documents loaded through
+ * document(). An entry is used only while all of them are unchanged; a file whose timestamp moved
+ * is compared by content hash, so a touched but identical file still hits. The result itself is
+ * stored as a deflated {@link SaxEventBuffer}.
+ * <br>
+ * The directory is kept under a byte budget by evicting the least recently used entries. The cache
+ * is safe for concurrent use, also by several processes sharing a directory, because entries are
+ * written to a temporary file and moved into place.
+ */
+public final class FoCache {
+
+  private static final int FORMAT_VERSION = 1;
+  private static final String ENTRY_SUFFIX = ".fo.bin";
+
+  private final Path directory;
+  private final long maxBytes;
+  private final Map<String, ContentHash> contentHashes = new ConcurrentHashMap<>();
+
+  /**
+   * @param maxBytes budget for all entries in {@code directory}; results larger than this are not
+   *                 cached
+   */
+  public FoCache(Path directory, long maxBytes) {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Returns the cached result of transforming {@code xmlPath} with {@code xslPath}, or null if
+   * there is none or a file it was made from has changed since. An unreadable entry is treated as
+   * a miss and removed.
+   */
+  public SaxEventBuffer get(String xslPath, String xmlPath, Map<String, ?> parameters) {
+    Path entry = entryPath(xslPath, xmlPath, parameters);
+    if (!Files.isRegularFile(entry)) {
+      return null;
+    }
+    try {
+      SaxEventBuffer events;
+      try (DataInputStream in = new DataInputStream(
+          new BufferedInputStream(Files.newInputStream(entry)))) {
+        if (in.readInt() != FORMAT_VERSION || !dependenciesUnchanged(in)) {
+          events = null;
+        } else {
+          events = SaxEventBuffer.readFrom(new DataInputStream(
+              new BufferedInputStream(new InflaterInputStream(in))));
+        }
+      }
+      if (events == null) {
+        Files.deleteIfExists(entry);
+        return null;
+      }
+      // The modification time of an entry is its last use, which eviction orders by.
+      Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+      return events;
+    } catch (IOException | RuntimeException exception) {
+      deleteQuietly(entry);
+      return null;
+    }
+  }
+
+  /**
+   * Stores a transformation result.
+   *
+   * @param dependencies every file the transformation read, with its modification time at the
+   *                     moment it was read; nothing is stored if one changed since
+   */
+  public void put(String xslPath, String xmlPath, Map<String, ?> parameters,
+                  Map<File, Long> dependencies, SaxEventBuffer events) throws IOException {
+    List<DependencyState> states = new ArrayList<>(dependencies.size());
+    for (Map.Entry<File, Long> dependency : dependencies.entrySet()) {
+      File file = dependency.getKey();
+      if (!file.isFile() || file.lastModified() != dependency.getValue()) {
+        return;
+      }
+      states.add(new DependencyState(file.getAbsolutePath(), file.length(), file.lastModified(),
+          contentHash(file)));
+    }
+
+    Files.createDirectories(directory);
+    Path entry = entryPath(xslPath, xmlPath, parameters);
+    Path temporary = Files.createTempFile(directory, "entry", ".tmp");
+    try {
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try (OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+        DataOutputStream header = new DataOutputStream(fileOut);
+        header.writeInt(FORMAT_VERSION);
+        header.writeInt(states.size());
+        for (DependencyState state : states) {
+          header.writeUTF(state.path());
+          header.writeLong(state.size());
+          header.writeLong(state.lastModified());
+          header.writeUTF(state.sha256());
+        }
+        header.flush();
+        DataOutputStream body = new DataOutputStream(new BufferedOutputStream(
+            new DeflaterOutputStream(fileOut, deflater)));
+        events.writeTo(body);
+        body.close();
+      } finally {
+        deflater.end();
+      }
+      if (Files.size(temporary) > maxBytes) {
+        return;
+      }
+      try {
+        Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException exception) {
+        Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+    evict();
+  }
+
+  /**
+   * Deletes the least recently used entries until the directory fits the budget.
+   */
+  private void evict() throws IOException {
+    List<Path> entries = new ArrayList<>();
+    Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+    long total = 0;
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+      for (Path entry : stream) {
+        try {
+          BasicFileAttributes entryAttributes =
+              Files.readAttributes(entry, BasicFileAttributes.class);
+          attributes.put(entry, entryAttributes);
+          entries.add(entry);
+          total += entryAttributes.size();
+        } catch (NoSuchFileException ignored) {
+          // Evicted concurrently.
+        }
+      }
+    }
+    if (total <= maxBytes) {
+      return;
+    }
+    entries.sort(Comparator.comparing(entry -> attributes.get(entry).lastModifiedTime()));
+    for (Path entry : entries) {
+      if (total <= maxBytes) {
+        break;
+      }
+      deleteQuietly(entry);
+      total -= attributes.get(entry).size();
+    }
+  }
+
+  private boolean dependenciesUnchanged(DataInputStream in) throws IOException {
+    int count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      File file = new File(in.readUTF());
+      long size = in.readLong();
+      long lastModified = in.readLong();
+      String sha256 = in.readUTF();
+      if (!file.isFile() || file.length() != size) {
+        return false;
+      }
+      if (file.lastModified() != lastModified && !contentHash(file).equals(sha256)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the SHA-256 of a file's content, remembered while its size and timestamp stay the same.
+   */
+  private String contentHash(File file) throws IOException {
+    String path = file.getAbsolutePath();
+    long size = file.length();
+    long lastModified = file.lastModified();
+    ContentHash known = contentHashes.get(path);
+    if (known != null && known.size() == size && known.lastModified() == lastModified) {
+      return known.sha256();
+    }
+    MessageDigest digest = sha256();
+    byte[] block = new byte[64 * 1024];
+    try (InputStream in = Files.newInputStream(file.toPath())) {
+      for (int read = in.read(block); read >= 0; read = in.read(block)) {
+        digest.update(block, 0, read);
+      }
+    }
+    String sha256 = HexFormat.of().formatHex(digest.digest());
+    contentHashes.put(path, new ContentHash(size, lastModified, sha256));
+    return sha256;
+  }
+
+  private Path entryPath(String xslPath, String xmlPath, Map<String, ?> parameters) {
+    MessageDigest digest = sha256();
+    digest.update(new File(xslPath).getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    digest.update(new File(xmlPath).getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+    new TreeMap<>(parameters).forEach((name, value) -> {
+      digest.update((byte) 0);
+      digest.update((name + "=" + value).getBytes(StandardCharsets.UTF_8));
+    });
+    return directory.resolve(HexFormat.of().formatHex(digest.digest()) + ENTRY_SUFFIX);
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException exception) {
+      throw new IllegalStateException("SHA-256 is not available", exception);
+    }
+  }
+
+  private static void deleteQuietly(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException ignored) {
+      // Another process may hold it open; it is retried on the next miss or eviction.
+    }
+  }
+
+  private record DependencyState(String path, long size, long lastModified, String sha256) {
+  }
+
+  private record ContentHash(long size, long lastModified, String sha256) {
+  }
+}
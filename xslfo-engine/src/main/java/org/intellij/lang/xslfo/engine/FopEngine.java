@@ -0,0 +1,559 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopConfParser;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.FopFactoryBuilder;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.ErrorListener;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stream.StreamSource;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The XSLT to FOP rendering pipeline shared by the IDE, the worker JVM and the command line.
+ * <br>
+ * An engine owns one warm {@link FopFactory} built from a FOP configuration file and a cache of
+ * compiled stylesheets that is invalidated when the stylesheet or anything it includes changes.
+ * Both are safe for concurrent use; user agents and {@link Fop} instances are created per render.
+ * An optional {@link FoCache} lets unchanged inputs skip the XSLT stage altogether. Decoded images
+ * of local files and hyphenation trees are shared with all other engines through
+ * {@link SharedImageCache} and {@link SharedHyphenationTreeCache}. These rely on FOP 2.11
+ * internals; {@link #forInstallation} makes an engine without them for other FOP versions.
+ * <br>
+ * Only FOP and JAXP APIs are used here; the class must not touch IntelliJ classes.
+ */
+public final class FopEngine {
+
+  private static final String FONT_CACHE_FILE = "fop-fonts.cache";
+  private static final String HYPHENATION_DIRECTORY = "hyphenation";
+
+  private final FopFactory fopFactory;
+  private final String configPath;
+  private final boolean publicApiOnly;
+  private final Map<String, CompiledStylesheet> stylesheets = new ConcurrentHashMap<>();
+  private volatile FoCache foCache;
+
+  /**
+   * @param configPath FOP user configuration file, or null for FOP defaults
+   */
+  public FopEngine(String configPath) throws IOException, SAXException {
+    this(configPath, null);
+  }
+
+  /**
+   * Fonts named in the configuration are parsed lazily, on the first use of one of their
+   * triplets, and stay parsed for the lifetime of the engine. With a cache directory, FOP's font
+   * cache and compiled hyphenation patterns are kept there, so other processes skip parsing
+   * unchanged font and pattern files again.
+   *
+   * @param configPath     FOP user configuration file, or null for FOP defaults
+   * @param cacheDirectory directory for persistent caches, or null for FOP's default font cache
+   *                       and hyphenation trees shared in memory only; a font cache file named by
+   *                       the configuration takes precedence
+   */
+  public FopEngine(String configPath, Path cacheDirectory) throws IOException, SAXException {
+    boolean hasConfig = configPath != null && !configPath.isBlank();
+    this.configPath = hasConfig ? configPath : "";
+    this.publicApiOnly = false;
+    if (hasConfig) {
+      fopFactory = new FopConfParser(new File(configPath)).getFopFactoryBuilder().build();
+    } else {
+      fopFactory = new FopFactoryBuilder(new File(".").toURI()).build();
+    }
+    // Where FOP does not allow these, the factory keeps its own caches.
+    try {
+      if (cacheDirectory != null && !(hasConfig && namesFontCacheFile(configPath))) {
+        Files.createDirectories(cacheDirectory);
+        fopFactory.getFontManager().setCacheFile(cacheDirectory.resolve(FONT_CACHE_FILE).toUri());
+      }
+      SharedHyphenationTreeCache.install(fopFactory,
+          fopFactory.getHyphenationResourceResolver().getBaseURI(),
+          cacheDirectory != null ? cacheDirectory.resolve(HYPHENATION_DIRECTORY) : null);
+      SharedImageCache.install(fopFactory.getImageManager(),
+          fopFactory.newFOUserAgent().getResourceResolver().getBaseURI());
+    } catch (LinkageError incompatibleFop) {
+      // Another FOP version on the classpath; it renders with its own caches.
+    }
+  }
+
+  /**
+   * Returns whether the FOP configuration sets its own font cache file with a {@code cache-file}
+   * element below the root, the only place FOP reads it from.
+   */
+  private static boolean namesFontCacheFile(String configPath) throws IOException, SAXException {
+    boolean[] found = new boolean[1];
+    DefaultHandler handler = new DefaultHandler() {
+      private int depth;
+
+      @Override
+      public void startElement(String uri, String localName, String qName, Attributes atts) {
+        if (++depth == 2 && "cache-file".equals(localName)) {
+          found[0] = true;
+        }
+      }
+
+      @Override
+      public void endElement(String uri, String localName, String qName) {
+        depth--;
+      }
+    };
+    try {
+      SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+      parserFactory.setNamespaceAware(true);
+      parserFactory.newSAXParser().parse(new File(configPath), handler);
+    } catch (ParserConfigurationException exception) {
+      throw new SAXException("Could not create an XML parser", exception);
+    }
+    return found[0];
+  }
+
+  private FopEngine(FopFactory fopFactory, String configPath) {
+    this.fopFactory = fopFactory;
+    this.configPath = configPath;
+    this.publicApiOnly = true;
+  }
+
+  /**
+   * Creates an engine for a FOP installation other than the bundled one, driving it through the
+   * public {@link FopFactory} and {@link Fop} API only. The factory is built the way FOP's command
+   * line builds it, and neither the shared caches, a font cache file nor the null-safe resource
+   * resolver are installed, so FOP behaves as the installation ships. Stylesheets are still
+   * compiled once and reused, which only needs JAXP.
+   *
+   * @param configPath FOP user configuration file, or null for FOP defaults
+   */
+  public static FopEngine forInstallation(String configPath) throws IOException, SAXException {
+    boolean hasConfig = configPath != null && !configPath.isBlank();
+    FopFactory factory = hasConfig ? FopFactory.newInstance(new File(configPath))
+        : FopFactory.newInstance(new File(".").toURI());
+    return new FopEngine(factory, hasConfig ? configPath : "");
+  }
+
+  public FopFactory getFopFactory() {
+    return fopFactory;
+  }
+
+  /**
+   * Makes {@link #transform} and {@link #transformToBuffer} reuse XSLT results from
+   * {@code foCache} and store new ones there. A cached result is laid out without compiling the
+   * stylesheet, so messages the stylesheet emitted are not repeated for it.
+   *
+   * @param foCache the cache, or null to always transform
+   */
+  public void setFoCache(FoCache foCache) {
+    this.foCache = foCache;
+  }
+
+  /**
+   * Creates a user agent with the null-safe resource resolver installed, except for engines made by
+   * {@link #forInstallation}. Diagnostics, if given,
+   * replace FOP's default logging of events and receive them grouped by a
+   * {@link FopEventAggregator}.
+   */
+  public FOUserAgent newUserAgent(EngineDiagnostics diagnostics) {
+    FOUserAgent userAgent = fopFactory.newFOUserAgent();
+    if (!publicApiOnly) {
+      installNullSafeResourceResolver(userAgent, diagnostics);
+    }
+    if (diagnostics != null) {
+      // Adding a listener prevents FOUserAgent from auto-attaching its LoggingEventListener.
+      userAgent.getEventBroadcaster().addEventListener(new FopEventAggregator(diagnostics));
+    }
+    return userAgent;
+  }
+
+  /**
+   * Renders one input to {@code outFile} with a fresh user agent.
+   */
+  public RenderStats render(String xslPath, String xmlPath, File outFile, String mime,
+                            EngineDiagnostics diagnostics)
+      throws IOException, SAXException, TransformerException {
+    return render(xslPath, xmlPath, outFile, mime, Map.of(), diagnostics);
+  }
+
+  /**
+   * Renders one input to {@code outFile} with a fresh user agent, passing {@code parameters} to
+   * the stylesheet.
+   */
+  public RenderStats render(String xslPath, String xmlPath, File outFile, String mime,
+                            Map<String, ?> parameters, EngineDiagnostics diagnostics)
+      throws IOException, SAXException, TransformerException {
+    FOUserAgent userAgent = newUserAgent(diagnostics);
+    File parent = outFile.getParentFile();
+    if (parent != null) {
+      parent.mkdirs();
+    }
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outFile))) {
+      return transform(xslPath, xmlPath, fopFactory.newFop(mime, userAgent, out), parameters,
+          diagnostics);
+    }
+  }
+
+  /**
+   * Transforms {@code xmlPath} with the (cached) stylesheet and streams the result into
+   * {@code fop}.
+   */
+  public RenderStats transform(String xslPath, String xmlPath, Fop fop,
+                               EngineDiagnostics diagnostics)
+      throws SAXException, TransformerException {
+    return transform(xslPath, xmlPath, fop, Map.of(), diagnostics);
+  }
+
+  /**
+   * Like {@link #transform(String, String, Fop, EngineDiagnostics)}, setting {@code parameters}
+   * as top-level stylesheet parameters.
+   */
+  public RenderStats transform(String xslPath, String xmlPath, Fop fop,
+                               Map<String, ?> parameters, EngineDiagnostics diagnostics)
+      throws SAXException, TransformerException {
+    FoCache cache = foCache;
+    if (cache != null) {
+      long loadStart = System.nanoTime();
+      SaxEventBuffer cached = cache.get(xslPath, xmlPath, parameters);
+      if (cached != null) {
+        return layout(new BufferedFo(xmlPath, cached, 0, System.nanoTime() - loadStart, 1, 0),
+            fop, diagnostics);
+      }
+    }
+
+    String configuration = configurationName(diagnostics);
+    ErrorListener errorListener = createStrictErrorListener(diagnostics);
+    long compileStart = System.nanoTime();
+    CompiledStylesheet stylesheet = cachedStylesheet(xslPath);
+    boolean stylesheetCached = stylesheet != null;
+    if (!stylesheetCached) {
+      stylesheet = compileStylesheet(xslPath, errorListener, configuration, xmlPath);
+    }
+    long compileNanos = System.nanoTime() - compileStart;
+    int cacheMisses = (cache != null ? 1 : 0) + (stylesheetCached ? 0 : 1);
+    Map<File, Long> readFiles = new LinkedHashMap<>(stylesheet.dependencies());
+    Transformer transformer = newTransformer(stylesheet, errorListener, readFiles);
+    parameters.forEach(transformer::setParameter);
+
+    TimingContentHandler foHandler =
+        new TimingContentHandler(RenderEventHandler.wrap(fop, configuration, xmlPath));
+    TeeContentHandler tee = cache != null
+        ? new TeeContentHandler(foHandler, cache.getMaxBytes()) : null;
+    RenderEvents.Transform transformEvent = new RenderEvents.Transform();
+    long transformStart = System.nanoTime();
+    transformEvent.begin();
+    transformer.transform(newXmlSource(xmlPath, readFiles),
+        new SAXResult(tee != null ? tee : foHandler));
+    long transformNanos = System.nanoTime() - transformStart;
+    int pageCount = fop.getResults() != null ? fop.getResults().getPageCount() : -1;
+    commitTransformEvent(transformEvent, configuration, xmlPath, xslPath, pageCount);
+    if (tee != null && tee.getRecording() != null) {
+      storeInCache(cache, xslPath, xmlPath, parameters, readFiles, tee.getRecording(),
+          diagnostics);
+    }
+    return new RenderStats(pageCount, compileNanos,
+        transformNanos - foHandler.getDelegateNanos(), foHandler.getTreeNanos(),
+        foHandler.getLayoutNanos(), foHandler.getOutputNanos(), stylesheetCached ? 1 : 0,
+        cacheMisses);
+  }
+
+  /**
+   * Runs only the XSLT stage: transforms {@code xmlPath} with the (cached) stylesheet into an
+   * in-memory event buffer that {@link #layout(BufferedFo, Fop)} can lay out later, on any thread.
+   */
+  public BufferedFo transformToBuffer(String xslPath, String xmlPath,
+                                      EngineDiagnostics diagnostics) throws TransformerException {
+    FoCache cache = foCache;
+    if (cache != null) {
+      long loadStart = System.nanoTime();
+      SaxEventBuffer cached = cache.get(xslPath, xmlPath, Map.of());
+      if (cached != null) {
+        return new BufferedFo(xmlPath, cached, 0, System.nanoTime() - loadStart, 1, 0);
+      }
+    }
+
+    String configuration = configurationName(diagnostics);
+    ErrorListener errorListener = createStrictErrorListener(diagnostics);
+    long compileStart = System.nanoTime();
+    CompiledStylesheet stylesheet = cachedStylesheet(xslPath);
+    boolean stylesheetCached = stylesheet != null;
+    if (!stylesheetCached) {
+      stylesheet = compileStylesheet(xslPath, errorListener, configuration, xmlPath);
+    }
+    long compileNanos = System.nanoTime() - compileStart;
+    int cacheMisses = (cache != null ? 1 : 0) + (stylesheetCached ? 0 : 1);
+    Map<File, Long> readFiles = new LinkedHashMap<>(stylesheet.dependencies());
+    Transformer transformer = newTransformer(stylesheet, errorListener, readFiles);
+
+    SaxEventBuffer events = new SaxEventBuffer();
+    RenderEvents.Transform transformEvent = new RenderEvents.Transform();
+    long transformStart = System.nanoTime();
+    transformEvent.begin();
+    transformer.transform(newXmlSource(xmlPath, readFiles), new SAXResult(events));
+    long transformNanos = System.nanoTime() - transformStart;
+    commitTransformEvent(transformEvent, configuration, xmlPath, xslPath, -1);
+    if (cache != null) {
+      storeInCache(cache, xslPath, xmlPath, Map.of(), readFiles, events, diagnostics);
+    }
+    return new BufferedFo(xmlPath, events, compileNanos, transformNanos,
+        stylesheetCached ? 1 : 0, cacheMisses);
+  }
+
+  /**
+   * Runs only the FO stage: replays a buffered transformation result into {@code fop}.
+   */
+  public RenderStats layout(BufferedFo fo, Fop fop) throws SAXException {
+    return layout(fo, fop, null);
+  }
+
+  /**
+   * Like {@link #layout(BufferedFo, Fop)}; {@code diagnostics} only name the configuration in
+   * flight recorder events.
+   */
+  public RenderStats layout(BufferedFo fo, Fop fop, EngineDiagnostics diagnostics)
+      throws SAXException {
+    TimingContentHandler foHandler = new TimingContentHandler(
+        RenderEventHandler.wrap(fop, configurationName(diagnostics), fo.xmlPath()));
+    fo.events().replay(foHandler);
+    int pageCount = fop.getResults() != null ? fop.getResults().getPageCount() : -1;
+    return new RenderStats(pageCount, fo.compileNanos(), fo.xsltNanos(), foHandler.getTreeNanos(),
+        foHandler.getLayoutNanos(), foHandler.getOutputNanos(), fo.cacheHits(), fo.cacheMisses());
+  }
+
+  private static Transformer newTransformer(CompiledStylesheet stylesheet,
+                                            ErrorListener errorListener,
+                                            Map<File, Long> readFiles)
+      throws TransformerException {
+    Transformer transformer = stylesheet.templates().newTransformer();
+    transformer.setErrorListener(errorListener);
+    // Documents loaded through document() at run time are inputs of the result, too.
+    transformer.setURIResolver(new RecordingUriResolver(transformer.getURIResolver(), readFiles));
+    return transformer;
+  }
+
+  private static Source newXmlSource(String xmlPath, Map<File, Long> readFiles)
+      throws TransformerException {
+    File xmlFile = new File(xmlPath).getAbsoluteFile();
+    readFiles.put(xmlFile, xmlFile.lastModified());
+    return newRecordingSource(xmlFile.toURI().toString(), readFiles);
+  }
+
+  /**
+   * Returns a source parsing {@code systemId} with a reader that records the local files the parser
+   * itself reads, an external DTD subset and external entities, which do not pass the URIResolver.
+   * Like the transformer's own parser, the reader does not process XInclude.
+   */
+  private static Source newRecordingSource(String systemId, Map<File, Long> dependencies)
+      throws TransformerException {
+    try {
+      SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+      parserFactory.setNamespaceAware(true);
+      XMLReader reader = parserFactory.newSAXParser().getXMLReader();
+      reader.setEntityResolver((publicId, entitySystemId) -> {
+        recordLocalFile(entitySystemId, dependencies);
+        return null;
+      });
+      return new SAXSource(reader, new InputSource(systemId));
+    } catch (ParserConfigurationException | SAXException exception) {
+      throw new TransformerException("Could not create an XML parser", exception);
+    }
+  }
+
+  private static void recordLocalFile(String systemId, Map<File, Long> dependencies) {
+    if (systemId == null) {
+      return;
+    }
+    try {
+      URI uri = URI.create(systemId);
+      if ("file".equalsIgnoreCase(uri.getScheme())) {
+        File file = new File(uri);
+        dependencies.put(file, file.lastModified());
+      }
+    } catch (IllegalArgumentException ignored) {
+      // Not a hierarchical URI; nothing to watch.
+    }
+  }
+
+  private static void storeInCache(FoCache cache, String xslPath, String xmlPath,
+                                   Map<String, ?> parameters, Map<File, Long> readFiles,
+                                   SaxEventBuffer events, EngineDiagnostics diagnostics) {
+    try {
+      cache.put(xslPath, xmlPath, parameters, readFiles, events);
+    } catch (IOException exception) {
+      if (diagnostics != null) {
+        diagnostics.warning("Could not cache the XSLT result: " + exception.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Returns the compiled stylesheet if it is cached and none of its files changed, otherwise null.
+   */
+  private CompiledStylesheet cachedStylesheet(String xslPath) {
+    CompiledStylesheet cached = stylesheets.get(new File(xslPath).getAbsoluteFile().getPath());
+    return cached != null && cached.isUpToDate() ? cached : null;
+  }
+
+  private CompiledStylesheet compileStylesheet(String xslPath, ErrorListener errorListener,
+                                               String configuration, String xmlPath)
+      throws TransformerException {
+    RenderEvents.StylesheetCompile event = new RenderEvents.StylesheetCompile();
+    event.begin();
+    File xslFile = new File(xslPath).getAbsoluteFile();
+    String key = xslFile.getPath();
+    TransformerFactory factory = TransformerFactory.newInstance();
+    factory.setErrorListener(errorListener);
+    Map<File, Long> dependencies = new LinkedHashMap<>();
+    dependencies.put(xslFile, xslFile.lastModified());
+    URIResolver defaultResolver = factory.getURIResolver();
+    factory.setURIResolver(new RecordingUriResolver(defaultResolver, dependencies));
+
+    Source xsltSource = newRecordingSource(xslFile.toURI().toString(), dependencies);
+    CompiledStylesheet compiled =
+        new CompiledStylesheet(factory.newTemplates(xsltSource), Map.copyOf(dependencies));
+    stylesheets.put(key, compiled);
+    if (event.shouldCommit()) {
+      event.configuration = configuration;
+      event.input = xmlPath;
+      event.stylesheet = key;
+      event.commit();
+    }
+    return compiled;
+  }
+
+  private String configurationName(EngineDiagnostics diagnostics) {
+    String name = diagnostics != null ? diagnostics.configurationName() : null;
+    return name != null ? name : configPath;
+  }
+
+  private static void commitTransformEvent(RenderEvents.Transform event, String configuration,
+                                           String xmlPath, String xslPath, int pageCount) {
+    if (event.shouldCommit()) {
+      event.configuration = configuration;
+      event.input = xmlPath;
+      event.stylesheet = xslPath;
+      event.pageCount = pageCount;
+      event.commit();
+    }
+  }
+
+  private static ErrorListener createStrictErrorListener(EngineDiagnostics diagnostics) {
+    return new ErrorListener() {
+      @Override
+      public void warning(TransformerException exception) {
+        if (diagnostics != null && exception != null && exception.getMessage() != null) {
+          diagnostics.warning(exception.getMessage(), SourceLocation.of(exception.getLocator()));
+        }
+      }
+
+      @Override
+      public void error(TransformerException exception) throws TransformerException {
+        if (diagnostics != null && exception != null && exception.getMessage() != null) {
+          diagnostics.error(exception.getMessage(), SourceLocation.of(exception.getLocator()));
+        }
+        throw exception;
+      }
+
+      @Override
+      public void fatalError(TransformerException exception) throws TransformerException {
+        if (diagnostics != null && exception != null && exception.getMessage() != null) {
+          diagnostics.error(exception.getMessage(), SourceLocation.of(exception.getLocator()));
+        }
+        throw exception;
+      }
+    };
+  }
+
+  /**
+   * Applies the null-safe resource resolver. It is looked up reflectively because an engine loaded
+   * next to another FOP version may not be able to link it; that FOP then keeps its own resolver.
+   */
+  private static void installNullSafeResourceResolver(FOUserAgent userAgent,
+                                                      EngineDiagnostics diagnostics) {
+    try {
+      Class<?> wrapper = Class.forName("org.apache.fop.apps.io.NullSafeInternalResourceResolver",
+          true, FopEngine.class.getClassLoader());
+      Field resolverField = FOUserAgent.class.getDeclaredField("resourceResolver");
+      resolverField.setAccessible(true);
+      Object wrapped = wrapper.getMethod("wrap", resolverField.getType())
+          .invoke(null, resolverField.get(userAgent));
+      if (wrapped != null) {
+        resolverField.set(userAgent, wrapped);
+      }
+    } catch (ClassNotFoundException | LinkageError ignored) {
+      // Incompatible FOP version.
+    } catch (Throwable throwable) {
+      if (diagnostics != null) {
+        diagnostics.warning("Could not install null-safe resource resolver: "
+            + throwable.getClass().getSimpleName());
+      }
+    }
+  }
+
+  private record CompiledStylesheet(Templates templates, Map<File, Long> dependencies) {
+    boolean isUpToDate() {
+      for (Map.Entry<File, Long> dependency : dependencies.entrySet()) {
+        if (dependency.getKey().lastModified() != dependency.getValue()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Records every local file pulled in through xsl:include/xsl:import (and document() during
+   * compilation) so a cached stylesheet is dropped when any of them changes. Sources the delegate
+   * leaves to the processor are parsed with a recording reader, so entities they use count, too.
+   */
+  private static final class RecordingUriResolver implements URIResolver {
+    private final URIResolver delegate;
+    private final Map<File, Long> dependencies;
+
+    private RecordingUriResolver(URIResolver delegate, Map<File, Long> dependencies) {
+      this.delegate = delegate;
+      this.dependencies = dependencies;
+    }
+
+    @Override
+    public Source resolve(String href, String base) throws TransformerException {
+      Source source = delegate != null ? delegate.resolve(href, base) : null;
+      String systemId = source != null ? source.getSystemId() : null;
+      URI resolved;
+      try {
+        resolved = systemId != null ? URI.create(systemId)
+            : base != null ? URI.create(base).resolve(href) : URI.create(href);
+      } catch (IllegalArgumentException notHierarchical) {
+        return source;
+      }
+      recordLocalFile(resolved.toString(), dependencies);
+      if (source == null || source instanceof StreamSource stream
+          && stream.getInputStream() == null && stream.getReader() == null) {
+        return newRecordingSource(resolved.toString(), dependencies);
+      }
+      return source;
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.fop.events.Event;
+import org.apache.fop.events.EventListener;
+import org.apache.fop.events.model.EventSeverity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * FOP event listener that groups warnings and errors by event ID and key parameters and hands
+ * each new group to {@link EngineDiagnostics#fopEvents}. Later events of a group only update its
+ * count, last location and samples, so a warning repeated tens of thousands of times is neither
+ * formatted nor stored that often.
+ * <br>
+ * Key parameters are those with string, boolean or enum values, such as element or font names;
+ * numbers, locations and FO nodes differ between otherwise equal events and are left out.
+ */
+public final class FopEventAggregator implements EventListener {
+
+  private static final String LOCATION_PARAMETER = "loc";
+
+  private final EngineDiagnostics diagnostics;
+  private final Map<Key, FopEventGroup> groups = new ConcurrentHashMap<>();
+  private final List<FopEventGroup> ordered = Collections.synchronizedList(new ArrayList<>());
+
+  public FopEventAggregator(EngineDiagnostics diagnostics) {
+    this.diagnostics = diagnostics;
+  }
+
+  @Override
+  public void processEvent(Event event) {
+    if (event == null) {
+      return;
+    }
+    EventSeverity severity = event.getSeverity();
+    if (severity != EventSeverity.WARN && severity != EventSeverity.ERROR
+        && severity != EventSeverity.FATAL) {
+      return;
+    }
+    Key key = new Key(event.getEventID(), keyParameters(event));
+    FopEventGroup group = groups.get(key);
+    if (group != null) {
+      group.add(event);
+      return;
+    }
+    FopEventGroup created = new FopEventGroup(key.eventId(), key.parameters(), event);
+    group = groups.putIfAbsent(key, created);
+    if (group != null) {
+      group.add(event);
+      return;
+    }
+    ordered.add(created);
+    if (diagnostics != null) {
+      diagnostics.fopEvents(created);
+    }
+  }
+
+  /**
+   * Returns the groups in the order their first event was reported.
+   */
+  public List<FopEventGroup> getGroups() {
+    synchronized (ordered) {
+      return List.copyOf(ordered);
+    }
+  }
+
+  private static Map<String, Object> keyParameters(Event event) {
+    Map<String, Object> parameters = new TreeMap<>();
+    for (Map.Entry<String, Object> parameter : event.getParams().entrySet()) {
+      Object value = parameter.getValue();
+      if (!LOCATION_PARAMETER.equals(parameter.getKey()) && (value instanceof String
+          || value instanceof Boolean || value instanceof Enum<?>)) {
+        parameters.put(parameter.getKey(), value);
+      }
+    }
+    return Collections.unmodifiableMap(parameters);
+  }
+
+  private record Key(String eventId, Map<String, Object> parameters) {
+  }
+}
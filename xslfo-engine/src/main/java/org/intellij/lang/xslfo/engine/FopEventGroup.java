@@ -0,0 +1,150 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.fop.events.Event;
+import org.apache.fop.events.EventFormatter;
+import org.apache.fop.events.model.EventSeverity;
+import org.xml.sax.Locator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FOP events of one kind reported while rendering: the same event ID with the same key
+ * parameters, such as the element name of a repeated table overflow warning. Keeps the number of
+ * events, the locations of the first and last one and a few samples; messages are only formatted
+ * when asked for. Updated from the rendering thread, readable from any thread.
+ */
+public final class FopEventGroup {
+
+  /**
+   * Number of events of a group whose messages are kept for display.
+   */
+  public static final int MAX_SAMPLES = 5;
+
+  private final String eventId;
+  private final Map<String, Object> keyParameters;
+  private final boolean error;
+  private final List<Event> samples = new ArrayList<>(1);
+  private final SourceLocation firstLocation;
+  private SourceLocation lastLocation;
+  private int count;
+  private String message;
+
+  FopEventGroup(String eventId, Map<String, Object> keyParameters, Event first) {
+    this.eventId = eventId;
+    this.keyParameters = keyParameters;
+    EventSeverity severity = first.getSeverity();
+    this.error = severity == EventSeverity.ERROR || severity == EventSeverity.FATAL;
+    this.firstLocation = location(first);
+    this.lastLocation = firstLocation;
+    this.samples.add(first);
+    this.count = 1;
+  }
+
+  synchronized void add(Event event) {
+    count++;
+    SourceLocation location = location(event);
+    if (location != null) {
+      lastLocation = location;
+    }
+    if (samples.size() < MAX_SAMPLES) {
+      samples.add(event);
+    }
+  }
+
+  public String getEventId() {
+    return eventId;
+  }
+
+  /**
+   * Returns the parameters the events of this group share.
+   */
+  public Map<String, Object> getKeyParameters() {
+    return keyParameters;
+  }
+
+  public boolean isError() {
+    return error;
+  }
+
+  public synchronized int getCount() {
+    return count;
+  }
+
+  /**
+   * Returns where the first event was reported, or null if FOP did not say.
+   */
+  public SourceLocation getFirstLocation() {
+    return firstLocation;
+  }
+
+  /**
+   * Returns where the last event with a location was reported, or null if none had one.
+   */
+  public synchronized SourceLocation getLastLocation() {
+    return lastLocation;
+  }
+
+  /**
+   * Returns the formatted message of the first event.
+   */
+  public synchronized String getMessage() {
+    if (message == null) {
+      message = format(samples.get(0));
+    }
+    return message;
+  }
+
+  /**
+   * Returns the formatted messages of up to {@link #MAX_SAMPLES} events, first event first.
+   */
+  public List<String> getSampleMessages() {
+    List<Event> events;
+    synchronized (this) {
+      events = List.copyOf(samples);
+    }
+    List<String> messages = new ArrayList<>(events.size());
+    for (Event event : events) {
+      messages.add(format(event));
+    }
+    return messages;
+  }
+
+  /**
+   * Describes how often the event was repeated and where, e.g.
+   * {@code "80000 times, first at line 12:5, last at line 9001:3"}, or returns null for a single
+   * event.
+   */
+  public synchronized String describeRepetition() {
+    return describeRepetition(count, firstLocation != null ? firstLocation.toString() : null,
+        lastLocation != null ? lastLocation.toString() : null);
+  }
+
+  /**
+   * Describes a repetition like {@link #describeRepetition()} from a group's figures passed
+   * across a process or class loader boundary; locations are null if unknown.
+   */
+  public static String describeRepetition(int count, String firstLocation, String lastLocation) {
+    if (count <= 1) {
+      return null;
+    }
+    StringBuilder description = new StringBuilder().append(count).append(" times");
+    if (firstLocation != null) {
+      description.append(", first at ").append(firstLocation);
+    }
+    if (lastLocation != null && !lastLocation.equals(firstLocation)) {
+      description.append(", last at ").append(lastLocation);
+    }
+    return description.toString();
+  }
+
+  private static SourceLocation location(Event event) {
+    return event.getParam("loc") instanceof Locator locator ? SourceLocation.of(locator) : null;
+  }
+
+  private static String format(Event event) {
+    String formatted = EventFormatter.format(event);
+    return formatted != null && !formatted.isBlank() ? formatted.trim() : event.getEventID();
+  }
+}
@@ -0,0 +1,132 @@
+package org.intellij.lang.xslfo.engine;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link FopEngine} behind an API that uses JDK types only, so it can be driven across class
+ * loader boundaries: by {@link FopWorkerMain} in a worker JVM, or reflectively when an external
+ * FOP installation is loaded into an isolated class loader inside the IDE. It is safe for
+ * concurrent renders.
+ * <br>
+ * An external installation is driven through FOP's public API only (see
+ * {@link FopEngine#forInstallation}), which FOP 2.0 and later provide; older versions fail with a
+ * message pointing to the external binary mode. The engine's shared caches are only used with the
+ * bundled FOP.
+ */
+public final class FopJobRunner implements AutoCloseable {
+
+  /**
+   * Diagnostic kinds passed to the {@code diagnostics} callback.
+   */
+  public static final String WARN = FopWorkerProtocol.WARN;
+  public static final String ERROR = FopWorkerProtocol.ERROR;
+  /**
+   * Kind of the summary of a repeated FOP warning or error, passed once the render ended. Its
+   * message holds {@link FopWorkerProtocol#encode encoded} fields: {@link #WARN} or
+   * {@link #ERROR}, count, first and last location (empty if unknown), message of the first
+   * event.
+   */
+  public static final String REPEATED = FopWorkerProtocol.REPEATED;
+
+  private static final String SUPPORTED_VERSIONS = "FOP 2.0 or later";
+
+  private volatile FopEngine engine;
+
+  /**
+   * Creates a runner for an external FOP installation.
+   *
+   * @param configPath FOP user configuration file, or null for FOP defaults
+   */
+  public FopJobRunner(String configPath) throws Exception {
+    this(configPath, false);
+  }
+
+  /**
+   * @param configPath FOP user configuration file, or null for FOP defaults
+   * @param bundledFop true when the classpath holds the FOP the plugin bundles, which enables the
+   *                   engine's shared caches
+   */
+  public FopJobRunner(String configPath, boolean bundledFop) throws Exception {
+    try {
+      engine = bundledFop ? new FopEngine(configPath) : FopEngine.forInstallation(configPath);
+    } catch (LinkageError error) {
+      throw unsupported(error);
+    }
+  }
+
+  /**
+   * Renders one input.
+   *
+   * @param diagnostics receives ({@link #WARN} or {@link #ERROR}, message) pairs, each FOP
+   *                    warning or error once, and a {@link #REPEATED} summary for those repeated
+   * @return page count (-1 if unknown), stylesheet compile nanos, render nanos
+   */
+  public long[] render(String xslPath, String xmlPath, String outputPath, String mime,
+                       BiConsumer<String, String> diagnostics) throws Exception {
+    FopEngine current = engine;
+    if (current == null) {
+      throw new IllegalStateException("The FOP job runner has been closed");
+    }
+    List<FopEventGroup> eventGroups = Collections.synchronizedList(new ArrayList<>());
+    RenderStats stats;
+    try {
+      stats = current.render(xslPath, xmlPath, new File(outputPath), mime,
+          new EngineDiagnostics() {
+            @Override
+            public void warning(String message) {
+              diagnostics.accept(WARN, message);
+            }
+
+            @Override
+            public void error(String message) {
+              diagnostics.accept(ERROR, message);
+            }
+
+            @Override
+            public void fopEvents(FopEventGroup group) {
+              eventGroups.add(group);
+              EngineDiagnostics.super.fopEvents(group);
+            }
+          });
+    } catch (LinkageError error) {
+      throw unsupported(error);
+    } finally {
+      reportRepeatedEvents(eventGroups, diagnostics);
+    }
+    return new long[]{stats.pageCount(), stats.compileNanos(), stats.renderNanos()};
+  }
+
+  /**
+   * Releases the engine with its warm {@link org.apache.fop.apps.FopFactory} and compiled
+   * stylesheets. Renders already running finish; later ones fail.
+   */
+  @Override
+  public void close() {
+    engine = null;
+  }
+
+  private static void reportRepeatedEvents(List<FopEventGroup> eventGroups,
+                                           BiConsumer<String, String> diagnostics) {
+    synchronized (eventGroups) {
+      for (FopEventGroup group : eventGroups) {
+        if (group.getCount() > 1) {
+          SourceLocation first = group.getFirstLocation();
+          SourceLocation last = group.getLastLocation();
+          diagnostics.accept(REPEATED, FopWorkerProtocol.encode(group.isError() ? ERROR : WARN,
+              Integer.toString(group.getCount()), first != null ? first.toString() : null,
+              last != null ? last.toString() : null, group.getMessage()));
+        }
+      }
+    }
+  }
+
+  private static Exception unsupported(LinkageError error) {
+    return new UnsupportedOperationException("This FOP version cannot be run by the worker or "
+        + "in-process; these modes need " + SUPPORTED_VERSIONS + ". Use the external FOP binary "
+        + "instead (" + error + ")", error);
+  }
+}
@@ -0,0 +1,111 @@
+package org.intellij.lang.xslfo.engine;
+
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry point of the long-lived FOP worker JVM.
+ * <br>
+ * Runs on the classpath of a FOP installation, reads {@link FopWorkerProtocol} requests from stdin
+ * and answers on stdout. Rendering is delegated to one {@link FopJobRunner} per process, so
+ * repeated renders skip JVM startup, class loading, FopFactory setup and stylesheet compilation.
+ * <br>
+ * Only FOP and JAXP APIs are used here; the class must not touch IntelliJ classes.
+ */
+public final class FopWorkerMain {
+
+  public static final String BUNDLED_OPTION = "--bundled";
+
+  private final PrintStream protocolOut;
+  private final FopJobRunner jobRunner;
+
+  private FopWorkerMain(PrintStream protocolOut, FopJobRunner jobRunner) {
+    this.protocolOut = protocolOut;
+    this.jobRunner = jobRunner;
+  }
+
+  /**
+   * Usage: {@code FopWorkerMain [--bundled] [fop-config-file]}, where {@code --bundled} says the
+   * classpath holds the FOP the plugin bundles rather than an external installation.
+   */
+  public static void main(String[] args) throws Exception {
+    PrintStream protocolOut = new PrintStream(new FileOutputStream(FileDescriptor.out), true,
+        StandardCharsets.UTF_8);
+    // Keep stray library output away from the protocol channel.
+    System.setOut(System.err);
+
+    boolean bundledFop = args.length > 0 && BUNDLED_OPTION.equals(args[0]);
+    int configIndex = bundledFop ? 1 : 0;
+    String configPath = args.length > configIndex && !args[configIndex].isBlank()
+        ? args[configIndex] : null;
+    FopWorkerMain worker =
+        new FopWorkerMain(protocolOut, new FopJobRunner(configPath, bundledFop));
+    protocolOut.println(FopWorkerProtocol.READY);
+
+    BufferedReader in = new BufferedReader(new InputStreamReader(System.in,
+        StandardCharsets.UTF_8));
+    String line;
+    while ((line = in.readLine()) != null) {
+      if (line.isEmpty()) {
+        continue;
+      }
+      List<String> fields = FopWorkerProtocol.decode(line);
+      String command = fields.get(0);
+      if (FopWorkerProtocol.SHUTDOWN.equals(command)) {
+        break;
+      }
+      if (FopWorkerProtocol.RENDER.equals(command) && fields.size() >= 6) {
+        worker.render(fields.get(1), fields.get(2), fields.get(3), fields.get(4), fields.get(5));
+      } else {
+        String jobId = fields.size() > 1 ? fields.get(1) : "";
+        worker.send(FopWorkerProtocol.FAIL, jobId, "Unsupported worker request: " + command);
+      }
+    }
+  }
+
+  private void render(String jobId, String xslPath, String xmlPath, String outputPath,
+                      String mime) {
+    try {
+      long[] result = jobRunner.render(xslPath, xmlPath, outputPath, mime,
+          (kind, message) -> sendDiagnostic(jobId, kind, message));
+      send(FopWorkerProtocol.DONE, jobId, Long.toString(result[0]), Long.toString(result[1]),
+          Long.toString(result[2]));
+    } catch (Throwable t) {
+      send(FopWorkerProtocol.FAIL, jobId, describe(t));
+    }
+  }
+
+  /**
+   * Sends a diagnostic of the job runner; the fields of a repetition summary are sent as fields
+   * of the message rather than encoded twice.
+   */
+  private void sendDiagnostic(String jobId, String kind, String message) {
+    if (!FopWorkerProtocol.REPEATED.equals(kind)) {
+      send(kind, jobId, message);
+      return;
+    }
+    List<String> fields = new ArrayList<>(List.of(kind, jobId));
+    fields.addAll(FopWorkerProtocol.decode(message));
+    send(fields.toArray(new String[0]));
+  }
+
+  private synchronized void send(String... fields) {
+    protocolOut.println(FopWorkerProtocol.encode(fields));
+  }
+
+  private static String describe(Throwable throwable) {
+    for (Throwable current = throwable; current != null; current = current.getCause()) {
+      String message = current.getMessage();
+      if (message != null && !message.isBlank()) {
+        return message;
+      }
+    }
+    return throwable.getClass().getName();
+  }
+}
@@ -0,0 +1,87 @@
+package org.intellij.lang.xslfo.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Line protocol spoken between the IDE and a {@link FopWorkerMain} process over stdin/stdout.
+ * <br>
+ * Every message is one line of tab-separated fields; backslashes, tabs and line breaks inside a
+ * field are escaped so that arbitrary paths and diagnostics survive the round trip.
+ * <ul>
+ *   <li>worker: {@code READY}</li>
+ *   <li>IDE: {@code RENDER jobId xsl xml output mime}</li>
+ *   <li>worker: {@code WARN jobId message} / {@code ERROR jobId message}</li>
+ *   <li>worker, once the render ended, for each FOP warning or error that was repeated:
+ *   {@code REPEATED jobId WARN|ERROR count firstLocation lastLocation message}, with empty
+ *   locations if unknown</li>
+ *   <li>worker: {@code DONE jobId pageCount compileNanos renderNanos} or
+ *   {@code FAIL jobId message}</li>
+ *   <li>IDE: {@code SHUTDOWN}</li>
+ * </ul>
+ */
+public final class FopWorkerProtocol {
+
+  public static final String READY = "READY";
+  public static final String RENDER = "RENDER";
+  public static final String SHUTDOWN = "SHUTDOWN";
+  public static final String WARN = "WARN";
+  public static final String ERROR = "ERROR";
+  public static final String REPEATED = "REPEATED";
+  public static final String DONE = "DONE";
+  public static final String FAIL = "FAIL";
+
+  private FopWorkerProtocol() {
+  }
+
+  public static String encode(String... fields) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < fields.length; i++) {
+      if (i > 0) {
+        sb.append('\t');
+      }
+      escape(fields[i], sb);
+    }
+    return sb.toString();
+  }
+
+  public static List<String> decode(String line) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder current = new StringBuilder();
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c == '\t') {
+        fields.add(current.toString());
+        current.setLength(0);
+      } else if (c == '\\' && i + 1 < line.length()) {
+        char next = line.charAt(++i);
+        switch (next) {
+          case 't' -> current.append('\t');
+          case 'n' -> current.append('\n');
+          case 'r' -> current.append('\r');
+          default -> current.append(next);
+        }
+      } else {
+        current.append(c);
+      }
+    }
+    fields.add(current.toString());
+    return fields;
+  }
+
+  private static void escape(String value, StringBuilder sb) {
+    if (value == null) {
+      return;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\' -> sb.append("\\\\");
+        case '\t' -> sb.append("\\t");
+        case '\n' -> sb.append("\\n");
+        case '\r' -> sb.append("\\r");
+        default -> sb.append(c);
+      }
+    }
+  }
+}
@@ -0,0 +1,217 @@
+package org.intellij.lang.xslfo.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Watches a directory and renders every XML file that appears or changes in it, until closed.
+ * <br>
+ * All renders share one {@link FopEngine}, so FOP setup and stylesheet compilation happen once.
+ * At most {@code parallelism} files render at a time and as many more may wait; when that backlog
+ * is full the watcher stops taking events, which the OS buffers (an overflow triggers a rescan of
+ * the directory). A file already waiting is not queued twice, and a file is only rendered once its
+ * size and modification time stopped changing, so inputs still being written are not picked up
+ * half-way. A file that changes while it renders is rendered once more after that render ends,
+ * never concurrently, so two renders do not write the same output.
+ */
+public final class HotFolderRenderer implements Closeable {
+
+  private static final long SETTLE_MILLIS = 200;
+
+  private enum FileState { QUEUED, RENDERING, RENDER_AGAIN }
+
+  private final BatchRenderer renderer;
+  private final String xslPath;
+  private final Path inputDir;
+  private final Path outputDir;
+  private final String mime;
+  private final String extension;
+  private final BatchRenderer.Listener listener;
+  private final ExecutorService pool;
+  private final Semaphore backlog;
+  private final Map<Path, FileState> states = new ConcurrentHashMap<>();
+  private volatile WatchService watchService;
+  private volatile boolean closed;
+
+  /**
+   * @param parallelism maximum number of concurrent renders; values below 1 mean one per core
+   */
+  public HotFolderRenderer(FopEngine engine, String xslPath, Path inputDir, Path outputDir,
+                           String mime, String extension, int parallelism,
+                           BatchRenderer.Listener listener) {
+    int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    this.renderer = new BatchRenderer(engine, threads);
+    this.xslPath = xslPath;
+    this.inputDir = inputDir.toAbsolutePath().normalize();
+    this.outputDir = outputDir;
+    this.mime = mime;
+    this.extension = extension;
+    this.listener = listener;
+    this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "xslfo-hot-folder");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.backlog = new Semaphore(threads * 2);
+  }
+
+  /**
+   * Renders the XML files already present, then every new or changed one. Blocks until
+   * {@link #close()} is called, the thread is interrupted or the directory disappears.
+   */
+  public void run() throws IOException, InterruptedException {
+    try (WatchService service = inputDir.getFileSystem().newWatchService()) {
+      watchService = service;
+      inputDir.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY);
+      if (closed) {
+        return;
+      }
+      scan();
+      while (!closed) {
+        WatchKey key;
+        try {
+          key = service.take();
+        } catch (ClosedWatchServiceException closedWatchServiceException) {
+          return;
+        }
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            scan();
+          } else if (event.context() instanceof Path name) {
+            submit(inputDir.resolve(name));
+          }
+        }
+        if (!key.reset()) {
+          return;
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Stops watching; renders in progress are interrupted.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    pool.shutdownNow();
+    WatchService service = watchService;
+    if (service != null) {
+      try {
+        service.close();
+      } catch (IOException ignored) {
+        // Nothing left to release.
+      }
+    }
+  }
+
+  private void scan() throws IOException, InterruptedException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(inputDir)) {
+      for (Path file : files) {
+        submit(file);
+      }
+    }
+  }
+
+  private void submit(Path file) throws InterruptedException {
+    if (closed || !isXmlFile(file)) {
+      return;
+    }
+    boolean[] schedule = new boolean[1];
+    states.compute(file, (path, state) -> {
+      if (state == null) {
+        schedule[0] = true;
+        return FileState.QUEUED;
+      }
+      return state == FileState.RENDERING ? FileState.RENDER_AGAIN : state;
+    });
+    if (!schedule[0]) {
+      return;
+    }
+    backlog.acquire();
+    try {
+      pool.execute(() -> {
+        try {
+          render(file);
+        } finally {
+          backlog.release();
+        }
+      });
+    } catch (RejectedExecutionException rejectedExecutionException) {
+      backlog.release();
+      states.remove(file);
+    }
+  }
+
+  private void render(Path file) {
+    String fileName = file.getFileName().toString();
+    String baseName = fileName.substring(0, fileName.lastIndexOf('.'));
+    BatchRenderer.Job job = new BatchRenderer.Job(file, outputDir.resolve(baseName + extension));
+    boolean again = true;
+    try {
+      while (again) {
+        if (!awaitStable(file)) {
+          return;
+        }
+        // Changes arriving from now on need another render, which runs after this one.
+        states.put(file, FileState.RENDERING);
+        renderer.renderJob(xslPath, job, mime, listener);
+        again = states.compute(file, (path, state) ->
+            state == FileState.RENDER_AGAIN ? FileState.QUEUED : null) != null;
+      }
+    } catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+    } finally {
+      if (again) {
+        states.remove(file);
+      }
+    }
+  }
+
+  /**
+   * Waits until the file's size and modification time stop changing. Returns false if the file
+   * disappeared or watching was stopped.
+   */
+  private boolean awaitStable(Path file) throws InterruptedException {
+    String previous = null;
+    while (!closed) {
+      String current;
+      try {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        current = attributes.size() + "@" + attributes.lastModifiedTime().toMillis();
+      } catch (IOException ioException) {
+        return false;
+      }
+      if (current.equals(previous)) {
+        return true;
+      }
+      previous = current;
+      Thread.sleep(SETTLE_MILLIS);
+    }
+    return false;
+  }
+
+  private static boolean isXmlFile(Path file) {
+    return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".xml")
+        && Files.isRegularFile(file);
+  }
+}
@@ -0,0 +1,149 @@
+package org.intellij.lang.xslfo.engine;
+
+import jdk.jfr.EventType;
+import org.apache.fop.apps.FormattingResults;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.PageSequenceResults;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+
+import java.util.List;
+
+/**
+ * ContentHandler wrapper around FOP's handler that emits a
+ * {@link RenderEvents.PageSequenceLayout} event per page sequence and a
+ * {@link RenderEvents.OutputSerialization} event for the end of the document.
+ * <br>
+ * FOP builds the FO tree of a page sequence as its events arrive and lays it out when the
+ * sequence ends, so an event spans from the start tag of the sequence to the return of its end tag.
+ */
+final class RenderEventHandler implements ContentHandler {
+
+  private static final String FO_NAMESPACE = "http://www.w3.org/1999/XSL/Format";
+  private static final String PAGE_SEQUENCE = "page-sequence";
+
+  private final ContentHandler delegate;
+  private final Fop fop;
+  private final String configuration;
+  private final String input;
+  private RenderEvents.PageSequenceLayout sequenceEvent;
+  private int sequenceCount;
+
+  private RenderEventHandler(ContentHandler delegate, Fop fop, String configuration,
+                             String input) {
+    this.delegate = delegate;
+    this.fop = fop;
+    this.configuration = configuration;
+    this.input = input;
+  }
+
+  /**
+   * Returns a handler emitting render events into {@code fop}'s handler, or that handler itself
+   * when no recording asks for them.
+   */
+  static ContentHandler wrap(Fop fop, String configuration, String input) throws SAXException {
+    ContentHandler handler = fop.getDefaultHandler();
+    if (!EventType.getEventType(RenderEvents.PageSequenceLayout.class).isEnabled()
+        && !EventType.getEventType(RenderEvents.OutputSerialization.class).isEnabled()) {
+      return handler;
+    }
+    return new RenderEventHandler(handler, fop, configuration, input);
+  }
+
+  @Override
+  public void startElement(String uri, String localName, String qName, Attributes atts)
+      throws SAXException {
+    if (isPageSequence(uri, localName)) {
+      sequenceCount++;
+      sequenceEvent = new RenderEvents.PageSequenceLayout();
+      sequenceEvent.begin();
+    }
+    delegate.startElement(uri, localName, qName, atts);
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String qName) throws SAXException {
+    delegate.endElement(uri, localName, qName);
+    RenderEvents.PageSequenceLayout event = sequenceEvent;
+    if (event != null && isPageSequence(uri, localName)) {
+      sequenceEvent = null;
+      if (event.shouldCommit()) {
+        event.configuration = configuration;
+        event.input = input;
+        event.sequence = sequenceCount;
+        event.pageCount = lastSequencePageCount();
+        event.commit();
+      }
+    }
+  }
+
+  @Override
+  public void endDocument() throws SAXException {
+    RenderEvents.OutputSerialization event = new RenderEvents.OutputSerialization();
+    event.begin();
+    delegate.endDocument();
+    if (event.shouldCommit()) {
+      event.configuration = configuration;
+      event.input = input;
+      FormattingResults results = fop.getResults();
+      event.pageCount = results != null ? results.getPageCount() : -1;
+      event.commit();
+    }
+  }
+
+  private int lastSequencePageCount() {
+    FormattingResults results = fop.getResults();
+    List<?> sequences = results != null ? results.getPageSequences() : null;
+    if (sequences == null || sequences.size() != sequenceCount) {
+      return -1;
+    }
+    return sequences.get(sequenceCount - 1) instanceof PageSequenceResults sequence
+        ? sequence.getPageCount() : -1;
+  }
+
+  private static boolean isPageSequence(String uri, String localName) {
+    return FO_NAMESPACE.equals(uri) && PAGE_SEQUENCE.equals(localName);
+  }
+
+  @Override
+  public void setDocumentLocator(Locator locator) {
+    delegate.setDocumentLocator(locator);
+  }
+
+  @Override
+  public void startDocument() throws SAXException {
+    delegate.startDocument();
+  }
+
+  @Override
+  public void startPrefixMapping(String prefix, String uri) throws SAXException {
+    delegate.startPrefixMapping(prefix, uri);
+  }
+
+  @Override
+  public void endPrefixMapping(String prefix) throws SAXException {
+    delegate.endPrefixMapping(prefix);
+  }
+
+  @Override
+  public void characters(char[] ch, int start, int length) throws SAXException {
+    delegate.characters(ch, start, length);
+  }
+
+  @Override
+  public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+    delegate.ignorableWhitespace(ch, start, length);
+  }
+
+  @Override
+  public void processingInstruction(String target, String data) throws SAXException {
+    delegate.processingInstruction(target, data);
+  }
+
+  @Override
+  public void skippedEntity(String name) throws SAXException {
+    delegate.skippedEntity(name);
+  }
+}
@@ -0,0 +1,137 @@
+package org.intellij.lang.xslfo.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events of the rendering pipeline, listed under "XSL-FO" in a recording of
+ * the IDE or of a batch run, next to the JVM's own GC, allocation and lock events.
+ * <br>
+ * With XSLT streamed into FOP, page sequences are laid out while the transformer runs, so their
+ * events nest inside the transform event of the same thread. {@code configuration} names the run
+ * configuration where the caller supplies one, and the FOP configuration file otherwise. Page
+ * counts are -1 where they are not known.
+ */
+public final class RenderEvents {
+
+  private static final String CATEGORY = "XSL-FO";
+
+  private RenderEvents() {
+  }
+
+  @Name("org.intellij.lang.xslfo.StylesheetCompile")
+  @Label("Stylesheet Compile")
+  @Description("Compiling an XSLT stylesheet that was not cached or changed on disk")
+  @Category({CATEGORY, "Rendering"})
+  @StackTrace(false)
+  public static final class StylesheetCompile extends Event {
+    @Label("Configuration")
+    public String configuration;
+
+    @Label("Input")
+    public String input;
+
+    @Label("Stylesheet")
+    public String stylesheet;
+  }
+
+  @Name("org.intellij.lang.xslfo.Transform")
+  @Label("Transform")
+  @Description("Running the XSLT transformation of one input, including FOP layout when the "
+      + "result is streamed into FOP")
+  @Category({CATEGORY, "Rendering"})
+  @StackTrace(false)
+  public static final class Transform extends Event {
+    @Label("Configuration")
+    public String configuration;
+
+    @Label("Input")
+    public String input;
+
+    @Label("Stylesheet")
+    public String stylesheet;
+
+    @Label("Pages")
+    public int pageCount = -1;
+  }
+
+  @Name("org.intellij.lang.xslfo.PageSequenceLayout")
+  @Label("Page Sequence Layout")
+  @Description("Building the FO tree of one page sequence and laying it out")
+  @Category({CATEGORY, "Rendering"})
+  @StackTrace(false)
+  public static final class PageSequenceLayout extends Event {
+    @Label("Configuration")
+    public String configuration;
+
+    @Label("Input")
+    public String input;
+
+    @Label("Page Sequence")
+    @Description("Position of the page sequence in the document, starting at 1")
+    public int sequence;
+
+    @Label("Pages")
+    public int pageCount = -1;
+  }
+
+  @Name("org.intellij.lang.xslfo.OutputSerialization")
+  @Label("Output Serialization")
+  @Description("Finishing the output document after its last page sequence: embedding fonts "
+      + "and resources and writing the trailer")
+  @Category({CATEGORY, "Rendering"})
+  @StackTrace(false)
+  public static final class OutputSerialization extends Event {
+    @Label("Configuration")
+    public String configuration;
+
+    @Label("Input")
+    public String input;
+
+    @Label("Pages")
+    public int pageCount = -1;
+  }
+
+  @Name("org.intellij.lang.xslfo.PreviewLoad")
+  @Label("Preview Load")
+  @Description("Loading a rendered PDF into the preview")
+  @Category({CATEGORY, "Preview"})
+  @StackTrace(false)
+  public static final class PreviewLoad extends Event {
+    @Label("Configuration")
+    public String configuration;
+
+    @Label("Input")
+    public String input;
+
+    @Label("Pages")
+    public int pageCount = -1;
+  }
+
+  @Name("org.intellij.lang.xslfo.Rasterize")
+  @Label("Rasterize")
+  @Description("Rasterizing one preview page")
+  @Category({CATEGORY, "Preview"})
+  @StackTrace(false)
+  public static final class Rasterize extends Event {
+    @Label("Configuration")
+    public String configuration;
+
+    @Label("Input")
+    public String input;
+
+    @Label("Page")
+    @Description("Index of the rasterized page, starting at 0")
+    public int page;
+
+    @Label("Pages")
+    public int pageCount = -1;
+
+    @Label("DPI")
+    public float dpi;
+  }
+}
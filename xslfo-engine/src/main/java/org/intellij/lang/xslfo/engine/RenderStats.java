@@ -0,0 +1,32 @@
+package org.intellij.lang.xslfo.engine;
+
+/**
+ * Figures recorded by {@link FopEngine} for one rendered input.
+ *
+ * @param pageCount    number of pages produced, or -1 if FOP did not report it
+ * @param compileNanos time spent compiling the stylesheet (close to zero when it was cached)
+ * @param xsltNanos    time the transformer spent producing FO events
+ * @param foTreeNanos  time FOP spent building the FO tree from those events
+ * @param layoutNanos  time FOP spent laying out page sequences and rendering their pages, which
+ *                     it does when a page sequence ends
+ * @param outputNanos  time FOP spent finishing the output document after the last page sequence
+ * @param cacheHits    lookups in the XSLT result and stylesheet caches that were answered
+ * @param cacheMisses  lookups in those caches that had to be computed
+ */
+public record RenderStats(int pageCount, long compileNanos, long xsltNanos, long foTreeNanos,
+                          long layoutNanos, long outputNanos, int cacheHits, int cacheMisses) {
+
+  /**
+   * Returns the time FOP spent in total: FO tree, layout and output.
+   */
+  public long foNanos() {
+    return foTreeNanos + layoutNanos + outputNanos;
+  }
+
+  /**
+   * Returns the time from the start of the transformation to the end of output writing.
+   */
+  public long renderNanos() {
+    return xsltNanos + foNanos();
+  }
+}
@@ -0,0 +1,318 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records SAX content events compactly so they can be replayed later, possibly on another thread.
+ * <br>
+ * Events are stored as ints in one growing array, character data and attribute values in one char
+ * array, and element names, namespace URIs and prefixes once each in a string table, since an FO
+ * document repeats a small vocabulary many times. The buffer is written by one thread and must not
+ * be replayed before recording has finished.
+ */
+public final class SaxEventBuffer implements ContentHandler {
+
+  private static final int START_DOCUMENT = 0;
+  private static final int END_DOCUMENT = 1;
+  private static final int START_PREFIX_MAPPING = 2;
+  private static final int END_PREFIX_MAPPING = 3;
+  private static final int START_ELEMENT = 4;
+  private static final int END_ELEMENT = 5;
+  private static final int CHARACTERS = 6;
+  private static final int IGNORABLE_WHITESPACE = 7;
+  private static final int PROCESSING_INSTRUCTION = 8;
+  private static final int SKIPPED_ENTITY = 9;
+
+  private static final int FORMAT_VERSION = 1;
+  private static final int BLOCK_BYTES = 64 * 1024;
+
+  private int[] events = new int[1024];
+  private int eventLength;
+  private char[] chars = new char[4096];
+  private int charLength;
+  private final List<String> names = new ArrayList<>();
+  private final Map<String, Integer> nameIndex = new HashMap<>();
+
+  /**
+   * Sends the recorded events to {@code handler} in their original order.
+   */
+  public void replay(ContentHandler handler) throws SAXException {
+    AttributesImpl attributes = new AttributesImpl();
+    int i = 0;
+    while (i < eventLength) {
+      switch (events[i++]) {
+        case START_DOCUMENT -> handler.startDocument();
+        case END_DOCUMENT -> handler.endDocument();
+        case START_PREFIX_MAPPING -> {
+          handler.startPrefixMapping(names.get(events[i]), names.get(events[i + 1]));
+          i += 2;
+        }
+        case END_PREFIX_MAPPING -> handler.endPrefixMapping(names.get(events[i++]));
+        case START_ELEMENT -> {
+          String uri = names.get(events[i]);
+          String localName = names.get(events[i + 1]);
+          String qName = names.get(events[i + 2]);
+          int attributeCount = events[i + 3];
+          i += 4;
+          attributes.clear();
+          for (int a = 0; a < attributeCount; a++) {
+            attributes.addAttribute(names.get(events[i]), names.get(events[i + 1]),
+                names.get(events[i + 2]), names.get(events[i + 3]),
+                new String(chars, events[i + 4], events[i + 5]));
+            i += 6;
+          }
+          handler.startElement(uri, localName, qName, attributes);
+        }
+        case END_ELEMENT -> {
+          handler.endElement(names.get(events[i]), names.get(events[i + 1]),
+              names.get(events[i + 2]));
+          i += 3;
+        }
+        case CHARACTERS -> {
+          handler.characters(chars, events[i], events[i + 1]);
+          i += 2;
+        }
+        case IGNORABLE_WHITESPACE -> {
+          handler.ignorableWhitespace(chars, events[i], events[i + 1]);
+          i += 2;
+        }
+        case PROCESSING_INSTRUCTION -> {
+          handler.processingInstruction(names.get(events[i]),
+              new String(chars, events[i + 1], events[i + 2]));
+          i += 3;
+        }
+        case SKIPPED_ENTITY -> handler.skippedEntity(names.get(events[i++]));
+        default -> throw new IllegalStateException("Corrupt event buffer at " + (i - 1));
+      }
+    }
+  }
+
+  /**
+   * Writes the recorded events in a binary form that {@link #readFrom(DataInput)} restores.
+   * Recording must have finished.
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    out.writeInt(FORMAT_VERSION);
+    out.writeInt(names.size());
+    for (String name : names) {
+      out.writeUTF(name);
+    }
+    out.writeInt(eventLength);
+    ByteBuffer block = ByteBuffer.allocate(BLOCK_BYTES);
+    for (int i = 0; i < eventLength; ) {
+      int count = Math.min(eventLength - i, BLOCK_BYTES / 4);
+      block.clear();
+      block.asIntBuffer().put(events, i, count);
+      out.write(block.array(), 0, count * 4);
+      i += count;
+    }
+    out.writeInt(charLength);
+    for (int i = 0; i < charLength; ) {
+      int count = Math.min(charLength - i, BLOCK_BYTES / 2);
+      block.clear();
+      block.asCharBuffer().put(chars, i, count);
+      out.write(block.array(), 0, count * 2);
+      i += count;
+    }
+  }
+
+  /**
+   * Reads events written by {@link #writeTo(DataOutput)}.
+   *
+   * @throws IOException if the data is truncated or was written in another format
+   */
+  public static SaxEventBuffer readFrom(DataInput in) throws IOException {
+    int version = in.readInt();
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unsupported event buffer format " + version);
+    }
+    SaxEventBuffer buffer = new SaxEventBuffer();
+    int nameCount = readLength(in);
+    for (int i = 0; i < nameCount; i++) {
+      buffer.name(in.readUTF());
+    }
+    byte[] block = new byte[BLOCK_BYTES];
+    buffer.eventLength = readLength(in);
+    buffer.events = new int[buffer.eventLength];
+    for (int i = 0; i < buffer.eventLength; ) {
+      int count = Math.min(buffer.eventLength - i, BLOCK_BYTES / 4);
+      in.readFully(block, 0, count * 4);
+      ByteBuffer.wrap(block, 0, count * 4).asIntBuffer().get(buffer.events, i, count);
+      i += count;
+    }
+    buffer.charLength = readLength(in);
+    buffer.chars = new char[buffer.charLength];
+    for (int i = 0; i < buffer.charLength; ) {
+      int count = Math.min(buffer.charLength - i, BLOCK_BYTES / 2);
+      in.readFully(block, 0, count * 2);
+      ByteBuffer.wrap(block, 0, count * 2).asCharBuffer().get(buffer.chars, i, count);
+      i += count;
+    }
+    return buffer;
+  }
+
+  /**
+   * Returns the approximate heap used by the recorded events, in bytes.
+   */
+  public long sizeInBytes() {
+    return 4L * events.length + 2L * chars.length;
+  }
+
+  @Override
+  public void setDocumentLocator(Locator locator) {
+    // Locations refer to the transformation result, which has no file to point to.
+  }
+
+  @Override
+  public void startDocument() {
+    ensureEvents(1);
+    events[eventLength++] = START_DOCUMENT;
+  }
+
+  @Override
+  public void endDocument() {
+    ensureEvents(1);
+    events[eventLength++] = END_DOCUMENT;
+    // The buffer is complete; drop the growth headroom while it waits to be replayed.
+    events = Arrays.copyOf(events, eventLength);
+    chars = Arrays.copyOf(chars, charLength);
+  }
+
+  @Override
+  public void startPrefixMapping(String prefix, String uri) {
+    ensureEvents(3);
+    events[eventLength++] = START_PREFIX_MAPPING;
+    events[eventLength++] = name(prefix);
+    events[eventLength++] = name(uri);
+  }
+
+  @Override
+  public void endPrefixMapping(String prefix) {
+    ensureEvents(2);
+    events[eventLength++] = END_PREFIX_MAPPING;
+    events[eventLength++] = name(prefix);
+  }
+
+  @Override
+  public void startElement(String uri, String localName, String qName, Attributes attributes) {
+    int attributeCount = attributes.getLength();
+    ensureEvents(5 + 6 * attributeCount);
+    events[eventLength++] = START_ELEMENT;
+    events[eventLength++] = name(uri);
+    events[eventLength++] = name(localName);
+    events[eventLength++] = name(qName);
+    events[eventLength++] = attributeCount;
+    for (int a = 0; a < attributeCount; a++) {
+      String value = attributes.getValue(a);
+      events[eventLength++] = name(attributes.getURI(a));
+      events[eventLength++] = name(attributes.getLocalName(a));
+      events[eventLength++] = name(attributes.getQName(a));
+      events[eventLength++] = name(attributes.getType(a));
+      events[eventLength++] = appendChars(value);
+      events[eventLength++] = value.length();
+    }
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String qName) {
+    ensureEvents(4);
+    events[eventLength++] = END_ELEMENT;
+    events[eventLength++] = name(uri);
+    events[eventLength++] = name(localName);
+    events[eventLength++] = name(qName);
+  }
+
+  @Override
+  public void characters(char[] ch, int start, int length) {
+    ensureEvents(3);
+    events[eventLength++] = CHARACTERS;
+    events[eventLength++] = appendChars(ch, start, length);
+    events[eventLength++] = length;
+  }
+
+  @Override
+  public void ignorableWhitespace(char[] ch, int start, int length) {
+    ensureEvents(3);
+    events[eventLength++] = IGNORABLE_WHITESPACE;
+    events[eventLength++] = appendChars(ch, start, length);
+    events[eventLength++] = length;
+  }
+
+  @Override
+  public void processingInstruction(String target, String data) {
+    String text = data != null ? data : "";
+    ensureEvents(4);
+    events[eventLength++] = PROCESSING_INSTRUCTION;
+    events[eventLength++] = name(target);
+    events[eventLength++] = appendChars(text);
+    events[eventLength++] = text.length();
+  }
+
+  @Override
+  public void skippedEntity(String name) {
+    ensureEvents(2);
+    events[eventLength++] = SKIPPED_ENTITY;
+    events[eventLength++] = name(name);
+  }
+
+  private static int readLength(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException("Corrupt event buffer length " + length);
+    }
+    return length;
+  }
+
+  private int name(String value) {
+    String key = value != null ? value : "";
+    Integer index = nameIndex.get(key);
+    if (index == null) {
+      index = names.size();
+      names.add(key);
+      nameIndex.put(key, index);
+    }
+    return index;
+  }
+
+  private void ensureEvents(int length) {
+    if (eventLength + length > events.length) {
+      events = Arrays.copyOf(events, Math.max(events.length * 2, eventLength + length));
+    }
+  }
+
+  private int appendChars(String value) {
+    ensureChars(value.length());
+    value.getChars(0, value.length(), chars, charLength);
+    int start = charLength;
+    charLength += value.length();
+    return start;
+  }
+
+  private int appendChars(char[] source, int start, int length) {
+    ensureChars(length);
+    System.arraycopy(source, start, chars, charLength, length);
+    int position = charLength;
+    charLength += length;
+    return position;
+  }
+
+  private void ensureChars(int length) {
+    if (charLength + length > chars.length) {
+      chars = Arrays.copyOf(chars, Math.max(chars.length * 2, charLength + length));
+    }
+  }
+}
@@ -0,0 +1,229 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.hyphenation.HyphenationException;
+import org.apache.fop.hyphenation.HyphenationTree;
+import org.apache.fop.hyphenation.HyphenationTreeCache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hyphenation tree cache that compiles the XML pattern files of the configured hyphenation base
+ * once and shares the trees with every FOP factory in the process.
+ * <br>
+ * FOP asks its cache whether a language is known to be missing before loading patterns; this cache
+ * answers that question by supplying the tree for {@code <key>.xml} from the hyphenation base
+ * when there is one. Trees are looked up by pattern key and a hash of the pattern file, first in
+ * memory, then as serialized trees in the cache directory, and only compiled from XML when neither
+ * has them. Languages without a local pattern file are left to FOP as before, and so are those FOP
+ * would load from elsewhere: a serialized {@code <key>.hyp}, which FOP prefers over the XML file,
+ * or a file named by a {@code <hyphenation-pattern>} mapping in the configuration. Like FOP's own
+ * cache, a factory keeps the tree it was given for a language for its lifetime.
+ */
+public final class SharedHyphenationTreeCache extends HyphenationTreeCache {
+
+  private static final Map<String, HyphenationTree> TREES = new ConcurrentHashMap<>();
+  private static final Map<String, FileHash> PATTERN_HASHES = new ConcurrentHashMap<>();
+
+  private final URI hyphenationBase;
+  private final Map<String, String> patternNames;
+  private final Path directory;
+  private final Set<String> checkedKeys = ConcurrentHashMap.newKeySet();
+
+  /**
+   * @param hyphenationBase where FOP looks for user pattern files, or null
+   * @param directory       where compiled trees are kept across processes, or null to share them
+   *                        in memory only
+   */
+  public SharedHyphenationTreeCache(URI hyphenationBase, Path directory) {
+    this(hyphenationBase, Map.of(), directory);
+  }
+
+  /**
+   * @param hyphenationBase where FOP looks for user pattern files, or null
+   * @param patternNames    the configured pattern file names by language key, as returned by
+   *                        {@link FopFactory#getHyphenationPatternNames()}, or null
+   * @param directory       where compiled trees are kept across processes, or null to share them
+   *                        in memory only
+   */
+  public SharedHyphenationTreeCache(URI hyphenationBase, Map<String, String> patternNames,
+                                    Path directory) {
+    this.hyphenationBase = hyphenationBase;
+    this.patternNames = patternNames != null ? Map.copyOf(patternNames) : Map.of();
+    this.directory = directory;
+  }
+
+  /**
+   * Replaces the hyphenation tree cache of {@code factory}, which FOP creates privately.
+   *
+   * @return false if this FOP version does not allow it
+   */
+  public static boolean install(FopFactory factory, URI hyphenationBase, Path directory) {
+    for (Class<?> type = factory.getClass(); type != null; type = type.getSuperclass()) {
+      for (Field field : type.getDeclaredFields()) {
+        if (field.getType() == HyphenationTreeCache.class) {
+          try {
+            field.setAccessible(true);
+            field.set(factory, new SharedHyphenationTreeCache(hyphenationBase,
+                factory.getHyphenationPatternNames(), directory));
+            return true;
+          } catch (ReflectiveOperationException | RuntimeException exception) {
+            return false;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean isMissing(String key) {
+    if (key != null && checkedKeys.add(key) && !super.isMissing(key)) {
+      HyphenationTree tree = sharedTree(key);
+      if (tree != null) {
+        cache(key, tree);
+      }
+    }
+    return super.isMissing(key);
+  }
+
+  private HyphenationTree sharedTree(String key) {
+    File patterns = patternFile(key);
+    if (patterns == null) {
+      return null;
+    }
+    try {
+      String treeKey = key + "-" + patternHash(patterns);
+      HyphenationTree tree = TREES.get(treeKey);
+      if (tree == null) {
+        tree = readCompiled(treeKey);
+        if (tree == null) {
+          tree = new HyphenationTree();
+          tree.loadPatterns(patterns.getPath());
+          writeCompiled(treeKey, tree);
+        }
+        TREES.put(treeKey, tree);
+      }
+      return tree;
+    } catch (IOException | HyphenationException | RuntimeException exception) {
+      // FOP loads and reports the patterns itself.
+      return null;
+    }
+  }
+
+  /**
+   * Returns the XML pattern file FOP would compile for {@code key}, or null if FOP would load
+   * something else.
+   */
+  private File patternFile(String key) {
+    if (hyphenationBase == null || !"file".equalsIgnoreCase(hyphenationBase.getScheme())
+        || isMapped(key)) {
+      return null;
+    }
+    try {
+      if (new File(hyphenationBase.resolve(key + ".hyp")).isFile()) {
+        return null;
+      }
+      File file = new File(hyphenationBase.resolve(key + ".xml"));
+      return file.isFile() ? file : null;
+    } catch (IllegalArgumentException notAPlainFile) {
+      return null;
+    }
+  }
+
+  /**
+   * FOP keys a mapping by language and may add the pattern format, so any mapping starting with
+   * {@code key} takes the language out of the shared path.
+   */
+  private boolean isMapped(String key) {
+    for (String mapped : patternNames.keySet()) {
+      if (mapped.equals(key) || mapped.startsWith(key + "_")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private HyphenationTree readCompiled(String treeKey) {
+    Path compiled = directory != null ? directory.resolve(treeKey + ".hyp") : null;
+    if (compiled == null || !Files.isRegularFile(compiled)) {
+      return null;
+    }
+    try (ObjectInputStream in = new ObjectInputStream(
+        new BufferedInputStream(Files.newInputStream(compiled)))) {
+      return (HyphenationTree) in.readObject();
+    } catch (IOException | ClassNotFoundException | ClassCastException exception) {
+      // Written by another FOP version or truncated; compile it again.
+      return null;
+    }
+  }
+
+  private void writeCompiled(String treeKey, HyphenationTree tree) throws IOException {
+    if (directory == null) {
+      return;
+    }
+    Files.createDirectories(directory);
+    Path temporary = Files.createTempFile(directory, treeKey, ".tmp");
+    try {
+      try (ObjectOutputStream out = new ObjectOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+        out.writeObject(tree);
+      }
+      Path compiled = directory.resolve(treeKey + ".hyp");
+      try {
+        Files.move(temporary, compiled, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException exception) {
+        Files.move(temporary, compiled, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  private static String patternHash(File patterns) throws IOException {
+    long size = patterns.length();
+    long lastModified = patterns.lastModified();
+    String path = patterns.getAbsolutePath();
+    FileHash known = PATTERN_HASHES.get(path);
+    if (known != null && known.size() == size && known.lastModified() == lastModified) {
+      return known.sha256();
+    }
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException exception) {
+      throw new IllegalStateException("SHA-256 is not available", exception);
+    }
+    byte[] block = new byte[64 * 1024];
+    try (InputStream in = Files.newInputStream(patterns.toPath())) {
+      for (int read = in.read(block); read >= 0; read = in.read(block)) {
+        digest.update(block, 0, read);
+      }
+    }
+    String sha256 = HexFormat.of().formatHex(digest.digest());
+    PATTERN_HASHES.put(path, new FileHash(size, lastModified, sha256));
+    return sha256;
+  }
+
+  private record FileHash(long size, long lastModified, String sha256) {
+  }
+}
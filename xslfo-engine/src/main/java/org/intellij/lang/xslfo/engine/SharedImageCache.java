@@ -0,0 +1,227 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.xmlgraphics.image.loader.Image;
+import org.apache.xmlgraphics.image.loader.ImageException;
+import org.apache.xmlgraphics.image.loader.ImageFlavor;
+import org.apache.xmlgraphics.image.loader.ImageInfo;
+import org.apache.xmlgraphics.image.loader.ImageManager;
+import org.apache.xmlgraphics.image.loader.ImageSessionContext;
+import org.apache.xmlgraphics.image.loader.cache.ImageCache;
+import org.apache.xmlgraphics.image.loader.impl.ImageRendered;
+
+import java.awt.image.ColorModel;
+import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Image cache that keeps preloaded image information and decoded images of local files across
+ * {@link ImageManager}s, so every engine, run and preview in a process shares one set of decoded
+ * logos and letterheads instead of each FOP factory starting empty.
+ * <br>
+ * Entries are keyed by the resolved file, its size and modification time, so an image that changes
+ * on disk is loaded again. Images from other sources only use the per-manager cache of the base
+ * class. The shared entries are held strongly up to a byte budget, measured by the decoded pixel
+ * size of raster images and the file size otherwise (image information is charged for the
+ * original image it carries), and evicted least recently used first.
+ */
+public final class SharedImageCache extends ImageCache {
+
+  /**
+   * Default budget of the shared entries.
+   */
+  public static final long DEFAULT_MAX_BYTES = 128L * 1024 * 1024;
+
+  private static final long INFO_BYTES = 1024;
+
+  private static final LinkedHashMap<Key, Entry> ENTRIES = new LinkedHashMap<>(64, 0.75f, true);
+  private static long maxBytes = DEFAULT_MAX_BYTES;
+  private static long usedBytes;
+  private static long hitCount;
+
+  private final URI baseUri;
+
+  /**
+   * @param baseUri the URI relative image references are resolved against, as FOP does
+   */
+  public SharedImageCache(URI baseUri) {
+    this.baseUri = baseUri;
+  }
+
+  /**
+   * Replaces the cache of {@code imageManager} with a shared one. The field is set reflectively
+   * because FOP offers no way to supply an image cache.
+   *
+   * @return false if this version of the image loader framework does not allow it
+   */
+  public static boolean install(ImageManager imageManager, URI baseUri) {
+    for (Class<?> type = imageManager.getClass(); type != null; type = type.getSuperclass()) {
+      for (Field field : type.getDeclaredFields()) {
+        if (field.getType() == ImageCache.class) {
+          try {
+            field.setAccessible(true);
+            field.set(imageManager, new SharedImageCache(baseUri));
+            return true;
+          } catch (ReflectiveOperationException | RuntimeException exception) {
+            return false;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Sets the budget of the shared entries, evicting entries if it shrank.
+   */
+  public static void setMaxBytes(long bytes) {
+    synchronized (ENTRIES) {
+      maxBytes = Math.max(0, bytes);
+      evict();
+    }
+  }
+
+  /**
+   * Returns how often a shared entry was used since the process started.
+   */
+  public static long getHitCount() {
+    synchronized (ENTRIES) {
+      return hitCount;
+    }
+  }
+
+  /**
+   * Drops all shared entries.
+   */
+  public static void clearShared() {
+    synchronized (ENTRIES) {
+      ENTRIES.clear();
+      usedBytes = 0;
+    }
+  }
+
+  @Override
+  public ImageInfo getImageInfo(String uri, ImageSessionContext session, ImageManager manager)
+      throws ImageException, IOException {
+    Key key = key(uri, null);
+    if (key != null) {
+      Entry entry = lookup(key);
+      if (entry != null) {
+        return entry.info();
+      }
+    }
+    ImageInfo info = super.getImageInfo(uri, session, manager);
+    // Like the base class, only share information whose preloaded image can be used again; a
+    // stream-backed original is consumed by the first render that reads it.
+    if (key != null && info != null
+        && (info.getOriginalImage() == null || info.getOriginalImage().isCacheable())) {
+      // A preloaded original stays reachable through the shared information, so charge it too.
+      long bytes = info.getOriginalImage() != null
+          ? INFO_BYTES + estimateBytes(info.getOriginalImage(), key.size()) : INFO_BYTES;
+      store(key, new Entry(info, null, bytes));
+    }
+    return info;
+  }
+
+  @Override
+  public Image getImage(ImageInfo info, ImageFlavor flavor) {
+    Image image = super.getImage(info, flavor);
+    if (image == null) {
+      Key key = key(info.getOriginalURI(), flavor);
+      Entry entry = key != null ? lookup(key) : null;
+      if (entry != null) {
+        image = entry.image();
+        super.putImage(image);
+      }
+    }
+    return image;
+  }
+
+  @Override
+  public void putImage(Image image) {
+    super.putImage(image);
+    if (!image.isCacheable()) {
+      return;
+    }
+    Key key = key(image.getInfo().getOriginalURI(), image.getFlavor());
+    if (key != null) {
+      store(key, new Entry(image.getInfo(), image, estimateBytes(image, key.size())));
+    }
+  }
+
+  private Key key(String uri, ImageFlavor flavor) {
+    if (uri == null || uri.isBlank()) {
+      return null;
+    }
+    try {
+      URI resolved = baseUri != null ? baseUri.resolve(new URI(uri)) : new URI(uri);
+      if (!"file".equalsIgnoreCase(resolved.getScheme())) {
+        return null;
+      }
+      File file = new File(resolved);
+      if (!file.isFile()) {
+        return null;
+      }
+      return new Key(file.getAbsolutePath(), file.length(), file.lastModified(),
+          flavor != null ? flavor.getName() : null);
+    } catch (URISyntaxException | IllegalArgumentException exception) {
+      // Not a plain file reference; left to the per-manager cache.
+      return null;
+    }
+  }
+
+  private static Entry lookup(Key key) {
+    synchronized (ENTRIES) {
+      Entry entry = ENTRIES.get(key);
+      if (entry != null) {
+        hitCount++;
+      }
+      return entry;
+    }
+  }
+
+  private static void store(Key key, Entry entry) {
+    synchronized (ENTRIES) {
+      if (entry.bytes() > maxBytes) {
+        return;
+      }
+      Entry previous = ENTRIES.put(key, entry);
+      if (previous != null) {
+        usedBytes -= previous.bytes();
+      }
+      usedBytes += entry.bytes();
+      evict();
+    }
+  }
+
+  private static void evict() {
+    Iterator<Map.Entry<Key, Entry>> iterator = ENTRIES.entrySet().iterator();
+    while (usedBytes > maxBytes && iterator.hasNext()) {
+      usedBytes -= iterator.next().getValue().bytes();
+      iterator.remove();
+    }
+  }
+
+  private static long estimateBytes(Image image, long fileSize) {
+    if (image instanceof ImageRendered rendered) {
+      RenderedImage pixels = rendered.getRenderedImage();
+      ColorModel colorModel = pixels.getColorModel();
+      int bitsPerPixel = colorModel != null ? colorModel.getPixelSize() : 32;
+      int bytesPerPixel = Math.max(1, (bitsPerPixel + 7) / 8);
+      return (long) pixels.getWidth() * pixels.getHeight() * bytesPerPixel;
+    }
+    return Math.max(INFO_BYTES, fileSize);
+  }
+
+  private record Key(String path, long size, long lastModified, String flavor) {
+  }
+
+  private record Entry(ImageInfo info, Image image, long bytes) {
+  }
+}
@@ -0,0 +1,41 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.xml.sax.Locator;
+
+import javax.xml.transform.SourceLocator;
+
+/**
+ * Position in a stylesheet, input or FO document a diagnostic refers to.
+ *
+ * @param systemId the document's system ID, usually a file URI, or null when it has none, such as
+ *                 FO produced by a transformation
+ * @param line     line number starting at 1, or -1 if unknown
+ * @param column   column number starting at 1, or -1 if unknown
+ */
+public record SourceLocation(String systemId, int line, int column) {
+
+  /**
+   * Returns the location of a SAX locator, or null if there is none.
+   */
+  public static SourceLocation of(Locator locator) {
+    return locator != null
+        ? new SourceLocation(locator.getSystemId(), locator.getLineNumber(),
+            locator.getColumnNumber())
+        : null;
+  }
+
+  /**
+   * Returns the location of a transformer locator, or null if there is none.
+   */
+  public static SourceLocation of(SourceLocator locator) {
+    return locator != null
+        ? new SourceLocation(locator.getSystemId(), locator.getLineNumber(),
+            locator.getColumnNumber())
+        : null;
+  }
+
+  @Override
+  public String toString() {
+    return "line " + line + ":" + column;
+  }
+}
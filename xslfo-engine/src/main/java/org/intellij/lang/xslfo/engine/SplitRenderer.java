@@ -0,0 +1,271 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.fop.apps.MimeConstants;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Renders one very large XML input as a PDF by splitting it into chunks of records
+ * ({@link XmlRecordSplitter}), rendering the chunks in parallel with one {@link FopEngine}, so
+ * they share the compiled stylesheet, and merging the chunk PDFs in order.
+ * <br>
+ * Chunks are rendered while the input is still being split, and at most twice as many chunks as
+ * there are threads wait for rendering, so peak memory depends on the chunk size rather than the
+ * input size. Chunk files live in a temporary directory that is removed afterwards.
+ * <br>
+ * By default page numbers restart in every chunk. With continuous page numbering each chunk is
+ * rendered with the stylesheet parameter {@value #INITIAL_PAGE_NUMBER_PARAMETER} set to its first
+ * page number; the stylesheet has to declare it and use it as {@code initial-page-number} of its
+ * page sequence. A chunk starts before the chunks ahead of it are done, so its first page is
+ * estimated from the page counts known by then. Once all chunks are rendered, those whose estimate
+ * was off, or that follow a chunk whose page count changed when it was rendered again, are
+ * rendered again until every chunk starts on the page after the previous chunk's last page.
+ */
+public final class SplitRenderer {
+
+  /**
+   * Stylesheet parameter holding the page number a chunk starts with.
+   */
+  public static final String INITIAL_PAGE_NUMBER_PARAMETER = "initial-page-number";
+
+  private final FopEngine engine;
+  private final int parallelism;
+
+  /**
+   * @param parallelism maximum number of concurrent chunk renders; values below 1 mean one per
+   *                    core
+   */
+  public SplitRenderer(FopEngine engine, int parallelism) {
+    this.engine = engine;
+    this.parallelism = parallelism > 0 ? parallelism
+        : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Splits {@code input}, renders the chunks and merges them into the PDF {@code output}.
+   * Diagnostics are reported from the rendering threads.
+   */
+  public Result render(String xslPath, Path input, Path output, XmlRecordSplitter splitter,
+                       boolean continuousPageNumbers, EngineDiagnostics diagnostics)
+      throws IOException, XMLStreamException, InterruptedException {
+    long start = System.nanoTime();
+    Path workDir = Files.createTempDirectory("xslfo-split-");
+    ExecutorService pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+      Thread thread = new Thread(runnable, "xslfo-split");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      PageEstimate pageEstimate = continuousPageNumbers ? new PageEstimate() : null;
+      List<Chunk> chunks = renderChunks(xslPath, input, workDir, splitter, pageEstimate, pool,
+          diagnostics);
+      if (pageEstimate != null) {
+        chunks = renumber(xslPath, chunks, pool, diagnostics);
+      }
+      long renderNanos = System.nanoTime() - start;
+
+      long mergeStart = System.nanoTime();
+      merge(chunks, output);
+      int pageCount = chunks.stream().mapToInt(Chunk::pageCount).sum();
+      return new Result(chunks.size(), pageCount, renderNanos, System.nanoTime() - mergeStart);
+    } finally {
+      pool.shutdownNow();
+      deleteRecursively(workDir);
+    }
+  }
+
+  private List<Chunk> renderChunks(String xslPath, Path input, Path workDir,
+                                   XmlRecordSplitter splitter, PageEstimate pageEstimate,
+                                   ExecutorService pool, EngineDiagnostics diagnostics)
+      throws IOException, XMLStreamException, InterruptedException {
+    Semaphore backlog = new Semaphore(parallelism * 2);
+    AtomicReference<Exception> firstFailure = new AtomicReference<>();
+    List<Future<Chunk>> futures = new ArrayList<>();
+    splitter.split(input, workDir, (index, chunkXml) -> {
+      if (firstFailure.get() != null) {
+        throw new IOException("Rendering chunk failed", firstFailure.get());
+      }
+      backlog.acquire();
+      try {
+        futures.add(pool.submit(() -> {
+          try {
+            if (pageEstimate == null) {
+              return renderChunk(xslPath, chunkXml, 1, diagnostics);
+            }
+            Chunk chunk = renderChunk(xslPath, chunkXml, pageEstimate.firstPage(index),
+                diagnostics);
+            pageEstimate.record(index, chunk.pageCount());
+            return chunk;
+          } catch (Exception exception) {
+            firstFailure.compareAndSet(null, exception);
+            throw exception;
+          } finally {
+            backlog.release();
+          }
+        }));
+      } catch (RejectedExecutionException rejectedExecutionException) {
+        backlog.release();
+        throw new InterruptedException("Rendering was stopped");
+      }
+    });
+    return await(futures);
+  }
+
+  /**
+   * Renders the chunks that do not start on the page after the previous chunk's last page again,
+   * in parallel, until none is left. The first such chunk of a round follows only correct chunks,
+   * so it is settled afterwards and the loop ends after at most one round per chunk.
+   */
+  private List<Chunk> renumber(String xslPath, List<Chunk> chunks, ExecutorService pool,
+                               EngineDiagnostics diagnostics)
+      throws IOException, InterruptedException {
+    List<Chunk> renumbered = new ArrayList<>(chunks);
+    while (true) {
+      List<Integer> stale = new ArrayList<>();
+      List<Future<Chunk>> futures = new ArrayList<>();
+      int firstPage = 1;
+      for (int i = 0; i < renumbered.size(); i++) {
+        Chunk chunk = renumbered.get(i);
+        if (chunk.firstPage() != firstPage) {
+          int chunkFirstPage = firstPage;
+          stale.add(i);
+          futures.add(pool.submit(() -> renderChunk(xslPath, chunk.xml(), chunkFirstPage,
+              diagnostics)));
+        }
+        firstPage += chunk.pageCount();
+      }
+      if (stale.isEmpty()) {
+        return renumbered;
+      }
+      List<Chunk> rendered = await(futures);
+      for (int i = 0; i < stale.size(); i++) {
+        renumbered.set(stale.get(i), rendered.get(i));
+      }
+    }
+  }
+
+  private Chunk renderChunk(String xslPath, Path chunkXml, int firstPage,
+                            EngineDiagnostics diagnostics) throws Exception {
+    String fileName = chunkXml.getFileName().toString();
+    Path pdf = chunkXml.resolveSibling(fileName.substring(0, fileName.lastIndexOf('.')) + ".pdf");
+    RenderStats stats = engine.render(xslPath, chunkXml.toString(), pdf.toFile(),
+        MimeConstants.MIME_PDF, Map.of(INITIAL_PAGE_NUMBER_PARAMETER, firstPage), diagnostics);
+    int pageCount = stats.pageCount();
+    if (pageCount < 0) {
+      try (PDDocument document = Loader.loadPDF(pdf.toFile())) {
+        pageCount = document.getNumberOfPages();
+      }
+    }
+    return new Chunk(chunkXml, pdf, firstPage, pageCount);
+  }
+
+  private static List<Chunk> await(List<Future<Chunk>> futures)
+      throws IOException, InterruptedException {
+    List<Chunk> chunks = new ArrayList<>(futures.size());
+    for (Future<Chunk> future : futures) {
+      try {
+        chunks.add(future.get());
+      } catch (ExecutionException executionException) {
+        Throwable cause = executionException.getCause();
+        if (cause instanceof IOException ioException) {
+          throw ioException;
+        }
+        throw new IOException("Rendering chunk " + (chunks.size() + 1) + " failed: "
+            + cause.getMessage(), cause);
+      }
+    }
+    return chunks;
+  }
+
+  /**
+   * Appends the chunk PDFs one document at a time, buffering page content in temporary files
+   * rather than on the heap.
+   */
+  private static void merge(List<Chunk> chunks, Path output) throws IOException {
+    Path parent = output.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    PDFMergerUtility merger = new PDFMergerUtility();
+    merger.setDocumentMergeMode(PDFMergerUtility.DocumentMergeMode.OPTIMIZE_RESOURCES_MODE);
+    for (Chunk chunk : chunks) {
+      merger.addSource(chunk.pdf().toFile());
+    }
+    merger.setDestinationFileName(output.toString());
+    merger.mergeDocuments(IOUtils.createTempFileOnlyStreamCache());
+  }
+
+  private static void deleteRecursively(Path dir) {
+    try (Stream<Path> files = Files.walk(dir)) {
+      files.sorted(Comparator.reverseOrder()).forEach(file -> {
+        try {
+          Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+          // Left for the OS to clean up with the temporary directory.
+        }
+      });
+    } catch (IOException ignored) {
+      // Same as above.
+    }
+  }
+
+  private record Chunk(Path xml, Path pdf, int firstPage, int pageCount) {
+  }
+
+  /**
+   * Page counts of the chunks rendered so far, for guessing where a chunk's pages start while
+   * chunks ahead of it are still being rendered: after the known pages of the leading chunks that
+   * are done, plus the average page count of the done chunks for each one in between.
+   */
+  private static final class PageEstimate {
+    private final Map<Integer, Integer> pageCounts = new HashMap<>();
+    private int knownPages;
+    private int prefixChunks;
+    private int prefixPages;
+
+    synchronized int firstPage(int index) {
+      int average = pageCounts.isEmpty() ? 1
+          : Math.max(1, Math.round((float) knownPages / pageCounts.size()));
+      return 1 + prefixPages + (index - prefixChunks) * average;
+    }
+
+    synchronized void record(int index, int pageCount) {
+      pageCounts.put(index, pageCount);
+      knownPages += pageCount;
+      for (Integer count = pageCounts.get(prefixChunks); count != null;
+           count = pageCounts.get(prefixChunks)) {
+        prefixPages += count;
+        prefixChunks++;
+      }
+    }
+  }
+
+  /**
+   * Outcome of a split render.
+   *
+   * @param renderNanos wall-clock time for splitting and rendering, which overlap
+   * @param mergeNanos  wall-clock time for merging the chunk PDFs
+   */
+  public record Result(int chunkCount, int pageCount, long renderNanos, long mergeNanos) {
+  }
+}
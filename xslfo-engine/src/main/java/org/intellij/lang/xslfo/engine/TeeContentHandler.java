@@ -0,0 +1,126 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+
+/**
+ * ContentHandler that forwards events to a delegate and records a copy in a
+ * {@link SaxEventBuffer}, so a transformation result can be laid out and cached in one pass.
+ * <br>
+ * Recording is abandoned once the buffer grows past {@code maxRecordedBytes}; the delegate keeps
+ * receiving every event either way.
+ */
+final class TeeContentHandler implements ContentHandler {
+
+  private final ContentHandler delegate;
+  private final long maxRecordedBytes;
+  private SaxEventBuffer recording = new SaxEventBuffer();
+
+  TeeContentHandler(ContentHandler delegate, long maxRecordedBytes) {
+    this.delegate = delegate;
+    this.maxRecordedBytes = maxRecordedBytes;
+  }
+
+  /**
+   * Returns the recorded events, or null if the result was too large to record.
+   */
+  SaxEventBuffer getRecording() {
+    return recording;
+  }
+
+  @Override
+  public void setDocumentLocator(Locator locator) {
+    delegate.setDocumentLocator(locator);
+  }
+
+  @Override
+  public void startDocument() throws SAXException {
+    if (recording != null) {
+      recording.startDocument();
+    }
+    delegate.startDocument();
+  }
+
+  @Override
+  public void endDocument() throws SAXException {
+    if (recording != null) {
+      recording.endDocument();
+    }
+    delegate.endDocument();
+  }
+
+  @Override
+  public void startPrefixMapping(String prefix, String uri) throws SAXException {
+    if (recording != null) {
+      recording.startPrefixMapping(prefix, uri);
+    }
+    delegate.startPrefixMapping(prefix, uri);
+  }
+
+  @Override
+  public void endPrefixMapping(String prefix) throws SAXException {
+    if (recording != null) {
+      recording.endPrefixMapping(prefix);
+    }
+    delegate.endPrefixMapping(prefix);
+  }
+
+  @Override
+  public void startElement(String uri, String localName, String qName, Attributes atts)
+      throws SAXException {
+    if (recording != null) {
+      recording.startElement(uri, localName, qName, atts);
+      checkSize();
+    }
+    delegate.startElement(uri, localName, qName, atts);
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String qName) throws SAXException {
+    if (recording != null) {
+      recording.endElement(uri, localName, qName);
+    }
+    delegate.endElement(uri, localName, qName);
+  }
+
+  @Override
+  public void characters(char[] ch, int start, int length) throws SAXException {
+    if (recording != null) {
+      recording.characters(ch, start, length);
+      checkSize();
+    }
+    delegate.characters(ch, start, length);
+  }
+
+  @Override
+  public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+    if (recording != null) {
+      recording.ignorableWhitespace(ch, start, length);
+    }
+    delegate.ignorableWhitespace(ch, start, length);
+  }
+
+  @Override
+  public void processingInstruction(String target, String data) throws SAXException {
+    if (recording != null) {
+      recording.processingInstruction(target, data);
+    }
+    delegate.processingInstruction(target, data);
+  }
+
+  @Override
+  public void skippedEntity(String name) throws SAXException {
+    if (recording != null) {
+      recording.skippedEntity(name);
+    }
+    delegate.skippedEntity(name);
+  }
+
+  private void checkSize() {
+    if (recording.sizeInBytes() > maxRecordedBytes) {
+      recording = null;
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+
+/**
+ * ContentHandler wrapper that measures how much time is spent inside the delegate.
+ * <br>
+ * XSLT output is streamed into FOP, so the two stages interleave on one thread. Wrapping FOP's
+ * handler separates the time FOP spends from the time the transformer spends producing events,
+ * and splits FOP's time into phases: FOP lays out a page sequence and renders its pages when the
+ * sequence's end tag arrives, and finishes the output document at the end of the document; all
+ * other calls build the FO tree.
+ */
+final class TimingContentHandler implements ContentHandler {
+
+  private static final String FO_NAMESPACE = "http://www.w3.org/1999/XSL/Format";
+  private static final String PAGE_SEQUENCE = "page-sequence";
+
+  private final ContentHandler delegate;
+  private long treeNanos;
+  private long layoutNanos;
+  private long outputNanos;
+
+  TimingContentHandler(ContentHandler delegate) {
+    this.delegate = delegate;
+  }
+
+  long getDelegateNanos() {
+    return treeNanos + layoutNanos + outputNanos;
+  }
+
+  long getTreeNanos() {
+    return treeNanos;
+  }
+
+  long getLayoutNanos() {
+    return layoutNanos;
+  }
+
+  long getOutputNanos() {
+    return outputNanos;
+  }
+
+  @Override
+  public void setDocumentLocator(Locator locator) {
+    delegate.setDocumentLocator(locator);
+  }
+
+  @Override
+  public void startDocument() throws SAXException {
+    long start = System.nanoTime();
+    try {
+      delegate.startDocument();
+    } finally {
+      treeNanos += System.nanoTime() - start;
+    }
+  }
+
+  @Override
+  public void endDocument() throws SAXException {
+    long start = System.nanoTime();
+    try {
+      delegate.endDocument();
+    } finally {
+      outputNanos += System.nanoTime() - start;
+    }
+  }
+
+  @Override
+  public void startPrefixMapping(String prefix, String uri) throws SAXException {
+    delegate.startPrefixMapping(prefix, uri);
+  }
+
+  @Override
+  public void endPrefixMapping(String prefix) throws SAXException {
+    delegate.endPrefixMapping(prefix);
+  }
+
+  @Override
+  public void startElement(String uri, String localName, String qName, Attributes atts)
+      throws SAXException {
+    long start = System.nanoTime();
+    try {
+      delegate.startElement(uri, localName, qName, atts);
+    } finally {
+      treeNanos += System.nanoTime() - start;
+    }
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String qName) throws SAXException {
+    long start = System.nanoTime();
+    try {
+      delegate.endElement(uri, localName, qName);
+    } finally {
+      long nanos = System.nanoTime() - start;
+      if (FO_NAMESPACE.equals(uri) && PAGE_SEQUENCE.equals(localName)) {
+        layoutNanos += nanos;
+      } else {
+        treeNanos += nanos;
+      }
+    }
+  }
+
+  @Override
+  public void characters(char[] ch, int start, int length) throws SAXException {
+    long begin = System.nanoTime();
+    try {
+      delegate.characters(ch, start, length);
+    } finally {
+      treeNanos += System.nanoTime() - begin;
+    }
+  }
+
+  @Override
+  public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+    delegate.ignorableWhitespace(ch, start, length);
+  }
+
+  @Override
+  public void processingInstruction(String target, String data) throws SAXException {
+    delegate.processingInstruction(target, data);
+  }
+
+  @Override
+  public void skippedEntity(String name) throws SAXException {
+    delegate.skippedEntity(name);
+  }
+}
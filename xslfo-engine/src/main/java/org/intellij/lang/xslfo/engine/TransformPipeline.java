@@ -0,0 +1,138 @@
+package org.intellij.lang.xslfo.engine;
+
+import javax.xml.transform.TransformerException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Overlaps the two stages of rendering several inputs with one stylesheet: a background thread
+ * transforms the upcoming inputs into {@link SaxEventBuffer}s while the caller lays out the
+ * current one, so the XSLT cost hides behind FOP layout.
+ * <br>
+ * Transformed inputs wait in a bounded queue; when it is full the XSLT thread blocks, so at most
+ * {@code capacity} buffered documents are held besides the one being laid out. Inputs are handed
+ * out in order. A failed transformation stops the pipeline and is rethrown by {@link #next()} for
+ * that input. The XSLT thread's allocation is measured per input, see
+ * {@link #lastAllocatedBytes()}.
+ * <pre>
+ * try (TransformPipeline pipeline = new TransformPipeline(engine, xsl, inputs, 2, diagnostics)) {
+ *   for (String input : inputs) {
+ *     engine.layout(pipeline.next(), newFop(input));
+ *   }
+ * }
+ * </pre>
+ */
+public final class TransformPipeline implements AutoCloseable {
+
+  private final BlockingQueue<Stage> queue;
+  private final Thread transformThread;
+  private int remaining;
+  private long lastAllocatedBytes = -1;
+
+  /**
+   * Starts transforming {@code xmlPaths} in the background. Diagnostics are reported from the
+   * XSLT thread.
+   *
+   * @param capacity number of transformed inputs that may wait for layout, at least 1
+   */
+  public TransformPipeline(FopEngine engine, String xslPath, List<String> xmlPaths, int capacity,
+                           EngineDiagnostics diagnostics) {
+    this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    this.remaining = xmlPaths.size();
+    List<String> inputs = List.copyOf(xmlPaths);
+    this.transformThread = new Thread(() -> {
+      for (String xmlPath : inputs) {
+        Stage stage;
+        long allocationMark = currentThreadAllocatedBytes();
+        try {
+          BufferedFo fo = engine.transformToBuffer(xslPath, xmlPath, diagnostics);
+          stage = new Stage(fo, null, allocatedSince(allocationMark));
+        } catch (Throwable throwable) {
+          stage = new Stage(null, throwable, allocatedSince(allocationMark));
+        }
+        try {
+          queue.put(stage);
+        } catch (InterruptedException interruptedException) {
+          return;
+        }
+        if (stage.failure() != null) {
+          return;
+        }
+      }
+    }, "xslfo-xslt-pipeline");
+    transformThread.setDaemon(true);
+    transformThread.start();
+  }
+
+  /**
+   * Waits for the next input's transformation result.
+   *
+   * @throws TransformerException if transforming that input failed
+   */
+  public BufferedFo next() throws TransformerException, InterruptedException {
+    if (remaining == 0) {
+      throw new NoSuchElementException("All inputs have been handed out");
+    }
+    Stage stage = queue.take();
+    remaining--;
+    lastAllocatedBytes = stage.allocatedBytes();
+    Throwable failure = stage.failure();
+    if (failure == null) {
+      return stage.fo();
+    }
+    remaining = 0;
+    if (failure instanceof TransformerException transformerException) {
+      throw transformerException;
+    }
+    if (failure instanceof RuntimeException runtimeException) {
+      throw runtimeException;
+    }
+    if (failure instanceof Error error) {
+      throw error;
+    }
+    throw new TransformerException(failure);
+  }
+
+  /**
+   * Returns the bytes the XSLT thread allocated transforming the input last returned by
+   * {@link #next()}, or -1 when the JVM does not support per-thread allocation accounting.
+   */
+  public long lastAllocatedBytes() {
+    return lastAllocatedBytes;
+  }
+
+  /**
+   * Stops the XSLT thread; inputs not handed out yet are dropped.
+   */
+  @Override
+  public void close() {
+    transformThread.interrupt();
+    queue.clear();
+  }
+
+  private static long allocatedSince(long allocationMark) {
+    long allocationNow = currentThreadAllocatedBytes();
+    return allocationMark < 0 || allocationNow < 0
+        ? -1 : Math.max(0, allocationNow - allocationMark);
+  }
+
+  private static long currentThreadAllocatedBytes() {
+    try {
+      if (ManagementFactory.getThreadMXBean()
+          instanceof com.sun.management.ThreadMXBean threadBean
+          && threadBean.isThreadAllocatedMemorySupported()
+          && threadBean.isThreadAllocatedMemoryEnabled()) {
+        return threadBean.getCurrentThreadAllocatedBytes();
+      }
+    } catch (Throwable ignored) {
+      // Allocation accounting is best effort only
+    }
+    return -1;
+  }
+
+  private record Stage(BufferedFo fo, Throwable failure, long allocatedBytes) {
+  }
+}
@@ -0,0 +1,240 @@
+package org.intellij.lang.xslfo.engine;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits a large XML document into smaller, well-formed chunk documents of a fixed number of
+ * record elements each, streaming with StAX so memory use does not depend on the input size.
+ * <br>
+ * Records are the outermost elements with the configured name. Every chunk re-opens the elements
+ * enclosing its records, with their attributes and namespace declarations, and repeats the content
+ * that preceded the first record inside them (typically a header shared by all records). Content
+ * between records stays in the chunk it occurs in; content after the last record ends up in the
+ * last chunk.
+ */
+public final class XmlRecordSplitter {
+
+  private final QName recordName;
+  private final int recordsPerChunk;
+
+  /**
+   * @param recordElement   local name of the record element, or {@code {namespace}localName}
+   * @param recordsPerChunk number of records per chunk, at least 1
+   */
+  public XmlRecordSplitter(String recordElement, int recordsPerChunk) {
+    if (recordElement == null || recordElement.isBlank()) {
+      throw new IllegalArgumentException("No record element given");
+    }
+    if (recordsPerChunk < 1) {
+      throw new IllegalArgumentException("Records per chunk must be at least 1");
+    }
+    this.recordName = QName.valueOf(recordElement.trim());
+    this.recordsPerChunk = recordsPerChunk;
+  }
+
+  /**
+   * Writes the chunks of {@code input} to {@code chunkDir} and hands each one to
+   * {@code listener} as soon as it is complete, so chunks can be processed while the rest of the
+   * input is still being split. Returns the number of chunks written.
+   *
+   * @throws IOException if the input contains no record element
+   */
+  public int split(Path input, Path chunkDir, ChunkListener listener)
+      throws IOException, XMLStreamException, InterruptedException {
+    XMLInputFactory inputFactory = XMLInputFactory.newFactory();
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(input))) {
+      XMLEventReader reader = inputFactory.createXMLEventReader(input.toUri().toString(), in);
+      try {
+        return new Session(chunkDir, listener).run(reader);
+      } finally {
+        reader.close();
+      }
+    }
+  }
+
+  private boolean isRecord(StartElement start) {
+    QName name = start.getName();
+    return name.getLocalPart().equals(recordName.getLocalPart())
+        && (recordName.getNamespaceURI().isEmpty()
+        || recordName.getNamespaceURI().equals(name.getNamespaceURI()));
+  }
+
+  /**
+   * Receives chunks in document order.
+   */
+  @FunctionalInterface
+  public interface ChunkListener {
+    void chunkWritten(int index, Path chunk) throws IOException, InterruptedException;
+  }
+
+  /**
+   * An element enclosing records. Until the first record is seen, its content is collected so it
+   * can be repeated in every chunk.
+   */
+  private static final class OpenElement {
+    private final StartElement start;
+    private final List<XMLEvent> header;
+
+    private OpenElement(StartElement start, boolean collectHeader) {
+      this.start = start;
+      this.header = collectHeader ? new ArrayList<>() : null;
+    }
+  }
+
+  private final class Session {
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newFactory();
+    private final XMLEventFactory eventFactory = XMLEventFactory.newFactory();
+    private final Path chunkDir;
+    private final ChunkListener listener;
+    private final Deque<OpenElement> open = new ArrayDeque<>();
+    private boolean seenRecord;
+    private int recordDepth;
+    private int recordsInChunk;
+    private int chunkCount;
+    private Path chunkFile;
+    private OutputStream chunkStream;
+    private XMLEventWriter writer;
+
+    private Session(Path chunkDir, ChunkListener listener) {
+      this.chunkDir = chunkDir;
+      this.listener = listener;
+    }
+
+    int run(XMLEventReader reader) throws IOException, XMLStreamException, InterruptedException {
+      try {
+        while (reader.hasNext()) {
+          XMLEvent event = reader.nextEvent();
+          if (recordDepth > 0) {
+            writer.add(event);
+            if (event.isStartElement()) {
+              recordDepth++;
+            } else if (event.isEndElement()) {
+              recordDepth--;
+            }
+          } else if (event.isStartElement() && isRecord(event.asStartElement())) {
+            startRecord(event);
+          } else if (event.isStartElement()) {
+            startEnclosing(event.asStartElement());
+          } else if (event.isEndElement()) {
+            endEnclosing(event);
+          } else if (event.isStartDocument() || event.isEndDocument()
+              || event.getEventType() == XMLEvent.DTD) {
+            // Every chunk gets its own document events; entities are already expanded.
+          } else if (seenRecord) {
+            writer.add(event);
+          } else if (!open.isEmpty()) {
+            open.peek().header.add(event);
+          }
+        }
+        if (!seenRecord) {
+          throw new IOException("Input contains no <" + recordName.getLocalPart() + "> element");
+        }
+        finishChunk();
+        return chunkCount;
+      } finally {
+        closeQuietly();
+      }
+    }
+
+    private void startRecord(XMLEvent event) throws IOException, XMLStreamException,
+        InterruptedException {
+      if (writer == null || recordsInChunk == recordsPerChunk) {
+        finishChunk();
+        startChunk();
+      }
+      seenRecord = true;
+      recordsInChunk++;
+      recordDepth = 1;
+      writer.add(event);
+    }
+
+    private void startEnclosing(StartElement start) throws XMLStreamException {
+      if (seenRecord) {
+        writer.add(start);
+        open.push(new OpenElement(start, false));
+      } else {
+        open.push(new OpenElement(start, true));
+      }
+    }
+
+    private void endEnclosing(XMLEvent end) throws XMLStreamException {
+      OpenElement element = open.pop();
+      if (seenRecord) {
+        writer.add(end);
+      } else if (!open.isEmpty()) {
+        // A complete element before the first record becomes part of its parent's header.
+        List<XMLEvent> parentHeader = open.peek().header;
+        parentHeader.add(element.start);
+        parentHeader.addAll(element.header);
+        parentHeader.add(end);
+      }
+    }
+
+    private void startChunk() throws IOException, XMLStreamException {
+      chunkFile = chunkDir.resolve(String.format(Locale.ROOT, "chunk-%06d.xml", chunkCount));
+      chunkStream = new BufferedOutputStream(Files.newOutputStream(chunkFile));
+      writer = outputFactory.createXMLEventWriter(chunkStream, "UTF-8");
+      writer.add(eventFactory.createStartDocument("UTF-8", "1.0"));
+      Iterator<OpenElement> outermostFirst = open.descendingIterator();
+      while (outermostFirst.hasNext()) {
+        OpenElement element = outermostFirst.next();
+        writer.add(element.start);
+        if (element.header != null) {
+          for (XMLEvent event : element.header) {
+            writer.add(event);
+          }
+        }
+      }
+      recordsInChunk = 0;
+    }
+
+    private void finishChunk() throws IOException, XMLStreamException, InterruptedException {
+      if (writer == null) {
+        return;
+      }
+      for (OpenElement element : open) {
+        writer.add(eventFactory.createEndElement(element.start.getName(), null));
+      }
+      writer.add(eventFactory.createEndDocument());
+      writer.close();
+      chunkStream.close();
+      writer = null;
+      chunkStream = null;
+      listener.chunkWritten(chunkCount++, chunkFile);
+    }
+
+    private void closeQuietly() {
+      try {
+        if (writer != null) {
+          writer.close();
+        }
+        if (chunkStream != null) {
+          chunkStream.close();
+        }
+      } catch (IOException | XMLStreamException ignored) {
+        // Already failing; the chunk is discarded.
+      }
+    }
+  }
+}
@@ -0,0 +1,271 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.fop.apps.MimeConstants;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Command line entry point for batch rendering outside the IDE, e.g. on CI:
+ * <pre>
+ * xslfo-engine --xsl style.xsl --in "docs/**&#47;*.xml" --out build/pdf
+ *              [--format pdf|ps|afp|pcl] [--parallelism N] [--config fop.xconf]
+ *              [--split record-element [--records-per-chunk N] [--page-numbers continuous]]
+ * </pre>
+ * With {@code --split} every input is cut into chunks of records that are rendered in parallel
+ * and merged into one PDF (see {@link SplitRenderer}); inputs are then processed one at a time.
+ * Exits with 0 when every input rendered, 1 when at least one failed and 2 on usage errors.
+ */
+public final class XslFoBatchMain {
+
+  private static final String USAGE = "Usage: xslfo-engine --xsl <stylesheet> --in <input glob> "
+      + "--out <output dir> [--format pdf|ps|afp|pcl] [--parallelism <n>] [--config <fop.xconf>]"
+      + " [--split <record element> [--records-per-chunk <n>]"
+      + " [--page-numbers per-chunk|continuous]]";
+
+  private XslFoBatchMain() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    System.exit(run(args, System.out, System.err));
+  }
+
+  /**
+   * Runs a batch and returns the process exit code.
+   */
+  static int run(String[] args, PrintStream out, PrintStream err) throws Exception {
+    Options options;
+    try {
+      options = Options.parse(args);
+    } catch (IllegalArgumentException illegalArgumentException) {
+      err.println(illegalArgumentException.getMessage());
+      err.println(USAGE);
+      return 2;
+    }
+
+    List<Path> inputs = expandGlob(options.inputGlob());
+    if (inputs.isEmpty()) {
+      err.println("No input matches " + options.inputGlob());
+      return 1;
+    }
+    List<BatchRenderer.Job> jobs = BatchRenderer.jobsFor(inputs, globBase(options.inputGlob()),
+        Paths.get(options.outputDir()), options.extension());
+    if (options.splitElement() != null) {
+      return runSplit(options, jobs, out, err);
+    }
+    BatchRenderer renderer = new BatchRenderer(new FopEngine(options.configPath()),
+        options.parallelism());
+    List<BatchRenderer.Result> results = renderer.render(options.xslPath(), jobs, options.mime(),
+        new BatchRenderer.Listener() {
+          @Override
+          public void warning(BatchRenderer.Job job, String message) {
+            err.println("[" + job.input().getFileName() + "] WARNING " + message);
+          }
+
+          @Override
+          public void error(BatchRenderer.Job job, String message) {
+            err.println("[" + job.input().getFileName() + "] ERROR " + message);
+          }
+
+          @Override
+          public void completed(BatchRenderer.Result result) {
+            String millis = String.format(Locale.ROOT, "%.1f ms", result.elapsedNanos() / 1e6);
+            if (result.success()) {
+              out.println(result.job().input() + " -> " + result.job().output() + " ("
+                  + result.stats().pageCount() + " pages, " + millis + ")");
+            } else {
+              err.println(result.job().input() + " failed after " + millis + ": "
+                  + describe(result.failure()));
+            }
+          }
+        });
+
+    long failed = results.stream().filter(result -> !result.success()).count();
+    out.println((results.size() - failed) + " of " + results.size() + " inputs rendered");
+    return failed == 0 ? 0 : 1;
+  }
+
+  private static int runSplit(Options options, List<BatchRenderer.Job> jobs, PrintStream out,
+                              PrintStream err) throws Exception {
+    SplitRenderer renderer = new SplitRenderer(new FopEngine(options.configPath()),
+        options.parallelism());
+    XmlRecordSplitter splitter = new XmlRecordSplitter(options.splitElement(),
+        options.recordsPerChunk());
+    int failed = 0;
+    for (BatchRenderer.Job job : jobs) {
+      String name = "[" + job.input().getFileName() + "] ";
+      try {
+        SplitRenderer.Result result = renderer.render(options.xslPath(), job.input(),
+            job.output(), splitter, options.continuousPageNumbers(), new EngineDiagnostics() {
+              @Override
+              public void warning(String message) {
+                err.println(name + "WARNING " + message);
+              }
+
+              @Override
+              public void error(String message) {
+                err.println(name + "ERROR " + message);
+              }
+            });
+        out.println(job.input() + " -> " + job.output() + " (" + result.pageCount() + " pages, "
+            + result.chunkCount() + " chunks, " + String.format(Locale.ROOT,
+            "%.1f ms rendering, %.1f ms merging", result.renderNanos() / 1e6,
+            result.mergeNanos() / 1e6) + ")");
+      } catch (IOException | XMLStreamException exception) {
+        failed++;
+        err.println(job.input() + " failed: " + describe(exception));
+      }
+    }
+    out.println((jobs.size() - failed) + " of " + jobs.size() + " inputs rendered");
+    return failed == 0 ? 0 : 1;
+  }
+
+  /**
+   * Returns the regular files matching {@code glob}, sorted. Everything before the first path
+   * segment containing a wildcard is taken literally and is where the search starts.
+   */
+  static List<Path> expandGlob(String glob) throws IOException {
+    Path base = globBase(glob);
+    String pattern = glob.replace('\\', '/');
+    String basePrefix = base.toString().replace('\\', '/');
+    if (!hasWildcard(pattern)) {
+      Path single = Paths.get(glob);
+      return Files.isRegularFile(single) ? List.of(single) : List.of();
+    }
+    if (!Files.isDirectory(base)) {
+      return List.of();
+    }
+    String relativePattern = pattern.startsWith(basePrefix + "/")
+        ? pattern.substring(basePrefix.length() + 1) : pattern;
+    PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + relativePattern);
+    // Let "**/" also match zero directories, as shells with globstar do.
+    PathMatcher topLevelMatcher = relativePattern.startsWith("**/")
+        ? FileSystems.getDefault().getPathMatcher("glob:" + relativePattern.substring(3))
+        : matcher;
+    try (Stream<Path> files = Files.walk(base)) {
+      return files.filter(Files::isRegularFile)
+          .filter(file -> {
+            Path relative = base.relativize(file);
+            return matcher.matches(relative) || topLevelMatcher.matches(relative);
+          })
+          .sorted()
+          .toList();
+    }
+  }
+
+  static Path globBase(String glob) {
+    String[] segments = glob.replace('\\', '/').split("/", -1);
+    StringBuilder base = new StringBuilder();
+    for (int i = 0; i < segments.length - 1 && !hasWildcard(segments[i]); i++) {
+      if (i > 0) {
+        base.append('/');
+      }
+      base.append(segments[i]);
+    }
+    if (base.length() == 0) {
+      return Paths.get(glob.startsWith("/") ? "/" : ".");
+    }
+    return Paths.get(base.toString());
+  }
+
+  private static boolean hasWildcard(String text) {
+    return text.indexOf('*') >= 0 || text.indexOf('?') >= 0 || text.indexOf('[') >= 0
+        || text.indexOf('{') >= 0;
+  }
+
+  private static String describe(Throwable throwable) {
+    for (Throwable current = throwable; current != null; current = current.getCause()) {
+      String message = current.getMessage();
+      if (message != null && !message.isBlank()) {
+        return message;
+      }
+    }
+    return throwable.getClass().getName();
+  }
+
+  private record Options(String xslPath, String inputGlob, String outputDir, String format,
+                         int parallelism, String configPath, String splitElement,
+                         int recordsPerChunk, boolean continuousPageNumbers) {
+
+    static Options parse(String[] args) {
+      String xsl = null;
+      String in = null;
+      String out = null;
+      String format = "pdf";
+      int parallelism = 0;
+      String config = null;
+      String split = null;
+      int recordsPerChunk = 1000;
+      boolean continuousPageNumbers = false;
+      for (int i = 0; i < args.length; i++) {
+        String name = args[i];
+        if (i + 1 >= args.length) {
+          throw new IllegalArgumentException("Missing value for " + name);
+        }
+        String value = args[++i];
+        switch (name) {
+          case "--xsl" -> xsl = value;
+          case "--in" -> in = value;
+          case "--out" -> out = value;
+          case "--format" -> format = value.toLowerCase(Locale.ROOT);
+          case "--config" -> config = value;
+          case "--parallelism" -> parallelism = parseInt(name, value);
+          case "--split" -> split = value;
+          case "--records-per-chunk" -> recordsPerChunk = parseInt(name, value);
+          case "--page-numbers" -> {
+            switch (value) {
+              case "continuous" -> continuousPageNumbers = true;
+              case "per-chunk" -> continuousPageNumbers = false;
+              default -> throw new IllegalArgumentException("Invalid page numbering: " + value);
+            }
+          }
+          default -> throw new IllegalArgumentException("Unknown option: " + name);
+        }
+      }
+      if (xsl == null || in == null || out == null) {
+        throw new IllegalArgumentException("--xsl, --in and --out are required");
+      }
+      if (split != null && !"pdf".equals(format)) {
+        throw new IllegalArgumentException("--split only supports --format pdf");
+      }
+      if (recordsPerChunk < 1) {
+        throw new IllegalArgumentException("--records-per-chunk must be at least 1");
+      }
+      Options options = new Options(xsl, in, out, format, parallelism, config, split,
+          recordsPerChunk, continuousPageNumbers);
+      options.mime();
+      return options;
+    }
+
+    private static int parseInt(String name, String value) {
+      try {
+        return Integer.parseInt(value);
+      } catch (NumberFormatException numberFormatException) {
+        throw new IllegalArgumentException("Invalid value for " + name + ": " + value);
+      }
+    }
+
+    String mime() {
+      return switch (format) {
+        case "pdf" -> MimeConstants.MIME_PDF;
+        case "ps", "postscript" -> MimeConstants.MIME_POSTSCRIPT;
+        case "afp" -> MimeConstants.MIME_AFP;
+        case "pcl" -> MimeConstants.MIME_PCL;
+        default -> throw new IllegalArgumentException("Unsupported format: " + format);
+      };
+    }
+
+    String extension() {
+      return "postscript".equals(format) ? ".ps" : "." + format;
+    }
+  }
+}
@@ -2,22 +2,38 @@ package org.apache.fop.apps.io;
 
 import org.apache.xmlgraphics.io.Resource;
 import org.apache.xmlgraphics.io.ResourceResolver;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assume.assumeFalse;
 
 public class NullSafeInternalResourceResolverTest {
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Test
   public void getResource_nullStringUri_throwsFileNotFoundInsteadOfNpe() throws Exception {
     InternalResourceResolver resolver = createResolver(new AtomicReference<>());
@@ -45,6 +61,41 @@ public class NullSafeInternalResourceResolverTest {
     assertEquals(URI.create("file:/tmp/base/images/logo.png"), capturedUri.get());
   }
 
+  @Test
+  public void getResource_largeLocalFile_servedFromSharedMapping() throws Exception {
+    assumeFalse(System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows"));
+    byte[] content = new byte[(int) MappedFileResources.MIN_MAPPED_BYTES + 1];
+    new Random(7).nextBytes(content);
+    Path font = temporaryFolder.newFile("font.ttf").toPath();
+    Files.write(font, content);
+    AtomicReference<URI> capturedUri = new AtomicReference<>();
+    InternalResourceResolver wrapped =
+        NullSafeInternalResourceResolver.wrap(createResolver(capturedUri));
+
+    try (InputStream first = wrapped.getResource(font.toUri());
+         InputStream second = wrapped.getResource(font.toUri().toString())) {
+      assertArrayEquals(content, second.readAllBytes());
+      assertArrayEquals(content, first.readAllBytes());
+    }
+    assertNull(capturedUri.get());
+  }
+
+  @Test
+  public void getResource_mappedFileTruncatedWhileReading_throwsIoException() throws Exception {
+    assumeFalse(System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows"));
+    Path font = temporaryFolder.newFile("truncated.ttf").toPath();
+    Files.write(font, new byte[(int) MappedFileResources.MIN_MAPPED_BYTES * 2]);
+    InternalResourceResolver wrapped =
+        NullSafeInternalResourceResolver.wrap(createResolver(new AtomicReference<>()));
+
+    try (InputStream in = wrapped.getResource(font.toUri())) {
+      try (FileChannel channel = FileChannel.open(font, StandardOpenOption.WRITE)) {
+        channel.truncate(0);
+      }
+      assertThrows(IOException.class, in::readAllBytes);
+    }
+  }
+
   @Test
   public void wrap_alreadyWrappedResolver_returnsSameInstance() {
     InternalResourceResolver resolver = createResolver(new AtomicReference<>());
@@ -0,0 +1,104 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class FoCacheTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void transformToBuffer_reusesCachedResultUntilInputChanges() throws Exception {
+    Path input = temporaryFolder.newFile("in.xml").toPath();
+    Files.writeString(input, "<name>World</name>");
+    String template = new File("src/test/resources/simple/template.xsl").getCanonicalPath();
+    FopEngine engine = new FopEngine(null);
+    engine.setFoCache(new FoCache(temporaryFolder.newFolder("cache").toPath(), 1 << 20));
+
+    BufferedFo transformed = engine.transformToBuffer(template, input.toString(), null);
+    BufferedFo cached = engine.transformToBuffer(template, input.toString(), null);
+
+    assertEquals(0, cached.compileNanos());
+    assertEquals(serialize(transformed.events()), serialize(cached.events()));
+
+    // A touched but identical input still hits; changed content does not.
+    Files.setLastModifiedTime(input, FileTime.fromMillis(0));
+    assertEquals(0, engine.transformToBuffer(template, input.toString(), null).compileNanos());
+    Files.writeString(input, "<name>Cache</name>");
+    String changed = serialize(engine.transformToBuffer(template, input.toString(), null).events());
+    assertTrue(changed, changed.contains("Hello, Cache!"));
+  }
+
+  @Test
+  public void transformToBuffer_transformsAgainWhenExternalEntityChanges() throws Exception {
+    Path entity = temporaryFolder.newFile("name.txt").toPath();
+    Files.writeString(entity, "World");
+    Path input = temporaryFolder.newFile("in.xml").toPath();
+    Files.writeString(input, "<!DOCTYPE name [<!ENTITY who SYSTEM \"name.txt\">]>"
+        + "<name>&who;</name>");
+    String template = new File("src/test/resources/simple/template.xsl").getCanonicalPath();
+    FopEngine engine = new FopEngine(null);
+    engine.setFoCache(new FoCache(temporaryFolder.newFolder("cache").toPath(), 1 << 20));
+
+    String first = serialize(engine.transformToBuffer(template, input.toString(), null).events());
+    assertEquals(0, engine.transformToBuffer(template, input.toString(), null).compileNanos());
+    Files.writeString(entity, "Entity");
+    String changed = serialize(engine.transformToBuffer(template, input.toString(), null).events());
+
+    assertTrue(first, first.contains("Hello, World!"));
+    assertTrue(changed, changed.contains("Hello, Entity!"));
+  }
+
+  @Test
+  public void put_evictsLeastRecentlyUsedEntriesOverBudget() throws Exception {
+    Path input = temporaryFolder.newFile("in.xml").toPath();
+    Files.writeString(input, "<name>World</name>");
+    String template = new File("src/test/resources/simple/template.xsl").getCanonicalPath();
+    BufferedFo fo = new FopEngine(null).transformToBuffer(template, input.toString(), null);
+    Map<File, Long> dependencies = Map.of(input.toFile(), input.toFile().lastModified());
+    Path cacheDir = temporaryFolder.newFolder("cache").toPath();
+
+    new FoCache(cacheDir, 1 << 20).put(template, input.toString(), Map.of("variant", 1),
+        dependencies, fo.events());
+    Path oldEntry;
+    try (Stream<Path> entries = Files.list(cacheDir)) {
+      oldEntry = entries.findFirst().orElseThrow();
+    }
+    Files.setLastModifiedTime(oldEntry, FileTime.fromMillis(0));
+    FoCache cache = new FoCache(cacheDir, Files.size(oldEntry));
+    cache.put(template, input.toString(), Map.of("variant", 2), dependencies, fo.events());
+
+    assertFalse(Files.exists(oldEntry));
+    assertNotNull(cache.get(template, input.toString(), Map.of("variant", 2)));
+  }
+
+  private static String serialize(SaxEventBuffer events) throws Exception {
+    SAXTransformerFactory factory = (SAXTransformerFactory) TransformerFactory.newInstance();
+    TransformerHandler handler = factory.newTransformerHandler();
+    handler.getTransformer().setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+    StringWriter out = new StringWriter();
+    handler.setResult(new StreamResult(out));
+    events.replay(handler);
+    return out.toString();
+  }
+}
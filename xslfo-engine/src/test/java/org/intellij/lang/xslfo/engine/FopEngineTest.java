@@ -0,0 +1,39 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.fop.apps.MimeConstants;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+
+public class FopEngineTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void constructor_readsConfigInItsDeclaredEncodingAndIgnoresCommentedCacheFile()
+      throws Exception {
+    Path config = temporaryFolder.getRoot().toPath().resolve("fop.xconf");
+    Files.writeString(config, "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n"
+        + "<fop version=\"1.0\">\n"
+        + "  <!-- Schriften f\u00fcr den Druck: <cache-file>x.cache</cache-file> -->\n"
+        + "</fop>\n", StandardCharsets.ISO_8859_1);
+    File template = new File("src/test/resources/simple/template.xsl").getCanonicalFile();
+    Path input = temporaryFolder.getRoot().toPath().resolve("in.xml");
+    Files.writeString(input, "<name>Config</name>");
+    File output = new File(temporaryFolder.getRoot(), "out.pdf");
+
+    FopEngine engine = new FopEngine(config.toString(), temporaryFolder.newFolder().toPath());
+    RenderStats stats = engine.render(template.getPath(), input.toString(), output,
+        MimeConstants.MIME_PDF, null);
+
+    assertEquals(1, stats.pageCount());
+  }
+}
@@ -0,0 +1,65 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.fop.events.Event;
+import org.apache.fop.events.model.EventSeverity;
+import org.junit.Test;
+import org.xml.sax.helpers.LocatorImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FopEventAggregatorTest {
+
+  private static final String OVERCONSTRAINED =
+      "org.apache.fop.layoutmgr.BlockLevelEventProducer.overconstrainedAdjustEndIndent";
+
+  @Test
+  public void processEvent_groupsByIdAndKeyParametersAndCapsSamples() {
+    List<FopEventGroup> reported = new ArrayList<>();
+    FopEventAggregator aggregator = new FopEventAggregator(new EngineDiagnostics() {
+      @Override
+      public void warning(String message) {
+      }
+
+      @Override
+      public void error(String message) {
+      }
+
+      @Override
+      public void fopEvents(FopEventGroup group) {
+        reported.add(group);
+      }
+    });
+
+    for (int line = 1; line <= 8; line++) {
+      aggregator.processEvent(overconstrained("fo:table", line * 100, line));
+    }
+    aggregator.processEvent(overconstrained("fo:block", 5, 20));
+    aggregator.processEvent(new Event(this, OVERCONSTRAINED, EventSeverity.INFO,
+        Map.of("elementName", "fo:table")));
+
+    assertEquals(2, reported.size());
+    assertEquals(reported, aggregator.getGroups());
+    FopEventGroup table = reported.get(0);
+    assertEquals(OVERCONSTRAINED, table.getEventId());
+    assertEquals(Map.of("elementName", "fo:table"), table.getKeyParameters());
+    assertEquals(8, table.getCount());
+    assertEquals(new SourceLocation(null, 1, 1), table.getFirstLocation());
+    assertEquals(new SourceLocation(null, 8, 1), table.getLastLocation());
+    assertEquals(FopEventGroup.MAX_SAMPLES, table.getSampleMessages().size());
+    assertEquals("8 times, first at line 1:1, last at line 8:1", table.describeRepetition());
+    assertNull(reported.get(1).describeRepetition());
+  }
+
+  private Event overconstrained(String elementName, int amount, int line) {
+    LocatorImpl locator = new LocatorImpl();
+    locator.setLineNumber(line);
+    locator.setColumnNumber(1);
+    return new Event(this, OVERCONSTRAINED, EventSeverity.WARN,
+        Map.of("elementName", elementName, "amount", amount, "loc", locator));
+  }
+}
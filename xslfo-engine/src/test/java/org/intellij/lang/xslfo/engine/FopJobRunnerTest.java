@@ -0,0 +1,93 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.fop.apps.MimeConstants;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FopJobRunnerTest {
+
+  private static final String OVERFLOWING_STYLESHEET = """
+      <xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
+                      xmlns:fo="http://www.w3.org/1999/XSL/Format">
+        <xsl:template match="/">
+          <fo:root>
+            <fo:layout-master-set>
+              <fo:simple-page-master master-name="page" page-height="10cm" page-width="2cm">
+                <fo:region-body/>
+              </fo:simple-page-master>
+            </fo:layout-master-set>
+            <fo:page-sequence master-reference="page">
+              <fo:flow flow-name="xsl-region-body">
+                <fo:block>Supercalifragilisticexpialidocious</fo:block>
+                <fo:block>Supercalifragilisticexpialidocious</fo:block>
+                <fo:block>Supercalifragilisticexpialidocious</fo:block>
+              </fo:flow>
+            </fo:page-sequence>
+          </fo:root>
+        </xsl:template>
+      </xsl:stylesheet>
+      """;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void render_externalInstallationUsesPublicApiOnlyAndRendersLikeBundled()
+      throws Exception {
+    File template = new File("src/test/resources/simple/template.xsl").getCanonicalFile();
+    File input = temporaryFolder.newFile("in.xml");
+    Files.writeString(input.toPath(), "<name>Job</name>");
+
+    for (boolean bundledFop : new boolean[] {false, true}) {
+      File output = new File(temporaryFolder.getRoot(), "out-" + bundledFop + ".pdf");
+      List<String> errors = new ArrayList<>();
+      long[] result = new FopJobRunner(null, bundledFop).render(template.getPath(),
+          input.getPath(), output.getPath(), MimeConstants.MIME_PDF, (kind, message) -> {
+            if (FopJobRunner.ERROR.equals(kind)) {
+              errors.add(message);
+            }
+          });
+
+      assertEquals(List.of(), errors);
+      assertEquals(1, result[0]);
+      assertTrue(output.length() > 0);
+    }
+  }
+
+  @Test
+  public void render_summarizesRepeatedFopEventsOnceTheRenderEnded() throws Exception {
+    File template = temporaryFolder.newFile("overflow.xsl");
+    Files.writeString(template.toPath(), OVERFLOWING_STYLESHEET);
+    File input = temporaryFolder.newFile("in.xml");
+    Files.writeString(input.toPath(), "<doc/>");
+    List<String> warnings = new ArrayList<>();
+    List<List<String>> summaries = new ArrayList<>();
+
+    new FopJobRunner(null).render(template.getPath(), input.getPath(),
+        new File(temporaryFolder.getRoot(), "out.pdf").getPath(), MimeConstants.MIME_PDF,
+        (kind, message) -> {
+          if (FopJobRunner.REPEATED.equals(kind)) {
+            summaries.add(FopWorkerProtocol.decode(message));
+          } else if (FopJobRunner.WARN.equals(kind)) {
+            warnings.add(message);
+          }
+        });
+
+    List<String> overflow = summaries.stream()
+        .filter(summary -> summary.get(4).contains("exceed the available area"))
+        .findFirst()
+        .orElseThrow();
+    assertEquals(FopJobRunner.WARN, overflow.get(0));
+    assertTrue(Integer.parseInt(overflow.get(1)) >= 3);
+    assertEquals(1, warnings.stream().filter(overflow.get(4)::equals).count());
+  }
+}
@@ -0,0 +1,74 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.fop.apps.MimeConstants;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class HotFolderRendererTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test(timeout = 60000)
+  public void run_rendersExistingAndArrivingInputsUntilClosed() throws Exception {
+    Path inputs = temporaryFolder.newFolder("in").toPath();
+    Path outputDir = temporaryFolder.newFolder("out").toPath();
+    Files.writeString(inputs.resolve("existing.xml"), "<name>Existing</name>");
+    Files.writeString(inputs.resolve("notes.txt"), "not an input");
+    File template = new File("src/test/resources/simple/template.xsl").getCanonicalFile();
+    BlockingQueue<BatchRenderer.Result> results = new LinkedBlockingQueue<>();
+
+    HotFolderRenderer renderer = new HotFolderRenderer(new FopEngine(null), template.getPath(),
+        inputs, outputDir, MimeConstants.MIME_PDF, ".pdf", 2, new BatchRenderer.Listener() {
+          @Override
+          public void warning(BatchRenderer.Job job, String message) {
+          }
+
+          @Override
+          public void error(BatchRenderer.Job job, String message) {
+          }
+
+          @Override
+          public void completed(BatchRenderer.Result result) {
+            results.add(result);
+          }
+        });
+    Thread watcher = new Thread(() -> {
+      try {
+        renderer.run();
+      } catch (Exception ignored) {
+        // The assertions below report what did not get rendered.
+      }
+    });
+    watcher.start();
+    try {
+      BatchRenderer.Result existing = results.poll(30, TimeUnit.SECONDS);
+      assertNotNull(existing);
+      assertTrue(existing.success());
+      assertEquals(outputDir.resolve("existing.pdf"), existing.job().output());
+
+      Files.writeString(inputs.resolve("arrived.xml"), "<name>Arrived</name>");
+      BatchRenderer.Result arrived = results.poll(30, TimeUnit.SECONDS);
+      assertNotNull(arrived);
+      assertTrue(arrived.success());
+      assertTrue(Files.size(outputDir.resolve("arrived.pdf")) > 0);
+    } finally {
+      renderer.close();
+      watcher.join(10000);
+    }
+    assertFalse(watcher.isAlive());
+  }
+}
@@ -0,0 +1,73 @@
+package org.intellij.lang.xslfo.engine;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.fop.apps.MimeConstants;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class RenderEventsTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void render_emitsCompileTransformAndPerSequenceLayoutEvents() throws Exception {
+    File template = new File("src/test/resources/simple/template.xsl").getCanonicalFile();
+    File input = temporaryFolder.newFile("in.xml");
+    Files.writeString(input.toPath(), "<name>Events</name>");
+    Path dump = temporaryFolder.getRoot().toPath().resolve("render.jfr");
+
+    try (Recording recording = new Recording()) {
+      for (Class<?> event : List.of(RenderEvents.StylesheetCompile.class,
+          RenderEvents.Transform.class, RenderEvents.PageSequenceLayout.class,
+          RenderEvents.OutputSerialization.class)) {
+        recording.enable(event.getName()).withoutThreshold();
+      }
+      recording.start();
+      new FopEngine(null).render(template.getPath(), input.getPath(),
+          temporaryFolder.newFile("out.pdf"), MimeConstants.MIME_PDF, new EngineDiagnostics() {
+            @Override
+            public void warning(String message) {
+            }
+
+            @Override
+            public void error(String message) {
+            }
+
+            @Override
+            public String configurationName() {
+              return "Invoices";
+            }
+          });
+      recording.stop();
+      recording.dump(dump);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+    assertEquals(1, count(events, "org.intellij.lang.xslfo.StylesheetCompile"));
+    assertEquals(1, count(events, "org.intellij.lang.xslfo.Transform"));
+    assertEquals(1, count(events, "org.intellij.lang.xslfo.OutputSerialization"));
+    RecordedEvent sequence = events.stream()
+        .filter(event -> event.getEventType().getName()
+            .equals("org.intellij.lang.xslfo.PageSequenceLayout"))
+        .findFirst().orElseThrow();
+    assertEquals("Invoices", sequence.getString("configuration"));
+    assertEquals(input.getPath(), sequence.getString("input"));
+    assertEquals(1, sequence.getInt("sequence"));
+    assertEquals(1, sequence.getInt("pageCount"));
+  }
+
+  private static long count(List<RecordedEvent> events, String name) {
+    return events.stream().filter(event -> event.getEventType().getName().equals(name)).count();
+  }
+}
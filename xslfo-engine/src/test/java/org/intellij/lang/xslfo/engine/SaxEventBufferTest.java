@@ -0,0 +1,53 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.junit.Test;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class SaxEventBufferTest {
+
+  private static final String DOCUMENT = "<fo:root xmlns:fo=\"http://www.w3.org/1999/XSL/Format\">"
+      + "<fo:block font-size=\"12pt\" id=\"a\">Hello <fo:inline>&amp; welcome</fo:inline>"
+      + "</fo:block>"
+      + "<?fop-hint keep?><fo:block font-size=\"12pt\" id=\"b\">Second</fo:block></fo:root>";
+
+  @Test
+  public void replay_reproducesRecordedDocument() throws Exception {
+    SaxEventBuffer buffer = new SaxEventBuffer();
+    Transformer identity = TransformerFactory.newInstance().newTransformer();
+    identity.transform(new StreamSource(new StringReader(DOCUMENT)), new SAXResult(buffer));
+
+    assertEquals(serialize(DOCUMENT), replayToString(buffer));
+    // Replaying does not consume the buffer.
+    assertEquals(serialize(DOCUMENT), replayToString(buffer));
+  }
+
+  private static String replayToString(SaxEventBuffer buffer) throws Exception {
+    SAXTransformerFactory factory = (SAXTransformerFactory) TransformerFactory.newInstance();
+    TransformerHandler handler = factory.newTransformerHandler();
+    handler.getTransformer().setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+    StringWriter out = new StringWriter();
+    handler.setResult(new StreamResult(out));
+    buffer.replay(handler);
+    return out.toString();
+  }
+
+  private static String serialize(String document) throws Exception {
+    Transformer identity = TransformerFactory.newInstance().newTransformer();
+    identity.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+    StringWriter out = new StringWriter();
+    identity.transform(new StreamSource(new StringReader(document)), new StreamResult(out));
+    return out.toString();
+  }
+}
@@ -0,0 +1,61 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class SharedHyphenationTreeCacheTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void isMissing_compilesLocalPatternsOnceAndPersistsTree() throws Exception {
+    File base = temporaryFolder.newFolder("hyph");
+    Files.writeString(base.toPath().resolve("xx.xml"), "<?xml version=\"1.0\"?>\n"
+        + "<hyphenation-info><hyphen-min before=\"1\" after=\"1\"/>"
+        + "<classes>aA bB</classes><patterns>a1b</patterns></hyphenation-info>");
+    Path compiled = temporaryFolder.getRoot().toPath().resolve("compiled");
+
+    SharedHyphenationTreeCache cache = new SharedHyphenationTreeCache(base.toURI(), compiled);
+
+    assertFalse(cache.isMissing("xx"));
+    assertNotNull(cache.getHyphenationTree("xx", null));
+    assertFalse(cache.isMissing("yy"));
+    try (Stream<Path> trees = Files.list(compiled)) {
+      assertEquals(1, trees.filter(tree -> tree.getFileName().toString().startsWith("xx-"))
+          .count());
+    }
+  }
+
+  @Test
+  public void isMissing_leavesMappedAndSerializedPatternsToFop() throws Exception {
+    File base = temporaryFolder.newFolder("hyph");
+    String patterns = "<?xml version=\"1.0\"?>\n"
+        + "<hyphenation-info><hyphen-min before=\"1\" after=\"1\"/>"
+        + "<classes>aA bB</classes><patterns>a1b</patterns></hyphenation-info>";
+    Files.writeString(base.toPath().resolve("xx.xml"), patterns);
+    Files.writeString(base.toPath().resolve("yy.xml"), patterns);
+    Files.writeString(base.toPath().resolve("yy.hyp"), "serialized by FOP");
+    Files.writeString(base.toPath().resolve("xx-custom.xml"), patterns);
+
+    SharedHyphenationTreeCache cache = new SharedHyphenationTreeCache(base.toURI(),
+        Map.of("xx", "xx-custom"), null);
+
+    assertFalse(cache.isMissing("xx"));
+    assertNull(cache.getHyphenationTree("xx", null));
+    assertFalse(cache.isMissing("yy"));
+    assertNull(cache.getHyphenationTree("yy", null));
+  }
+}
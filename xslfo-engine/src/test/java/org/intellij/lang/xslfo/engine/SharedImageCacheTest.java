@@ -0,0 +1,164 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.fop.apps.MimeConstants;
+import org.apache.xmlgraphics.image.loader.ImageContext;
+import org.apache.xmlgraphics.image.loader.ImageFlavor;
+import org.apache.xmlgraphics.image.loader.ImageInfo;
+import org.apache.xmlgraphics.image.loader.ImageManager;
+import org.apache.xmlgraphics.image.loader.ImageSessionContext;
+import org.apache.xmlgraphics.image.loader.ImageSize;
+import org.apache.xmlgraphics.image.loader.impl.AbstractImagePreloader;
+import org.apache.xmlgraphics.image.loader.impl.DefaultImageContext;
+import org.apache.xmlgraphics.image.loader.impl.DefaultImageSessionContext;
+import org.apache.xmlgraphics.image.loader.impl.ImageRawStream;
+import org.apache.xmlgraphics.image.loader.impl.ImageRendered;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import javax.xml.transform.Source;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class SharedImageCacheTest {
+
+  private static final String STYLESHEET = """
+      <xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
+                      xmlns:fo="http://www.w3.org/1999/XSL/Format">
+        <xsl:param name="logo"/>
+        <xsl:template match="/">
+          <fo:root>
+            <fo:layout-master-set>
+              <fo:simple-page-master master-name="page" page-height="10cm" page-width="10cm">
+                <fo:region-body/>
+              </fo:simple-page-master>
+            </fo:layout-master-set>
+            <fo:page-sequence master-reference="page">
+              <fo:flow flow-name="xsl-region-body">
+                <fo:block><fo:external-graphic src="{$logo}"/></fo:block>
+              </fo:flow>
+            </fo:page-sequence>
+          </fo:root>
+        </xsl:template>
+      </xsl:stylesheet>
+      """;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void render_reusesImagesDecodedByAnotherEngine() throws Exception {
+    File logo = temporaryFolder.newFile("logo.png");
+    ImageIO.write(new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB), "png", logo);
+    File stylesheet = temporaryFolder.newFile("logo.xsl");
+    Files.writeString(stylesheet.toPath(), STYLESHEET);
+    File input = temporaryFolder.newFile("in.xml");
+    Files.writeString(input.toPath(), "<doc/>");
+    Map<String, String> parameters = Map.of("logo", logo.toURI().toString());
+    SharedImageCache.clearShared();
+
+    new FopEngine(null).render(stylesheet.getPath(), input.getPath(),
+        temporaryFolder.newFile("first.pdf"), MimeConstants.MIME_PDF, parameters, null);
+    long hitsAfterFirstEngine = SharedImageCache.getHitCount();
+    new FopEngine(null).render(stylesheet.getPath(), input.getPath(),
+        temporaryFolder.newFile("second.pdf"), MimeConstants.MIME_PDF, parameters, null);
+
+    assertTrue(SharedImageCache.getHitCount() > hitsAfterFirstEngine);
+  }
+
+  @Test
+  public void getImageInfo_doesNotShareNonCacheablePreloadedImages() throws Exception {
+    File image = temporaryFolder.newFile("stream.raw");
+    Files.writeString(image.toPath(), "raw image stream");
+    ImageManager manager = new ImageManager(new DefaultImageContext());
+    StreamPreloader preloader = new StreamPreloader();
+    manager.getRegistry().registerPreloader(preloader);
+    ImageSessionContext session =
+        new DefaultImageSessionContext(manager.getImageContext(), null);
+    String uri = image.toURI().toString();
+    SharedImageCache.clearShared();
+
+    ImageInfo first = new SharedImageCache(null).getImageInfo(uri, session, manager);
+    long hitsAfterFirstCache = SharedImageCache.getHitCount();
+    ImageInfo second = new SharedImageCache(null).getImageInfo(uri, session, manager);
+
+    assertFalse(first.getOriginalImage().isCacheable());
+    assertNotSame(first, second);
+    assertEquals(2, preloader.calls);
+    assertEquals(hitsAfterFirstCache, SharedImageCache.getHitCount());
+  }
+
+  @Test
+  public void getImageInfo_chargesPreloadedOriginalAgainstTheBudget() throws Exception {
+    File image = temporaryFolder.newFile("large.decoded");
+    Files.writeString(image.toPath(), "decoded while preloading");
+    ImageManager manager = new ImageManager(new DefaultImageContext());
+    DecodingPreloader preloader = new DecodingPreloader();
+    manager.getRegistry().registerPreloader(preloader);
+    ImageSessionContext session =
+        new DefaultImageSessionContext(manager.getImageContext(), null);
+    String uri = image.toURI().toString();
+    SharedImageCache.clearShared();
+    SharedImageCache.setMaxBytes(64 * 1024);
+    try {
+      new SharedImageCache(null).getImageInfo(uri, session, manager);
+      new SharedImageCache(null).getImageInfo(uri, session, manager);
+    } finally {
+      SharedImageCache.setMaxBytes(SharedImageCache.DEFAULT_MAX_BYTES);
+    }
+
+    // 400 x 400 ARGB pixels are far over the budget, so the information is not shared.
+    assertEquals(2, preloader.calls);
+  }
+
+  /**
+   * Preloads {@code .decoded} files with an already decoded, cacheable original image, like
+   * preloaders that must decode to find the image size do.
+   */
+  private static final class DecodingPreloader extends AbstractImagePreloader {
+    private int calls;
+
+    @Override
+    public ImageInfo preloadImage(String uri, Source src, ImageContext context) {
+      if (!uri.endsWith(".decoded")) {
+        return null;
+      }
+      calls++;
+      ImageInfo info = new ImageInfo(uri, "image/x-decoded");
+      info.setSize(new ImageSize(400, 400, 72));
+      info.setOriginalImage(new ImageRendered(info,
+          new BufferedImage(400, 400, BufferedImage.TYPE_INT_ARGB), null));
+      return info;
+    }
+  }
+
+  /**
+   * Preloads {@code .raw} files with a single-use stream as original image, like preloaders of
+   * raw formats do.
+   */
+  private static final class StreamPreloader extends AbstractImagePreloader {
+    private int calls;
+
+    @Override
+    public ImageInfo preloadImage(String uri, Source src, ImageContext context) {
+      if (!uri.endsWith(".raw")) {
+        return null;
+      }
+      calls++;
+      ImageInfo info = new ImageInfo(uri, "application/x-raw-stream");
+      info.setSize(new ImageSize(10, 10, 72));
+      info.setOriginalImage(new ImageRawStream(info, ImageFlavor.RAW_PNG,
+          new ByteArrayInputStream(new byte[0])));
+      return info;
+    }
+  }
+}
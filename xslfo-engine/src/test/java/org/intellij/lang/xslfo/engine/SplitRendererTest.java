@@ -0,0 +1,50 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SplitRendererTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test(timeout = 60000)
+  public void render_mergesChunksInOrderWithContinuousPageNumbers() throws Exception {
+    StringBuilder xml = new StringBuilder("<statements><bank>ACME</bank>");
+    for (int i = 1; i <= 5; i++) {
+      xml.append("<statement account=\"A").append(i).append("\"/>");
+    }
+    Path input = temporaryFolder.newFile("statements.xml").toPath();
+    Files.writeString(input, xml.append("</statements>"));
+    Path output = temporaryFolder.getRoot().toPath().resolve("out/statements.pdf");
+    File template = new File("src/test/resources/split/statements.xsl").getCanonicalFile();
+
+    SplitRenderer.Result result = new SplitRenderer(new FopEngine(null), 2).render(
+        template.getPath(), input, output, new XmlRecordSplitter("statement", 2), true, null);
+
+    assertEquals(3, result.chunkCount());
+    assertEquals(5, result.pageCount());
+    try (PDDocument document = Loader.loadPDF(output.toFile())) {
+      assertEquals(5, document.getNumberOfPages());
+      PDFTextStripper stripper = new PDFTextStripper();
+      for (int number = 1; number <= 5; number++) {
+        stripper.setStartPage(number);
+        stripper.setEndPage(number);
+        String page = stripper.getText(document);
+        assertTrue(page, page.contains("ACME: A" + number));
+        assertTrue(page, page.contains("(page " + number + ")"));
+      }
+    }
+  }
+}
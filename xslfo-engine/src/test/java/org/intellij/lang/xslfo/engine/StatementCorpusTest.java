@@ -0,0 +1,58 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.apache.fop.apps.MimeConstants;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StatementCorpusTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void generate_isDeterministicPerSeed() throws Exception {
+    Path root = temporaryFolder.getRoot().toPath();
+    StatementCorpus first = StatementCorpus.generate(root.resolve("a"), 2, 30, 7);
+    StatementCorpus second = StatementCorpus.generate(root.resolve("b"), 2, 30, 7);
+    StatementCorpus other = StatementCorpus.generate(root.resolve("c"), 2, 30, 8);
+
+    assertArrayEquals(Files.readAllBytes(first.input()), Files.readAllBytes(second.input()));
+    assertEquals(first.transactions(), second.transactions());
+    assertFalse(Files.readString(first.input()).equals(Files.readString(other.input())));
+  }
+
+  @Test(timeout = 120000)
+  public void generate_rendersOnePageSequencePerStatement() throws Exception {
+    StatementCorpus corpus = StatementCorpus.generate(temporaryFolder.getRoot().toPath(),
+        StatementCorpus.Size.SMALL, StatementCorpus.DEFAULT_SEED);
+    Path output = temporaryFolder.getRoot().toPath().resolve("statements.pdf");
+    StringBuilder errors = new StringBuilder();
+
+    RenderStats stats = new FopEngine(null).render(corpus.stylesheet().toString(),
+        corpus.input().toString(), output.toFile(), MimeConstants.MIME_PDF,
+        new EngineDiagnostics() {
+          @Override
+          public void warning(String message) {
+          }
+
+          @Override
+          public void error(String message) {
+            errors.append(message).append('\n');
+          }
+        });
+
+    assertEquals("", errors.toString());
+    assertEquals(3, corpus.statements());
+    assertTrue("pages: " + stats.pageCount(), stats.pageCount() > corpus.statements());
+    assertTrue(Files.size(output) > 0);
+  }
+}
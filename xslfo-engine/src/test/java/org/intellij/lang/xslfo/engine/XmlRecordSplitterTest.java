@@ -0,0 +1,78 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class XmlRecordSplitterTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void split_repeatsEnclosingElementsAndHeaderInEveryChunk() throws Exception {
+    Path input = temporaryFolder.newFile("in.xml").toPath();
+    Files.writeString(input, "<?xml version=\"1.0\"?>\n"
+        + "<s:statements xmlns:s=\"urn:test\" run=\"7\"><s:bank>ACME</s:bank>"
+        + "<s:statement id=\"1\"/><s:statement id=\"2\"><s:statement id=\"nested\"/></s:statement>"
+        + "<s:statement id=\"3\"/><s:trailer/></s:statements>");
+    Path chunkDir = temporaryFolder.newFolder("chunks").toPath();
+    List<Path> chunks = new ArrayList<>();
+
+    int count = new XmlRecordSplitter("{urn:test}statement", 2)
+        .split(input, chunkDir, (index, chunk) -> {
+          assertEquals(chunks.size(), index);
+          chunks.add(chunk);
+        });
+
+    assertEquals(2, count);
+    Element first = parse(chunks.get(0));
+    assertEquals("urn:test", first.getNamespaceURI());
+    assertEquals("7", first.getAttribute("run"));
+    assertEquals("ACME", first.getElementsByTagNameNS("urn:test", "bank").item(0)
+        .getTextContent());
+    assertEquals(3, first.getElementsByTagNameNS("urn:test", "statement").getLength());
+
+    Element second = parse(chunks.get(1));
+    assertEquals("7", second.getAttribute("run"));
+    assertEquals(1, second.getElementsByTagNameNS("urn:test", "bank").getLength());
+    assertEquals("3", ((Element) second.getElementsByTagNameNS("urn:test", "statement").item(0))
+        .getAttribute("id"));
+    assertEquals(1, second.getElementsByTagNameNS("urn:test", "trailer").getLength());
+  }
+
+  @Test
+  public void split_failsWithoutRecords() throws Exception {
+    Path input = temporaryFolder.newFile("empty.xml").toPath();
+    Files.writeString(input, "<statements><bank>ACME</bank></statements>");
+
+    try {
+      new XmlRecordSplitter("statement", 10)
+          .split(input, temporaryFolder.newFolder("none").toPath(), (index, chunk) -> {
+          });
+      fail("Expected an IOException");
+    } catch (IOException expected) {
+      assertTrue(expected.getMessage().contains("<statement>"));
+    }
+  }
+
+  private static Element parse(Path chunk) throws Exception {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    Document document = factory.newDocumentBuilder().parse(chunk.toFile());
+    return document.getDocumentElement();
+  }
+}
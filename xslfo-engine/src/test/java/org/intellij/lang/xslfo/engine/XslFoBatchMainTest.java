@@ -0,0 +1,74 @@
+package org.intellij.lang.xslfo.engine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class XslFoBatchMainTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void expandGlob_matchesNestedAndTopLevelInputs() throws Exception {
+    Path inputs = temporaryFolder.newFolder("in").toPath();
+    Files.createDirectories(inputs.resolve("nested"));
+    Files.writeString(inputs.resolve("a.xml"), "<name>A</name>");
+    Files.writeString(inputs.resolve("nested/b.xml"), "<name>B</name>");
+    Files.writeString(inputs.resolve("notes.txt"), "not an input");
+
+    List<Path> matched = XslFoBatchMain.expandGlob(slashes(inputs) + "/**/*.xml");
+
+    assertEquals(List.of(inputs.resolve("a.xml"), inputs.resolve("nested/b.xml")), matched);
+  }
+
+  @Test(timeout = 60000)
+  public void run_rendersEveryMatchedInputMirroringDirectories() throws Exception {
+    Path inputs = temporaryFolder.newFolder("docs").toPath();
+    Files.createDirectories(inputs.resolve("nested"));
+    Files.writeString(inputs.resolve("first.xml"), "<name>First</name>");
+    Files.writeString(inputs.resolve("nested/second.xml"), "<name>Second</name>");
+    Path outputDir = temporaryFolder.getRoot().toPath().resolve("pdf");
+    File template = new File("src/test/resources/simple/template.xsl").getCanonicalFile();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    int exitCode = XslFoBatchMain.run(new String[]{
+        "--xsl", template.getPath(),
+        "--in", slashes(inputs) + "/**/*.xml",
+        "--out", outputDir.toString(),
+        "--parallelism", "2"
+    }, new PrintStream(out, true, StandardCharsets.UTF_8), System.err);
+
+    assertEquals(out.toString(StandardCharsets.UTF_8), 0, exitCode);
+    assertTrue(Files.size(outputDir.resolve("first.pdf")) > 0);
+    assertTrue(Files.size(outputDir.resolve("nested/second.pdf")) > 0);
+    assertTrue(out.toString(StandardCharsets.UTF_8).contains("2 of 2 inputs rendered"));
+  }
+
+  @Test
+  public void run_rejectsUnknownFormat() throws Exception {
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    int exitCode = XslFoBatchMain.run(new String[]{
+        "--xsl", "style.xsl", "--in", "*.xml", "--out", "out", "--format", "docx"
+    }, System.out, new PrintStream(err, true, StandardCharsets.UTF_8));
+
+    assertEquals(2, exitCode);
+    assertTrue(err.toString(StandardCharsets.UTF_8).contains("Unsupported format: docx"));
+  }
+
+  private static String slashes(Path path) {
+    return path.toString().replace('\\', '/');
+  }
+}
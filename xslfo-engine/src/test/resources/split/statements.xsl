@@ -0,0 +1,30 @@
+<?xml version="1.0" encoding="utf-8"?>
+<xsl:stylesheet version="1.0"
+                xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
+                xmlns:fo="http://www.w3.org/1999/XSL/Format">
+    <xsl:param name="initial-page-number" select="1"/>
+    <xsl:template match="/">
+        <fo:root>
+            <fo:layout-master-set>
+                <fo:simple-page-master master-name="A4-portrait"
+                                       page-height="29.7cm" page-width="21.0cm" margin="2cm">
+                    <fo:region-body/>
+                </fo:simple-page-master>
+            </fo:layout-master-set>
+            <fo:page-sequence master-reference="A4-portrait"
+                              initial-page-number="{$initial-page-number}">
+                <fo:flow flow-name="xsl-region-body">
+                    <xsl:for-each select="statements/statement">
+                        <fo:block>
+                            <xsl:if test="position() &gt; 1">
+                                <xsl:attribute name="break-before">page</xsl:attribute>
+                            </xsl:if>
+                            <xsl:value-of select="/statements/bank"/>: <xsl:value-of select="@account"/>
+                            (page <fo:page-number/>)
+                        </fo:block>
+                    </xsl:for-each>
+                </fo:flow>
+            </fo:page-sequence>
+        </fo:root>
+    </xsl:template>
+</xsl:stylesheet>
@@ -0,0 +1,269 @@
+package org.intellij.lang.xslfo.engine;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * A seeded corpus of bank statements that resembles production documents, for load tests and
+ * benchmarks: one page sequence per statement with a raster logo, an SVG chart, a transaction
+ * table with a repeated header, footnotes, running-balance markers and Helvetica, Times and
+ * Courier in several weights. The same seed and size always produce the same input.
+ * <br>
+ * Statements are {@value #RECORD_ELEMENT} elements, so the input can also be split with
+ * {@link XmlRecordSplitter}; the stylesheet takes the {@code initial-page-number} parameter of
+ * {@link SplitRenderer}. {@link #main} writes a corpus for the {@code generateCorpus} task.
+ *
+ * @param stylesheet   the stylesheet laying out the statements
+ * @param input        the generated statements
+ * @param statements   number of statements, i.e. page sequences
+ * @param transactions number of transactions over all statements
+ */
+public record StatementCorpus(Path stylesheet, Path input, int statements, int transactions) {
+
+  public static final long DEFAULT_SEED = 42;
+  public static final String RECORD_ELEMENT = "statement";
+
+  private static final String STYLESHEET_RESOURCE = "statements.xsl";
+  private static final String LOGO_TOKEN = "@LOGO_URI@";
+  private static final LocalDate PERIOD_START = LocalDate.of(2024, 3, 1);
+  private static final double NOTE_PROBABILITY = 0.06;
+  private static final double CREDIT_PROBABILITY = 0.08;
+
+  private static final String[] FIRST_NAMES = {"Anna", "Ben", "Clara", "David", "Elif", "Farid",
+      "Grace", "Hugo", "Ines", "Jonas", "Keiko", "Lars", "Maria", "Nils", "Olga", "Pavel"};
+  private static final String[] LAST_NAMES = {"Andersen", "Brown", "Costa", "Dubois", "Eriksen",
+      "Fischer", "Garcia", "Horvat", "Ivanova", "Jansen", "Kowalski", "Lindqvist", "Moreau"};
+  private static final String[] STREETS = {"Harbour Road", "Linden Street", "Market Square",
+      "Mill Lane", "Park Avenue", "Station Road", "Church Street", "Riverside Walk"};
+  private static final String[] CITIES = {"1010 Vienna", "2100 Copenhagen", "10115 Berlin",
+      "75001 Paris", "1012 Amsterdam", "00-001 Warsaw", "111 20 Stockholm", "28001 Madrid"};
+  private static final String[] MERCHANTS = {"Corner Grocery", "Smith & Sons Hardware",
+      "City Transport", "Green Leaf Pharmacy", "Blue Harbour Cafe", "Northwind Books",
+      "Metro Fuel Station", "Online Marketplace", "Electricity & Gas Co.", "Mobile Telecom",
+      "Riverside Cinema", "Garden Centre", "Insurance Premium", "Rent Payment",
+      "ATM Withdrawal", "Annual Card Fee", "Streaming Subscription", "Bakery Muller"};
+  private static final String[] CREDITS = {"Salary", "Transfer from savings", "Tax refund",
+      "Interest", "Reimbursement"};
+  private static final String[] NOTES = {"Foreign transaction converted at the reference rate "
+      + "of the booking day plus a 1.5% fee.", "Disputed; the amount is provisional until the "
+      + "review is complete.", "Recurring payment; cancel at any branch or in online banking.",
+      "Booked on the next business day because of a public holiday."};
+  private static final String NOTICE = "Please check this statement promptly. Objections must be "
+      + "raised within six weeks of receipt; after that the statement is deemed approved. "
+      + "Balances include transactions booked up to the end of the period. Deposits are "
+      + "protected by the statutory deposit guarantee scheme up to the legal limit.";
+
+  /**
+   * Presets of the number of statements and their average number of transactions.
+   */
+  public enum Size {
+    /** A few pages, quick enough for unit tests. */
+    SMALL(3, 60),
+    /** A few hundred pages. */
+    MEDIUM(40, 200),
+    /** Several thousand pages. */
+    LARGE(600, 220);
+
+    private final int statements;
+    private final int transactions;
+
+    Size(int statements, int transactions) {
+      this.statements = statements;
+      this.transactions = transactions;
+    }
+  }
+
+  /**
+   * Writes the corpus of {@code size} generated from {@code seed} into {@code directory}.
+   */
+  public static StatementCorpus generate(Path directory, Size size, long seed)
+      throws IOException {
+    return generate(directory, size.statements, size.transactions, seed);
+  }
+
+  /**
+   * Writes {@code statements} statements of {@code averageTransactions} transactions on average,
+   * generated from {@code seed}, with their stylesheet and logo into {@code directory}.
+   */
+  public static StatementCorpus generate(Path directory, int statements, int averageTransactions,
+                                         long seed) throws IOException {
+    if (statements < 1 || averageTransactions < 1) {
+      throw new IllegalArgumentException("A corpus needs at least one statement and transaction");
+    }
+    Files.createDirectories(directory);
+    Path logo = directory.resolve("logo.png");
+    writeLogo(logo, seed);
+    Path stylesheet = directory.resolve("statements.xsl");
+    Files.writeString(stylesheet, stylesheetTemplate().replace(LOGO_TOKEN,
+        logo.toUri().toString()));
+    Path input = directory.resolve("statements.xml");
+    Random random = new Random(seed);
+    int transactions = 0;
+    try (Writer out = Files.newBufferedWriter(input, StandardCharsets.UTF_8)) {
+      out.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<statements>\n");
+      out.write("  <bank name=\"Northern Savings Bank\" address=\"1 Exchange Place, Harbour City\""
+          + " notice=\"" + NOTICE + "\"/>\n");
+      for (int statement = 1; statement <= statements; statement++) {
+        int count = averageTransactions / 2 + random.nextInt(averageTransactions + 1);
+        writeStatement(out, random, statement, Math.max(1, count));
+        transactions += Math.max(1, count);
+      }
+      out.write("</statements>\n");
+    }
+    return new StatementCorpus(stylesheet, input, statements, transactions);
+  }
+
+  private static void writeStatement(Writer out, Random random, int index, int count)
+      throws IOException {
+    int days = PERIOD_START.lengthOfMonth();
+    int[] dayOfTransaction = new int[count];
+    for (int i = 0; i < count; i++) {
+      dayOfTransaction[i] = random.nextInt(days);
+    }
+    Arrays.sort(dayOfTransaction);
+
+    long opening = 50_000 + random.nextInt(500_000);
+    long[] amounts = new long[count];
+    long credits = 0;
+    long debits = 0;
+    for (int i = 0; i < count; i++) {
+      amounts[i] = random.nextDouble() < CREDIT_PROBABILITY ? 10_000 + random.nextInt(300_000)
+          : -(100 + random.nextInt(random.nextBoolean() ? 5_000 : 40_000));
+      if (amounts[i] > 0) {
+        credits += amounts[i];
+      } else {
+        debits -= amounts[i];
+      }
+    }
+    long closing = opening + credits - debits;
+
+    out.write(String.format(Locale.ROOT, "  <%s account=\"S%06d\" number=\"%s\" currency=\"EUR\""
+            + " from=\"%s\" to=\"%s\" opening=\"%s\" credits=\"%s\" debits=\"%s\""
+            + " closing=\"%s\">\n", RECORD_ELEMENT, index, accountNumber(random), PERIOD_START,
+        PERIOD_START.plusDays(days - 1L), money(opening), money(credits), money(-debits),
+        money(closing)));
+    out.write("    <holder name=\"" + pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES)
+        + "\" street=\"" + (1 + random.nextInt(120)) + " " + pick(random, STREETS)
+        + "\" city=\"" + pick(random, CITIES) + "\"/>\n");
+    writeTrend(out, opening, amounts, dayOfTransaction, days);
+
+    long balance = opening;
+    for (int i = 0; i < count; i++) {
+      balance += amounts[i];
+      String description = amounts[i] > 0 ? pick(random, CREDITS) : pick(random, MERCHANTS);
+      out.write("    <tx date=\"" + PERIOD_START.plusDays(dayOfTransaction[i])
+          + "\" ref=\"" + String.format(Locale.ROOT, "%012X", random.nextLong() >>> 16)
+          + "\" amount=\"" + money(amounts[i]) + "\" balance=\"" + money(balance) + "\"");
+      if (random.nextDouble() < NOTE_PROBABILITY) {
+        out.write(" note=\"" + pick(random, NOTES) + "\"");
+      }
+      out.write(">" + escape(description) + "</tx>\n");
+    }
+    out.write("  </" + RECORD_ELEMENT + ">\n");
+  }
+
+  /**
+   * Writes the end-of-day balances of the period as the points of a 348 by 60 polyline.
+   */
+  private static void writeTrend(Writer out, long opening, long[] amounts, int[] days,
+                                 int dayCount) throws IOException {
+    long[] endOfDay = new long[dayCount];
+    long balance = opening;
+    int transaction = 0;
+    for (int day = 0; day < dayCount; day++) {
+      while (transaction < amounts.length && days[transaction] == day) {
+        balance += amounts[transaction++];
+      }
+      endOfDay[day] = balance;
+    }
+    long min = Math.min(0, Arrays.stream(endOfDay).min().orElse(0));
+    long max = Math.max(1, Arrays.stream(endOfDay).max().orElse(1));
+    double scale = 56.0 / (max - min);
+    StringBuilder points = new StringBuilder();
+    for (int day = 0; day < dayCount; day++) {
+      points.append(String.format(Locale.ROOT, "%s%.1f,%.1f", day > 0 ? " " : "",
+          day * 348.0 / (dayCount - 1), 58 - (endOfDay[day] - min) * scale));
+    }
+    out.write(String.format(Locale.ROOT, "    <trend zero=\"%.1f\" points=\"%s\"/>\n",
+        58 + min * scale, points));
+  }
+
+  private static void writeLogo(Path logo, long seed) throws IOException {
+    Random random = new Random(seed);
+    BufferedImage image = new BufferedImage(480, 160, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    try {
+      for (int x = 0; x < image.getWidth(); x++) {
+        graphics.setColor(new Color(20 + x / 8, 60 + x / 6, 140));
+        graphics.fillRect(x, 0, 1, image.getHeight());
+      }
+      for (int circle = 0; circle < 24; circle++) {
+        graphics.setColor(new Color(random.nextInt(0x1000000)));
+        int diameter = 10 + random.nextInt(60);
+        graphics.fillOval(random.nextInt(480), random.nextInt(160), diameter, diameter);
+      }
+    } finally {
+      graphics.dispose();
+    }
+    ImageIO.write(image, "png", logo.toFile());
+  }
+
+  private static String stylesheetTemplate() throws IOException {
+    try (InputStream in = StatementCorpus.class.getResourceAsStream(STYLESHEET_RESOURCE)) {
+      if (in == null) {
+        throw new IOException("Missing resource " + STYLESHEET_RESOURCE);
+      }
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static String accountNumber(Random random) {
+    return String.format(Locale.ROOT, "NS%02d %04d %04d %04d", random.nextInt(100),
+        random.nextInt(10_000), random.nextInt(10_000), random.nextInt(10_000));
+  }
+
+  private static String money(long cents) {
+    return String.format(Locale.ROOT, "%s%d.%02d", cents < 0 ? "-" : "", Math.abs(cents) / 100,
+        Math.abs(cents) % 100);
+  }
+
+  private static String pick(Random random, String[] values) {
+    return values[random.nextInt(values.length)];
+  }
+
+  private static String escape(String text) {
+    return text.replace("&", "&amp;").replace("<", "&lt;");
+  }
+
+  /**
+   * Writes a corpus: {@code <directory> [small|medium|large|<statements>] [seed]}.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1 || args.length > 3) {
+      System.err.println("Usage: StatementCorpus <directory> [small|medium|large|<statements>]"
+          + " [seed]");
+      System.exit(2);
+    }
+    Path directory = Path.of(args[0]);
+    String size = args.length > 1 ? args[1] : "large";
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+    StatementCorpus corpus = size.chars().allMatch(Character::isDigit)
+        ? generate(directory, Integer.parseInt(size), Size.LARGE.transactions, seed)
+        : generate(directory, Size.valueOf(size.toUpperCase(Locale.ROOT)), seed);
+    System.out.printf(Locale.ROOT, "%d statements, %d transactions%n  stylesheet: %s%n"
+            + "  input:      %s%n", corpus.statements(), corpus.transactions(),
+        corpus.stylesheet().toAbsolutePath(), corpus.input().toAbsolutePath());
+  }
+}
@@ -0,0 +1,277 @@
+<?xml version="1.0" encoding="utf-8"?>
+<!--
+  Lays out the statements written by StatementCorpus: one page sequence per statement with a
+  first-page letterhead, a raster logo, an SVG balance chart, a transaction table whose header
+  repeats on every page, footnotes for annotated transactions and the running balance carried
+  to the page footer through markers. @LOGO_URI@ is replaced with the logo's location when the
+  corpus is written.
+-->
+<xsl:stylesheet version="1.0"
+                xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
+                xmlns:fo="http://www.w3.org/1999/XSL/Format"
+                xmlns:svg="http://www.w3.org/2000/svg">
+    <xsl:param name="initial-page-number" select="1"/>
+    <xsl:param name="logo" select="'@LOGO_URI@'"/>
+
+    <xsl:template match="/statements">
+        <fo:root font-family="Helvetica" font-size="9pt">
+            <fo:layout-master-set>
+                <fo:simple-page-master master-name="first" page-height="29.7cm" page-width="21cm"
+                                       margin-top="1cm" margin-bottom="1cm"
+                                       margin-left="1.8cm" margin-right="1.8cm">
+                    <fo:region-body margin-top="3cm" margin-bottom="1.5cm"/>
+                    <fo:region-before region-name="first-before" extent="2.6cm"/>
+                    <fo:region-after extent="1cm"/>
+                </fo:simple-page-master>
+                <fo:simple-page-master master-name="rest" page-height="29.7cm" page-width="21cm"
+                                       margin-top="1cm" margin-bottom="1cm"
+                                       margin-left="1.8cm" margin-right="1.8cm">
+                    <fo:region-body margin-top="1.6cm" margin-bottom="1.5cm"/>
+                    <fo:region-before region-name="rest-before" extent="1.2cm"/>
+                    <fo:region-after extent="1cm"/>
+                </fo:simple-page-master>
+                <fo:page-sequence-master master-name="statement">
+                    <fo:repeatable-page-master-alternatives>
+                        <fo:conditional-page-master-reference master-reference="first"
+                                                              page-position="first"/>
+                        <fo:conditional-page-master-reference master-reference="rest"
+                                                              page-position="rest"/>
+                    </fo:repeatable-page-master-alternatives>
+                </fo:page-sequence-master>
+            </fo:layout-master-set>
+            <xsl:apply-templates select="statement"/>
+        </fo:root>
+    </xsl:template>
+
+    <xsl:template match="statement">
+        <fo:page-sequence master-reference="statement" id="{@account}">
+            <xsl:if test="position() = 1">
+                <xsl:attribute name="initial-page-number">
+                    <xsl:value-of select="$initial-page-number"/>
+                </xsl:attribute>
+            </xsl:if>
+            <fo:static-content flow-name="first-before">
+                <fo:table table-layout="fixed" width="100%">
+                    <fo:table-column column-width="4.5cm"/>
+                    <fo:table-column column-width="proportional-column-width(1)"/>
+                    <fo:table-body>
+                        <fo:table-row>
+                            <fo:table-cell>
+                                <fo:block>
+                                    <fo:external-graphic src="url('{$logo}')" content-width="4cm"/>
+                                </fo:block>
+                            </fo:table-cell>
+                            <fo:table-cell text-align="end">
+                                <fo:block font-family="Times" font-size="16pt" font-weight="bold">
+                                    <xsl:value-of select="/statements/bank/@name"/>
+                                </fo:block>
+                                <fo:block font-family="Times" font-style="italic">
+                                    <xsl:value-of select="/statements/bank/@address"/>
+                                </fo:block>
+                                <fo:block space-before="4pt">
+                                    Statement of account
+                                    <fo:inline font-family="Courier">
+                                        <xsl:value-of select="@number"/>
+                                    </fo:inline>
+                                </fo:block>
+                                <fo:block>
+                                    <xsl:value-of select="@from"/> to <xsl:value-of select="@to"/>
+                                </fo:block>
+                            </fo:table-cell>
+                        </fo:table-row>
+                    </fo:table-body>
+                </fo:table>
+            </fo:static-content>
+            <fo:static-content flow-name="rest-before">
+                <fo:block font-family="Times" font-size="11pt" font-weight="bold"
+                          border-bottom="0.5pt solid #808080" padding-bottom="2pt">
+                    <xsl:value-of select="/statements/bank/@name"/> -
+                    <xsl:value-of select="holder/@name"/>, account
+                    <fo:inline font-family="Courier" font-weight="normal">
+                        <xsl:value-of select="@number"/>
+                    </fo:inline>
+                    (continued)
+                </fo:block>
+            </fo:static-content>
+            <fo:static-content flow-name="xsl-region-after">
+                <fo:table table-layout="fixed" width="100%" font-size="8pt">
+                    <fo:table-column column-width="proportional-column-width(1)"/>
+                    <fo:table-column column-width="proportional-column-width(1)"/>
+                    <fo:table-body>
+                        <fo:table-row>
+                            <fo:table-cell>
+                                <fo:block>
+                                    Balance carried forward:
+                                    <fo:retrieve-marker retrieve-class-name="balance"
+                                                        retrieve-position="last-ending-within-page"
+                                                        retrieve-boundary="page-sequence"/>
+                                </fo:block>
+                            </fo:table-cell>
+                            <fo:table-cell text-align="end">
+                                <fo:block>
+                                    Page <fo:page-number/> of
+                                    <fo:page-number-citation-last ref-id="{@account}"/>
+                                </fo:block>
+                            </fo:table-cell>
+                        </fo:table-row>
+                    </fo:table-body>
+                </fo:table>
+            </fo:static-content>
+            <fo:flow flow-name="xsl-region-body">
+                <xsl:apply-templates select="holder"/>
+                <xsl:call-template name="summary"/>
+                <xsl:apply-templates select="trend"/>
+                <xsl:call-template name="transactions"/>
+                <fo:block space-before="12pt" font-family="Times" font-style="italic"
+                          font-size="8pt" text-align="justify">
+                    <xsl:value-of select="/statements/bank/@notice"/>
+                </fo:block>
+            </fo:flow>
+        </fo:page-sequence>
+    </xsl:template>
+
+    <xsl:template match="holder">
+        <fo:block font-family="Times" font-size="11pt" space-after="12pt">
+            <fo:block font-weight="bold"><xsl:value-of select="@name"/></fo:block>
+            <fo:block><xsl:value-of select="@street"/></fo:block>
+            <fo:block><xsl:value-of select="@city"/></fo:block>
+        </fo:block>
+    </xsl:template>
+
+    <xsl:template name="summary">
+        <fo:table table-layout="fixed" width="9cm" space-after="8pt">
+            <fo:table-column column-width="5cm"/>
+            <fo:table-column column-width="4cm"/>
+            <fo:table-body>
+                <xsl:call-template name="summary-row">
+                    <xsl:with-param name="label" select="'Opening balance'"/>
+                    <xsl:with-param name="value" select="@opening"/>
+                </xsl:call-template>
+                <xsl:call-template name="summary-row">
+                    <xsl:with-param name="label" select="'Credits'"/>
+                    <xsl:with-param name="value" select="@credits"/>
+                </xsl:call-template>
+                <xsl:call-template name="summary-row">
+                    <xsl:with-param name="label" select="'Debits'"/>
+                    <xsl:with-param name="value" select="@debits"/>
+                </xsl:call-template>
+                <xsl:call-template name="summary-row">
+                    <xsl:with-param name="label" select="'Closing balance'"/>
+                    <xsl:with-param name="value" select="@closing"/>
+                </xsl:call-template>
+            </fo:table-body>
+        </fo:table>
+    </xsl:template>
+
+    <xsl:template name="summary-row">
+        <xsl:param name="label"/>
+        <xsl:param name="value"/>
+        <fo:table-row>
+            <fo:table-cell border-bottom="0.5pt solid #c0c0c0" padding="2pt">
+                <fo:block font-weight="bold"><xsl:value-of select="$label"/></fo:block>
+            </fo:table-cell>
+            <fo:table-cell border-bottom="0.5pt solid #c0c0c0" padding="2pt" text-align="end">
+                <fo:block font-family="Courier">
+                    <xsl:value-of select="$value"/>
+                    <xsl:text> </xsl:text>
+                    <xsl:value-of select="@currency"/>
+                </fo:block>
+            </fo:table-cell>
+        </fo:table-row>
+    </xsl:template>
+
+    <xsl:template match="trend">
+        <fo:block space-after="8pt">
+            <fo:instream-foreign-object content-width="17.4cm" content-height="3cm">
+                <svg:svg width="348" height="60" viewBox="0 0 348 60">
+                    <svg:rect x="0" y="0" width="348" height="60" fill="#f4f6fa"/>
+                    <svg:line x1="0" y1="{@zero}" x2="348" y2="{@zero}" stroke="#b0b0b0"
+                              stroke-dasharray="4 2"/>
+                    <svg:polyline points="{@points}" fill="none" stroke="#1f4e8c"
+                                  stroke-width="1.5"/>
+                </svg:svg>
+            </fo:instream-foreign-object>
+        </fo:block>
+    </xsl:template>
+
+    <xsl:template name="transactions">
+        <fo:table table-layout="fixed" width="100%">
+            <fo:table-column column-width="2cm"/>
+            <fo:table-column column-width="proportional-column-width(1)"/>
+            <fo:table-column column-width="3.2cm"/>
+            <fo:table-column column-width="2.4cm"/>
+            <fo:table-column column-width="2.6cm"/>
+            <fo:table-header font-weight="bold" background-color="#dde3ee">
+                <fo:table-row>
+                    <fo:table-cell padding="2pt"><fo:block>Date</fo:block></fo:table-cell>
+                    <fo:table-cell padding="2pt"><fo:block>Description</fo:block></fo:table-cell>
+                    <fo:table-cell padding="2pt"><fo:block>Reference</fo:block></fo:table-cell>
+                    <fo:table-cell padding="2pt" text-align="end">
+                        <fo:block>Amount</fo:block>
+                    </fo:table-cell>
+                    <fo:table-cell padding="2pt" text-align="end">
+                        <fo:block>Balance</fo:block>
+                    </fo:table-cell>
+                </fo:table-row>
+            </fo:table-header>
+            <fo:table-body>
+                <xsl:apply-templates select="tx"/>
+            </fo:table-body>
+        </fo:table>
+    </xsl:template>
+
+    <xsl:template match="tx">
+        <fo:table-row keep-together.within-page="always">
+            <xsl:if test="position() mod 2 = 0">
+                <xsl:attribute name="background-color">#f5f5f5</xsl:attribute>
+            </xsl:if>
+            <fo:table-cell padding="1.5pt">
+                <fo:marker marker-class-name="balance">
+                    <xsl:value-of select="@balance"/>
+                    <xsl:text> </xsl:text>
+                    <xsl:value-of select="../@currency"/>
+                </fo:marker>
+                <fo:block><xsl:value-of select="@date"/></fo:block>
+            </fo:table-cell>
+            <fo:table-cell padding="1.5pt">
+                <fo:block>
+                    <xsl:value-of select="."/>
+                    <xsl:if test="@note">
+                        <xsl:variable name="number">
+                            <xsl:number count="tx[@note]" level="any" from="statement"/>
+                        </xsl:variable>
+                        <fo:footnote>
+                            <fo:inline baseline-shift="super" font-size="6pt">
+                                <xsl:value-of select="$number"/>
+                            </fo:inline>
+                            <fo:footnote-body>
+                                <fo:block font-size="7pt" font-style="italic">
+                                    <fo:inline baseline-shift="super" font-size="5pt">
+                                        <xsl:value-of select="$number"/>
+                                    </fo:inline>
+                                    <xsl:value-of select="@note"/>
+                                </fo:block>
+                            </fo:footnote-body>
+                        </fo:footnote>
+                    </xsl:if>
+                </fo:block>
+            </fo:table-cell>
+            <fo:table-cell padding="1.5pt">
+                <fo:block font-family="Courier" font-size="8pt">
+                    <xsl:value-of select="@ref"/>
+                </fo:block>
+            </fo:table-cell>
+            <fo:table-cell padding="1.5pt" text-align="end">
+                <fo:block>
+                    <xsl:if test="starts-with(@amount, '-')">
+                        <xsl:attribute name="color">#a01010</xsl:attribute>
+                    </xsl:if>
+                    <xsl:value-of select="@amount"/>
+                </fo:block>
+            </fo:table-cell>
+            <fo:table-cell padding="1.5pt" text-align="end">
+                <fo:block font-weight="bold"><xsl:value-of select="@balance"/></fo:block>
+            </fo:table-cell>
+        </fo:table-row>
+    </xsl:template>
+</xsl:stylesheet>